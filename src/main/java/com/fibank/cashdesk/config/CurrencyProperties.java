@@ -0,0 +1,126 @@
+package com.fibank.cashdesk.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Currency configuration: {@code cashdesk.currencies} and {@code cashdesk.cashiers.initial-balances}.
+ */
+@Component
+@ConfigurationProperties(prefix = "cashdesk")
+public class CurrencyProperties {
+
+    private List<Definition> currencies = new ArrayList<>();
+    private Cashiers cashiers = new Cashiers();
+
+    public List<Definition> getCurrencies() {
+        return currencies;
+    }
+
+    public void setCurrencies(List<Definition> currencies) {
+        this.currencies = currencies;
+    }
+
+    public Cashiers getCashiers() {
+        return cashiers;
+    }
+
+    public void setCashiers(Cashiers cashiers) {
+        this.cashiers = cashiers;
+    }
+
+    /**
+     * A currency and its valid denominations.
+     */
+    public static class Definition {
+        private String code;
+        private Integer id;
+        private List<Integer> denominations = new ArrayList<>();
+
+        public Definition() {
+        }
+
+        public Definition(String code, Integer id, List<Integer> denominations) {
+            this.code = code;
+            this.id = id;
+            this.denominations = denominations;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public void setCode(String code) {
+            this.code = code;
+        }
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public List<Integer> getDenominations() {
+            return denominations;
+        }
+
+        public void setDenominations(List<Integer> denominations) {
+            this.denominations = denominations;
+        }
+    }
+
+    /**
+     * Opening floats of new cashiers, keyed by lower-case currency code.
+     */
+    public static class Cashiers {
+        private Map<String, InitialBalance> initialBalances = new LinkedHashMap<>();
+
+        public Map<String, InitialBalance> getInitialBalances() {
+            return initialBalances;
+        }
+
+        public void setInitialBalances(Map<String, InitialBalance> initialBalances) {
+            this.initialBalances = initialBalances;
+        }
+    }
+
+    /**
+     * Opening float in one currency; the amount must equal the sum of the denominations.
+     */
+    public static class InitialBalance {
+        private BigDecimal amount;
+        private Map<Integer, Integer> denominations = new LinkedHashMap<>();
+
+        public InitialBalance() {
+        }
+
+        public InitialBalance(BigDecimal amount, Map<Integer, Integer> denominations) {
+            this.amount = amount;
+            this.denominations = denominations;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
+
+        public Map<Integer, Integer> getDenominations() {
+            return denominations;
+        }
+
+        public void setDenominations(Map<Integer, Integer> denominations) {
+            this.denominations = denominations;
+        }
+    }
+}
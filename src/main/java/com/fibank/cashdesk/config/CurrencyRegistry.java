@@ -0,0 +1,191 @@
+package com.fibank.cashdesk.config;
+
+import com.fibank.cashdesk.exception.DataCorruptionException;
+import com.fibank.cashdesk.exception.FileStorageException;
+import com.fibank.cashdesk.model.Currency;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Registers the configured currencies with {@link Currency} at startup.
+ * Beans that load balances or transactions depend on this one, so the denomination tables are final
+ * before any count array is built. An invalid configuration fails startup.
+ *
+ * The registered currencies and denominations are recorded in {@code currencies.txt} in the data directory,
+ * one {@code code|id|denominations} line per currency. Stored balances and transactions may use any recorded
+ * denomination, so a configuration that drops a recorded currency or denomination, or changes an id, fails startup
+ * instead of failing the replay or dropping the counts from balances.
+ */
+@Component("currencyRegistry")
+public class CurrencyRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(CurrencyRegistry.class);
+
+    private static final String RECORD_FILE = "currencies.txt";
+
+    public CurrencyRegistry(CurrencyProperties properties, @Value("${cashdesk.storage.data-dir}") String dataDir) {
+        Map<String, CurrencyProperties.InitialBalance> initialBalances = new HashMap<>();
+        properties.getCashiers().getInitialBalances()
+            .forEach((code, balance) -> initialBalances.put(code.toUpperCase(Locale.ROOT), balance));
+
+        // Only configured currencies are supported; nothing falls back to built-in denominations
+        List<CurrencyProperties.Definition> definitions = properties.getCurrencies();
+        if (definitions.isEmpty()) {
+            throw new IllegalStateException("No currencies configured in cashdesk.currencies");
+        }
+
+        // Validate everything before registering anything
+        for (CurrencyProperties.Definition definition : definitions) {
+            validate(definition, initialBalances.get(definition.getCode()));
+        }
+        for (String code : initialBalances.keySet()) {
+            if (definitions.stream().noneMatch(definition -> code.equals(definition.getCode()))) {
+                throw new IllegalStateException(
+                    "Initial balance configured for unknown currency " + code + ", which is not in cashdesk.currencies");
+            }
+        }
+        Path recordFile = Paths.get(dataDir, RECORD_FILE);
+        checkRecorded(readRecorded(recordFile), definitions, recordFile);
+        for (CurrencyProperties.Definition definition : definitions) {
+            CurrencyProperties.InitialBalance balance = initialBalances.get(definition.getCode());
+            try {
+                Currency.register(definition.getCode(), definition.getId(), definition.getDenominations(),
+                    balance != null ? balance.getDenominations() : Map.of());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Invalid currency configuration: " + e.getMessage(), e);
+            }
+        }
+
+        for (Currency currency : Currency.values()) {
+            log.info("Currency {} (id {}) with denominations {}", currency, currency.getId(),
+                currency.getValidDenominations());
+        }
+        writeRecorded(recordFile);
+    }
+
+    /**
+     * Fail if a recorded currency is gone, changed its id or lost a denomination.
+     */
+    private static void checkRecorded(List<CurrencyProperties.Definition> recorded,
+                                      List<CurrencyProperties.Definition> definitions, Path recordFile) {
+        for (CurrencyProperties.Definition previous : recorded) {
+            CurrencyProperties.Definition current = definitions.stream()
+                .filter(definition -> previous.getCode().equals(definition.getCode()))
+                .findFirst()
+                .orElse(null);
+            if (current == null) {
+                throw new IllegalStateException(String.format(
+                    "Currency %s is recorded in %s but no longer configured in cashdesk.currencies; "
+                        + "stored balances and transactions may use it, so add it back",
+                    previous.getCode(), recordFile));
+            }
+            if (!previous.getId().equals(current.getId())) {
+                throw new IllegalStateException(String.format(
+                    "Currency %s is recorded in %s with id %d but configured with id %d; ids must never change",
+                    previous.getCode(), recordFile, previous.getId(), current.getId()));
+            }
+            Set<Integer> missing = new TreeSet<>(previous.getDenominations());
+            missing.removeAll(current.getDenominations());
+            if (!missing.isEmpty()) {
+                throw new IllegalStateException(String.format(
+                    "Denominations %s of %s are recorded in %s but missing from cashdesk.currencies; "
+                        + "stored balances and transactions may use them, so add them back",
+                    missing, previous.getCode(), recordFile));
+            }
+        }
+    }
+
+    private static List<CurrencyProperties.Definition> readRecorded(Path recordFile) {
+        if (!Files.exists(recordFile)) {
+            return List.of();
+        }
+        List<CurrencyProperties.Definition> recorded = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(recordFile, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] parts = line.split("\\|", -1);
+                if (parts.length != 3) {
+                    throw new DataCorruptionException("Invalid line in " + recordFile + ": " + line);
+                }
+                List<Integer> denominations = new ArrayList<>();
+                for (String denomination : parts[2].split(",")) {
+                    denominations.add(Integer.parseInt(denomination));
+                }
+                recorded.add(new CurrencyProperties.Definition(parts[0], Integer.parseInt(parts[1]), denominations));
+            }
+        } catch (NumberFormatException e) {
+            throw new DataCorruptionException("Invalid currency record in " + recordFile, e);
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to read " + recordFile, e);
+        }
+        return recorded;
+    }
+
+    /**
+     * Atomically replace the record with the registered currencies.
+     */
+    private static void writeRecorded(Path recordFile) {
+        StringBuilder content = new StringBuilder();
+        for (Currency currency : Currency.values()) {
+            content.append(currency.name()).append('|').append(currency.getId()).append('|')
+                .append(currency.getValidDenominations().stream().map(String::valueOf).collect(Collectors.joining(",")))
+                .append('\n');
+        }
+        Path tempFile = recordFile.resolveSibling(RECORD_FILE + ".tmp");
+        try {
+            Files.createDirectories(recordFile.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8)));
+                channel.force(true);
+            }
+            Files.move(tempFile, recordFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to write " + recordFile, e);
+        }
+    }
+
+    private static void validate(CurrencyProperties.Definition definition, CurrencyProperties.InitialBalance balance) {
+        if (definition.getCode() == null || definition.getId() == null
+            || definition.getDenominations() == null || definition.getDenominations().isEmpty()) {
+            throw new IllegalStateException(
+                "Currency configuration requires code, id and denominations, got code " + definition.getCode());
+        }
+        if (balance == null || balance.getAmount() == null) {
+            return;
+        }
+
+        BigDecimal sum = BigDecimal.ZERO;
+        for (Map.Entry<Integer, Integer> entry : balance.getDenominations().entrySet()) {
+            sum = sum.add(BigDecimal.valueOf((long) entry.getKey() * entry.getValue()));
+        }
+        if (sum.compareTo(balance.getAmount()) != 0) {
+            throw new IllegalStateException(String.format(
+                "Initial balance of %s is %s but its denominations sum to %s",
+                definition.getCode(), balance.getAmount().toPlainString(), sum.toPlainString()));
+        }
+    }
+}
@@ -1,37 +1,55 @@
 package com.fibank.cashdesk.config;
 
 import com.fibank.cashdesk.util.MdcUtil;
-import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
-import jakarta.servlet.ServletRequest;
-import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
 /**
  * Filter to set up MDC (Mapped Diagnostic Context) for each HTTP request.
  * Generates correlation IDs for request tracing and ensures proper cleanup.
+ * Also runs on the async dispatch of a deferred response, which may be on another thread,
+ * and restores the correlation ID of the request there.
  */
 @Component
 @Order(1)
-public class MdcFilter implements Filter {
+public class MdcFilter extends OncePerRequestFilter {
 
     private static final Logger log = LoggerFactory.getLogger(MdcFilter.class);
     private static final String CORRELATION_ID_HEADER = "X-Correlation-ID";
+    private static final String CORRELATION_ID_ATTRIBUTE = MdcFilter.class.getName() + ".correlationId";
 
     @Override
-    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
-            throws IOException, ServletException {
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected boolean shouldNotFilterErrorDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain chain) throws ServletException, IOException {
 
         try {
-            if (request instanceof HttpServletRequest httpRequest) {
-                String correlationId = httpRequest.getHeader(CORRELATION_ID_HEADER);
+            String correlationId = (String) request.getAttribute(CORRELATION_ID_ATTRIBUTE);
+
+            if (correlationId != null) {
+                // Later dispatch of the same request
+                MdcUtil.setCorrelationId(correlationId);
+            } else {
+                correlationId = request.getHeader(CORRELATION_ID_HEADER);
 
                 if (correlationId == null || correlationId.isBlank()) {
                     correlationId = MdcUtil.generateCorrelationId();
@@ -41,9 +59,8 @@ public class MdcFilter implements Filter {
                     log.debug("Using correlation ID from header: {}", correlationId);
                 }
 
-                if (response instanceof jakarta.servlet.http.HttpServletResponse httpResponse) {
-                    httpResponse.setHeader(CORRELATION_ID_HEADER, correlationId);
-                }
+                request.setAttribute(CORRELATION_ID_ATTRIBUTE, correlationId);
+                response.setHeader(CORRELATION_ID_HEADER, correlationId);
             }
 
             chain.doFilter(request, response);
@@ -0,0 +1,35 @@
+package com.fibank.cashdesk.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor on which cash operations complete once their transaction is committed: responses, idempotency caching
+ * and rollbacks of failed saves run there instead of on the transaction log writer thread, which would otherwise
+ * stall every commit behind them.
+ */
+@Configuration
+public class OperationExecutorConfig {
+
+    public static final String COMPLETION_EXECUTOR = "operationCompletionExecutor";
+
+    @Bean(name = COMPLETION_EXECUTOR, destroyMethod = "shutdown")
+    public ExecutorService operationCompletionExecutor(@Value("${cashdesk.operations.completion-threads:4}") int threads) {
+        AtomicInteger created = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "operation-completion-" + created.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            // Once shut down, operations committed during shutdown complete on the committing thread
+            (task, executor) -> task.run());
+    }
+}
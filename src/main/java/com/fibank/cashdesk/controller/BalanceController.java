@@ -10,6 +10,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.Instant;
 
@@ -30,22 +31,33 @@ public class BalanceController {
 
     /**
      * Query cash balances with optional filters.
+     * The response carries the version of the balances read as its ETag; a request whose If-None-Match holds
+     * the current ETag is answered with 304 Not Modified without running the query.
      *
      * @param dateFrom Start date (optional)
      * @param dateTo End date (optional)
      * @param cashier Cashier name (optional)
-     * @return Balance query response
+     * @param webRequest Current request, for the If-None-Match check
+     * @return Balance query response, or null if not modified
      */
     @GetMapping("/cash-balance")
     public ResponseEntity<BalanceQueryResponse> queryBalance(
         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant dateFrom,
         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant dateTo,
-        @RequestParam(required = false) String cashier
+        @RequestParam(required = false) String cashier,
+        WebRequest webRequest
     ) {
         log.info("Balance query - cashier: {}, dateFrom: {}, dateTo: {}", cashier, dateFrom, dateTo);
 
+        // Read before the query, so a change made while it runs shows up as a new version next time
+        String etag = BalanceETag.of(cashier, balanceQueryService.getBalanceVersion(dateFrom, dateTo, cashier));
+        if (webRequest.checkNotModified(etag)) {
+            log.debug("Balances not modified since {}", etag);
+            return null;
+        }
+
         BalanceQueryResponse response = balanceQueryService.queryBalance(dateFrom, dateTo, cashier);
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(etag).body(response);
     }
 }
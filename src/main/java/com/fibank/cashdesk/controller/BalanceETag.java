@@ -0,0 +1,53 @@
+package com.fibank.cashdesk.controller;
+
+import com.fibank.cashdesk.exception.BalanceVersionMismatchException;
+
+/**
+ * Entity tags of balance reads. A read of one cashier is tagged with the cashier and its balance version,
+ * e.g. {@code "PETER:1760000000000123"}, which a cash operation on that cashier accepts as If-Match.
+ * A read of all cashiers is tagged with a digest of their versions, which no cash operation accepts.
+ */
+final class BalanceETag {
+
+    private BalanceETag() {
+    }
+
+    /**
+     * @param cashier Cashier read, or null for all cashiers
+     * @param version Version of the balances read
+     * @return Strong entity tag, quoted
+     */
+    static String of(String cashier, long version) {
+        return cashier != null
+            ? "\"" + cashier.toUpperCase() + ":" + version + "\""
+            : "\"" + Long.toHexString(version) + "\"";
+    }
+
+    /**
+     * @param ifMatch If-Match header of a cash operation, or null
+     * @param cashier Cashier of the operation
+     * @return Version carried by the tag, or null if the operation is unconditional
+     * @throws BalanceVersionMismatchException if the header is not the tag of a balance read of the cashier
+     */
+    static Long expectedVersion(String ifMatch, String cashier) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        int separator = tag.lastIndexOf(':');
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"") && separator > 0
+            && tag.substring(1, separator).equalsIgnoreCase(cashier)) {
+            try {
+                long version = Long.parseLong(tag.substring(separator + 1, tag.length() - 1));
+                // Published versions are positive; 0 marks a balance changed but not published yet
+                if (version > 0) {
+                    return version;
+                }
+            } catch (NumberFormatException e) {
+                // Not a version
+            }
+        }
+        throw new BalanceVersionMismatchException(
+            "If-Match does not match a balance read of cashier " + cashier.toUpperCase());
+    }
+}
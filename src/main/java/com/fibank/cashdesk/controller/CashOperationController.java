@@ -1,12 +1,18 @@
 package com.fibank.cashdesk.controller;
 
+import com.fibank.cashdesk.config.OperationExecutorConfig;
+import com.fibank.cashdesk.dto.request.BatchCashOperationItem;
+import com.fibank.cashdesk.dto.request.BatchCashOperationRequest;
 import com.fibank.cashdesk.dto.request.CashOperationRequest;
+import com.fibank.cashdesk.dto.response.BatchCashOperationResponse;
+import com.fibank.cashdesk.dto.response.BatchOperationResultDTO;
 import com.fibank.cashdesk.dto.response.CashOperationResponse;
 import com.fibank.cashdesk.service.CashOperationService;
 import com.fibank.cashdesk.service.IdempotencyService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -14,8 +20,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * REST controller for cash operations (deposits and withdrawals).
@@ -28,11 +41,14 @@ public class CashOperationController {
 
     private final CashOperationService cashOperationService;
     private final IdempotencyService idempotencyService;
+    private final Executor completionExecutor;
 
     public CashOperationController(CashOperationService cashOperationService,
-                                    IdempotencyService idempotencyService) {
+                                    IdempotencyService idempotencyService,
+                                    @Qualifier(OperationExecutorConfig.COMPLETION_EXECUTOR) Executor completionExecutor) {
         this.cashOperationService = cashOperationService;
         this.idempotencyService = idempotencyService;
+        this.completionExecutor = completionExecutor;
     }
 
     /**
@@ -42,16 +58,21 @@ public class CashOperationController {
      * the cached response will be returned instead of processing again.
      * This is a critical security requirement for banking operations to prevent
      * duplicate transactions due to network retries or accidental resubmissions.
+     * With an If-Match header carrying the ETag of a balance read of the cashier, the operation is applied
+     * only if the cashier's balances have not changed since that read.
      *
      * @param request Cash operation request
      * @param idempotencyKey Mandatory idempotency key (UUID format) for duplicate prevention
-     * @return Cash operation response
+     * @param ifMatch Optional ETag of a balance read of the cashier
+     * @return Cash operation response, set once the transaction is committed
      * @throws com.fibank.cashdesk.exception.InvalidIdempotencyKeyException if key is missing, blank, or invalid UUID
+     * @throws com.fibank.cashdesk.exception.BalanceVersionMismatchException if If-Match is not an ETag of the cashier
      */
     @PostMapping("/cash-operation")
-    public ResponseEntity<CashOperationResponse> processCashOperation(
+    public DeferredResult<ResponseEntity<CashOperationResponse>> processCashOperation(
         @Valid @RequestBody CashOperationRequest request,
-        @RequestHeader(value = "Idempotency-Key", required = true) String idempotencyKey
+        @RequestHeader(value = "Idempotency-Key", required = true) String idempotencyKey,
+        @RequestHeader(value = "If-Match", required = false) String ifMatch
     ) {
         validateIdempotencyKey(idempotencyKey);
 
@@ -63,18 +84,97 @@ public class CashOperationController {
             idempotencyKey
         );
 
+        DeferredResult<ResponseEntity<CashOperationResponse>> result = new DeferredResult<>();
         Optional<CashOperationResponse> cachedResponse = idempotencyService.getCachedResponse(idempotencyKey);
 
         if (cachedResponse.isPresent()) {
             log.info("Duplicate request detected with idempotency key: {}. Returning cached response.",
                     idempotencyKey);
-            return ResponseEntity.status(HttpStatus.OK).body(cachedResponse.get());
+            result.setResult(ResponseEntity.status(HttpStatus.OK).body(cachedResponse.get()));
+            return result;
         }
 
-        CashOperationResponse response = cashOperationService.processOperation(request);
-        idempotencyService.cacheResponse(idempotencyKey, response);
+        Long expectedVersion = BalanceETag.expectedVersion(ifMatch, request.getCashier());
 
-        return ResponseEntity.status(HttpStatus.OK).body(response);
+        // The response is written on the completion executor once the transaction is committed, never on the log
+        // writer thread. In LOCKED mode the balance update has run on this thread by the time the call returns,
+        // including any append or balance file force it waits for under the balance lock
+        cashOperationService.processOperationAsync(request, expectedVersion).whenCompleteAsync((response, failure) -> {
+            if (failure != null) {
+                result.setErrorResult(failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause()
+                    : failure);
+                return;
+            }
+            idempotencyService.cacheResponse(idempotencyKey, response);
+            result.setResult(ResponseEntity.status(HttpStatus.OK).body(response));
+        }, completionExecutor);
+
+        return result;
+    }
+
+    /**
+     * Process an ordered batch of cash operations, e.g. operations queued offline, in one request.
+     * Each operation carries its own idempotency key; operations already processed return their cached response
+     * with status DUPLICATE and are not applied again. The others are applied together, with one balance persist
+     * and one log commit. In ATOMIC mode any failed operation leaves all of them unapplied; in BEST_EFFORT mode
+     * every operation that can be applied is.
+     *
+     * @param request Batch mode and operations in order
+     * @return Result of each operation in request order: 200 if none failed,
+     *         422 if an atomic batch was rejected, 207 if some operations of a best-effort batch failed
+     * @throws com.fibank.cashdesk.exception.InvalidIdempotencyKeyException if two operations share an idempotency key
+     */
+    @PostMapping("/cash-operation/batch")
+    public ResponseEntity<BatchCashOperationResponse> processCashOperationBatch(
+        @Valid @RequestBody BatchCashOperationRequest request
+    ) {
+        List<BatchCashOperationItem> operations = request.getOperations();
+        Set<String> keys = new HashSet<>();
+        for (BatchCashOperationItem operation : operations) {
+            if (!keys.add(operation.getIdempotencyKey())) {
+                throw new com.fibank.cashdesk.exception.InvalidIdempotencyKeyException(
+                    "Duplicate idempotency key in batch: " + operation.getIdempotencyKey());
+            }
+        }
+        boolean atomic = "ATOMIC".equals(request.getMode());
+
+        log.info("Received {} batch of {} cash operations", request.getMode(), operations.size());
+
+        BatchOperationResultDTO[] results = new BatchOperationResultDTO[operations.size()];
+        List<BatchCashOperationItem> pending = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            Optional<CashOperationResponse> cachedResponse =
+                idempotencyService.getCachedResponse(operations.get(i).getIdempotencyKey());
+            if (cachedResponse.isPresent()) {
+                results[i] = new BatchOperationResultDTO(BatchOperationResultDTO.DUPLICATE, cachedResponse.get(), null);
+            } else {
+                pending.add(operations.get(i));
+                positions.add(i);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            List<BatchOperationResultDTO> processed = cashOperationService.processBatch(pending, atomic);
+            for (int j = 0; j < processed.size(); j++) {
+                BatchOperationResultDTO result = processed.get(j);
+                if (BatchOperationResultDTO.APPLIED.equals(result.getStatus())) {
+                    idempotencyService.cacheResponse(pending.get(j).getIdempotencyKey(), result.getResult());
+                }
+                results[positions.get(j)] = result;
+            }
+        }
+
+        for (int i = 0; i < results.length; i++) {
+            results[i].setIndex(i);
+            results[i].setIdempotencyKey(operations.get(i).getIdempotencyKey());
+        }
+
+        BatchCashOperationResponse response = new BatchCashOperationResponse(request.getMode(), List.of(results));
+        HttpStatus status = response.getFailed() == 0 ? HttpStatus.OK
+            : atomic ? HttpStatus.UNPROCESSABLE_ENTITY : HttpStatus.MULTI_STATUS;
+        return ResponseEntity.status(status).body(response);
     }
 
     /**
@@ -0,0 +1,45 @@
+package com.fibank.cashdesk.controller;
+
+import com.fibank.cashdesk.dto.request.CashierRequest;
+import com.fibank.cashdesk.dto.response.CashierBalanceDTO;
+import com.fibank.cashdesk.service.CashierService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for cashier management.
+ */
+@RestController
+@RequestMapping("/api/v1")
+public class CashierController {
+
+    private static final Logger log = LoggerFactory.getLogger(CashierController.class);
+
+    private final CashierService cashierService;
+
+    public CashierController(CashierService cashierService) {
+        this.cashierService = cashierService;
+    }
+
+    /**
+     * Add a cashier at runtime, with the configured opening balances.
+     *
+     * @param request Name of the new cashier
+     * @return Opening balances of the cashier
+     */
+    @PostMapping("/cashiers")
+    public ResponseEntity<CashierBalanceDTO> addCashier(@Valid @RequestBody CashierRequest request) {
+        log.info("Add cashier request: {}", request.getName());
+
+        CashierBalanceDTO response = cashierService.addCashier(request.getName());
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+}
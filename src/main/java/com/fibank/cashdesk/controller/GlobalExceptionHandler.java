@@ -1,6 +1,9 @@
 package com.fibank.cashdesk.controller;
 
 import com.fibank.cashdesk.dto.response.ErrorResponse;
+import com.fibank.cashdesk.exception.CashierAlreadyExistsException;
+import com.fibank.cashdesk.exception.BalanceVersionMismatchException;
+import com.fibank.cashdesk.exception.CashierBusyException;
 import com.fibank.cashdesk.exception.DataCorruptionException;
 import com.fibank.cashdesk.exception.FileStorageException;
 import com.fibank.cashdesk.exception.InsufficientFundsException;
@@ -17,6 +20,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingRequestHeaderException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -52,6 +56,17 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
 
+    @ExceptionHandler(CashierAlreadyExistsException.class)
+    public ResponseEntity<ErrorResponse> handleCashierAlreadyExistsException(CashierAlreadyExistsException ex) {
+        log.warn("Cashier already exists: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.CONFLICT.value(),
+            "Conflict",
+            ex.getMessage()
+        );
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
     @ExceptionHandler(InvalidDenominationException.class)
     public ResponseEntity<ErrorResponse> handleInvalidDenominationException(InvalidDenominationException ex) {
         log.warn("Invalid denomination: {}", ex.getMessage());
@@ -107,6 +122,39 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
+    @ExceptionHandler(CashierBusyException.class)
+    public ResponseEntity<ErrorResponse> handleCashierBusyException(CashierBusyException ex) {
+        log.warn("Cashier busy: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.SERVICE_UNAVAILABLE.value(),
+            "Service Unavailable",
+            ex.getMessage()
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
+    @ExceptionHandler(BalanceVersionMismatchException.class)
+    public ResponseEntity<ErrorResponse> handleBalanceVersionMismatchException(BalanceVersionMismatchException ex) {
+        log.warn("Precondition failed: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.PRECONDITION_FAILED.value(),
+            "Precondition Failed",
+            ex.getMessage()
+        );
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(error);
+    }
+
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    public ResponseEntity<ErrorResponse> handleAsyncRequestTimeoutException(AsyncRequestTimeoutException ex) {
+        log.warn("Operation did not complete within the async request timeout");
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.SERVICE_UNAVAILABLE.value(),
+            "Service Unavailable",
+            "The operation did not complete in time"
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
     @ExceptionHandler(FileStorageException.class)
     public ResponseEntity<ErrorResponse> handleFileStorageException(FileStorageException ex) {
         log.error("File storage error: {}", ex.getMessage(), ex);
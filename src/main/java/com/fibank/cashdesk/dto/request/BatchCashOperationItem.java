@@ -0,0 +1,35 @@
+package com.fibank.cashdesk.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * One operation of a batch request, with its own idempotency key.
+ */
+public class BatchCashOperationItem extends CashOperationRequest {
+
+    @NotBlank(message = "Idempotency key is required")
+    @Pattern(regexp = "^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$",
+        message = "Idempotency key must be a valid UUID format (e.g., 550e8400-e29b-41d4-a716-446655440000)")
+    private String idempotencyKey;
+
+    public BatchCashOperationItem() {
+    }
+
+    public BatchCashOperationItem(String idempotencyKey, String operationType, String cashier, String currency,
+                                  BigDecimal amount, Map<Integer, Integer> denominations) {
+        super(operationType, cashier, currency, amount, denominations);
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+}
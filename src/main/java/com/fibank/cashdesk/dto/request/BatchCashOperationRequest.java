@@ -0,0 +1,53 @@
+package com.fibank.cashdesk.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Request DTO for an ordered batch of cash operations.
+ */
+public class BatchCashOperationRequest {
+
+    /**
+     * Largest number of operations in one batch.
+     */
+    public static final int MAX_OPERATIONS = 500;
+
+    @NotBlank(message = "Batch mode is required")
+    @Pattern(regexp = "ATOMIC|BEST_EFFORT", message = "Batch mode must be ATOMIC or BEST_EFFORT")
+    private String mode;
+
+    @NotNull(message = "Operations are required")
+    @Size(min = 1, max = MAX_OPERATIONS, message = "A batch must contain between 1 and " + MAX_OPERATIONS + " operations")
+    @Valid
+    private List<BatchCashOperationItem> operations;
+
+    public BatchCashOperationRequest() {
+    }
+
+    public BatchCashOperationRequest(String mode, List<BatchCashOperationItem> operations) {
+        this.mode = mode;
+        this.operations = operations;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public List<BatchCashOperationItem> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<BatchCashOperationItem> operations) {
+        this.operations = operations;
+    }
+}
@@ -1,6 +1,7 @@
 package com.fibank.cashdesk.dto.request;
 
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
@@ -19,15 +20,16 @@ public class CashOperationRequest {
     private String operationType;
 
     @NotBlank(message = "Cashier name is required")
-    @Pattern(regexp = "MARTINA|PETER|LINDA", message = "Cashier must be MARTINA, PETER, or LINDA")
+    @RegisteredCashier
     private String cashier;
 
     @NotBlank(message = "Currency is required")
-    @Pattern(regexp = "BGN|EUR", message = "Currency must be BGN or EUR")
+    @SupportedCurrency
     private String currency;
 
     @NotNull(message = "Amount is required")
     @DecimalMin(value = "0.01", message = "Amount must be positive")
+    @Digits(integer = 16, fraction = 2, message = "Amount must have at most 16 integer digits and 2 decimal places")
     private BigDecimal amount;
 
     @NotNull(message = "Denominations are required")
@@ -0,0 +1,30 @@
+package com.fibank.cashdesk.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+
+/**
+ * Request DTO for adding a cashier.
+ */
+public class CashierRequest {
+
+    @NotBlank(message = "Cashier name is required")
+    @Pattern(regexp = "[A-Za-z][A-Za-z0-9_]{0,31}",
+        message = "Cashier name must be 1-32 letters, digits or underscores starting with a letter")
+    private String name;
+
+    public CashierRequest() {
+    }
+
+    public CashierRequest(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,16 @@
+package com.fibank.cashdesk.dto.request;
+
+import com.fibank.cashdesk.model.Cashier;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+/**
+ * Validates {@link RegisteredCashier} against the cashier registry.
+ */
+public class RegisteredCashierValidator implements ConstraintValidator<RegisteredCashier, String> {
+
+    @Override
+    public boolean isValid(String value, ConstraintValidatorContext context) {
+        return value == null || Cashier.isValid(value);
+    }
+}
@@ -0,0 +1,27 @@
+package com.fibank.cashdesk.dto.request;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotated string must be the code of a registered currency.
+ * Null values are valid; combine with {@code @NotBlank} to require one.
+ */
+@Documented
+@Constraint(validatedBy = SupportedCurrencyValidator.class)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SupportedCurrency {
+
+    String message() default "Currency is not supported";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
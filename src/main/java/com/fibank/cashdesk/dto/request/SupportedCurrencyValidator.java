@@ -0,0 +1,16 @@
+package com.fibank.cashdesk.dto.request;
+
+import com.fibank.cashdesk.model.Currency;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+/**
+ * Validates {@link SupportedCurrency} against the currency registry.
+ */
+public class SupportedCurrencyValidator implements ConstraintValidator<SupportedCurrency, String> {
+
+    @Override
+    public boolean isValid(String value, ConstraintValidatorContext context) {
+        return value == null || Currency.isSupported(value);
+    }
+}
@@ -0,0 +1,60 @@
+package com.fibank.cashdesk.dto.response;
+
+import java.util.List;
+
+/**
+ * Response DTO for a batch of cash operations, with one result per operation in request order.
+ */
+public class BatchCashOperationResponse {
+    private String mode;
+    private int succeeded;
+    private int failed;
+    private List<BatchOperationResultDTO> results;
+
+    public BatchCashOperationResponse() {
+    }
+
+    public BatchCashOperationResponse(String mode, List<BatchOperationResultDTO> results) {
+        this.mode = mode;
+        this.results = results;
+        for (BatchOperationResultDTO result : results) {
+            if (BatchOperationResultDTO.FAILED.equals(result.getStatus())) {
+                failed++;
+            } else if (!BatchOperationResultDTO.NOT_APPLIED.equals(result.getStatus())) {
+                succeeded++;
+            }
+        }
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public void setSucceeded(int succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public List<BatchOperationResultDTO> getResults() {
+        return results;
+    }
+
+    public void setResults(List<BatchOperationResultDTO> results) {
+        this.results = results;
+    }
+}
@@ -0,0 +1,82 @@
+package com.fibank.cashdesk.dto.response;
+
+/**
+ * Outcome of one operation of a batch.
+ */
+public class BatchOperationResultDTO {
+
+    /**
+     * Operation was applied by this request.
+     */
+    public static final String APPLIED = "APPLIED";
+
+    /**
+     * Operation was applied by an earlier request with the same idempotency key; the cached result is returned.
+     */
+    public static final String DUPLICATE = "DUPLICATE";
+
+    /**
+     * Operation was rejected or could not be saved.
+     */
+    public static final String FAILED = "FAILED";
+
+    /**
+     * Operation was valid but not applied, because another operation of the atomic batch failed.
+     */
+    public static final String NOT_APPLIED = "NOT_APPLIED";
+
+    private int index;
+    private String idempotencyKey;
+    private String status;
+    private CashOperationResponse result;
+    private String error;
+
+    public BatchOperationResultDTO() {
+    }
+
+    public BatchOperationResultDTO(String status, CashOperationResponse result, String error) {
+        this.status = status;
+        this.result = result;
+        this.error = error;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public CashOperationResponse getResult() {
+        return result;
+    }
+
+    public void setResult(CashOperationResponse result) {
+        this.result = result;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,11 @@
+package com.fibank.cashdesk.exception;
+
+/**
+ * Exception thrown when a balance has changed since the version a conditional operation was based on.
+ */
+public class BalanceVersionMismatchException extends CashDeskException {
+
+    public BalanceVersionMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.fibank.cashdesk.exception;
+
+/**
+ * Exception thrown when adding a cashier that already exists.
+ */
+public class CashierAlreadyExistsException extends CashDeskException {
+
+    public CashierAlreadyExistsException(String message) {
+        super(message);
+    }
+}
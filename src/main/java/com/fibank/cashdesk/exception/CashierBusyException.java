@@ -0,0 +1,11 @@
+package com.fibank.cashdesk.exception;
+
+/**
+ * Exception thrown when a cashier has too many pending operations to accept another.
+ */
+public class CashierBusyException extends CashDeskException {
+
+    public CashierBusyException(String message) {
+        super(message);
+    }
+}
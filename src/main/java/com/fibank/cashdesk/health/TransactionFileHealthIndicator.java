@@ -1,8 +1,10 @@
 package com.fibank.cashdesk.health;
 
+import com.fibank.cashdesk.repository.TransactionFormat;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.stereotype.Component;
@@ -20,15 +22,23 @@ import java.nio.file.Paths;
  * - File readability and writability
  * - Transaction count and file integrity
  * - File size (for detecting potential corruption)
+ * Applies to the file storage engine; the mapped engine keeps its log in segment files.
  */
 @Slf4j
 @Component
+@ConditionalOnProperty(prefix = "cashdesk.storage", name = "engine", havingValue = "FILE", matchIfMissing = true)
 @RequiredArgsConstructor
 public class TransactionFileHealthIndicator implements HealthIndicator {
 
     @Value("${cashdesk.storage.transaction-file}")
     private String transactionFilePath;
 
+    @Value("${cashdesk.storage.binary-transaction-file:}")
+    private String binaryTransactionFilePath;
+
+    @Value("${cashdesk.storage.format:TEXT}")
+    private TransactionFormat format = TransactionFormat.TEXT;
+
     @Value("${cashdesk.storage.data-dir}")
     private String dataDir;
 
@@ -37,8 +47,10 @@ public class TransactionFileHealthIndicator implements HealthIndicator {
 
     @Override
     public Health health() {
+        String transactionFilePath = this.transactionFilePath;
         try {
-            Path transactionPath = Paths.get(transactionFilePath);
+            Path transactionPath = format.resolveLogFile(this.transactionFilePath, binaryTransactionFilePath);
+            transactionFilePath = transactionPath.toString();
             Path dataDirPath = Paths.get(dataDir);
             File transactionFile = transactionPath.toFile();
             File dataDirFile = dataDirPath.toFile();
@@ -95,11 +107,24 @@ public class TransactionFileHealthIndicator implements HealthIndicator {
                         .build();
             }
 
+            if (format == TransactionFormat.BINARY) {
+                // Records are length-prefixed, so there is no cheap line count to report
+                log.debug("Health check: Binary transaction file is healthy");
+                return Health.up()
+                        .withDetail("transactionFile", transactionFilePath)
+                        .withDetail("format", format)
+                        .withDetail("fileSizeBytes", transactionFile.length())
+                        .withDetail("readable", true)
+                        .withDetail("writable", true)
+                        .build();
+            }
+
             int transactionCount = countTransactions(transactionFile);
 
             log.debug("Health check: Transaction file is healthy with {} transactions", transactionCount);
             return Health.up()
                     .withDetail("transactionFile", transactionFilePath)
+                    .withDetail("format", format)
                     .withDetail("fileSizeBytes", transactionFile.length())
                     .withDetail("transactionCount", transactionCount)
                     .withDetail("readable", true)
@@ -0,0 +1,199 @@
+package com.fibank.cashdesk.model;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable view of one cashier's balances at a point in time.
+ * Safe to share between threads without copying; writers build a new snapshot for every change.
+ *
+ * Each currency balance carries a version, drawn from one process-wide increasing sequence whenever the balance is
+ * replaced. A snapshot published in place of another therefore has a higher {@link #getVersion()} than it, and a
+ * balance changed after a snapshot was read has a higher version than that snapshot.
+ */
+public final class BalanceSnapshot {
+    // Seeded from the clock so that versions keep increasing across restarts,
+    // unless the previous run drew more than one version per microsecond on average
+    private static final AtomicLong VERSIONS =
+        new AtomicLong(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+
+    private final String cashier;
+    private final Map<Currency, int[]> counts; // Never mutated, indexed by the currency's denomination table
+    private final Map<Currency, Long> versions; // Never mutated, same currencies as counts
+    private final Map<Currency, Map<Integer, Integer>> denominations; // Unmodifiable, denominations in ascending order
+
+    private BalanceSnapshot(String cashier, Map<Currency, int[]> counts, Map<Currency, Long> versions) {
+        this.cashier = Objects.requireNonNull(cashier, "Cashier cannot be null");
+        this.counts = counts;
+        this.versions = versions;
+
+        Map<Currency, Map<Integer, Integer>> currencyDenominations = new TreeMap<>();
+        for (Map.Entry<Currency, int[]> entry : counts.entrySet()) {
+            Currency currency = entry.getKey();
+            Map<Integer, Integer> currencyCounts = new TreeMap<>();
+            for (int i = 0; i < entry.getValue().length; i++) {
+                currencyCounts.put(currency.denominationAt(i), entry.getValue()[i]);
+            }
+            currencyDenominations.put(currency, Collections.unmodifiableMap(currencyCounts));
+        }
+        this.denominations = Collections.unmodifiableMap(currencyDenominations);
+    }
+
+    /**
+     * Capture the current state of a cashier's balances.
+     * @param cashier Cashier name
+     * @param balances Map of currency to balance (copied)
+     * @return Snapshot holding the currencies present in the map, all at a new version
+     */
+    public static BalanceSnapshot of(String cashier, Map<Currency, CashBalance> balances) {
+        Map<Currency, int[]> counts = new TreeMap<>();
+        Map<Currency, Long> versions = new TreeMap<>();
+        long version = VERSIONS.incrementAndGet();
+        for (Map.Entry<Currency, CashBalance> entry : balances.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().getCounts());
+            versions.put(entry.getKey(), version);
+        }
+        return new BalanceSnapshot(cashier, counts, versions);
+    }
+
+    /**
+     * Derive a snapshot with one currency replaced; the other currencies are shared with this snapshot.
+     * @param balance New balance of its currency (copied)
+     * @return New snapshot, with the currency at a new version
+     */
+    public BalanceSnapshot with(CashBalance balance) {
+        Map<Currency, int[]> next = new TreeMap<>();
+        next.putAll(counts);
+        next.put(balance.getCurrency(), balance.getCounts());
+        Map<Currency, Long> nextVersions = new TreeMap<>();
+        nextVersions.putAll(versions);
+        nextVersions.put(balance.getCurrency(), VERSIONS.incrementAndGet());
+        return new BalanceSnapshot(cashier, next, nextVersions);
+    }
+
+    public String getCashier() {
+        return cashier;
+    }
+
+    /**
+     * @return Currencies held in this snapshot
+     */
+    public Set<Currency> getCurrencies() {
+        return denominations.keySet();
+    }
+
+    /**
+     * @param currency The currency
+     * @return Version of the currency balance, or 0 if the currency is absent
+     */
+    public long getVersion(Currency currency) {
+        return versions.getOrDefault(currency, 0L);
+    }
+
+    /**
+     * @return Highest version of the currency balances, or 0 if the snapshot holds none
+     */
+    public long getVersion() {
+        long version = 0;
+        for (long currencyVersion : versions.values()) {
+            version = Math.max(version, currencyVersion);
+        }
+        return version;
+    }
+
+    /**
+     * @param currency The currency
+     * @return Unmodifiable denomination counts in ascending denomination order, or an empty map if the currency is absent
+     */
+    public Map<Integer, Integer> getDenominations(Currency currency) {
+        return denominations.getOrDefault(currency, Map.of());
+    }
+
+    /**
+     * @param currency The currency
+     * @param denomination The denomination value
+     * @return Count of notes, or 0 if not present
+     */
+    public int getDenominationCount(Currency currency, int denomination) {
+        int index = currency.indexOf(denomination);
+        return index >= 0 ? getCount(currency, index) : 0;
+    }
+
+    /**
+     * @param currency The currency
+     * @param index Denomination index in the currency's denomination table
+     * @return Count of notes at the index, or 0 if the currency is absent
+     */
+    public int getCount(Currency currency, int index) {
+        int[] currencyCounts = counts.get(currency);
+        return currencyCounts != null ? currencyCounts[index] : 0;
+    }
+
+    /**
+     * @param currency The currency
+     * @return Total amount in the currency, or zero if the currency is absent
+     */
+    public BigDecimal getTotal(Currency currency) {
+        return getTotalAmount(currency).toBigDecimal();
+    }
+
+    /**
+     * @param currency The currency
+     * @return Total amount in the currency, or zero if the currency is absent
+     */
+    public Money getTotalAmount(Currency currency) {
+        int[] currencyCounts = counts.get(currency);
+        return currencyCounts != null ? Money.ofUnits(currency, currency.totalOf(currencyCounts)) : Money.zero(currency);
+    }
+
+    /**
+     * Copy one currency into a mutable balance, e.g. to apply an operation.
+     * @param currency The currency
+     * @return New balance at the version of this snapshot, with zero counts if the currency is absent
+     */
+    public CashBalance toCashBalance(Currency currency) {
+        int[] currencyCounts = counts.get(currency);
+        return new CashBalance(currency,
+            currencyCounts != null ? currencyCounts : new int[currency.getDenominationTableSize()], getVersion());
+    }
+
+    /**
+     * Copy the snapshot into mutable balances, e.g. to apply an operation.
+     * @return New map of currency to balance
+     */
+    public Map<Currency, CashBalance> toCashBalances() {
+        Map<Currency, CashBalance> balances = new HashMap<>();
+        for (Map.Entry<Currency, int[]> entry : counts.entrySet()) {
+            balances.put(entry.getKey(), new CashBalance(entry.getKey(), entry.getValue()));
+        }
+        return balances;
+    }
+
+    /**
+     * Snapshots are equal when they hold the same balances, whatever their versions.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BalanceSnapshot that = (BalanceSnapshot) o;
+        return cashier.equals(that.cashier) && denominations.equals(that.denominations);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(cashier, denominations);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BalanceSnapshot{cashier=%s, denominations=%s}", cashier, denominations);
+    }
+}
@@ -4,6 +4,7 @@ import com.fibank.cashdesk.exception.InsufficientFundsException;
 import com.fibank.cashdesk.exception.InvalidDenominationException;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -11,11 +12,14 @@ import java.util.Objects;
 
 /**
  * Entity representing cash balance with denominations for a specific currency.
+ * Counts are kept in an array indexed by the currency's denomination table, together with a running total.
  * Thread-safe through external synchronization (repository layer).
  */
 public class CashBalance {
     private final Currency currency;
-    private final Map<Integer, Integer> denominations; // denomination → count
+    private final int[] counts; // denomination index → count
+    private long total;         // whole currency units, kept in step with counts
+    private final long version; // version of the published snapshot this was copied from, 0 if none
 
     /**
      * Create a cash balance with initial denominations.
@@ -24,13 +28,37 @@ public class CashBalance {
      */
     public CashBalance(Currency currency, Map<Integer, Integer> initialDenominations) {
         this.currency = Objects.requireNonNull(currency, "Currency cannot be null");
-        this.denominations = new HashMap<>(initialDenominations);
+        this.counts = currency.toCounts(initialDenominations);
+        this.total = currency.totalOf(counts);
+        this.version = 0;
+    }
 
-        currency.validateDenominations(this.denominations);
+    /**
+     * Create a cash balance from a count array.
+     * @param currency The currency for this balance
+     * @param initialCounts Counts indexed by the currency's denomination table (copied)
+     */
+    public CashBalance(Currency currency, int[] initialCounts) {
+        this(currency, initialCounts, 0);
+    }
 
-        for (Integer validDenom : currency.getValidDenominations()) {
-            denominations.putIfAbsent(validDenom, 0);
+    /**
+     * Create a copy of a published balance.
+     * @param currency The currency for this balance
+     * @param initialCounts Counts indexed by the currency's denomination table (copied)
+     * @param version Version of the published snapshot, see {@link BalanceSnapshot#getVersion()}
+     */
+    public CashBalance(Currency currency, int[] initialCounts, long version) {
+        this.currency = Objects.requireNonNull(currency, "Currency cannot be null");
+        checkLength(initialCounts);
+        this.counts = initialCounts.clone();
+        for (int count : counts) {
+            if (count < 0) {
+                throw new IllegalArgumentException("Denomination count cannot be negative");
+            }
         }
+        this.total = currency.totalOf(counts);
+        this.version = version;
     }
 
     /**
@@ -45,12 +73,39 @@ public class CashBalance {
         return currency;
     }
 
+    /**
+     * @return Version of the published snapshot this balance was copied from, or 0 if it was not
+     */
+    public long getVersion() {
+        return version;
+    }
+
     /**
      * Get denomination counts (defensive copy).
-     * @return Copy of denomination map
+     * @return Copy of denomination map, including denominations with zero count
      */
     public Map<Integer, Integer> getDenominations() {
-        return new HashMap<>(denominations);
+        Map<Integer, Integer> denominations = new HashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            denominations.put(currency.denominationAt(i), counts[i]);
+        }
+        return denominations;
+    }
+
+    /**
+     * Get the counts as an array (defensive copy).
+     * @return Counts indexed by the currency's denomination table
+     */
+    public int[] getCounts() {
+        return counts.clone();
+    }
+
+    /**
+     * @param index Denomination index
+     * @return Count of notes at the index
+     */
+    public int getCount(int index) {
+        return counts[index];
     }
 
     /**
@@ -59,7 +114,8 @@ public class CashBalance {
      * @return Count of notes, or 0 if not present
      */
     public int getDenominationCount(int denomination) {
-        return denominations.getOrDefault(denomination, 0);
+        int index = currency.indexOf(denomination);
+        return index >= 0 ? counts[index] : 0;
     }
 
     /**
@@ -69,7 +125,8 @@ public class CashBalance {
      * @throws InvalidDenominationException if denomination is invalid for currency
      */
     public void setDenominationCount(int denomination, int count) {
-        if (!currency.isValidDenomination(denomination)) {
+        int index = currency.indexOf(denomination);
+        if (index < 0) {
             throw new InvalidDenominationException(
                 String.format("Invalid denomination %d for currency %s", denomination, currency)
             );
@@ -77,7 +134,8 @@ public class CashBalance {
         if (count < 0) {
             throw new IllegalArgumentException("Denomination count cannot be negative");
         }
-        denominations.put(denomination, count);
+        total += (long) denomination * (count - counts[index]);
+        counts[index] = count;
     }
 
     /**
@@ -86,19 +144,24 @@ public class CashBalance {
      * @throws InvalidDenominationException if any denomination is invalid
      */
     public void addDenominations(Map<Integer, Integer> toAdd) {
-        currency.validateDenominations(toAdd);
-
-        for (Map.Entry<Integer, Integer> entry : toAdd.entrySet()) {
-            int denomination = entry.getKey();
-            int countToAdd = entry.getValue();
+        addCounts(currency.toCounts(toAdd));
+    }
 
-            if (countToAdd < 0) {
+    /**
+     * Add counts to this balance (for deposits).
+     * @param toAdd Counts indexed by the currency's denomination table
+     */
+    public void addCounts(int[] toAdd) {
+        checkLength(toAdd);
+        for (int count : toAdd) {
+            if (count < 0) {
                 throw new IllegalArgumentException("Cannot add negative count");
             }
-
-            int currentCount = denominations.getOrDefault(denomination, 0);
-            denominations.put(denomination, currentCount + countToAdd);
         }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += toAdd[i];
+        }
+        total += currency.totalOf(toAdd);
     }
 
     /**
@@ -108,25 +171,28 @@ public class CashBalance {
      * @throws InvalidDenominationException if any denomination is invalid
      */
     public void removeDenominations(Map<Integer, Integer> toRemove) {
-        currency.validateDenominations(toRemove);
-
-        if (!hasSufficientDenominations(toRemove)) {
-            throw new InsufficientFundsException(
-                buildInsufficientDenominationsMessage(toRemove)
-            );
-        }
-
-        for (Map.Entry<Integer, Integer> entry : toRemove.entrySet()) {
-            int denomination = entry.getKey();
-            int countToRemove = entry.getValue();
+        removeCounts(currency.toCounts(toRemove));
+    }
 
-            if (countToRemove < 0) {
+    /**
+     * Remove counts from this balance (for withdrawals).
+     * @param toRemove Counts indexed by the currency's denomination table
+     * @throws InsufficientFundsException if insufficient denominations available
+     */
+    public void removeCounts(int[] toRemove) {
+        checkLength(toRemove);
+        for (int count : toRemove) {
+            if (count < 0) {
                 throw new IllegalArgumentException("Cannot remove negative count");
             }
-
-            int currentCount = denominations.getOrDefault(denomination, 0);
-            denominations.put(denomination, currentCount - countToRemove);
         }
+        if (!hasSufficientCounts(toRemove)) {
+            throw new InsufficientFundsException(buildInsufficientDenominationsMessage(toRemove));
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] -= toRemove[i];
+        }
+        total -= currency.totalOf(toRemove);
     }
 
     /**
@@ -136,11 +202,22 @@ public class CashBalance {
      */
     public boolean hasSufficientDenominations(Map<Integer, Integer> required) {
         for (Map.Entry<Integer, Integer> entry : required.entrySet()) {
-            int denomination = entry.getKey();
-            int requiredCount = entry.getValue();
-            int availableCount = denominations.getOrDefault(denomination, 0);
+            if (getDenominationCount(entry.getKey()) < entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-            if (availableCount < requiredCount) {
+    /**
+     * Check if sufficient counts are available.
+     * @param required Counts indexed by the currency's denomination table
+     * @return true if all required counts are available
+     */
+    public boolean hasSufficientCounts(int[] required) {
+        checkLength(required);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] < required[i]) {
                 return false;
             }
         }
@@ -152,10 +229,21 @@ public class CashBalance {
      * @return Total amount in this currency
      */
     public BigDecimal calculateTotal() {
-        return denominations.entrySet().stream()
-            .map(entry -> BigDecimal.valueOf(entry.getKey())
-                .multiply(BigDecimal.valueOf(entry.getValue())))
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return getTotalAmount().toBigDecimal();
+    }
+
+    /**
+     * @return Total amount in this currency
+     */
+    public Money getTotalAmount() {
+        return Money.ofUnits(currency, total);
+    }
+
+    /**
+     * @return Total amount in whole currency units, without allocating
+     */
+    public long getTotalUnits() {
+        return total;
     }
 
     /**
@@ -168,10 +256,11 @@ public class CashBalance {
         Map<Integer, Integer> denominations,
         BigDecimal expectedAmount
     ) {
-        BigDecimal actualSum = denominations.entrySet().stream()
-            .map(entry -> BigDecimal.valueOf(entry.getKey())
-                .multiply(BigDecimal.valueOf(entry.getValue())))
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long sum = 0;
+        for (Map.Entry<Integer, Integer> entry : denominations.entrySet()) {
+            sum = Math.addExact(sum, Math.multiplyExact((long) entry.getKey(), entry.getValue()));
+        }
+        BigDecimal actualSum = BigDecimal.valueOf(sum);
 
         if (actualSum.compareTo(expectedAmount) != 0) {
             throw new InvalidDenominationException(
@@ -181,38 +270,58 @@ public class CashBalance {
         }
     }
 
-    private String buildInsufficientDenominationsMessage(Map<Integer, Integer> required) {
-        StringBuilder sb = new StringBuilder("Insufficient denominations:\n");
-        for (Map.Entry<Integer, Integer> entry : required.entrySet()) {
-            int denomination = entry.getKey();
-            int requiredCount = entry.getValue();
-            int availableCount = denominations.getOrDefault(denomination, 0);
+    /**
+     * Validate that provided counts sum to expected amount.
+     * @param counts Counts indexed by the amount currency's denomination table
+     * @param expectedAmount Expected total amount
+     * @throws InvalidDenominationException if sum doesn't match
+     */
+    public static void validateDenominationSum(int[] counts, Money expectedAmount) {
+        Money actualSum = Money.ofUnits(expectedAmount.getCurrency(), expectedAmount.getCurrency().totalOf(counts));
+
+        if (actualSum.compareTo(expectedAmount) != 0) {
+            throw new InvalidDenominationException(
+                String.format("Denominations sum (%.2f) does not match amount (%.2f)",
+                    actualSum.toBigDecimal(), expectedAmount.toBigDecimal())
+            );
+        }
+    }
 
-            if (availableCount < requiredCount) {
+    private String buildInsufficientDenominationsMessage(int[] required) {
+        StringBuilder sb = new StringBuilder("Insufficient denominations:\n");
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] < required[i]) {
                 sb.append(String.format("  %d notes: available=%d, required=%d, shortfall=%d\n",
-                    denomination, availableCount, requiredCount, requiredCount - availableCount));
+                    currency.denominationAt(i), counts[i], required[i], required[i] - counts[i]));
             }
         }
         return sb.toString();
     }
 
+    private void checkLength(int[] other) {
+        if (other.length != currency.getDenominationTableSize()) {
+            throw new IllegalArgumentException(String.format(
+                "Expected %d counts for currency %s, got %d", currency.getDenominationTableSize(), currency, other.length));
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         CashBalance that = (CashBalance) o;
         return currency == that.currency &&
-               Objects.equals(denominations, that.denominations);
+               Arrays.equals(counts, that.counts);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(currency, denominations);
+        return 31 * currency.hashCode() + Arrays.hashCode(counts);
     }
 
     @Override
     public String toString() {
-        return String.format("CashBalance{currency=%s, total=%.2f, denominations=%s}",
-            currency, calculateTotal(), denominations);
+        return String.format("CashBalance{currency=%s, total=%d, denominations=%s}",
+            currency, total, getDenominations());
     }
 }
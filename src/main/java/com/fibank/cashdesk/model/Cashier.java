@@ -2,21 +2,39 @@ package com.fibank.cashdesk.model;
 
 import com.fibank.cashdesk.exception.InvalidCashierException;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 /**
  * Value object representing a cashier.
  * Immutable and thread-safe.
+ *
+ * Cashiers are registered by name and get compact ids 0, 1, 2, ... in registration order, so per-cashier state can be
+ * held in arrays indexed by id. None are built in: the balance store registers the configured cashiers and those it
+ * holds balances for at startup, and further cashiers can be registered at runtime. Registrations are never removed.
  */
 public final class Cashier {
-    private static final Set<String> VALID_CASHIERS = Set.of("MARTINA", "PETER", "LINDA");
+
+    private static final Pattern NAME = Pattern.compile("[A-Z][A-Z0-9_]{0,31}");
+
+    private static final Object LOCK = new Object();
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    // Names by id; grown by copying, so an array read after the count holds every name below it
+    private static volatile String[] names = new String[16];
+    private static volatile int count;
 
     private final String name;
+    private final int id;
 
     /**
      * Create a cashier.
-     * @param name Cashier name (must be in valid set)
+     * @param name Cashier name (must be registered, case-insensitive)
      * @throws InvalidCashierException if name is invalid
      */
     public Cashier(String name) {
@@ -24,36 +42,111 @@ public final class Cashier {
             throw new InvalidCashierException("Cashier name cannot be null or blank");
         }
 
-        String normalized = name.trim().toUpperCase();
-        if (!VALID_CASHIERS.contains(normalized)) {
-            throw new InvalidCashierException(
-                "Invalid cashier name: " + name + ". Must be one of: " + VALID_CASHIERS
-            );
+        String normalized = normalize(name);
+        Integer registered = ids.get(normalized);
+        if (registered == null) {
+            throw new InvalidCashierException("Invalid cashier name: " + name);
         }
 
         this.name = normalized;
+        this.id = registered;
+    }
+
+    /**
+     * Register a cashier, if not registered yet.
+     * @param name Cashier name, case-insensitive
+     * @return Id of the cashier
+     * @throws InvalidCashierException if the name is not 1-32 letters, digits or underscores starting with a letter
+     */
+    public static int register(String name) {
+        String normalized = name != null ? normalize(name) : null;
+        if (normalized == null || !NAME.matcher(normalized).matches()) {
+            throw new InvalidCashierException(
+                "Cashier name must be 1-32 letters, digits or underscores starting with a letter, got " + name);
+        }
+
+        Integer existing = ids.get(normalized);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (LOCK) {
+            existing = ids.get(normalized);
+            if (existing != null) {
+                return existing;
+            }
+            int id = count;
+            String[] current = names;
+            if (id == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                names = current;
+            }
+            current[id] = normalized;
+            // Publishes the name to readers of the count before the id becomes visible
+            count = id + 1;
+            ids.put(normalized, id);
+            return id;
+        }
+    }
+
+    /**
+     * @param name Cashier name, exact (upper-case)
+     * @return Id of the cashier, or -1 if no cashier is registered under the name
+     */
+    public static int idOf(String name) {
+        Integer id = name != null ? ids.get(name) : null;
+        return id != null ? id : -1;
+    }
+
+    /**
+     * @param id Cashier id
+     * @return Name of the cashier
+     * @throws IllegalArgumentException if no cashier has the id
+     */
+    public static String nameOf(int id) {
+        int registered = count;
+        if (id < 0 || id >= registered) {
+            throw new IllegalArgumentException("Unknown cashier id: " + id);
+        }
+        return names[id];
+    }
+
+    /**
+     * @return Number of registered cashiers; ids are below it
+     */
+    public static int count() {
+        return count;
     }
 
     public String getName() {
         return name;
     }
 
+    public int getId() {
+        return id;
+    }
+
     /**
      * Get all valid cashier names.
-     * @return Immutable set of valid cashier names
+     * @return Immutable set of registered cashier names, in id order
      */
     public static Set<String> getValidCashiers() {
-        return VALID_CASHIERS;
+        int registered = count;
+        String[] current = names;
+        return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(current).subList(0, registered)));
     }
 
     /**
      * Check if a name is valid.
-     * @param name Name to check
+     * @param name Name to check, case-insensitive
      * @return true if valid
      */
     public static boolean isValid(String name) {
         if (name == null) return false;
-        return VALID_CASHIERS.contains(name.trim().toUpperCase());
+        return ids.containsKey(normalize(name));
+    }
+
+    private static String normalize(String name) {
+        return name.trim().toUpperCase();
     }
 
     @Override
@@ -2,36 +2,266 @@ package com.fibank.cashdesk.model;
 
 import com.fibank.cashdesk.exception.InvalidDenominationException;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
 
 /**
  * Supported currencies with their valid denominations.
- * Immutable and thread-safe.
+ * Each currency numbers its denominations in ascending order; balances store their counts in arrays by that index.
+ * Denominations and opening floats come only from {@code cashdesk.currencies} and
+ * {@code cashdesk.cashiers.initial-balances}, registered at startup before any balance is loaded. {@link #BGN} and
+ * {@link #EUR} only fix the code and id of those currencies; they are supported once configured. Thread-safe.
  */
-public enum Currency {
+public final class Currency implements Comparable<Currency> {
+
+    /**
+     * Largest currency id; ids are stored in a byte in the binary transaction log.
+     */
+    public static final int MAX_ID = 0xFF;
+
+    /**
+     * Largest denomination; denominations are stored in an unsigned short in the binary transaction log.
+     */
+    public static final int MAX_DENOMINATION = 0xFFFF;
+
+    private static final Pattern CODE = Pattern.compile("[A-Z]{3}");
+
+    private static final Object LOCK = new Object();
+    private static volatile Currency[] currenciesById = new Currency[0]; // Registered currencies by id, null for gaps
+    private static volatile Currency[] registered = new Currency[0]; // Registered currencies in id order
+    private static volatile Map<String, Currency> byName = Map.of();
+    private static final Map<String, Currency> declared = new HashMap<>(); // Constants by code, guarded by LOCK
+
+    /**
+     * Bulgarian Lev
+     */
+    public static final Currency BGN = declare("BGN", 0);
+
+    /**
+     * Euro
+     */
+    public static final Currency EUR = declare("EUR", 1);
+
+    /**
+     * Precomputed lookup tables of one denomination configuration.
+     */
+    private static final class Table {
+        private final Set<Integer> validDenominations;
+        private final int[] denominations; // index → denomination, ascending
+        private final int[] indexes;       // denomination → index, -1 if invalid
+        private final int[] initialCounts; // by index
+
+        Table(Currency currency, Collection<Integer> validDenominations, Map<Integer, Integer> initialCounts) {
+            this.validDenominations = Collections.unmodifiableSet(new TreeSet<>(validDenominations));
+            this.denominations = this.validDenominations.stream().mapToInt(Integer::intValue).toArray();
+            if (denominations.length == 0 || denominations[0] <= 0 || denominations[denominations.length - 1] > MAX_DENOMINATION) {
+                throw new IllegalArgumentException(String.format(
+                    "Denominations of %s must be between 1 and %d, got %s", currency.name, MAX_DENOMINATION, validDenominations));
+            }
+            this.indexes = new int[denominations[denominations.length - 1] + 1];
+            Arrays.fill(indexes, -1);
+            for (int i = 0; i < denominations.length; i++) {
+                indexes[denominations[i]] = i;
+            }
+
+            this.initialCounts = new int[denominations.length];
+            for (Map.Entry<Integer, Integer> entry : initialCounts.entrySet()) {
+                int denomination = entry.getKey();
+                if (denomination < 0 || denomination >= indexes.length || indexes[denomination] < 0 || entry.getValue() < 0) {
+                    throw new IllegalArgumentException(String.format(
+                        "Invalid initial count %d of denomination %d for currency %s",
+                        entry.getValue(), denomination, currency.name));
+                }
+                this.initialCounts[indexes[denomination]] = entry.getValue();
+            }
+        }
+    }
+
+    private final String name;
+    private final int id;
+    private volatile Table table;
+
+    private Currency(String name, int id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    /**
+     * Fix the code and id of a constant; it is not supported until registered with its denominations.
+     */
+    private static Currency declare(String name, int id) {
+        Currency currency = new Currency(name, id);
+        synchronized (LOCK) {
+            declared.put(name, currency);
+        }
+        return currency;
+    }
+
+    /**
+     * Register a currency, or replace the denominations of a registered one.
+     * Must happen before balances in the currency exist, since their count arrays follow the denomination table.
+     * @param name ISO 4217 code
+     * @param id Stable id of the currency, persisted in the binary transaction log
+     * @param validDenominations Valid denominations
+     * @param initialCounts Opening float of a new cashier, by denomination
+     * @return The registered currency
+     * @throws IllegalArgumentException if the code, id or denominations are invalid, or the id is taken
+     */
+    public static Currency register(String name, int id, Collection<Integer> validDenominations,
+                                    Map<Integer, Integer> initialCounts) {
+        if (name == null || !CODE.matcher(name).matches()) {
+            throw new IllegalArgumentException("Currency code must be three upper-case letters, got " + name);
+        }
+        if (id < 0 || id > MAX_ID) {
+            throw new IllegalArgumentException(String.format("Id of %s must be between 0 and %d, got %d", name, MAX_ID, id));
+        }
+
+        synchronized (LOCK) {
+            Currency currency = lookup(name);
+            if (currency == null) {
+                currency = declared.get(name);
+            }
+            if (currency != null && currency.id != id) {
+                throw new IllegalArgumentException(String.format(
+                    "Currency %s is registered with id %d, cannot change it to %d", name, currency.id, id));
+            }
+            Currency holder = id < currenciesById.length ? currenciesById[id] : null;
+            if (holder != null && holder != currency) {
+                throw new IllegalArgumentException(String.format(
+                    "Id %d of %s is already taken by %s", id, name, holder.name));
+            }
+
+            boolean added = lookup(name) == null;
+            if (currency == null) {
+                currency = new Currency(name, id);
+            }
+            currency.table = new Table(currency, validDenominations, initialCounts);
+
+            if (added) {
+                Currency[] nextById = Arrays.copyOf(currenciesById, Math.max(currenciesById.length, id + 1));
+                nextById[id] = currency;
+                currenciesById = nextById;
+                registered = Arrays.stream(nextById).filter(c -> c != null).toArray(Currency[]::new);
+                Map<String, Currency> nextByName = new HashMap<>(byName);
+                nextByName.put(name, currency);
+                byName = Map.copyOf(nextByName);
+            }
+            return currency;
+        }
+    }
+
+    /**
+     * @return Registered currencies in id order (copy)
+     */
+    public static Currency[] values() {
+        return registered.clone();
+    }
+
+    /**
+     * @param name ISO 4217 code
+     * @return The registered currency
+     * @throws IllegalArgumentException if no currency is registered under the code
+     */
+    public static Currency valueOf(String name) {
+        Currency currency = lookup(name);
+        if (currency == null) {
+            throw new IllegalArgumentException("Unsupported currency: " + name);
+        }
+        return currency;
+    }
+
     /**
-     * Bulgarian Lev with 10 and 50 unit notes
+     * @param name ISO 4217 code
+     * @return true if a currency is registered under the code
      */
-    BGN(Set.of(10, 50)),
+    public static boolean isSupported(String name) {
+        return lookup(name) != null;
+    }
 
     /**
-     * Euro with 10, 20, and 50 unit notes
+     * @param id Currency id
+     * @return The registered currency
+     * @throws IllegalArgumentException if no currency is registered under the id
      */
-    EUR(Set.of(10, 20, 50));
+    public static Currency byId(int id) {
+        Currency[] currencies = currenciesById;
+        Currency currency = id >= 0 && id < currencies.length ? currencies[id] : null;
+        if (currency == null) {
+            throw new IllegalArgumentException("Unknown currency id: " + id);
+        }
+        return currency;
+    }
 
-    private final Set<Integer> validDenominations;
+    private static Currency lookup(String name) {
+        return name != null ? byName.get(name) : null;
+    }
 
-    Currency(Set<Integer> validDenominations) {
-        this.validDenominations = Set.copyOf(validDenominations); // Immutable
+    /**
+     * @return ISO 4217 code
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return Stable id of the currency
+     */
+    public int getId() {
+        return id;
+    }
+
+    private Table table() {
+        Table current = table;
+        if (current == null) {
+            throw new IllegalStateException("Currency " + name + " is not configured in cashdesk.currencies");
+        }
+        return current;
     }
 
     /**
      * Get valid denominations for this currency.
-     * @return Immutable set of valid denominations
+     * @return Immutable set of valid denominations, in ascending order
      */
     public Set<Integer> getValidDenominations() {
-        return validDenominations;
+        return table().validDenominations;
+    }
+
+    /**
+     * Get the denomination table of this currency.
+     * @return Valid denominations in ascending order (copy), position i holding the denomination of index i
+     */
+    public int[] getDenominationTable() {
+        return table().denominations.clone();
+    }
+
+    /**
+     * @return Number of valid denominations, i.e. the length of a count array
+     */
+    public int getDenominationTableSize() {
+        return table().denominations.length;
+    }
+
+    /**
+     * @param index Denomination index
+     * @return Denomination value at the index
+     */
+    public int denominationAt(int index) {
+        return table().denominations[index];
+    }
+
+    /**
+     * @param denomination The denomination value
+     * @return Index of the denomination, or -1 if it is not valid for this currency
+     */
+    public int indexOf(int denomination) {
+        int[] indexes = table().indexes;
+        return denomination >= 0 && denomination < indexes.length ? indexes[denomination] : -1;
     }
 
     /**
@@ -40,7 +270,49 @@ public enum Currency {
      * @return true if valid, false otherwise
      */
     public boolean isValidDenomination(int denomination) {
-        return validDenominations.contains(denomination);
+        return indexOf(denomination) >= 0;
+    }
+
+    /**
+     * @return Opening float of a new cashier, indexed by the denomination table (copy)
+     */
+    public int[] getInitialCounts() {
+        return table().initialCounts.clone();
+    }
+
+    /**
+     * Convert denomination counts into a count array indexed by the denomination table.
+     * @param counts Map of denomination to count
+     * @return New count array
+     * @throws InvalidDenominationException if any denomination is invalid
+     */
+    public int[] toCounts(Map<Integer, Integer> counts) {
+        Table current = table();
+        int[] result = new int[current.denominations.length];
+        for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+            int denomination = entry.getKey();
+            int index = denomination >= 0 && denomination < current.indexes.length ? current.indexes[denomination] : -1;
+            if (index < 0) {
+                throw new InvalidDenominationException(
+                    String.format("Invalid denomination %d for currency %s", denomination, this)
+                );
+            }
+            result[index] = entry.getValue();
+        }
+        return result;
+    }
+
+    /**
+     * @param counts Count array indexed by the denomination table
+     * @return Total amount of the counts, in whole currency units
+     */
+    public long totalOf(int[] counts) {
+        int[] denominations = table().denominations;
+        long total = 0;
+        for (int i = 0; i < denominations.length; i++) {
+            total += (long) denominations[i] * counts[i];
+        }
+        return total;
     }
 
     /**
@@ -57,4 +329,14 @@ public enum Currency {
             }
         }
     }
+
+    @Override
+    public int compareTo(Currency other) {
+        return Integer.compare(id, other.id);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
 }
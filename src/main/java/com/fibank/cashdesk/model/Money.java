@@ -0,0 +1,151 @@
+package com.fibank.cashdesk.model;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Amount of money in one currency, held as a count of minor units (hundredths).
+ * Arithmetic is exact and throws {@link ArithmeticException} on overflow; {@link BigDecimal} is only
+ * used to convert at the API and log boundaries.
+ * Immutable and thread-safe.
+ */
+public final class Money implements Comparable<Money> {
+
+    /**
+     * Decimal places of a minor unit, for all supported currencies.
+     */
+    public static final int MINOR_UNIT_SCALE = 2;
+
+    private static final long MINOR_UNITS_PER_UNIT = 100;
+
+    private final Currency currency;
+    private final long minorUnits;
+
+    private Money(Currency currency, long minorUnits) {
+        this.currency = Objects.requireNonNull(currency, "Currency cannot be null");
+        this.minorUnits = minorUnits;
+    }
+
+    /**
+     * @param currency The currency
+     * @param minorUnits Amount in minor units
+     * @return Money of the amount
+     */
+    public static Money ofMinorUnits(Currency currency, long minorUnits) {
+        return new Money(currency, minorUnits);
+    }
+
+    /**
+     * @param currency The currency
+     * @param units Amount in whole currency units
+     * @return Money of the amount
+     * @throws ArithmeticException if the amount does not fit in minor units
+     */
+    public static Money ofUnits(Currency currency, long units) {
+        return new Money(currency, Math.multiplyExact(units, MINOR_UNITS_PER_UNIT));
+    }
+
+    /**
+     * Convert a decimal amount, e.g. from a request.
+     * @param currency The currency
+     * @param amount Amount with at most {@value #MINOR_UNIT_SCALE} significant decimal places
+     * @return Money of the amount
+     * @throws IllegalArgumentException if the amount has finer precision than a minor unit or does not fit
+     */
+    public static Money of(Currency currency, BigDecimal amount) {
+        Objects.requireNonNull(amount, "Amount cannot be null");
+        try {
+            return new Money(currency, amount.movePointRight(MINOR_UNIT_SCALE).longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount cannot be represented in minor units: " + amount, e);
+        }
+    }
+
+    /**
+     * @param currency The currency
+     * @return Zero in the currency
+     */
+    public static Money zero(Currency currency) {
+        return new Money(currency, 0);
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    /**
+     * @param other Amount in the same currency
+     * @return Sum of both amounts
+     * @throws ArithmeticException on overflow
+     */
+    public Money plus(Money other) {
+        return new Money(currency, Math.addExact(minorUnits, checkCurrency(other).minorUnits));
+    }
+
+    /**
+     * @param other Amount in the same currency
+     * @return This amount less the other
+     * @throws ArithmeticException on overflow
+     */
+    public Money minus(Money other) {
+        return new Money(currency, Math.subtractExact(minorUnits, checkCurrency(other).minorUnits));
+    }
+
+    /**
+     * @param factor Multiplier, e.g. a note count
+     * @return This amount times the factor
+     * @throws ArithmeticException on overflow
+     */
+    public Money times(long factor) {
+        return new Money(currency, Math.multiplyExact(minorUnits, factor));
+    }
+
+    /**
+     * @return -1, 0 or 1 as the amount is negative, zero or positive
+     */
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    /**
+     * @return The amount with {@value #MINOR_UNIT_SCALE} decimal places
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, MINOR_UNIT_SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, checkCurrency(other).minorUnits);
+    }
+
+    private Money checkCurrency(Money other) {
+        if (other.currency != currency) {
+            throw new IllegalArgumentException(
+                String.format("Currency mismatch: %s and %s", currency, other.currency));
+        }
+        return other;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Money that = (Money) o;
+        return currency == that.currency && minorUnits == that.minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * currency.hashCode() + Long.hashCode(minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency;
+    }
+}
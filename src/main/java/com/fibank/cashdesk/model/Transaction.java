@@ -16,7 +16,7 @@ public final class Transaction {
     private final String cashier;
     private final OperationType operationType;
     private final Currency currency;
-    private final BigDecimal amount;
+    private final Money amount;
     private final Map<Integer, Integer> denominations; // Immutable copy
 
     /**
@@ -25,8 +25,7 @@ public final class Transaction {
      * @param timestamp Transaction timestamp
      * @param cashier Cashier name
      * @param operationType DEPOSIT or WITHDRAWAL
-     * @param currency Transaction currency
-     * @param amount Transaction amount
+     * @param amount Transaction amount, in the transaction currency
      * @param denominations Denominations used (will be copied)
      */
     public Transaction(
@@ -34,47 +33,80 @@ public final class Transaction {
         Instant timestamp,
         String cashier,
         OperationType operationType,
-        Currency currency,
-        BigDecimal amount,
+        Money amount,
         Map<Integer, Integer> denominations
     ) {
         this.id = Objects.requireNonNull(id, "Transaction ID cannot be null");
         this.timestamp = Objects.requireNonNull(timestamp, "Timestamp cannot be null");
         this.cashier = Objects.requireNonNull(cashier, "Cashier cannot be null");
         this.operationType = Objects.requireNonNull(operationType, "Operation type cannot be null");
-        this.currency = Objects.requireNonNull(currency, "Currency cannot be null");
         this.amount = Objects.requireNonNull(amount, "Amount cannot be null");
+        this.currency = amount.getCurrency();
         this.denominations = Map.copyOf(denominations);
 
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+        if (amount.signum() <= 0) {
             throw new IllegalArgumentException("Amount must be positive");
         }
 
-        currency.validateDenominations(denominations);
-        CashBalance.validateDenominationSum(denominations, amount);
+        CashBalance.validateDenominationSum(currency.toCounts(denominations), amount);
     }
 
     /**
-     * Create a new transaction with auto-generated ID and current timestamp.
+     * Create a new transaction from a decimal amount, e.g. read from the text log.
+     * @param id Unique transaction ID
+     * @param timestamp Transaction timestamp
+     * @param cashier Cashier name
+     * @param operationType DEPOSIT or WITHDRAWAL
+     * @param currency Transaction currency
+     * @param amount Transaction amount
+     * @param denominations Denominations used (will be copied)
      */
-    public static Transaction create(
+    public Transaction(
+        UUID id,
+        Instant timestamp,
         String cashier,
         OperationType operationType,
         Currency currency,
         BigDecimal amount,
         Map<Integer, Integer> denominations
+    ) {
+        this(id, timestamp, cashier, operationType,
+            Money.of(Objects.requireNonNull(currency, "Currency cannot be null"), amount), denominations);
+    }
+
+    /**
+     * Create a new transaction with auto-generated ID and current timestamp.
+     */
+    public static Transaction create(
+        String cashier,
+        OperationType operationType,
+        Money amount,
+        Map<Integer, Integer> denominations
     ) {
         return new Transaction(
             UUID.randomUUID(),
             Instant.now(),
             cashier,
             operationType,
-            currency,
             amount,
             denominations
         );
     }
 
+    /**
+     * Create a new transaction with auto-generated ID and current timestamp.
+     */
+    public static Transaction create(
+        String cashier,
+        OperationType operationType,
+        Currency currency,
+        BigDecimal amount,
+        Map<Integer, Integer> denominations
+    ) {
+        return create(cashier, operationType, Money.of(Objects.requireNonNull(currency, "Currency cannot be null"), amount),
+            denominations);
+    }
+
     public UUID getId() {
         return id;
     }
@@ -95,7 +127,14 @@ public final class Transaction {
         return currency;
     }
 
+    /**
+     * @return Amount as a decimal with two places, for the API and the text log
+     */
     public BigDecimal getAmount() {
+        return amount.toBigDecimal();
+    }
+
+    public Money getMoney() {
         return amount;
     }
 
@@ -138,7 +177,7 @@ public final class Transaction {
 
     @Override
     public String toString() {
-        return String.format("Transaction{id=%s, timestamp=%s, cashier=%s, type=%s, currency=%s, amount=%.2f}",
-            id, timestamp, cashier, operationType, currency, amount);
+        return String.format("Transaction{id=%s, timestamp=%s, cashier=%s, type=%s, currency=%s, amount=%s}",
+            id, timestamp, cashier, operationType, currency, amount.toBigDecimal().toPlainString());
     }
 }
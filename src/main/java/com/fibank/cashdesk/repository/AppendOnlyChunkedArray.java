@@ -0,0 +1,101 @@
+package com.fibank.cashdesk.repository;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Append-only array of fixed-size chunks with a volatile published length.
+ * Appends never move existing elements, so readers need no lock: a reader captures the length and
+ * sees every element below it. Appends must not overlap (one writer thread, or writers serialized by a lock);
+ * they never block readers.
+ *
+ * @param <T> Element type
+ */
+public class AppendOnlyChunkedArray<T> {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Grown by copying, so a directory read after the length holds every chunk below that length
+    private volatile Object[][] chunks = new Object[16][];
+    private volatile int size;
+
+    /**
+     * Append an element and publish it to readers.
+     * @param element Element to append
+     * @return Index of the element
+     */
+    public int add(T element) {
+        int index = size;
+        int chunk = index >>> CHUNK_BITS;
+        Object[][] directory = chunks;
+        if (chunk == directory.length) {
+            directory = Arrays.copyOf(directory, directory.length * 2);
+            chunks = directory;
+        }
+        if (directory[chunk] == null) {
+            directory[chunk] = new Object[CHUNK_SIZE];
+        }
+        directory[chunk][index & CHUNK_MASK] = element;
+        // Publishes the element (and any new chunk) to readers that read the length first
+        size = index + 1;
+        return index;
+    }
+
+    /**
+     * @return Number of published elements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index Index below {@link #size()}
+     * @return Element at the index
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        int length = size;
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+        return (T) chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    /**
+     * Read-only view of the elements published so far. Later appends are not visible in the view,
+     * and taking it copies nothing.
+     * @return Snapshot of the current elements
+     */
+    public List<T> snapshot() {
+        int length = size;
+        return new Snapshot<>(chunks, length);
+    }
+
+    private static class Snapshot<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[][] chunks;
+        private final int length;
+
+        Snapshot(Object[][] chunks, int length) {
+            this.chunks = chunks;
+            this.length = length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+            }
+            return (T) chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+    }
+}
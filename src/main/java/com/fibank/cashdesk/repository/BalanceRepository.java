@@ -1,9 +1,16 @@
 package com.fibank.cashdesk.repository;
 
+import com.fibank.cashdesk.model.BalanceSnapshot;
 import com.fibank.cashdesk.model.CashBalance;
 import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.Transaction;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
 
 /**
  * Repository interface for balance persistence.
@@ -17,12 +24,63 @@ public interface BalanceRepository {
      */
     void save(String cashier, Map<Currency, CashBalance> balances);
 
+    /**
+     * Save balances for a specific cashier after applying a transaction.
+     * @param cashier Cashier name
+     * @param balances Map of currency to balance
+     * @param transactionId Transaction whose effect the balances include
+     */
+    default void save(String cashier, Map<Currency, CashBalance> balances, UUID transactionId) {
+        save(cashier, balances);
+    }
+
+    /**
+     * Atomically change and save one currency balance of a cashier.
+     * The mutator works on a copy of the current balance; if it throws, nothing is saved.
+     * Updates of the same (cashier, currency) are serialized, updates of different currencies may run in parallel.
+     * @param cashier Cashier name
+     * @param currency Currency of the balance to change
+     * @param mutator Applies the change and returns the transaction it belongs to, or null for a correction
+     * @return The transaction returned by the mutator
+     */
+    Transaction update(String cashier, Currency currency, Function<CashBalance, Transaction> mutator);
+
+    /**
+     * Apply a batch of changes as one unit. The locks of every balance the updates touch are held while the mutators
+     * run in order on working copies; the changed balances are then published and persisted with a single force.
+     * Each update records its transaction or the reason it was not applied.
+     * If {@link #appendsTransactions()}, the transactions are appended to the log together before they become visible.
+     * @param updates Changes in order; several may touch the same balance
+     * @param atomic If true, the first failing mutator, or a failed append if {@link #appendsTransactions()}, leaves
+     *               every balance unchanged, marks every update not applied and its exception propagates;
+     *               otherwise failing changes are skipped
+     * @throws IllegalArgumentException if a cashier is not registered
+     */
+    void updateAll(List<BalanceUpdate> updates, boolean atomic);
+
+    /**
+     * Whether {@link #update} and {@link #updateAll} themselves append the transactions returned by the mutators
+     * to the transaction log, before the changes become visible. The caller must then not save the transaction again.
+     * @return True if balances are derived from the transaction log or written behind
+     */
+    default boolean appendsTransactions() {
+        return false;
+    }
+
     /**
      * Save all cashier balances.
      * @param allBalances Map of cashier to currency balances
      */
     void saveAll(Map<String, Map<Currency, CashBalance>> allBalances);
 
+    /**
+     * Add a cashier at runtime with the opening balances of {@code cashdesk.cashiers.initial-balances} and persist them.
+     * The name is registered with {@link com.fibank.cashdesk.model.Cashier#register} if needed.
+     * @param cashier Cashier name
+     * @return false if the cashier already has balances, which are left unchanged
+     */
+    boolean addCashier(String cashier);
+
     /**
      * Find balances for a specific cashier.
      * @param cashier Cashier name
@@ -35,4 +93,31 @@ public interface BalanceRepository {
      * @return Map of cashier to currency balances
      */
     Map<String, Map<Currency, CashBalance>> findAll();
+
+    /**
+     * Find the current balances of a cashier for reading.
+     * @param cashier Cashier name
+     * @return Immutable snapshot of the cashier's balances
+     */
+    default BalanceSnapshot findSnapshot(String cashier) {
+        return BalanceSnapshot.of(cashier, findByCashier(cashier));
+    }
+
+    /**
+     * Find the current balances of all cashiers for reading.
+     * @return Map of cashier to immutable snapshot
+     */
+    default Map<String, BalanceSnapshot> findAllSnapshots() {
+        Map<String, BalanceSnapshot> snapshots = new LinkedHashMap<>();
+        findAll().forEach((cashier, balances) -> snapshots.put(cashier, BalanceSnapshot.of(cashier, balances)));
+        return snapshots;
+    }
+
+    /**
+     * Find the cashiers that have balances.
+     * @return Cashier names, configured cashiers first
+     */
+    default List<String> findCashiers() {
+        return new ArrayList<>(findAllSnapshots().keySet());
+    }
 }
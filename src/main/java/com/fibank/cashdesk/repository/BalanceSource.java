@@ -0,0 +1,19 @@
+package com.fibank.cashdesk.repository;
+
+/**
+ * Where the balances are kept authoritatively.
+ */
+public enum BalanceSource {
+    /**
+     * The balance file is written on every operation (or by the write-behind flusher);
+     * an operation writes the balance file and the transaction log separately.
+     */
+    FILE,
+
+    /**
+     * The transaction log is the only record of an operation: balances are a projection of the log,
+     * rebuilt at startup from the last checkpoint in the balance file plus the transactions logged after it.
+     * Each operation costs one durable append, and the balance file and the log cannot disagree.
+     */
+    LOG
+}
@@ -0,0 +1,161 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.model.CashBalance;
+import com.fibank.cashdesk.model.Cashier;
+import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.Transaction;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * One change of a batch applied by {@link BalanceRepository#updateAll}: a mutator of one cashier's currency balance
+ * and, once the batch has run, the transaction it produced or the reason it was not applied.
+ */
+public class BalanceUpdate {
+
+    private final String cashier;
+    private final Currency currency;
+    private final Function<CashBalance, Transaction> mutator;
+
+    private Transaction transaction;
+    private RuntimeException failure;
+    private int[] delta; // Count changes made by the mutator, null if not applied
+
+    /**
+     * @param cashier Cashier name, exact
+     * @param currency Currency of the balance
+     * @param mutator Validates and applies the change to the balance; returns the transaction of the change
+     */
+    public BalanceUpdate(String cashier, Currency currency, Function<CashBalance, Transaction> mutator) {
+        this.cashier = cashier;
+        this.currency = currency;
+        this.mutator = mutator;
+    }
+
+    public String getCashier() {
+        return cashier;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    /**
+     * @return Transaction of the change, or null if it was not applied
+     */
+    public Transaction getTransaction() {
+        return isApplied() ? transaction : null;
+    }
+
+    /**
+     * @return Why the change was not applied, or null if it was applied or the batch stopped before it
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return true if the change is part of the published balances
+     */
+    public boolean isApplied() {
+        return delta != null && failure == null;
+    }
+
+    void fail(RuntimeException failure) {
+        this.failure = failure;
+    }
+
+    /**
+     * Lock order of a batch: cashiers by id, then currencies by id, the same order in which the repositories
+     * take all balance locks.
+     * @return Currencies touched by the updates, by cashier, both in lock order
+     */
+    static Map<String, List<Currency>> balancesOf(List<BalanceUpdate> updates) {
+        Map<String, TreeMap<Currency, Boolean>> touched = new TreeMap<>(Comparator.comparingInt(Cashier::idOf));
+        for (BalanceUpdate update : updates) {
+            if (Cashier.idOf(update.cashier) < 0) {
+                throw new IllegalArgumentException("Invalid cashier: " + update.cashier);
+            }
+            touched.computeIfAbsent(update.cashier, k -> new TreeMap<>()).put(update.currency, Boolean.TRUE);
+        }
+        Map<String, List<Currency>> balances = new LinkedHashMap<>();
+        touched.forEach((cashier, currencies) -> balances.put(cashier, new ArrayList<>(currencies.keySet())));
+        return balances;
+    }
+
+    /**
+     * Run the mutators in order on working copies of the balances. Caller holds the locks of all touched balances.
+     * @param balanceOf Copy of the published balance of a cashier's currency
+     * @param atomic If true, the first failing mutator stops the batch and its exception propagates;
+     *               otherwise a failing mutator is recorded and its change discarded
+     * @return Working balances changed by the applied updates, by cashier and currency
+     */
+    static Map<String, Map<Currency, CashBalance>> applyAll(List<BalanceUpdate> updates,
+                                                          BiFunction<String, Currency, CashBalance> balanceOf,
+                                                          boolean atomic) {
+        Map<String, Map<Currency, CashBalance>> working = new LinkedHashMap<>();
+        for (BalanceUpdate update : updates) {
+            Map<Currency, CashBalance> balances = working.get(update.cashier);
+            CashBalance before = balances != null ? balances.get(update.currency) : null;
+            if (before == null) {
+                before = balanceOf.apply(update.cashier, update.currency);
+            }
+            // A cashier changed earlier in the batch is no longer at the version of its published snapshot
+            long version = balances != null ? 0 : before.getVersion();
+            CashBalance after = new CashBalance(update.currency, before.getCounts(), version);
+            try {
+                update.transaction = update.mutator.apply(after);
+            } catch (RuntimeException e) {
+                update.failure = e;
+                if (atomic) {
+                    discardAll(updates);
+                    throw e;
+                }
+                continue;
+            }
+            int[] delta = after.getCounts();
+            for (int i = 0; i < delta.length; i++) {
+                delta[i] -= before.getCount(i);
+            }
+            update.delta = delta;
+            working.computeIfAbsent(update.cashier, k -> new LinkedHashMap<>()).put(update.currency, after);
+        }
+        return working;
+    }
+
+    /**
+     * Mark every update of an aborted atomic batch as not applied; recorded failures are kept.
+     */
+    static void discardAll(List<BalanceUpdate> updates) {
+        updates.forEach(discarded -> discarded.delta = null);
+    }
+
+    /**
+     * Working balances with only the given updates applied, for publishing what was logged when an append failed.
+     * @param original Copy of the published balance of a cashier's currency
+     */
+    static Map<String, Map<Currency, CashBalance>> replay(List<BalanceUpdate> applied,
+                                                        BiFunction<String, Currency, CashBalance> original) {
+        Map<String, Map<Currency, CashBalance>> working = new LinkedHashMap<>();
+        for (BalanceUpdate update : applied) {
+            CashBalance balance = working.computeIfAbsent(update.cashier, k -> new LinkedHashMap<>())
+                .computeIfAbsent(update.currency, currency -> original.apply(update.cashier, currency));
+            int[] added = new int[update.delta.length];
+            int[] removed = new int[update.delta.length];
+            for (int i = 0; i < update.delta.length; i++) {
+                added[i] = Math.max(update.delta[i], 0);
+                removed[i] = Math.max(-update.delta[i], 0);
+            }
+            balance.addCounts(added);
+            balance.removeCounts(removed);
+        }
+        return working;
+    }
+}
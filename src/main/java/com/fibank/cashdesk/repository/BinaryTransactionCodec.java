@@ -0,0 +1,310 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.exception.DataCorruptionException;
+import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.Money;
+import com.fibank.cashdesk.model.OperationType;
+import com.fibank.cashdesk.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Compact binary format of the transaction log.
+ *
+ * File layout: an 8-byte header (magic "CDTX", format version, reserved) followed by records.
+ * Each record is {@code int length | byte type | payload}, where length counts type and payload.
+ *
+ * Cashier record: {@code ushort id | ubyte nameLength | UTF-8 name}, written before the first
+ * transaction of a cashier so transactions can refer to cashiers by a small id.
+ *
+ * Transaction record: {@code long idMsb | long idLsb | long epochMicros | ushort cashierId |
+ * byte operationType | ubyte currencyId | long amountInMinorUnits | ubyte denominationCount |
+ * (ushort denomination | int count)*}. Operation types are stored as ordinals, so new constants must be appended;
+ * currencies are stored by their configured id.
+ */
+public class BinaryTransactionCodec implements TransactionLogCodec {
+
+    private static final Logger log = LoggerFactory.getLogger(BinaryTransactionCodec.class);
+
+    public static final int MAGIC = 0x43445458; // "CDTX"
+    public static final short FORMAT_VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+
+    static final byte RECORD_CASHIER = 1;
+    static final byte RECORD_TRANSACTION = 2;
+
+    private static final int TRANSACTION_FIXED_SIZE = 1 + 8 + 8 + 8 + 2 + 1 + 1 + 8 + 1;
+    private static final int DENOMINATION_SIZE = 2 + 4;
+    static final int MAX_RECORD_SIZE = TRANSACTION_FIXED_SIZE + 255 * DENOMINATION_SIZE;
+    private static final int MAX_UNSIGNED_SHORT = 0xFFFF;
+    private static final int MAX_UNSIGNED_BYTE = 0xFF;
+
+    private final Map<String, Integer> cashierIds = new HashMap<>();
+    private final List<String> cashierNames = new ArrayList<>();
+    private int committedCashiers;
+
+    @Override
+    public byte[] header() {
+        return ByteBuffer.allocate(HEADER_SIZE)
+            .putInt(MAGIC)
+            .putShort(FORMAT_VERSION)
+            .putShort((short) 0)
+            .array();
+    }
+
+    @Override
+    public void encode(Transaction transaction, ByteArrayOutputStream out) {
+        // Validate everything before touching the cashier dictionary, so a rejected
+        // transaction never leaves a dictionary entry that was not written.
+        long amountMinor = transaction.getMoney().getMinorUnits();
+        long epochMicros = toEpochMicros(transaction.getTimestamp());
+        Map<Integer, Integer> denominations = new TreeMap<>(transaction.getDenominations());
+        if (denominations.size() > MAX_UNSIGNED_BYTE) {
+            throw new IllegalArgumentException("Too many denominations in transaction " + transaction.getId());
+        }
+        for (Integer denomination : denominations.keySet()) {
+            if (denomination < 0 || denomination > MAX_UNSIGNED_SHORT) {
+                throw new IllegalArgumentException("Denomination out of range for binary format: " + denomination);
+            }
+        }
+
+        int cashierId = cashierIdFor(transaction.getCashier(), out);
+
+        int length = TRANSACTION_FIXED_SIZE + denominations.size() * DENOMINATION_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + length);
+        buffer.putInt(length)
+            .put(RECORD_TRANSACTION)
+            .putLong(transaction.getId().getMostSignificantBits())
+            .putLong(transaction.getId().getLeastSignificantBits())
+            .putLong(epochMicros)
+            .putShort((short) cashierId)
+            .put((byte) transaction.getOperationType().ordinal())
+            .put((byte) transaction.getCurrency().getId())
+            .putLong(amountMinor)
+            .put((byte) denominations.size());
+        for (Map.Entry<Integer, Integer> entry : denominations.entrySet()) {
+            buffer.putShort((short) entry.getKey().intValue());
+            buffer.putInt(entry.getValue());
+        }
+
+        out.write(buffer.array(), 0, buffer.position());
+    }
+
+    @Override
+    public void load(Path file, Consumer<Transaction> sink) throws IOException {
+        long fileSize = Files.size(file);
+        if (fileSize == 0) {
+            return;
+        }
+        if (fileSize < HEADER_SIZE) {
+            log.warn("Binary transaction log {} has a torn header ({} bytes), resetting it", file, fileSize);
+            truncate(file, 0);
+            return;
+        }
+
+        long offset = 0;
+        int recordCount = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            byte[] header = new byte[HEADER_SIZE];
+            in.readFully(header);
+            checkHeader(ByteBuffer.wrap(header), file);
+            offset = HEADER_SIZE;
+
+            while (offset < fileSize) {
+                if (fileSize - offset < Integer.BYTES) {
+                    break;
+                }
+                int length = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_SIZE) {
+                    throw new DataCorruptionException(String.format(
+                        "Corrupted binary transaction log %s: invalid record length %d at offset %d", file, length, offset));
+                }
+                if (fileSize - offset - Integer.BYTES < length) {
+                    break;
+                }
+
+                byte[] record = new byte[length];
+                in.readFully(record);
+                recordCount++;
+
+                try {
+                    Transaction transaction = decode(ByteBuffer.wrap(record));
+                    if (transaction != null) {
+                        sink.accept(transaction);
+                    }
+                } catch (Exception e) {
+                    log.error("Failed to decode binary record {} at offset {}", recordCount, offset, e);
+                    // Continue processing - the length prefix lets us skip the corrupted record
+                }
+                offset += Integer.BYTES + length;
+            }
+        } catch (EOFException e) {
+            // Handled below as a torn tail
+        }
+
+        markCommitted();
+
+        if (offset < fileSize) {
+            log.warn("Binary transaction log {} ends with a torn record at offset {}, truncating {} byte(s)",
+                file, offset, fileSize - offset);
+            truncate(file, offset);
+        }
+    }
+
+    @Override
+    public void markCommitted() {
+        committedCashiers = cashierNames.size();
+    }
+
+    @Override
+    public void discardUncommitted() {
+        while (cashierNames.size() > committedCashiers) {
+            String name = cashierNames.remove(cashierNames.size() - 1);
+            if (name != null) {
+                cashierIds.remove(name);
+            }
+        }
+    }
+
+    /**
+     * Validate a file header written by {@link #header()}.
+     * @param header Buffer positioned at the start of the header
+     * @param file File the header was read from, for error messages
+     * @throws DataCorruptionException if the file is not a binary log or has an unsupported version
+     */
+    public void checkHeader(ByteBuffer header, Path file) {
+        int magic = header.getInt();
+        short version = header.getShort();
+        header.getShort(); // reserved
+
+        if (magic != MAGIC) {
+            throw new DataCorruptionException("Not a binary transaction log: " + file);
+        }
+        if (version != FORMAT_VERSION) {
+            throw new DataCorruptionException(String.format(
+                "Unsupported binary transaction log version %d in %s (expected %d)", version, file, FORMAT_VERSION));
+        }
+    }
+
+    /**
+     * Decode one record body (type and payload, without the length prefix).
+     * Dictionary records update the codec state.
+     * @param buffer Record body, positioned at the type byte
+     * @return Decoded transaction, or null for dictionary records
+     * @throws DataCorruptionException if the record refers to unknown types or cashiers
+     */
+    public Transaction decode(ByteBuffer buffer) {
+        byte type = buffer.get();
+        if (type == RECORD_CASHIER) {
+            int id = Short.toUnsignedInt(buffer.getShort());
+            byte[] name = new byte[Byte.toUnsignedInt(buffer.get())];
+            buffer.get(name);
+            registerCashier(id, new String(name, StandardCharsets.UTF_8));
+            return null;
+        }
+        if (type != RECORD_TRANSACTION) {
+            throw new DataCorruptionException("Unknown binary record type: " + type);
+        }
+
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        Instant timestamp = fromEpochMicros(buffer.getLong());
+        int cashierId = Short.toUnsignedInt(buffer.getShort());
+        OperationType operationType = OperationType.values()[buffer.get()];
+        Currency currency = Currency.byId(Byte.toUnsignedInt(buffer.get()));
+        Money amount = Money.ofMinorUnits(currency, buffer.getLong());
+
+        int denominationCount = Byte.toUnsignedInt(buffer.get());
+        Map<Integer, Integer> denominations = new LinkedHashMap<>();
+        for (int i = 0; i < denominationCount; i++) {
+            int denomination = Short.toUnsignedInt(buffer.getShort());
+            denominations.put(denomination, buffer.getInt());
+        }
+
+        if (cashierId >= cashierNames.size() || cashierNames.get(cashierId) == null) {
+            throw new DataCorruptionException("Unknown cashier id " + cashierId + " in transaction " + id);
+        }
+
+        return new Transaction(
+            id,
+            timestamp,
+            cashierNames.get(cashierId),
+            operationType,
+            amount,
+            denominations
+        );
+    }
+
+    private int cashierIdFor(String cashier, ByteArrayOutputStream out) {
+        Integer existing = cashierIds.get(cashier);
+        if (existing != null) {
+            return existing;
+        }
+
+        byte[] name = cashier.getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_UNSIGNED_BYTE) {
+            throw new IllegalArgumentException("Cashier name too long for binary format: " + cashier);
+        }
+        int id = cashierNames.size();
+        if (id > MAX_UNSIGNED_SHORT) {
+            throw new IllegalStateException("Cashier dictionary is full");
+        }
+
+        int length = 1 + 2 + 1 + name.length;
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + length);
+        buffer.putInt(length)
+            .put(RECORD_CASHIER)
+            .putShort((short) id)
+            .put((byte) name.length)
+            .put(name);
+        out.write(buffer.array(), 0, buffer.position());
+
+        registerCashier(id, cashier);
+        return id;
+    }
+
+    private void registerCashier(int id, String name) {
+        while (cashierNames.size() <= id) {
+            cashierNames.add(null);
+        }
+        cashierNames.set(id, name);
+        cashierIds.put(name, id);
+    }
+
+    private static long toEpochMicros(Instant timestamp) {
+        return Math.addExact(Math.multiplyExact(timestamp.getEpochSecond(), 1_000_000L), timestamp.getNano() / 1_000);
+    }
+
+    private static Instant fromEpochMicros(long epochMicros) {
+        return Instant.ofEpochSecond(
+            Math.floorDiv(epochMicros, 1_000_000L),
+            Math.floorMod(epochMicros, 1_000_000L) * 1_000L
+        );
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+}
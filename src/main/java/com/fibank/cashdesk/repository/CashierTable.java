@@ -0,0 +1,111 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.model.Cashier;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Per-cashier values indexed by the compact {@link Cashier} id, created on first use.
+ * A lookup is an id lookup plus an array read; cashiers that are never touched cost one null slot.
+ * Thread-safe: values are installed by compare-and-set, so concurrent creators agree on one value.
+ *
+ * @param <T> Value type
+ */
+public class CashierTable<T> {
+
+    private static final int CHUNK_BITS = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final Object growLock = new Object();
+    private volatile AtomicReferenceArray<T>[] chunks = newDirectory(4);
+
+    @SuppressWarnings("unchecked")
+    private static <T> AtomicReferenceArray<T>[] newDirectory(int length) {
+        return (AtomicReferenceArray<T>[]) new AtomicReferenceArray[length];
+    }
+
+    /**
+     * @param cashier Cashier name, exact
+     * @return Value of the cashier, or null if the cashier is not registered or has no value yet
+     */
+    public T find(String cashier) {
+        int id = Cashier.idOf(cashier);
+        if (id < 0) {
+            return null;
+        }
+        AtomicReferenceArray<T>[] directory = chunks;
+        int chunk = id >>> CHUNK_BITS;
+        AtomicReferenceArray<T> values = chunk < directory.length ? directory[chunk] : null;
+        return values != null ? values.get(id & CHUNK_MASK) : null;
+    }
+
+    /**
+     * @param cashier Cashier name, exact
+     * @param factory Creates the value of a cashier without one; may run concurrently, only one result is kept
+     * @return Value of the cashier
+     * @throws IllegalArgumentException if the cashier is not registered
+     */
+    public T computeIfAbsent(String cashier, Function<String, T> factory) {
+        T value = find(cashier);
+        if (value != null) {
+            return value;
+        }
+        int id = Cashier.idOf(cashier);
+        if (id < 0) {
+            throw new IllegalArgumentException("Invalid cashier: " + cashier);
+        }
+        AtomicReferenceArray<T> values = chunk(id >>> CHUNK_BITS);
+        T created = factory.apply(cashier);
+        return values.compareAndSet(id & CHUNK_MASK, null, created) ? created : values.get(id & CHUNK_MASK);
+    }
+
+    private AtomicReferenceArray<T> chunk(int chunk) {
+        AtomicReferenceArray<T>[] directory = chunks;
+        if (chunk < directory.length && directory[chunk] != null) {
+            return directory[chunk];
+        }
+        synchronized (growLock) {
+            directory = chunks;
+            if (chunk >= directory.length) {
+                directory = Arrays.copyOf(directory, Math.max(directory.length * 2, chunk + 1));
+            }
+            if (directory[chunk] == null) {
+                directory[chunk] = new AtomicReferenceArray<>(CHUNK_SIZE);
+            }
+            chunks = directory;
+            return directory[chunk];
+        }
+    }
+
+    /**
+     * Visit the cashiers that have a value, in id order.
+     */
+    public void forEach(BiConsumer<String, T> action) {
+        AtomicReferenceArray<T>[] directory = chunks;
+        int registered = Cashier.count();
+        for (int id = 0; id < registered && (id >>> CHUNK_BITS) < directory.length; id++) {
+            AtomicReferenceArray<T> values = directory[id >>> CHUNK_BITS];
+            if (values == null) {
+                id |= CHUNK_MASK; // Skip the rest of the empty chunk
+                continue;
+            }
+            T value = values.get(id & CHUNK_MASK);
+            if (value != null) {
+                action.accept(Cashier.nameOf(id), value);
+            }
+        }
+    }
+
+    /**
+     * Drop all values.
+     */
+    public void clear() {
+        synchronized (growLock) {
+            chunks = newDirectory(4);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.fibank.cashdesk.repository;
+
+/**
+ * Durability modes for the storage files, trading write latency for safety.
+ * The loss window is what an OS crash or power failure can take away;
+ * a crash of the JVM alone loses nothing that was acknowledged, since written data is already in the page cache.
+ */
+public enum DurabilityMode {
+    /**
+     * Force after every record before acknowledging.
+     * Loss window: none. Highest latency, one fsync per operation.
+     */
+    SYNC,
+
+    /**
+     * Force once per commit batch before acknowledging; concurrent operations share the fsync.
+     * Loss window: none. Latency is bounded by the batch linger time plus one fsync.
+     */
+    GROUP,
+
+    /**
+     * Acknowledge after the write reaches the page cache; a background flush forces every N ms.
+     * Loss window: up to the configured flush interval of acknowledged operations.
+     */
+    ASYNC
+}
@@ -2,35 +2,103 @@ package com.fibank.cashdesk.repository;
 
 import com.fibank.cashdesk.exception.DataCorruptionException;
 import com.fibank.cashdesk.exception.FileStorageException;
+import com.fibank.cashdesk.model.BalanceSnapshot;
 import com.fibank.cashdesk.model.CashBalance;
+import com.fibank.cashdesk.model.Cashier;
 import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.OperationType;
+import com.fibank.cashdesk.model.Transaction;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 /**
  * File-based implementation of BalanceRepository.
- * Uses per-cashier read-write locks for concurrency control.
+ * Each cashier's balances are published as an immutable {@link BalanceSnapshot} through an {@link AtomicReference};
+ * writers replace the snapshot, readers take no lock and copy nothing. Every (cashier, currency) has its own lock:
+ * {@link #update} holds only the lock of the currency it changes, so operations in different currencies of the same
+ * cashier run in parallel, while {@link #save} takes all locks of the cashier.
+ *
+ * The balance file holds one fixed-width record per (cashier, currency, denomination), with the count zero-padded
+ * to {@value #COUNT_WIDTH} digits, so every count sits at a known offset. The file is rewritten in this layout at startup
+ * and by {@link #saveAll}; {@link #save} only overwrites the counts that changed, in place, so its cost does not grow
+ * with the number of cashiers and different cashiers persist in parallel.
+ *
+ * Cashiers are the configured ones plus those found in the balance file; {@link #addCashier} adds one at runtime.
+ * The locks of a cashier are created on its first update, in a table indexed by the cashier id. A cashier without
+ * records in the file, such as one added at runtime, gets them appended to the end of the file.
+ * In SYNC and GROUP durability each write is forced before {@code save} returns;
+ * in ASYNC durability forcing is left to the background flush. Rewrites are forced in every mode.
+ *
+ * In write-behind mode ({@code cashdesk.storage.balance-write-behind.enabled}) {@code save} only updates memory and
+ * marks the cashier dirty; a background flusher replaces the balance file every {@code flush-interval-ms} or after
+ * {@code max-changes} saves, writing with each balance a {@code cashier|LAST|CURRENCY|id} record naming the last
+ * transaction it includes. The file is replaced atomically, so a crash never leaves counts next to another balance's
+ * anchor, and a replay never applies a transaction the counts already include. As in LOG mode, {@link #update} appends the transaction while it holds the balance
+ * lock, so the log holds the transactions of each balance in the order they were applied. At startup each balance
+ * replays the transactions of its currency logged after its record, so an acknowledged operation is not lost while the
+ * file lags behind.
+ *
+ * With {@code cashdesk.storage.balance-source=LOG} the transaction log is the only record of an operation:
+ * {@link #update} appends the transaction while it holds the balance lock and publishes the change only once the append
+ * succeeded, so each balance is applied in log order and nothing needs undoing when the append fails. The balance file
+ * is not written per operation but serves as a checkpoint, rewritten every {@code balance-checkpoint-interval-ms}
+ * together with the last transaction each balance includes; startup replays the transactions logged after it.
  */
 @Repository
+@ConditionalOnProperty(prefix = "cashdesk.storage", name = "balance-engine", havingValue = "FILE", matchIfMissing = true)
+@DependsOn("currencyRegistry")
 public class FileBalanceRepository implements BalanceRepository {
 
     private static final Logger log = LoggerFactory.getLogger(FileBalanceRepository.class);
@@ -41,26 +109,173 @@ public class FileBalanceRepository implements BalanceRepository {
     @Value("#{'${cashdesk.cashiers.names}'.split(',')}")
     private List<String> cashierNames;
 
-    private final Map<String, Map<Currency, CashBalance>> balancesCache = new ConcurrentHashMap<>();
-    private final Map<String, ReadWriteLock> cashierLocks = new ConcurrentHashMap<>();
+    @Value("${cashdesk.storage.durability:GROUP}")
+    private DurabilityMode durability = DurabilityMode.GROUP;
+
+    @Value("${cashdesk.storage.balance-write-behind.enabled:false}")
+    private boolean writeBehind = false;
+
+    @Value("${cashdesk.storage.balance-write-behind.flush-interval-ms:1000}")
+    private long flushIntervalMillis = 1000;
+
+    @Value("${cashdesk.storage.balance-write-behind.max-changes:100}")
+    private int maxChanges = 100;
+
+    @Value("${cashdesk.storage.balance-source:FILE}")
+    private BalanceSource balanceSource = BalanceSource.FILE;
+
+    @Value("${cashdesk.storage.balance-checkpoint-interval-ms:60000}")
+    private long checkpointIntervalMillis = 60000;
+
+    // Source of the log tail replayed onto a lagging balance file
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private static final int COUNT_WIDTH = 10;
+
+    // Anchor of a cashier without transactions in the log: the whole log is its tail
+    private static final UUID NO_TRANSACTION = new UUID(0, 0);
+
+    /**
+     * Positions of one cashier's counts in the balance file and the values last written there.
+     * Records of a currency are written under its lock; replaced under the write side of the layout lock.
+     */
+    private static class CashierRecords {
+        private final Map<Currency, long[]> countOffsets = new HashMap<>();
+        private final Map<Currency, int[]> persistedCounts = new HashMap<>();
+    }
+
+    /**
+     * Published state of one cashier: its balances and, per currency, the last transaction they include, if known.
+     */
+    private static final class CashierState {
+        private final BalanceSnapshot balances;
+        private final Map<Currency, UUID> lastTransactionIds;
+
+        CashierState(BalanceSnapshot balances, Map<Currency, UUID> lastTransactionIds) {
+            this.balances = balances;
+            this.lastTransactionIds = lastTransactionIds != null ? lastTransactionIds : Map.of();
+        }
+    }
+
+    /**
+     * Balances and last saved transactions read from the file, before they are published.
+     */
+    private static class LoadedBalances {
+        private final Map<String, Map<Currency, CashBalance>> balances = new HashMap<>();
+        private final Map<String, Map<Currency, UUID>> lastTransactionIds = new HashMap<>();
+    }
+
+    private final Map<String, AtomicReference<CashierState>> states = new ConcurrentHashMap<>();
+    private final CashierTable<Map<Currency, Lock>> currencyLocks = new CashierTable<>();
+    // Opening a cashier takes the write side; taking the locks of all cashiers takes the read side
+    private final ReadWriteLock cashiersLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean unflushed = new AtomicBoolean(false);
+
+    // In-place writes share the read side; a full rewrite of the file takes the write side
+    private final ReadWriteLock layoutLock = new ReentrantReadWriteLock();
+    private volatile Map<String, CashierRecords> layout = new ConcurrentHashMap<>();
+    private volatile FileChannel channel;
+
+    // Write-behind state: cashiers whose published state is not yet written
+    private final Set<String> dirtyCashiers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger pendingChanges = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private volatile ScheduledExecutorService flusher;
+
+    // Serializes write-behind flushes and checkpoints
+    private final Lock flushLock = new ReentrantLock();
+    // Log-sourced state: log position and per-balance last transactions of the latest checkpoint, guarded by flushLock
+    private int checkpointPosition;
+    private final Map<String, Map<Currency, UUID>> checkpointAnchors = new HashMap<>();
 
     @PostConstruct
     public void initialize() {
-        for (String cashier : cashierNames) {
-            cashierLocks.put(cashier, new ReentrantReadWriteLock());
+        close();
+        cashierNames.forEach(Cashier::register);
+        currencyLocks.clear();
+        dirtyCashiers.clear();
+
+        LoadedBalances loaded = loadBalances();
+        replayLogTail(loaded);
+        states.clear();
+        for (Map.Entry<String, Map<Currency, CashBalance>> entry : loaded.balances.entrySet()) {
+            String cashier = entry.getKey();
+            Map<Currency, UUID> lastTransactionIds = isAnchored() ? loaded.lastTransactionIds.get(cashier) : null;
+            states.put(cashier, new AtomicReference<>(new CashierState(BalanceSnapshot.of(cashier, entry.getValue()),
+                lastTransactionIds != null ? Map.copyOf(lastTransactionIds) : null)));
+        }
+        // Brings the file into the fixed record layout, including older free-width files
+        saveAll(Map.of());
+
+        if (balanceSource == BalanceSource.LOG) {
+            flushLock.lock();
+            try {
+                // The replayed balances include the whole log
+                checkpointPosition = transactionRepository.findAll().size();
+                checkpointAnchors.clear();
+                loaded.lastTransactionIds.forEach((cashier, anchors) -> checkpointAnchors.put(cashier, new HashMap<>(anchors)));
+            } finally {
+                flushLock.unlock();
+            }
+            flusher = startBackground("balance-checkpoint", this::checkpoint, checkpointIntervalMillis);
+        } else if (writeBehind) {
+            flusher = startBackground("balance-flusher", this::flushDirtyBalances, flushIntervalMillis);
+        }
+    }
+
+    private static ScheduledExecutorService startBackground(String name, Runnable task, long intervalMillis) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(task, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    /**
+     * Write pending write-behind changes, or a final checkpoint of log-sourced balances, and release the balance file.
+     */
+    @PreDestroy
+    public void close() {
+        ScheduledExecutorService executor = flusher;
+        if (executor != null) {
+            flusher = null;
+            executor.shutdown();
+            try {
+                executor.awaitTermination(flushIntervalMillis + 5000, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (balanceSource == BalanceSource.LOG) {
+                checkpoint();
+            } else {
+                flushDirtyBalances();
+            }
         }
 
-        loadBalances();
+        layoutLock.writeLock().lock();
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } catch (IOException e) {
+            log.warn("Failed to close balance file {}", balanceFilePath, e);
+        } finally {
+            layoutLock.writeLock().unlock();
+        }
     }
 
-    private void loadBalances() {
+    private LoadedBalances loadBalances() {
         File file = getBalanceFile();
+        LoadedBalances loaded = new LoadedBalances();
 
         if (!file.exists()) {
             log.info("Balance file not found, creating with initial balances: {}", balanceFilePath);
-            initializeWithDefaultBalances();
-            saveAll(balancesCache);
-            return;
+            initializeWithDefaultBalances(loaded);
+            return loaded;
         }
 
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
@@ -70,94 +285,709 @@ public class FileBalanceRepository implements BalanceRepository {
                 lineNumber++;
                 if (!line.trim().isEmpty()) {
                     try {
-                        parseBalanceLine(line);
+                        TextBalanceCodec.parseLine(line, loaded.balances, loaded.lastTransactionIds);
                     } catch (Exception e) {
                         log.error("Failed to parse balance at line {}: {}", lineNumber, line, e);
                     }
                 }
             }
-            log.info("Loaded balances for {} cashiers from {}", balancesCache.size(), balanceFilePath);
+            log.info("Loaded balances for {} cashiers from {}", loaded.balances.size(), balanceFilePath);
         } catch (IOException e) {
             throw new FileStorageException("Failed to load balances from file", e);
         }
 
+        // Cashiers added at runtime are only recorded in the balance file
+        loaded.balances.keySet().forEach(Cashier::register);
+
         for (String cashier : cashierNames) {
-            balancesCache.putIfAbsent(cashier, new HashMap<>());
+            loaded.balances.putIfAbsent(cashier, new HashMap<>());
             for (Currency currency : Currency.values()) {
-                balancesCache.get(cashier).putIfAbsent(currency, new CashBalance(currency));
+                loaded.balances.get(cashier).putIfAbsent(currency, new CashBalance(currency));
             }
         }
+        return loaded;
     }
 
-    private void initializeWithDefaultBalances() {
-        for (String cashier : cashierNames) {
-            Map<Currency, CashBalance> cashierBalances = new HashMap<>();
+    /**
+     * Apply the transactions logged after each balance's last saved transaction to the loaded balances.
+     * In anchored modes also anchors balances without a saved transaction to their latest one in the log.
+     * Scans the log backwards and stops once every balance is anchored. A cashier-wide anchor of an older file
+     * is found once for all its currencies.
+     */
+    private void replayLogTail(LoadedBalances loaded) {
+        Map<String, Map<Currency, UUID>> lastTransactionIds = loaded.lastTransactionIds;
+        Map<String, Map<Currency, UUID>> seeking = new HashMap<>();
+        lastTransactionIds.forEach((cashier, anchors) -> seeking.put(cashier, new HashMap<>(anchors)));
+        Map<String, Set<Currency>> unanchored = new HashMap<>();
+        if (isAnchored()) {
+            Set<String> cashiers = new HashSet<>(cashierNames);
+            cashiers.addAll(loaded.balances.keySet());
+            for (String cashier : cashiers) {
+                Set<Currency> currencies = new HashSet<>(List.of(Currency.values()));
+                currencies.removeAll(seeking.getOrDefault(cashier, Map.of()).keySet());
+                if (!currencies.isEmpty()) {
+                    unanchored.put(cashier, currencies);
+                }
+            }
+        }
+        seeking.values().removeIf(Map::isEmpty);
+        if (seeking.isEmpty() && unanchored.isEmpty()) {
+            return;
+        }
+        if (transactionRepository == null) {
+            throw new FileStorageException("Transaction log is required to replay balances");
+        }
 
-            // BGN: 1000 BGN = 50x10 + 10x50
-            Map<Integer, Integer> bgnDenoms = new LinkedHashMap<>();
-            bgnDenoms.put(10, 50);
-            bgnDenoms.put(50, 10);
-            cashierBalances.put(Currency.BGN, new CashBalance(Currency.BGN, bgnDenoms));
+        List<Transaction> transactions = transactionRepository.findAll();
+        Map<String, Map<Currency, Deque<Transaction>>> tails = new HashMap<>();
+        for (int i = transactions.size() - 1; i >= 0 && (!seeking.isEmpty() || !unanchored.isEmpty()); i--) {
+            Transaction transaction = transactions.get(i);
+            String cashier = transaction.getCashier();
+            Currency currency = transaction.getCurrency();
 
-            // EUR: 2000 EUR = 100x10 + 0x20 + 20x50
-            Map<Integer, Integer> eurDenoms = new LinkedHashMap<>();
-            eurDenoms.put(10, 100);
-            eurDenoms.put(20, 0);
-            eurDenoms.put(50, 20);
-            cashierBalances.put(Currency.EUR, new CashBalance(Currency.EUR, eurDenoms));
+            Set<Currency> pending = unanchored.get(cashier);
+            if (pending != null && pending.remove(currency)) {
+                if (pending.isEmpty()) {
+                    unanchored.remove(cashier);
+                }
+                lastTransactionIds.computeIfAbsent(cashier, k -> new HashMap<>()).put(currency, transaction.getId());
+                continue;
+            }
+            Map<Currency, UUID> anchors = seeking.get(cashier);
+            if (anchors == null) {
+                continue;
+            }
+            boolean anchor = anchors.containsKey(currency) && anchors.get(currency).equals(transaction.getId());
+            anchors.values().removeIf(transaction.getId()::equals);
+            if (anchors.isEmpty()) {
+                seeking.remove(cashier);
+            }
+            if (!anchor && anchors.containsKey(currency)) {
+                tails.computeIfAbsent(cashier, k -> new HashMap<>())
+                    .computeIfAbsent(currency, k -> new ArrayDeque<>())
+                    .addFirst(transaction);
+            }
+        }
+
+        unanchored.forEach((cashier, currencies) -> currencies.forEach(currency ->
+            lastTransactionIds.computeIfAbsent(cashier, k -> new HashMap<>()).put(currency, NO_TRANSACTION)));
+        seeking.forEach((cashier, anchors) -> anchors.forEach((currency, anchor) -> {
+            if (!NO_TRANSACTION.equals(anchor)) {
+                // The saved transaction never reached the log, so nothing logged for the balance is newer than the file
+                log.warn("Last saved transaction {} of cashier {} in {} is not in the transaction log, nothing to replay",
+                    anchor, cashier, currency);
+                Map<Currency, Deque<Transaction>> cashierTails = tails.get(cashier);
+                if (cashierTails != null) {
+                    cashierTails.remove(currency);
+                }
+            }
+        }));
+
+        int replayed = 0;
+        for (Map<Currency, Deque<Transaction>> cashierTails : tails.values()) {
+            for (Deque<Transaction> tail : cashierTails.values()) {
+                for (Transaction transaction : tail) {
+                    apply(loaded.balances, transaction);
+                    lastTransactionIds.get(transaction.getCashier()).put(transaction.getCurrency(), transaction.getId());
+                    replayed++;
+                }
+            }
+        }
+        if (replayed > 0) {
+            log.info("Replayed {} transactions from the transaction log onto the balances in {}", replayed, balanceFilePath);
+        }
+    }
+
+    private static void apply(Map<String, Map<Currency, CashBalance>> balances, Transaction transaction) {
+        CashBalance balance = balances
+            .computeIfAbsent(transaction.getCashier(), k -> new HashMap<>())
+            .computeIfAbsent(transaction.getCurrency(), CashBalance::new);
+        try {
+            int[] counts = transaction.getCurrency().toCounts(transaction.getDenominations());
+            if (transaction.getOperationType() == OperationType.DEPOSIT) {
+                balance.addCounts(counts);
+            } else {
+                balance.removeCounts(counts);
+            }
+        } catch (RuntimeException e) {
+            throw new DataCorruptionException("Failed to replay transaction " + transaction.getId() + " onto the balances", e);
+        }
+    }
 
-            balancesCache.put(cashier, cashierBalances);
+    private void initializeWithDefaultBalances(LoadedBalances loaded) {
+        for (String cashier : cashierNames) {
+            loaded.balances.put(cashier, TextBalanceCodec.initialBalances());
         }
         log.info("Initialized default balances for {} cashiers", cashierNames.size());
     }
 
     @Override
     public void save(String cashier, Map<Currency, CashBalance> balances) {
-        ReadWriteLock lock = cashierLocks.get(cashier);
-        if (lock == null) {
+        save(cashier, balances, null);
+    }
+
+    @Override
+    public void save(String cashier, Map<Currency, CashBalance> balances, UUID transactionId) {
+        requireFileSource();
+        Collection<Lock> locks = locksOf(cashier).values();
+        locks.forEach(Lock::lock);
+        try {
+            BalanceSnapshot snapshot = BalanceSnapshot.of(cashier, balances);
+            Map<Currency, UUID> anchors = new HashMap<>();
+            if (transactionId != null && isAnchored()) {
+                for (Currency currency : Currency.values()) {
+                    anchors.put(currency, transactionId);
+                }
+            }
+            CashierState state = publish(cashier, previous -> snapshot, anchors);
+            persist(cashier, state, Set.of(Currency.values()));
+            log.debug("Saved balances for cashier: {}", cashier);
+        } finally {
+            locks.forEach(Lock::unlock);
+        }
+    }
+
+    @Override
+    public Transaction update(String cashier, Currency currency, Function<CashBalance, Transaction> mutator) {
+        Lock lock = locksOf(cashier).get(currency);
+        lock.lock();
+        try {
+            CashBalance balance = current(cashier).balances.toCashBalance(currency);
+            Transaction transaction = mutator.apply(balance);
+
+            if (balanceSource == BalanceSource.LOG && transaction == null) {
+                throw new IllegalArgumentException("Balances derived from the transaction log change only through transactions");
+            }
+            if (appendsTransactions() && transaction != null) {
+                // Under the balance lock, so the log holds the transactions of each balance in the order they are applied
+                transactionRepository.save(transaction);
+            }
+            if (balanceSource == BalanceSource.LOG) {
+                publish(cashier, previous -> previous.with(balance), Map.of());
+                log.debug("Applied transaction {} to {} balance of cashier: {}", transaction.getId(), currency, cashier);
+                return transaction;
+            }
+
+            CashierState state = publish(cashier, previous -> previous.with(balance),
+                transaction != null && isAnchored() ? Map.of(currency, transaction.getId()) : Map.of());
+            persist(cashier, state, Set.of(currency));
+            log.debug("Updated {} balance for cashier: {}", currency, cashier);
+            return transaction;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void updateAll(List<BalanceUpdate> updates, boolean atomic) {
+        Map<String, List<Currency>> balances = BalanceUpdate.balancesOf(updates);
+        List<Lock> locks = new ArrayList<>();
+        balances.forEach((cashier, currencies) -> {
+            Map<Currency, Lock> cashierLocks = locksOf(cashier);
+            currencies.forEach(currency -> locks.add(cashierLocks.get(currency)));
+        });
+        locks.forEach(Lock::lock);
+        try {
+            BiFunction<String, Currency, CashBalance> published = (cashier, currency) ->
+                current(cashier).balances.toCashBalance(currency);
+            Map<String, Map<Currency, CashBalance>> working = BalanceUpdate.applyAll(updates, published, atomic);
+
+            if (appendsTransactions() && !appendAll(updates)) {
+                if (atomic) {
+                    // An atomic batch publishes nothing once any append failed
+                    RuntimeException failure = updates.stream()
+                        .map(BalanceUpdate::getFailure).filter(Objects::nonNull).findFirst().orElseThrow();
+                    BalanceUpdate.discardAll(updates);
+                    log.error("Atomic batch of {} balance updates aborted by a failed append", updates.size(), failure);
+                    throw failure;
+                }
+                // Publish only what reached the log
+                working = BalanceUpdate.replay(updates.stream().filter(BalanceUpdate::isApplied).toList(), published);
+            }
+
+            Map<String, CashierState> changed = new LinkedHashMap<>();
+            for (Map.Entry<String, Map<Currency, CashBalance>> entry : working.entrySet()) {
+                String cashier = entry.getKey();
+                // Like update, anchors written-behind balances only; log-sourced balances are anchored by checkpoints
+                Map<Currency, UUID> lastTransactionIds = new HashMap<>();
+                for (BalanceUpdate update : updates) {
+                    if (writeBehind && balanceSource != BalanceSource.LOG && update.isApplied()
+                            && update.getTransaction() != null && update.getCashier().equals(cashier)) {
+                        lastTransactionIds.put(update.getCurrency(), update.getTransaction().getId());
+                    }
+                }
+                Collection<CashBalance> cashierBalances = entry.getValue().values();
+                changed.put(cashier, publish(cashier, previous -> {
+                    BalanceSnapshot next = previous;
+                    for (CashBalance balance : cashierBalances) {
+                        next = next.with(balance);
+                    }
+                    return next;
+                }, lastTransactionIds));
+            }
+            if (balanceSource != BalanceSource.LOG) {
+                persistAll(changed, working);
+            }
+            log.debug("Applied batch of {} balance updates", updates.size());
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+    }
+
+    /**
+     * Queue the transactions of the applied updates on the log back to back, so they share a commit.
+     * Log-sourced balances fail corrections; written-behind ones publish them without an append.
+     * Caller holds the locks of the touched balances.
+     * @return Whether every append succeeded; failed updates are marked as such
+     */
+    private boolean appendAll(List<BalanceUpdate> updates) {
+        List<BalanceUpdate> appended = new ArrayList<>();
+        List<CompletableFuture<Void>> written = new ArrayList<>();
+        for (BalanceUpdate update : updates) {
+            if (!update.isApplied()) {
+                continue;
+            }
+            if (update.getTransaction() == null) {
+                if (balanceSource != BalanceSource.LOG) {
+                    continue;
+                }
+                update.fail(new IllegalArgumentException("Balances derived from the transaction log change only through transactions"));
+                continue;
+            }
+            appended.add(update);
+            try {
+                written.add(transactionRepository.saveAsync(update.getTransaction()));
+            } catch (RuntimeException e) {
+                written.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        boolean complete = true;
+        for (int i = 0; i < appended.size(); i++) {
+            try {
+                written.get(i).join();
+            } catch (CompletionException e) {
+                RuntimeException failure = e.getCause() instanceof RuntimeException runtimeException
+                    ? runtimeException
+                    : new FileStorageException("Failed to append transaction to log", e.getCause());
+                appended.get(i).fail(failure);
+                complete = false;
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * Write the changed currencies of several cashiers in place and force once, or leave them to the flusher
+     * in write-behind mode. Caller holds the locks of those currencies.
+     */
+    private void persistAll(Map<String, CashierState> changed, Map<String, Map<Currency, CashBalance>> currencies) {
+        if (writeBehind) {
+            dirtyCashiers.addAll(changed.keySet());
+            if (pendingChanges.addAndGet(changed.size()) >= maxChanges) {
+                requestFlush();
+            }
+            return;
+        }
+        layoutLock.readLock().lock();
+        try {
+            boolean written = false;
+            for (Map.Entry<String, CashierState> entry : changed.entrySet()) {
+                written |= writeChangedRecords(entry.getKey(), entry.getValue(), currencies.get(entry.getKey()).keySet());
+            }
+            if (written) {
+                forceOrDefer(channel);
+            }
+        } finally {
+            layoutLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean appendsTransactions() {
+        // Write-behind replay relies on each balance's transactions being logged in the order they were applied
+        return balanceSource == BalanceSource.LOG || writeBehind;
+    }
+
+    /**
+     * @return Whether the balance file records the last transaction each cashier's balances include
+     */
+    private boolean isAnchored() {
+        return writeBehind || balanceSource == BalanceSource.LOG;
+    }
+
+    private void requireFileSource() {
+        if (balanceSource == BalanceSource.LOG) {
+            throw new UnsupportedOperationException("Balances are derived from the transaction log and change only through update");
+        }
+    }
+
+    /**
+     * @return Locks of the cashier's currencies, in currency order
+     * @throws IllegalArgumentException if the cashier is not registered
+     */
+    private Map<Currency, Lock> locksOf(String cashier) {
+        Map<Currency, Lock> locks = currencyLocks.find(cashier);
+        return locks != null ? locks : open(cashier, null);
+    }
+
+    @Override
+    public boolean addCashier(String cashier) {
+        String name = Cashier.nameOf(Cashier.register(cashier));
+        cashiersLock.writeLock().lock();
+        try {
+            if (states.containsKey(name) || layout.containsKey(name)) {
+                return false;
+            }
+            open(name, BalanceSnapshot.of(name, TextBalanceCodec.initialBalances()));
+            log.info("Added cashier {}", name);
+            return true;
+        } finally {
+            cashiersLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Create the locks of a registered cashier on first use. A cashier without records in the balance file gets
+     * them appended, with the given balances or, if none were published, empty ones; the rest of the file is untouched.
+     * @param balances Balances to publish for a cashier without published state, or null for empty ones
+     */
+    private Map<Currency, Lock> open(String cashier, BalanceSnapshot balances) {
+        if (Cashier.idOf(cashier) < 0) {
             throw new IllegalArgumentException("Invalid cashier: " + cashier);
         }
+        cashiersLock.writeLock().lock();
+        try {
+            Map<Currency, Lock> locks = currencyLocks.find(cashier);
+            if (locks != null) {
+                return locks;
+            }
+            AtomicReference<CashierState> state = states.computeIfAbsent(cashier, k -> new AtomicReference<>(
+                new CashierState(balances != null ? balances : BalanceSnapshot.of(cashier, Map.of()), null)));
+            if (!layout.containsKey(cashier)) {
+                appendRecords(cashier, state.get());
+            }
+            return currencyLocks.computeIfAbsent(cashier, k -> {
+                Map<Currency, Lock> created = new LinkedHashMap<>();
+                for (Currency currency : Currency.values()) {
+                    created.put(currency, new ReentrantLock());
+                }
+                return created;
+            });
+        } finally {
+            cashiersLock.writeLock().unlock();
+        }
+    }
 
-        lock.writeLock().lock();
+    /**
+     * Append the records of a cashier to the end of the balance file. In anchored modes balances without a last
+     * transaction are anchored before the whole log, so that startup replays every transaction logged for them.
+     */
+    private void appendRecords(String cashier, CashierState state) {
+        layoutLock.writeLock().lock();
         try {
-            balancesCache.put(cashier, new HashMap<>(balances));
-            saveAll(balancesCache);
-            log.debug("Saved balances for cashier: {}", cashier);
+            FileChannel file = channel;
+            if (file == null) {
+                throw new FileStorageException("Balance file is not initialized");
+            }
+            long end = file.size();
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            CashierRecords records = writeRecords(content, end, cashier, state.balances, state.lastTransactionIds);
+            write(file, content.toByteArray(), end);
+            forceOrDefer(file);
+            layout.put(cashier, records);
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to append balances of cashier " + cashier + " to file", e);
+        } finally {
+            layoutLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the published state of a cashier. Caller holds the locks of the currencies the change touches;
+     * other currencies of the cashier may be published concurrently, so the state is swapped by compare-and-set.
+     * @param change Derives the new balances from the published ones; may be applied more than once
+     * @param transactionIds Last transaction included per changed currency; other currencies keep the previous one
+     */
+    private CashierState publish(String cashier, UnaryOperator<BalanceSnapshot> change, Map<Currency, UUID> transactionIds) {
+        AtomicReference<CashierState> current = states.computeIfAbsent(cashier, k -> new AtomicReference<>());
+        return current.updateAndGet(previous -> {
+            BalanceSnapshot balances = previous != null ? previous.balances : BalanceSnapshot.of(cashier, Map.of());
+            Map<Currency, UUID> lastTransactionIds = previous != null ? previous.lastTransactionIds : Map.of();
+            if (!transactionIds.isEmpty()) {
+                Map<Currency, UUID> merged = new HashMap<>(lastTransactionIds);
+                merged.putAll(transactionIds);
+                lastTransactionIds = Map.copyOf(merged);
+            }
+            return new CashierState(change.apply(balances), lastTransactionIds);
+        });
+    }
+
+    /**
+     * Write the given currencies of a published state in place, or leave them to the flusher in write-behind mode.
+     * Caller holds the locks of those currencies.
+     */
+    private void persist(String cashier, CashierState state, Set<Currency> currencies) {
+        if (writeBehind) {
+            dirtyCashiers.add(cashier);
+            if (pendingChanges.incrementAndGet() >= maxChanges) {
+                requestFlush();
+            }
+            return;
+        }
+        layoutLock.readLock().lock();
+        try {
+            if (writeChangedRecords(cashier, state, currencies)) {
+                forceOrDefer(channel);
+            }
+        } finally {
+            layoutLock.readLock().unlock();
+        }
+    }
+
+    private void requestFlush() {
+        ScheduledExecutorService executor = flusher;
+        if (executor != null && flushRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flushDirtyBalances);
+            } catch (RejectedExecutionException e) {
+                // Shutting down; close() writes the remaining changes
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Write-behind flush: if any cashier is dirty, replace the balance file with the current balances and the last
+     * transaction of each, as the LOG checkpoint does. Runs on the flusher thread; after a failure the cashiers stay
+     * dirty for the next flush.
+     */
+    public void flushDirtyBalances() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            pendingChanges.set(0);
+            if (dirtyCashiers.isEmpty()) {
+                return;
+            }
+
+            // Unmarked before reading, so a save published meanwhile marks its cashier again
+            Set<String> flushed = Set.copyOf(dirtyCashiers);
+            dirtyCashiers.removeAll(flushed);
+            layoutLock.writeLock().lock();
+            try {
+                // Each published state pairs the counts of a balance with its last transaction, so no balance lock
+                // is needed; nothing is written in place in this mode
+                rewrite(this::current);
+            } catch (FileStorageException e) {
+                dirtyCashiers.addAll(flushed);
+                log.error("Failed to flush balances to {}", balanceFilePath, e);
+            } finally {
+                layoutLock.writeLock().unlock();
+            }
         } finally {
-            lock.writeLock().unlock();
+            flushLock.unlock();
         }
     }
 
+    /**
+     * Publish the balances of the given cashiers and rewrite the whole balance file in the fixed record layout.
+     * Waits for in-place writes to finish; used at startup and for bulk updates.
+     */
     @Override
-    public synchronized void saveAll(Map<String, Map<Currency, CashBalance>> allBalances) {
+    public void saveAll(Map<String, Map<Currency, CashBalance>> allBalances) {
+        if (!allBalances.isEmpty()) {
+            requireFileSource();
+        }
+        allBalances.keySet().forEach(this::locksOf);
+        // Balance locks before the layout lock, in the same order as save
+        cashiersLock.readLock().lock();
+        List<Lock> locks = allLocks();
+        locks.forEach(Lock::lock);
+        layoutLock.writeLock().lock();
+        try {
+            for (Map.Entry<String, Map<Currency, CashBalance>> entry : allBalances.entrySet()) {
+                BalanceSnapshot snapshot = BalanceSnapshot.of(entry.getKey(), entry.getValue());
+                publish(entry.getKey(), previous -> snapshot, Map.of());
+            }
+            rewrite(this::current);
+            dirtyCashiers.clear();
+        } finally {
+            layoutLock.writeLock().unlock();
+            locks.forEach(Lock::unlock);
+            cashiersLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Log-sourced checkpoint: rewrite the balance file with the current balances and, per balance, the last logged
+     * transaction it includes, so that startup only replays what was logged after it. Runs periodically and on close;
+     * the file is replaced atomically, so a crash leaves either the previous or the new checkpoint.
+     */
+    public void checkpoint() {
+        flushLock.lock();
+        try {
+            if (balanceSource != BalanceSource.LOG) {
+                return;
+            }
+
+            Map<String, BalanceSnapshot> balances = new HashMap<>();
+            List<Transaction> logged;
+            // No cashier is opened meanwhile, so a cashier without locks has no update in flight either
+            cashiersLock.readLock().lock();
+            List<Lock> locks = allLocks();
+            // With every balance lock held, no append is in flight: the log holds exactly the published transactions
+            locks.forEach(Lock::lock);
+            try {
+                logged = transactionRepository.findAll();
+                for (String cashier : states.keySet()) {
+                    balances.put(cashier, current(cashier).balances);
+                }
+            } finally {
+                locks.forEach(Lock::unlock);
+                cashiersLock.readLock().unlock();
+            }
+
+            int position = logged.size();
+            if (position == checkpointPosition) {
+                return;
+            }
+            for (int i = checkpointPosition; i < position; i++) {
+                Transaction transaction = logged.get(i);
+                checkpointAnchors.computeIfAbsent(transaction.getCashier(), k -> new HashMap<>())
+                    .put(transaction.getCurrency(), transaction.getId());
+            }
+
+            layoutLock.writeLock().lock();
+            try {
+                rewrite(cashier -> new CashierState(
+                    balances.getOrDefault(cashier, BalanceSnapshot.of(cashier, Map.of())), checkpointAnchors.get(cashier)));
+                checkpointPosition = position;
+                log.debug("Checkpointed balances at log position {}", position);
+            } catch (FileStorageException e) {
+                log.error("Failed to checkpoint balances to {}", balanceFilePath, e);
+            } finally {
+                layoutLock.writeLock().unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * @return Locks of all opened cashiers, in lock order (cashier id, then currency). Caller holds the read side of
+     * the cashiers lock, so that no cashier is opened meanwhile
+     */
+    private List<Lock> allLocks() {
+        List<Lock> locks = new ArrayList<>();
+        currencyLocks.forEach((cashier, cashierLocks) -> locks.addAll(cashierLocks.values()));
+        return locks;
+    }
+
+    /**
+     * @return Cashiers with balances: configured cashiers first, in configuration order, then the others in id order
+     */
+    private List<String> cashiers() {
+        Set<String> cashiers = new LinkedHashSet<>(cashierNames);
+        states.keySet().stream()
+            .filter(cashier -> !cashiers.contains(cashier))
+            .sorted(Comparator.comparingInt(Cashier::idOf))
+            .forEach(cashiers::add);
+        return new ArrayList<>(cashiers);
+    }
+
+    /**
+     * Overwrite the counts of the given currencies that differ from the file.
+     * Caller holds the locks of those currencies and the read side of the layout lock; a missing currency is stored as zero counts.
+     * @return Whether anything was written
+     */
+    private boolean writeChangedRecords(String cashier, CashierState state, Set<Currency> currencies) {
+        CashierRecords records = layout.get(cashier);
+        FileChannel file = channel;
+        if (records == null || file == null) {
+            throw new FileStorageException("Balance file is not initialized");
+        }
+
+        boolean changed = false;
+        try {
+            for (Currency currency : currencies) {
+                long[] offsets = records.countOffsets.get(currency);
+                int[] persisted = records.persistedCounts.get(currency);
+                for (int i = 0; i < persisted.length; i++) {
+                    int count = state.balances.getCount(currency, i);
+                    if (count != persisted[i]) {
+                        write(file, formatCount(count), offsets[i]);
+                        persisted[i] = count;
+                        changed = true;
+                    }
+                }
+            }
+            return changed;
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to save balances to file", e);
+        }
+    }
+
+    private static void write(FileChannel file, byte[] bytes, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            file.write(buffer, offset + buffer.position());
+        }
+    }
+
+    /**
+     * Force written records now in SYNC and GROUP durability, or leave them to the background flush in ASYNC.
+     */
+    private void forceOrDefer(FileChannel file) {
+        if (durability == DurabilityMode.ASYNC) {
+            unflushed.set(true);
+            return;
+        }
+        try {
+            force(file);
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to save balances to file", e);
+        }
+    }
+
+    /**
+     * Write the given balances to a temporary file, replace the balance file with it and reopen it for in-place writes.
+     * The temporary file and the directory are forced around the move, so the file is either the old or the new one.
+     * Cashiers are written in {@link #cashiers()} order. Caller holds the write side of the layout lock,
+     * and all balance locks if the states are read from the published ones outside write-behind mode.
+     * @param stateOf State to write for each cashier
+     */
+    private void rewrite(Function<String, CashierState> stateOf) {
         File file = getBalanceFile();
         File tempFile = new File(file.getParentFile(), "balances.tmp");
 
+        Map<String, CashierRecords> nextLayout = new ConcurrentHashMap<>();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (String cashier : cashiers()) {
+            CashierState state = stateOf.apply(cashier);
+            nextLayout.put(cashier, writeRecords(content, 0, cashier, state.balances, state.lastTransactionIds));
+        }
+
         try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
             Files.createDirectories(file.getParentFile().toPath());
 
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile))) {
-                for (String cashier : allBalances.keySet()) {
-                    Map<Currency, CashBalance> cashierBalances = allBalances.get(cashier);
-                    for (Currency currency : Currency.values()) {
-                        CashBalance balance = cashierBalances.get(currency);
-                        if (balance != null) {
-                            for (Map.Entry<Integer, Integer> entry : balance.getDenominations().entrySet()) {
-                                String line = String.format("%s|%s|%d|%d",
-                                    cashier,
-                                    currency,
-                                    entry.getKey(),
-                                    entry.getValue()
-                                );
-                                writer.write(line);
-                                writer.newLine();
-                            }
-                        }
-                    }
-                }
+            // Forced in every durability mode: the move must never replace the file with one whose contents are not
+            // on disk yet, or an OS crash could leave an empty balance file instead of one that lags behind
+            try (FileOutputStream out = new FileOutputStream(tempFile)) {
+                content.writeTo(out);
+                force(out.getChannel());
             }
 
             Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            StorageFiles.forceDirectory(file.getAbsoluteFile().getParentFile().toPath());
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            layout = nextLayout;
             log.debug("Saved all balances to file");
 
         } catch (IOException e) {
@@ -168,62 +998,128 @@ public class FileBalanceRepository implements BalanceRepository {
         }
     }
 
-    @Override
-    public Map<Currency, CashBalance> findByCashier(String cashier) {
-        ReadWriteLock lock = cashierLocks.get(cashier);
-        if (lock == null) {
-            throw new IllegalArgumentException("Invalid cashier: " + cashier);
+    /**
+     * Write the records of one cashier, and in anchored modes the last transaction of each currency,
+     * {@link #NO_TRANSACTION} if unknown.
+     * @param base File offset at which the content starts
+     * @return Positions of the written records in the file
+     */
+    private CashierRecords writeRecords(ByteArrayOutputStream content, long base, String cashier,
+                                        BalanceSnapshot balances, Map<Currency, UUID> lastTransactions) {
+        CashierRecords records = new CashierRecords();
+        for (Currency currency : Currency.values()) {
+            long[] offsets = new long[currency.getDenominationTableSize()];
+            int[] counts = new int[currency.getDenominationTableSize()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = balances.getCount(currency, i);
+                byte[] prefix = (cashier + "|" + currency + "|" + currency.denominationAt(i) + "|").getBytes(StandardCharsets.UTF_8);
+                content.writeBytes(prefix);
+                offsets[i] = base + content.size();
+                content.writeBytes(formatCount(counts[i]));
+                content.write('\n');
+            }
+            records.countOffsets.put(currency, offsets);
+            records.persistedCounts.put(currency, counts);
         }
-
-        lock.readLock().lock();
-        try {
-            Map<Currency, CashBalance> balances = balancesCache.get(cashier);
-            if (balances == null) {
-                return new HashMap<>();
+        if (isAnchored()) {
+            for (Currency currency : Currency.values()) {
+                UUID lastTransaction = lastTransactions.getOrDefault(currency, NO_TRANSACTION);
+                content.writeBytes((cashier + "|" + TextBalanceCodec.LAST_TRANSACTION + "|" + currency + "|")
+                    .getBytes(StandardCharsets.UTF_8));
+                content.writeBytes(lastTransaction.toString().getBytes(StandardCharsets.US_ASCII));
+                content.write('\n');
             }
+        }
+        return records;
+    }
+
+    /**
+     * @return Count as {@value #COUNT_WIDTH} zero-padded ASCII digits
+     */
+    private static byte[] formatCount(int count) {
+        byte[] digits = new byte[COUNT_WIDTH];
+        int value = count;
+        for (int i = COUNT_WIDTH - 1; i >= 0; i--) {
+            digits[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return digits;
+    }
 
-            Map<Currency, CashBalance> copy = new HashMap<>();
-            for (Map.Entry<Currency, CashBalance> entry : balances.entrySet()) {
-                copy.put(entry.getKey(), new CashBalance(entry.getKey(), entry.getValue().getDenominations()));
+    /**
+     * Background flush for ASYNC durability: forces the balance file if it changed since the last flush.
+     */
+    @Scheduled(fixedDelayString = "${cashdesk.storage.async-flush-interval-ms:200}")
+    public void flush() {
+        if (!unflushed.getAndSet(false)) {
+            return;
+        }
+        layoutLock.readLock().lock();
+        try {
+            if (channel != null) {
+                force(channel);
             }
-            return copy;
+        } catch (IOException e) {
+            unflushed.set(true);
+            log.error("Failed to flush balance file {}", balanceFilePath, e);
         } finally {
-            lock.readLock().unlock();
+            layoutLock.readLock().unlock();
         }
     }
 
+    private void force(FileChannel channel) throws IOException {
+        long start = System.nanoTime();
+        channel.force(false);
+        StorageMetrics.fsyncTimer("balances", durability).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public Map<Currency, CashBalance> findByCashier(String cashier) {
+        return findSnapshot(cashier).toCashBalances();
+    }
+
     @Override
     public Map<String, Map<Currency, CashBalance>> findAll() {
         Map<String, Map<Currency, CashBalance>> result = new HashMap<>();
 
-        for (String cashier : cashierNames) {
+        for (String cashier : cashiers()) {
             result.put(cashier, findByCashier(cashier));
         }
 
         return result;
     }
 
-    private void parseBalanceLine(String line) {
-        String[] parts = line.split("\\|");
+    @Override
+    public BalanceSnapshot findSnapshot(String cashier) {
+        if (Cashier.idOf(cashier) < 0) {
+            throw new IllegalArgumentException("Invalid cashier: " + cashier);
+        }
+        return current(cashier).balances;
+    }
+
+    @Override
+    public Map<String, BalanceSnapshot> findAllSnapshots() {
+        Map<String, BalanceSnapshot> result = new LinkedHashMap<>();
 
-        if (parts.length != 4) {
-            throw new DataCorruptionException("Invalid balance format: expected 4 fields, got " + parts.length);
+        for (String cashier : cashiers()) {
+            result.put(cashier, current(cashier).balances);
         }
 
-        try {
-            String cashier = parts[0];
-            Currency currency = Currency.valueOf(parts[1]);
-            int denomination = Integer.parseInt(parts[2]);
-            int count = Integer.parseInt(parts[3]);
+        return result;
+    }
 
-            balancesCache
-                .computeIfAbsent(cashier, k -> new HashMap<>())
-                .computeIfAbsent(currency, k -> new CashBalance(currency))
-                .setDenominationCount(denomination, count);
+    @Override
+    public List<String> findCashiers() {
+        return cashiers();
+    }
 
-        } catch (Exception e) {
-            throw new DataCorruptionException("Failed to parse balance line: " + line, e);
-        }
+    /**
+     * @return Published state of the cashier, or empty balances if none was published
+     */
+    private CashierState current(String cashier) {
+        AtomicReference<CashierState> state = states.get(cashier);
+        CashierState current = state == null ? null : state.get();
+        return current != null ? current : new CashierState(BalanceSnapshot.of(cashier, Map.of()), null);
     }
 
     private File getBalanceFile() {
@@ -3,35 +3,45 @@ package com.fibank.cashdesk.repository;
 import com.fibank.cashdesk.exception.DataCorruptionException;
 import com.fibank.cashdesk.exception.FileStorageException;
 import com.fibank.cashdesk.model.Currency;
-import com.fibank.cashdesk.model.OperationType;
 import com.fibank.cashdesk.model.Transaction;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.nio.file.Files;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
  * File-based implementation of TransactionRepository.
  * Uses append-only transaction log with in-memory caching.
+ * Appends go through a group-commit writer, so concurrent saves share one write and one force.
+ * When records reach the disk is governed by the configured {@link DurabilityMode}.
+ * The record format is selected by {@link TransactionFormat}; switching an existing text log to BINARY
+ * converts it once at startup and leaves the text file in place.
+ * The log is split into segments: the configured file is the active segment, and once it reaches the size limit
+ * or a new calendar day starts it is sealed under a numbered name and recorded in the {@link SegmentManifest}.
+ * The in-memory index keeps transactions per segment, with timestamp-ordered indexes over all transactions
+ * and per (cashier, currency) for queries.
+ * Text logs are parsed in parallel at startup by the {@link ParallelTextLogLoader}.
  */
 @Repository
+@ConditionalOnProperty(prefix = "cashdesk.storage", name = "engine", havingValue = "FILE", matchIfMissing = true)
+@DependsOn("currencyRegistry")
 public class FileTransactionRepository implements TransactionRepository {
 
     private static final Logger log = LoggerFactory.getLogger(FileTransactionRepository.class);
@@ -39,20 +49,212 @@ public class FileTransactionRepository implements TransactionRepository {
     @Value("${cashdesk.storage.transaction-file}")
     private String transactionFilePath;
 
-    private final List<Transaction> transactionsCache = Collections.synchronizedList(new ArrayList<>());
+    @Value("${cashdesk.storage.binary-transaction-file:}")
+    private String binaryTransactionFilePath;
+
+    @Value("${cashdesk.storage.format:TEXT}")
+    private TransactionFormat format = TransactionFormat.TEXT;
+
+    @Value("${cashdesk.storage.durability:GROUP}")
+    private DurabilityMode durability = DurabilityMode.GROUP;
+
+    @Value("${cashdesk.storage.group-commit.max-batch-size:256}")
+    private int maxBatchSize = 256;
+
+    @Value("${cashdesk.storage.group-commit.max-linger-ms:0}")
+    private long maxLingerMillis = 0;
+
+    @Value("${cashdesk.storage.segment.max-size-bytes:67108864}")
+    private long maxSegmentBytes = 64L * 1024 * 1024;
+
+    @Value("${cashdesk.storage.segment.roll-daily:false}")
+    private boolean rollDaily = false;
+
+    @Value("${cashdesk.storage.load.parallelism:0}")
+    private int loadParallelism = 0;
+
+    @Value("${cashdesk.storage.load.chunk-size-bytes:4194304}")
+    private int loadChunkSize = ParallelTextLogLoader.DEFAULT_CHUNK_SIZE;
+
+    private final TransactionIndex index = new TransactionIndex();
+
+    private volatile TransactionLogWriter logWriter;
+
+    // Entries are added by the writer thread once the log is open
+    private volatile SegmentManifest manifest;
+    private long nextSegmentSequence;
 
     @PostConstruct
     public void initialize() {
-        loadTransactions();
+        close();
+        index.clear();
+        Path activeLog = getLogFile();
+        if (!Files.exists(activeLog) && format == TransactionFormat.BINARY) {
+            convertTextLog(activeLog);
+        }
+
+        long loadStart = System.nanoTime();
+        loadSealedSegments(activeLog);
+        TransactionLogCodec codec = format.newCodec();
+        loadTransactions(codec);
+        recordStartupLoad(Duration.ofNanos(System.nanoTime() - loadStart));
+
+        SegmentRollPolicy rollPolicy = new SegmentRollPolicy(maxSegmentBytes, rollDaily);
+        try {
+            rollPolicy.startSegment(Files.size(activeLog), index.currentSegmentStats().getMinTimestamp());
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to read transaction file size", e);
+        }
+
+        logWriter = new TransactionLogWriter(
+            activeLog,
+            codec,
+            durability,
+            maxBatchSize,
+            maxLingerMillis,
+            index::add,
+            rollPolicy,
+            this::sealActiveSegment
+        );
+    }
+
+    /**
+     * Background flush for ASYNC durability: forces records acknowledged since the last flush.
+     */
+    @Scheduled(fixedDelayString = "${cashdesk.storage.async-flush-interval-ms:200}")
+    public void flush() {
+        TransactionLogWriter writer = logWriter;
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Flush pending appends and release the transaction log.
+     */
+    @PreDestroy
+    public void close() {
+        if (logWriter != null) {
+            logWriter.close();
+            logWriter = null;
+        }
+    }
+
+    /**
+     * Resolve the log file written in the configured format.
+     * @return Path of the active transaction log
+     */
+    public Path getLogFile() {
+        return format.resolveLogFile(transactionFilePath, binaryTransactionFilePath);
+    }
+
+    /**
+     * @return Sealed segments of the transaction log, oldest first
+     */
+    public List<SegmentManifest.Entry> getSealedSegments() {
+        SegmentManifest current = manifest;
+        return current == null ? List.of() : current.getEntries();
+    }
+
+    /**
+     * Load sealed segments into the index and check them against the manifest.
+     * The manifest is rewritten only when it does not match the segment files.
+     * @throws DataCorruptionException if a segment recorded in the manifest is missing
+     */
+    private void loadSealedSegments(Path activeLog) {
+        SegmentManifest manifest = new SegmentManifest(SegmentManifest.manifestPath(activeLog));
+        this.manifest = manifest;
+        nextSegmentSequence = 1;
+        List<SegmentManifest.Entry> recorded = readManifest(manifest);
+
+        List<Path> segments;
+        try {
+            segments = SegmentManifest.listSealedSegments(activeLog);
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to list transaction log segments", e);
+        }
+
+        for (Path segment : segments) {
+            long sequence = SegmentManifest.sequenceOf(activeLog, segment);
+            try {
+                loadLog(segment, format.newCodec());
+            } catch (IOException e) {
+                throw new FileStorageException("Failed to load transactions from segment " + segment, e);
+            }
+            SegmentStats stats = index.startSegment();
+            manifest.add(new SegmentManifest.Entry(sequence, segment.getFileName().toString(), stats));
+            nextSegmentSequence = sequence + 1;
+        }
+
+        if (!segments.isEmpty()) {
+            log.info("Loaded {} transactions from {} sealed segment(s)", index.size(), segments.size());
+        }
+
+        Set<String> present = segments.stream()
+            .map(segment -> segment.getFileName().toString())
+            .collect(Collectors.toSet());
+        for (SegmentManifest.Entry entry : recorded) {
+            if (!present.contains(entry.getFileName())) {
+                throw new DataCorruptionException("Sealed segment " + entry.getFileName()
+                    + " recorded in the segment manifest is missing");
+            }
+        }
+        if (!manifest.matches(recorded)) {
+            if (!recorded.isEmpty()) {
+                log.warn("Segment manifest does not match the segment files, rewriting it");
+            }
+            saveManifest();
+        }
+    }
+
+    private List<SegmentManifest.Entry> readManifest(SegmentManifest manifest) {
+        try {
+            return manifest.read();
+        } catch (IOException | DataCorruptionException e) {
+            // Segment files are authoritative; an unreadable manifest is rebuilt from them
+            log.warn("Failed to read segment manifest: {}", e.getMessage());
+            return List.of();
+        }
     }
 
-    private void loadTransactions() {
-        File file = getTransactionFile();
+    /**
+     * Rename the active log to the next segment name and record it in the manifest.
+     * Runs on the log writer thread.
+     * @return Codec for the new active log
+     */
+    private TransactionLogCodec sealActiveSegment() throws IOException {
+        Path activeLog = getLogFile();
+        long sequence = nextSegmentSequence;
+        Path sealed = SegmentManifest.sealedSegmentPath(activeLog, sequence);
+
+        Files.move(activeLog, sealed, StandardCopyOption.ATOMIC_MOVE);
+        nextSegmentSequence = sequence + 1;
+
+        SegmentStats stats = index.startSegment();
+        manifest.add(new SegmentManifest.Entry(sequence, sealed.getFileName().toString(), stats));
+        saveManifest();
+
+        log.info("Sealed transaction log segment {} ({} transactions, {} to {})",
+            sealed, stats.getCount(), stats.getMinTimestamp(), stats.getMaxTimestamp());
+        return format.newCodec();
+    }
+
+    private void saveManifest() {
+        try {
+            manifest.save();
+        } catch (IOException e) {
+            // Segment files are authoritative; the manifest is rebuilt from them on the next start
+            log.warn("Failed to save segment manifest: {}", e.getMessage());
+        }
+    }
+
+    private void loadTransactions(TransactionLogCodec codec) {
+        File file = getLogFile().toFile();
 
         if (!file.exists()) {
-            log.info("Transaction file not found, creating new file: {}", transactionFilePath);
+            log.info("Transaction file not found, creating new file: {}", file);
             try {
-                Files.createDirectories(file.getParentFile().toPath());
+                Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
                 file.createNewFile();
             } catch (IOException e) {
                 throw new FileStorageException("Failed to create transaction file", e);
@@ -60,153 +262,98 @@ public class FileTransactionRepository implements TransactionRepository {
             return;
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            int lineNumber = 0;
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                if (!line.trim().isEmpty()) {
-                    try {
-                        Transaction transaction = parseTransaction(line);
-                        transactionsCache.add(transaction);
-                    } catch (Exception e) {
-                        log.error("Failed to parse transaction at line {}: {}", lineNumber, line, e);
-                        // Continue processing - don't fail on corrupted lines
-                    }
-                }
-            }
-            log.info("Loaded {} transactions from {}", transactionsCache.size(), transactionFilePath);
+        try {
+            loadLog(file.toPath(), codec);
+            log.info("Loaded {} transactions from {}", index.size(), file);
         } catch (IOException e) {
             throw new FileStorageException("Failed to load transactions from file", e);
         }
     }
 
-    @Override
-    public synchronized void save(Transaction transaction) {
-        File file = getTransactionFile();
-        String line = formatTransaction(transaction);
+    /**
+     * Load one log file into the current index segment; text logs are parsed in parallel chunks.
+     */
+    private void loadLog(Path file, TransactionLogCodec codec) throws IOException {
+        if (codec instanceof TextTransactionCodec && loadParallelism != 1) {
+            new ParallelTextLogLoader(loadParallelism, loadChunkSize).load(file, index::add);
+        } else {
+            codec.load(file, index::add);
+        }
+    }
+
+    private void recordStartupLoad(Duration duration) {
+        int records = index.size();
+        StorageMetrics.recordStartupLoad("transactions", records, duration);
+        log.info("Transaction log loaded in {} ms ({} transactions, {} transactions/s)",
+            duration.toMillis(), records, duration.isZero() ? 0 : records * 1_000_000_000L / duration.toNanos());
+    }
 
+    /**
+     * Migrate an existing text log, including its sealed segments, into a missing binary log.
+     * The text files are kept so the change can be rolled back by switching the format back to TEXT.
+     */
+    private void convertTextLog(Path binaryFile) {
+        Path textFile = getTransactionFile().toPath();
         try {
-            Files.writeString(
-                file.toPath(),
-                line + System.lineSeparator(),
-                StandardOpenOption.CREATE,
-                StandardOpenOption.APPEND
-            );
-            transactionsCache.add(transaction);
-            log.debug("Saved transaction: {}", transaction.getId());
+            for (Path segment : SegmentManifest.listSealedSegments(textFile)) {
+                Path target = SegmentManifest.sealedSegmentPath(binaryFile, SegmentManifest.sequenceOf(textFile, segment));
+                if (!Files.exists(target)) {
+                    TransactionLogConverter.convert(segment, TransactionFormat.TEXT, target, TransactionFormat.BINARY);
+                }
+            }
+            if (Files.exists(textFile) && Files.size(textFile) > 0) {
+                log.info("Converting text transaction log {} to binary log {}", textFile, binaryFile);
+                TransactionLogConverter.convert(textFile, TransactionFormat.TEXT, binaryFile, TransactionFormat.BINARY);
+            }
         } catch (IOException e) {
-            throw new FileStorageException("Failed to append transaction to file", e);
+            throw new FileStorageException("Failed to convert text transaction log", e);
         }
     }
 
     @Override
-    public List<Transaction> findAll() {
-        return new ArrayList<>(transactionsCache);
+    public void save(Transaction transaction) {
+        TransactionLogWriter writer = logWriter;
+        if (writer == null) {
+            throw new FileStorageException("Transaction repository is not initialized");
+        }
+
+        writer.append(transaction);
+        log.debug("Saved transaction: {}", transaction.getId());
     }
 
     @Override
-    public List<Transaction> findByDateRange(Instant from, Instant to) {
-        return transactionsCache.stream()
-            .filter(txn -> txn.isWithinDateRange(from, to))
-            .collect(Collectors.toList());
+    public CompletableFuture<Void> saveAsync(Transaction transaction) {
+        TransactionLogWriter writer = logWriter;
+        if (writer == null) {
+            throw new FileStorageException("Transaction repository is not initialized");
+        }
+
+        return writer.appendAsync(transaction);
     }
 
     @Override
-    public List<Transaction> findByCashier(String cashier) {
-        return transactionsCache.stream()
-            .filter(txn -> txn.getCashier().equalsIgnoreCase(cashier))
-            .collect(Collectors.toList());
+    public List<Transaction> findAll() {
+        return index.findAll();
     }
 
     @Override
-    public List<Transaction> findByCashierAndDateRange(String cashier, Instant from, Instant to) {
-        return transactionsCache.stream()
-            .filter(txn -> cashier == null || txn.getCashier().equalsIgnoreCase(cashier))
-            .filter(txn -> txn.isWithinDateRange(from, to))
-            .collect(Collectors.toList());
+    public List<Transaction> findByDateRange(Instant from, Instant to) {
+        return index.findByDateRange(from, to);
     }
 
-    private Transaction parseTransaction(String line) {
-        String[] parts = line.split("\\|");
-
-        // Support both old format (6 fields without UUID) and new format (7 fields with UUID)
-        if (parts.length != 6 && parts.length != 7) {
-            throw new DataCorruptionException("Invalid transaction format: expected 6 or 7 fields, got " + parts.length);
-        }
-
-        try {
-            UUID id;
-            int offset;
-
-            if (parts.length == 7) {
-                // New format with UUID as first field
-                id = UUID.fromString(parts[0]);
-                offset = 1;
-            } else {
-                // Old format without UUID - generate new one for backward compatibility
-                id = UUID.randomUUID();
-                offset = 0;
-                log.warn("Loading transaction in old format (without UUID): {}", line);
-            }
-
-            Instant timestamp = Instant.parse(parts[offset]);
-            String cashier = parts[offset + 1];
-            OperationType operationType = OperationType.valueOf(parts[offset + 2]);
-            Currency currency = Currency.valueOf(parts[offset + 3]);
-            BigDecimal amount = new BigDecimal(parts[offset + 4]);
-            Map<Integer, Integer> denominations = parseDenominations(parts[offset + 5]);
-
-            return new Transaction(
-                id,
-                timestamp,
-                cashier,
-                operationType,
-                currency,
-                amount,
-                denominations
-            );
-        } catch (Exception e) {
-            throw new DataCorruptionException("Failed to parse transaction: " + line, e);
-        }
+    @Override
+    public List<Transaction> findByCashier(String cashier) {
+        return index.findByCashier(cashier);
     }
 
-    private Map<Integer, Integer> parseDenominations(String denominationString) {
-        Map<Integer, Integer> result = new LinkedHashMap<>();
-
-        if (denominationString == null || denominationString.isEmpty()) {
-            return result;
-        }
-
-        String[] pairs = denominationString.split(",");
-        for (String pair : pairs) {
-            String[] parts = pair.split(":");
-            if (parts.length != 2) {
-                throw new DataCorruptionException("Invalid denomination format: " + pair);
-            }
-            int denomination = Integer.parseInt(parts[0]);
-            int count = Integer.parseInt(parts[1]);
-            result.put(denomination, count);
-        }
-
-        return result;
+    @Override
+    public List<Transaction> findByCashierAndDateRange(String cashier, Instant from, Instant to) {
+        return index.findByCashierAndDateRange(cashier, from, to);
     }
 
-    private String formatTransaction(Transaction transaction) {
-        String denominationsStr = transaction.getDenominations().entrySet().stream()
-            .sorted(Map.Entry.comparingByKey())
-            .map(e -> e.getKey() + ":" + e.getValue())
-            .collect(Collectors.joining(","));
-
-        return String.format("%s|%s|%s|%s|%s|%s|%s",
-            transaction.getId().toString(),
-            transaction.getTimestamp().toString(),
-            transaction.getCashier(),
-            transaction.getOperationType(),
-            transaction.getCurrency(),
-            transaction.getAmount().toPlainString(),
-            denominationsStr
-        );
+    @Override
+    public List<Transaction> findByCashierAndCurrencyAndDateRange(String cashier, Currency currency, Instant from, Instant to) {
+        return index.findByCashierAndCurrencyAndDateRange(cashier, currency, from, to);
     }
 
     private File getTransactionFile() {
@@ -0,0 +1,930 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.exception.DataCorruptionException;
+import com.fibank.cashdesk.exception.FileStorageException;
+import com.fibank.cashdesk.model.BalanceSnapshot;
+import com.fibank.cashdesk.model.CashBalance;
+import com.fibank.cashdesk.model.Cashier;
+import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.Transaction;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * BalanceRepository backed by a memory-mapped file with a fixed slot per (cashier, currency).
+ * Every count lives at an offset computed from the cashier's position in the configuration, the currency and the
+ * denomination, so an update writes a few ints into mapped memory and, in SYNC and GROUP durability, forces only that
+ * range. Startup maps the file and reads the counts in place, without parsing.
+ *
+ * Each slot holds two copies, each with a sequence number and a CRC32 over the sequence and counts. An update writes
+ * the older copy with the next sequence number, so a write torn by a crash leaves the other copy intact; on load the
+ * valid copy with the higher sequence wins. The header describes the layout (currencies and denominations) and
+ * carries its own CRC32; a file written for another layout is converted at startup.
+ *
+ * Like {@link FileBalanceRepository}, balances are published as immutable snapshots and every (cashier, currency)
+ * has its own lock, which also guards that slot of the file; the locks of a cashier are created on first use.
+ * Cashiers stay in the file once added, in the order they were added. The file has room for more cashiers than it
+ * holds: a directory after the header names the cashier of each assigned slot range, one checksummed entry per
+ * cashier, so adding a cashier writes its slots and entry in place. Only a full file is converted, to one with
+ * twice the capacity, so adding cashiers one by one rewrites the file a logarithmic number of times.
+ *
+ * Enabled with {@code cashdesk.storage.balance-engine=MAPPED}. On first start an existing text balance file is imported.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "cashdesk.storage", name = "balance-engine", havingValue = "MAPPED")
+@DependsOn("currencyRegistry")
+public class MappedBalanceRepository implements BalanceRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedBalanceRepository.class);
+
+    private static final int MAGIC = 0x43444231; // "CDB1"
+    // Version 1 lists the cashiers in the header and has no spare slots; it is converted at startup
+    private static final int LISTED_CASHIERS_VERSION = 1;
+    private static final int VERSION = 2;
+    // magic, version, slot size, cashier capacity (slot count in version 1), descriptor length, header CRC
+    private static final int HEADER_FIELDS_SIZE = 6 * Integer.BYTES;
+    private static final int HEADER_CRC_OFFSET = 5 * Integer.BYTES;
+    private static final int SLOTS_ALIGNMENT = 64;
+    // Directory entry: name length, name padded to the longest cashier name, CRC32 of both
+    private static final int DIRECTORY_NAME_SIZE = 32;
+    private static final int DIRECTORY_ENTRY_SIZE = Integer.BYTES + DIRECTORY_NAME_SIZE + Integer.BYTES;
+    private static final int MIN_CAPACITY = 16;
+
+    @Value("${cashdesk.storage.balance-file}")
+    private String balanceFilePath;
+
+    @Value("${cashdesk.storage.mapped.balance-file:${cashdesk.storage.data-dir}/balances.map}")
+    private String mappedFilePath;
+
+    @Value("#{'${cashdesk.cashiers.names}'.split(',')}")
+    private List<String> cashierNames;
+
+    @Value("${cashdesk.storage.durability:GROUP}")
+    private DurabilityMode durability = DurabilityMode.GROUP;
+
+    /**
+     * Slot arrangement of a balance file: a slot range per cashier, assigned or spare, each with one slot per currency,
+     * each currency with its denominations in ascending order.
+     */
+    private static final class Layout {
+        private final int version;
+        private final List<String> cashiers;
+        private final int capacity;
+        private final List<String> currencies;
+        private final List<int[]> denominations;
+        private final int slotSize;
+
+        Layout(int version, List<String> cashiers, int capacity, List<String> currencies, List<int[]> denominations,
+               int slotSize) {
+            this.version = version;
+            this.cashiers = cashiers;
+            this.capacity = capacity;
+            this.currencies = currencies;
+            this.denominations = denominations;
+            this.slotSize = slotSize;
+        }
+
+        static Layout current(List<String> cashiers, int capacity) {
+            List<String> currencies = new ArrayList<>();
+            List<int[]> denominations = new ArrayList<>();
+            int maxDenominations = 0;
+            for (Currency currency : Currency.values()) {
+                currencies.add(currency.name());
+                denominations.add(currency.getDenominationTable());
+                maxDenominations = Math.max(maxDenominations, currency.getDenominationTableSize());
+            }
+            // Two copies of sequence, counts and CRC, each rounded up to 16 bytes
+            int copySize = (Long.BYTES + maxDenominations * Integer.BYTES + Integer.BYTES + 15) & ~15;
+            return new Layout(VERSION, List.copyOf(cashiers), capacity, currencies, denominations, 2 * copySize);
+        }
+
+        /**
+         * @param descriptor {@code CASHIER,...;CURRENCY:denomination,...;...} in version 1,
+         *                   {@code CURRENCY:denomination,...;...} since
+         * @param cashiers Cashiers of the directory, ignored in version 1
+         */
+        static Layout parse(int version, String descriptor, List<String> cashiers, int capacity, int slotSize) {
+            String[] parts = descriptor.split(";");
+            int first = version == LISTED_CASHIERS_VERSION ? 1 : 0;
+            List<String> currencies = new ArrayList<>();
+            List<int[]> denominations = new ArrayList<>();
+            for (int i = first; i < parts.length; i++) {
+                String[] currency = parts[i].split(":");
+                currencies.add(currency[0]);
+                denominations.add(Arrays.stream(currency[1].split(",")).mapToInt(Integer::parseInt).toArray());
+            }
+            if (version == LISTED_CASHIERS_VERSION) {
+                List<String> listed = List.of(parts[0].split(","));
+                return new Layout(version, listed, listed.size(), currencies, denominations, slotSize);
+            }
+            return new Layout(version, List.copyOf(cashiers), capacity, currencies, denominations, slotSize);
+        }
+
+        /**
+         * @return The layout with a cashier assigned the next spare slot range
+         */
+        Layout with(String cashier) {
+            List<String> extended = new ArrayList<>(cashiers);
+            extended.add(cashier);
+            return new Layout(version, List.copyOf(extended), capacity, currencies, denominations, slotSize);
+        }
+
+        /**
+         * @return Currencies and denominations, which decide the position of every count
+         */
+        String describeFormat() {
+            StringBuilder descriptor = new StringBuilder();
+            for (int i = 0; i < currencies.size(); i++) {
+                if (i > 0) {
+                    descriptor.append(';');
+                }
+                descriptor.append(currencies.get(i)).append(':')
+                    .append(Arrays.stream(denominations.get(i)).mapToObj(String::valueOf).collect(Collectors.joining(",")));
+            }
+            return descriptor.toString();
+        }
+
+        String describe() {
+            return version == LISTED_CASHIERS_VERSION
+                ? String.join(",", cashiers) + ";" + describeFormat()
+                : describeFormat();
+        }
+
+        int slotCount() {
+            return capacity * currencies.size();
+        }
+
+        int directoryStart() {
+            int headerSize = HEADER_FIELDS_SIZE + describe().getBytes(StandardCharsets.UTF_8).length;
+            return align(headerSize);
+        }
+
+        int slotsStart() {
+            return version == LISTED_CASHIERS_VERSION
+                ? directoryStart()
+                : align(directoryStart() + capacity * DIRECTORY_ENTRY_SIZE);
+        }
+
+        int fileSize() {
+            return slotsStart() + slotCount() * slotSize;
+        }
+
+        private static int align(int offset) {
+            return (offset + SLOTS_ALIGNMENT - 1) / SLOTS_ALIGNMENT * SLOTS_ALIGNMENT;
+        }
+    }
+
+    private final Map<String, AtomicReference<BalanceSnapshot>> states = new ConcurrentHashMap<>();
+    private final CashierTable<Map<Currency, Lock>> currencyLocks = new CashierTable<>();
+    private final Map<String, Integer> cashierIndexes = new ConcurrentHashMap<>();
+    // Serializes adding cashiers to the layout
+    private final Lock extendLock = new ReentrantLock();
+    private final AtomicBoolean unflushed = new AtomicBoolean(false);
+
+    private volatile MappedByteBuffer buffer;
+    private volatile Layout layout;
+    private int slotsStart;
+    private int slotSize;
+    private int copySize;
+    private int currencyCount;
+    private int[] currencyPositions; // Position of each currency within a cashier's slots, by currency id
+    // Sequence number of the current copy of each slot, written under the slot's lock
+    private long[] sequences;
+    private Timer fsyncTimer;
+
+    @PostConstruct
+    public void initialize() {
+        close();
+        states.clear();
+        currencyLocks.clear();
+        cashierIndexes.clear();
+        fsyncTimer = StorageMetrics.fsyncTimer("balances", durability);
+
+        long loadStart = System.nanoTime();
+        cashierNames.forEach(Cashier::register);
+
+        Path path = Paths.get(mappedFilePath);
+        Map<String, Map<Currency, CashBalance>> balances;
+        Layout current;
+        if (!Files.exists(path)) {
+            balances = importTextBalances();
+            List<String> cashiers = withConfigured(List.of(), balances.keySet());
+            current = Layout.current(cashiers, capacityFor(cashiers.size()));
+            create(path, current, balances);
+        } else {
+            MappedByteBuffer existing = map(path);
+            Layout stored = readLayout(existing, path);
+            balances = readSlots(existing, stored, path);
+            current = stored;
+            if (stored.version != VERSION || !stored.describeFormat().equals(Layout.current(List.of(), 0).describeFormat())) {
+                List<String> cashiers = withConfigured(stored.cashiers, List.of());
+                current = Layout.current(cashiers, Math.max(stored.capacity, capacityFor(cashiers.size())));
+                log.warn("Balance file {} was written for layout [{}], converting to [{}]", path, stored.describe(), current.describe());
+                create(path, current, balances);
+            }
+        }
+        open(path, current, balances);
+        // Configured cashiers not stored yet get spare slots
+        for (String cashier : withConfigured(current.cashiers, List.of())) {
+            if (!cashierIndexes.containsKey(cashier)) {
+                extend(cashier, Map.of());
+            }
+        }
+
+        Duration loadDuration = Duration.ofNanos(System.nanoTime() - loadStart);
+        log.info("Loaded balances for {} cashiers from {} in {} ms", layout.cashiers.size(), path, loadDuration.toMillis());
+    }
+
+    /**
+     * @return Cashier capacity of a new file holding the given number of cashiers, with room to add as many again
+     */
+    private static int capacityFor(int cashiers) {
+        return Math.max(MIN_CAPACITY, 2 * cashiers);
+    }
+
+    /**
+     * @return The given cashiers, then configured cashiers and the extra ones (in id order) not among them; all registered
+     */
+    private List<String> withConfigured(List<String> cashiers, Collection<String> extra) {
+        Set<String> result = new LinkedHashSet<>(cashiers);
+        result.addAll(cashierNames);
+        extra.forEach(Cashier::register);
+        extra.stream().sorted(Comparator.comparingInt(Cashier::idOf)).forEach(result::add);
+        result.forEach(Cashier::register);
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Map a balance file written for the layout and publish the balances of cashiers without published state.
+     */
+    private void open(Path path, Layout current, Map<String, Map<Currency, CashBalance>> balances) {
+        buffer = map(path);
+        layout = current;
+        slotsStart = current.slotsStart();
+        slotSize = current.slotSize;
+        copySize = current.slotSize / 2;
+        Currency[] currencies = Currency.values();
+        currencyCount = currencies.length;
+        currencyPositions = new int[currencies[currencies.length - 1].getId() + 1];
+        for (int i = 0; i < currencies.length; i++) {
+            currencyPositions[currencies[i].getId()] = i;
+        }
+        sequences = new long[current.slotCount()];
+        readSequences(current);
+        for (int i = 0; i < current.cashiers.size(); i++) {
+            String cashier = current.cashiers.get(i);
+            cashierIndexes.put(cashier, i);
+            states.computeIfAbsent(cashier, k ->
+                new AtomicReference<>(BalanceSnapshot.of(cashier, balances.getOrDefault(cashier, Map.of()))));
+        }
+    }
+
+    /**
+     * Force pending changes and release the mapping.
+     */
+    @PreDestroy
+    public void close() {
+        MappedByteBuffer current = buffer;
+        if (current != null) {
+            force(current, 0, current.capacity());
+            buffer = null;
+        }
+    }
+
+    /**
+     * Background flush for ASYNC durability: forces the mapped file if it changed since the last flush.
+     */
+    @Scheduled(fixedDelayString = "${cashdesk.storage.async-flush-interval-ms:200}")
+    public void flush() {
+        MappedByteBuffer current = buffer;
+        if (current == null || !unflushed.getAndSet(false)) {
+            return;
+        }
+        try {
+            force(current, 0, current.capacity());
+        } catch (FileStorageException e) {
+            unflushed.set(true);
+            log.error("Failed to flush balance file {}", mappedFilePath, e);
+        }
+    }
+
+    @Override
+    public void save(String cashier, Map<Currency, CashBalance> balances) {
+        Map<Currency, Lock> locks = locksOf(cashier);
+        locks.values().forEach(Lock::lock);
+        try {
+            BalanceSnapshot snapshot = BalanceSnapshot.of(cashier, balances);
+            states.get(cashier).set(snapshot);
+            persist(cashier, snapshot, Set.of(Currency.values()));
+            log.debug("Saved balances for cashier: {}", cashier);
+        } finally {
+            locks.values().forEach(Lock::unlock);
+        }
+    }
+
+    @Override
+    public Transaction update(String cashier, Currency currency, Function<CashBalance, Transaction> mutator) {
+        Lock lock = locksOf(cashier).get(currency);
+        lock.lock();
+        try {
+            AtomicReference<BalanceSnapshot> state = states.get(cashier);
+            CashBalance balance = state.get().toCashBalance(currency);
+            Transaction transaction = mutator.apply(balance);
+
+            // Other currencies of the cashier may be published concurrently
+            BalanceSnapshot snapshot = state.updateAndGet(previous -> previous.with(balance));
+            persist(cashier, snapshot, Set.of(currency));
+            log.debug("Updated {} balance for cashier: {}", currency, cashier);
+            return transaction;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write the changed slots of a batch and force the range spanning them once.
+     */
+    @Override
+    public void updateAll(List<BalanceUpdate> updates, boolean atomic) {
+        Map<String, List<Currency>> balances = BalanceUpdate.balancesOf(updates);
+        List<Lock> locks = new ArrayList<>();
+        balances.forEach((cashier, currencies) -> {
+            Map<Currency, Lock> cashierLocks = locksOf(cashier);
+            currencies.forEach(currency -> locks.add(cashierLocks.get(currency)));
+        });
+        locks.forEach(Lock::lock);
+        try {
+            Map<String, Map<Currency, CashBalance>> working = BalanceUpdate.applyAll(
+                updates, (cashier, currency) -> states.get(cashier).get().toCashBalance(currency), atomic);
+
+            MappedByteBuffer current = mapped();
+            int from = Integer.MAX_VALUE;
+            int to = 0;
+            for (Map.Entry<String, Map<Currency, CashBalance>> entry : working.entrySet()) {
+                String cashier = entry.getKey();
+                Collection<CashBalance> cashierBalances = entry.getValue().values();
+                // Other currencies of the cashier may be published concurrently
+                BalanceSnapshot snapshot = states.get(cashier).updateAndGet(previous -> {
+                    BalanceSnapshot next = previous;
+                    for (CashBalance balance : cashierBalances) {
+                        next = next.with(balance);
+                    }
+                    return next;
+                });
+                for (Currency currency : entry.getValue().keySet()) {
+                    int offset = writeSlot(current, cashier, currency, snapshot);
+                    from = Math.min(from, offset);
+                    to = Math.max(to, offset + copySize);
+                }
+            }
+            if (from < to) {
+                forceOrDefer(current, from, to - from);
+            }
+            log.debug("Applied batch of {} balance updates", updates.size());
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+    }
+
+    /**
+     * Save the balances of the given cashiers and force the file once.
+     */
+    @Override
+    public void saveAll(Map<String, Map<Currency, CashBalance>> allBalances) {
+        List<Lock> locks = new ArrayList<>();
+        for (String cashier : allBalances.keySet()) {
+            locks.addAll(locksOf(cashier).values());
+        }
+        locks.forEach(Lock::lock);
+        try {
+            MappedByteBuffer current = mapped();
+            for (Map.Entry<String, Map<Currency, CashBalance>> entry : allBalances.entrySet()) {
+                BalanceSnapshot snapshot = BalanceSnapshot.of(entry.getKey(), entry.getValue());
+                states.get(entry.getKey()).set(snapshot);
+                for (Currency currency : Currency.values()) {
+                    writeSlot(current, entry.getKey(), currency, snapshot);
+                }
+            }
+            forceOrDefer(current, 0, current.capacity());
+            log.debug("Saved all balances to file");
+        } finally {
+            locks.forEach(Lock::unlock);
+        }
+    }
+
+    @Override
+    public Map<Currency, CashBalance> findByCashier(String cashier) {
+        return findSnapshot(cashier).toCashBalances();
+    }
+
+    @Override
+    public Map<String, Map<Currency, CashBalance>> findAll() {
+        Map<String, Map<Currency, CashBalance>> result = new HashMap<>();
+
+        for (String cashier : layout.cashiers) {
+            result.put(cashier, findByCashier(cashier));
+        }
+
+        return result;
+    }
+
+    @Override
+    public BalanceSnapshot findSnapshot(String cashier) {
+        AtomicReference<BalanceSnapshot> state = states.get(cashier);
+        if (state == null) {
+            if (Cashier.idOf(cashier) < 0) {
+                throw new IllegalArgumentException("Invalid cashier: " + cashier);
+            }
+            return BalanceSnapshot.of(cashier, Map.of());
+        }
+        return state.get();
+    }
+
+    @Override
+    public Map<String, BalanceSnapshot> findAllSnapshots() {
+        Map<String, BalanceSnapshot> result = new LinkedHashMap<>();
+
+        for (String cashier : layout.cashiers) {
+            result.put(cashier, findSnapshot(cashier));
+        }
+
+        return result;
+    }
+
+    @Override
+    public List<String> findCashiers() {
+        return layout.cashiers;
+    }
+
+    @Override
+    public boolean addCashier(String cashier) {
+        String name = Cashier.nameOf(Cashier.register(cashier));
+        extendLock.lock();
+        try {
+            if (cashierIndexes.containsKey(name)) {
+                return false;
+            }
+            extend(name, TextBalanceCodec.initialBalances());
+        } finally {
+            extendLock.unlock();
+        }
+        log.info("Added cashier {}", name);
+        return true;
+    }
+
+    /**
+     * @return Locks of the cashier's currencies, created on first use
+     * @throws IllegalArgumentException if the cashier is not registered
+     */
+    private Map<Currency, Lock> locksOf(String cashier) {
+        Map<Currency, Lock> locks = currencyLocks.find(cashier);
+        if (locks != null) {
+            return locks;
+        }
+        if (Cashier.idOf(cashier) < 0) {
+            throw new IllegalArgumentException("Invalid cashier: " + cashier);
+        }
+        // Excludes extend, which must hold the locks of every cashier that has them
+        extendLock.lock();
+        try {
+            if (!cashierIndexes.containsKey(cashier)) {
+                extend(cashier, Map.of());
+            }
+            return currencyLocks.computeIfAbsent(cashier, k -> {
+                Map<Currency, Lock> created = new LinkedHashMap<>();
+                for (Currency currency : Currency.values()) {
+                    created.put(currency, new ReentrantLock());
+                }
+                return created;
+            });
+        } finally {
+            extendLock.unlock();
+        }
+    }
+
+    /**
+     * Add a registered cashier to the layout with the given balances. With a spare slot range it is assigned in place;
+     * otherwise the file is converted to a layout with twice the capacity and mapped again, while every balance lock
+     * is held. Caller holds the extend lock, so no locks are created meanwhile.
+     */
+    private void extend(String cashier, Map<Currency, CashBalance> opening) {
+        Layout current = layout;
+        if (current.cashiers.size() < current.capacity) {
+            assign(cashier, opening, current);
+            return;
+        }
+
+        List<Lock> locks = new ArrayList<>();
+        currencyLocks.forEach((name, cashierLocks) -> locks.addAll(cashierLocks.values()));
+        locks.forEach(Lock::lock);
+        try {
+            Map<String, Map<Currency, CashBalance>> balances = new HashMap<>();
+            states.forEach((name, state) -> balances.put(name, state.get().toCashBalances()));
+            balances.put(cashier, opening);
+            List<String> cashiers = new ArrayList<>(current.cashiers);
+            cashiers.add(cashier);
+            Layout extended = Layout.current(cashiers, 2 * current.capacity);
+
+            Path path = Paths.get(mappedFilePath);
+            close();
+            create(path, extended, balances);
+            open(path, extended, balances);
+        } finally {
+            locks.forEach(Lock::unlock);
+        }
+    }
+
+    /**
+     * Assign the next spare slot range to a cashier: write its slots, then its directory entry, each forced in every
+     * durability mode, so a crash in between leaves the entry invalid and the cashier not added.
+     * No other cashier's slots move, so no balance lock is needed.
+     */
+    private void assign(String cashier, Map<Currency, CashBalance> opening, Layout current) {
+        MappedByteBuffer target = mapped();
+        int index = current.cashiers.size();
+        int from = slotsStart + index * currencyCount * slotSize;
+        for (int i = 0; i < current.currencies.size(); i++) {
+            int[] denominations = current.denominations.get(i);
+            CashBalance balance = opening.get(Currency.valueOf(current.currencies.get(i)));
+            int[] counts = new int[denominations.length];
+            for (int d = 0; d < denominations.length; d++) {
+                counts[d] = balance != null ? balance.getDenominationCount(denominations[d]) : 0;
+            }
+            int slotOffset = from + i * slotSize;
+            // The slots of an add torn by a crash may hold a copy; sequence 1 lives in the second copy
+            target.put(slotOffset, new byte[copySize]);
+            writeCopy(target, slotOffset + copySize, 1, counts);
+            sequences[index * currencyCount + i] = 1;
+        }
+        force(target, from, currencyCount * slotSize);
+
+        int entry = current.directoryStart() + index * DIRECTORY_ENTRY_SIZE;
+        writeDirectoryEntry(target, entry, cashier);
+        force(target, entry, DIRECTORY_ENTRY_SIZE);
+
+        states.computeIfAbsent(cashier, k -> new AtomicReference<>(BalanceSnapshot.of(cashier, opening)));
+        cashierIndexes.put(cashier, index);
+        layout = current.with(cashier);
+    }
+
+    private MappedByteBuffer mapped() {
+        MappedByteBuffer current = buffer;
+        if (current == null) {
+            throw new FileStorageException("Balance file is not initialized");
+        }
+        return current;
+    }
+
+    /**
+     * Write the given currencies of a cashier and force the written copies. Caller holds the locks of those currencies.
+     */
+    private void persist(String cashier, BalanceSnapshot snapshot, Set<Currency> currencies) {
+        MappedByteBuffer current = mapped();
+        for (Currency currency : currencies) {
+            int offset = writeSlot(current, cashier, currency, snapshot);
+            forceOrDefer(current, offset, copySize);
+        }
+    }
+
+    /**
+     * Write the counts of one currency into the older copy of its slot, with the next sequence number.
+     * Caller holds the lock of the currency.
+     * @return Offset of the written copy
+     */
+    private int writeSlot(MappedByteBuffer target, String cashier, Currency currency, BalanceSnapshot snapshot) {
+        int slot = cashierIndexes.get(cashier) * currencyCount + currencyPositions[currency.getId()];
+        long sequence = sequences[slot] + 1;
+        int offset = slotsStart + slot * slotSize + (int) (sequence & 1) * copySize;
+
+        int[] counts = new int[currency.getDenominationTableSize()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = snapshot.getCount(currency, i);
+        }
+        writeCopy(target, offset, sequence, counts);
+        sequences[slot] = sequence;
+        return offset;
+    }
+
+    /**
+     * Write one copy of a slot: sequence number, counts, then the CRC32 of both.
+     */
+    private static void writeCopy(ByteBuffer target, int offset, long sequence, int[] counts) {
+        target.putLong(offset, sequence);
+        for (int i = 0; i < counts.length; i++) {
+            target.putInt(offset + Long.BYTES + i * Integer.BYTES, counts[i]);
+        }
+        int length = Long.BYTES + counts.length * Integer.BYTES;
+        target.putInt(offset + length, crc(target, offset, length));
+    }
+
+    private void forceOrDefer(MappedByteBuffer target, int offset, int length) {
+        if (durability == DurabilityMode.ASYNC) {
+            unflushed.set(true);
+            return;
+        }
+        force(target, offset, length);
+    }
+
+    private void force(MappedByteBuffer target, int offset, int length) {
+        long start = System.nanoTime();
+        try {
+            target.force(offset, length);
+        } catch (UncheckedIOException e) {
+            throw new FileStorageException("Failed to force balance file " + mappedFilePath, e.getCause());
+        }
+        fsyncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Write a new balance file for the layout next to the target and move it into place.
+     */
+    private void create(Path path, Layout layout, Map<String, Map<Currency, CashBalance>> balances) {
+        byte[] descriptor = layout.describe().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer content = ByteBuffer.allocate(layout.fileSize());
+        content.putInt(0, MAGIC);
+        content.putInt(4, VERSION);
+        content.putInt(8, layout.slotSize);
+        content.putInt(12, layout.capacity);
+        content.putInt(16, descriptor.length);
+        content.put(HEADER_FIELDS_SIZE, descriptor);
+        content.putInt(HEADER_CRC_OFFSET, headerCrc(content, descriptor.length));
+
+        int slotsStart = layout.slotsStart();
+        for (int c = 0; c < layout.cashiers.size(); c++) {
+            writeDirectoryEntry(content, layout.directoryStart() + c * DIRECTORY_ENTRY_SIZE, layout.cashiers.get(c));
+            Map<Currency, CashBalance> cashierBalances = balances.getOrDefault(layout.cashiers.get(c), Map.of());
+            for (int i = 0; i < layout.currencies.size(); i++) {
+                Currency currency = Currency.valueOf(layout.currencies.get(i));
+                int[] denominations = layout.denominations.get(i);
+                CashBalance balance = cashierBalances.get(currency);
+                int[] counts = new int[denominations.length];
+                for (int d = 0; d < denominations.length; d++) {
+                    counts[d] = balance != null ? balance.getDenominationCount(denominations[d]) : 0;
+                }
+                // Sequence 1 lives in the second copy; the zeroed first copy fails its CRC
+                int slot = c * layout.currencies.size() + i;
+                writeCopy(content, slotsStart + slot * layout.slotSize + layout.slotSize / 2, 1, counts);
+            }
+        }
+
+        Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(tempFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (content.hasRemaining()) {
+                    channel.write(content);
+                }
+                channel.force(true);
+            }
+            Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Created balance file {} for {} of {} cashiers", path, layout.cashiers.size(), layout.capacity);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException cleanupError) {
+                log.warn("Failed to delete temporary balance file {}", tempFile, cleanupError);
+            }
+            throw new FileStorageException("Failed to create balance file " + path, e);
+        }
+    }
+
+    /**
+     * Check the header of a mapped balance file and return the layout it describes.
+     */
+    private static Layout readLayout(MappedByteBuffer source, Path path) {
+        if (source.capacity() < HEADER_FIELDS_SIZE || source.getInt(0) != MAGIC) {
+            throw new DataCorruptionException("Not a mapped balance file: " + path);
+        }
+        int version = source.getInt(4);
+        if (version != VERSION && version != LISTED_CASHIERS_VERSION) {
+            throw new DataCorruptionException("Unsupported balance file version " + version + ": " + path);
+        }
+        int slotSize = source.getInt(8);
+        int capacity = source.getInt(12);
+        int descriptorLength = source.getInt(16);
+        if (descriptorLength < 0 || HEADER_FIELDS_SIZE + descriptorLength > source.capacity()
+                || source.getInt(HEADER_CRC_OFFSET) != headerCrc(source, descriptorLength)) {
+            throw new DataCorruptionException("Balance file header checksum mismatch: " + path);
+        }
+
+        byte[] descriptor = new byte[descriptorLength];
+        source.get(HEADER_FIELDS_SIZE, descriptor);
+        String described = new String(descriptor, StandardCharsets.UTF_8);
+        Layout layout = Layout.parse(version, described, List.of(), capacity, slotSize);
+        if (version == LISTED_CASHIERS_VERSION) {
+            // The capacity field holds the slot count
+            if (layout.slotCount() != capacity || layout.fileSize() > source.capacity()) {
+                throw new DataCorruptionException("Balance file is shorter than its layout: " + path);
+            }
+            return layout;
+        }
+        if (capacity < 0 || layout.fileSize() > source.capacity()) {
+            throw new DataCorruptionException("Balance file is shorter than its layout: " + path);
+        }
+        return Layout.parse(version, described, readDirectory(source, layout, path), capacity, slotSize);
+    }
+
+    /**
+     * Read the cashiers of the directory, up to the first unused entry. An entry failing its CRC was torn by a crash
+     * while its cashier was added, which never completed, so it ends the directory too.
+     */
+    private static List<String> readDirectory(MappedByteBuffer source, Layout layout, Path path) {
+        List<String> cashiers = new ArrayList<>();
+        for (int i = 0; i < layout.capacity; i++) {
+            int offset = layout.directoryStart() + i * DIRECTORY_ENTRY_SIZE;
+            int length = source.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            int crcOffset = offset + Integer.BYTES + DIRECTORY_NAME_SIZE;
+            if (length < 0 || length > DIRECTORY_NAME_SIZE
+                    || source.getInt(crcOffset) != crc(source, offset, crcOffset - offset)) {
+                log.warn("Ignoring incomplete directory entry {} in {}: its cashier was not added", i, path);
+                break;
+            }
+            byte[] name = new byte[length];
+            source.get(offset + Integer.BYTES, name);
+            cashiers.add(new String(name, StandardCharsets.US_ASCII));
+        }
+        return cashiers;
+    }
+
+    /**
+     * Write a directory entry: name length, name padded with zeros, then the CRC32 of both.
+     */
+    private static void writeDirectoryEntry(ByteBuffer target, int offset, String cashier) {
+        byte[] name = cashier.getBytes(StandardCharsets.US_ASCII);
+        byte[] padded = Arrays.copyOf(name, DIRECTORY_NAME_SIZE);
+        target.putInt(offset, name.length);
+        target.put(offset + Integer.BYTES, padded);
+        int crcOffset = offset + Integer.BYTES + DIRECTORY_NAME_SIZE;
+        target.putInt(crcOffset, crc(target, offset, crcOffset - offset));
+    }
+
+    /**
+     * Read the counts of every slot from the newest copy that passes its CRC.
+     */
+    private static Map<String, Map<Currency, CashBalance>> readSlots(MappedByteBuffer source, Layout layout, Path path) {
+        Map<String, Map<Currency, CashBalance>> balances = new HashMap<>();
+        int slotsStart = layout.slotsStart();
+        for (int c = 0; c < layout.cashiers.size(); c++) {
+            String cashier = layout.cashiers.get(c);
+            for (int i = 0; i < layout.currencies.size(); i++) {
+                Currency currency;
+                try {
+                    currency = Currency.valueOf(layout.currencies.get(i));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Ignoring balances of unknown currency {} in {}", layout.currencies.get(i), path);
+                    continue;
+                }
+                int[] denominations = layout.denominations.get(i);
+                int slotOffset = slotsStart + (c * layout.currencies.size() + i) * layout.slotSize;
+                int copy = newestCopy(source, slotOffset, layout.slotSize / 2, denominations.length);
+                if (copy < 0) {
+                    throw new DataCorruptionException("Balance slot of " + cashier + " " + currency + " is corrupt in " + path);
+                }
+
+                CashBalance balance = new CashBalance(currency);
+                for (int d = 0; d < denominations.length; d++) {
+                    int count = source.getInt(copy + Long.BYTES + d * Integer.BYTES);
+                    if (currency.isValidDenomination(denominations[d])) {
+                        balance.setDenominationCount(denominations[d], count);
+                    } else if (count != 0) {
+                        log.warn("Ignoring {} notes of retired denomination {} {} of cashier {} in {}",
+                            count, denominations[d], currency, cashier, path);
+                    }
+                }
+                balances.computeIfAbsent(cashier, k -> new HashMap<>()).put(currency, balance);
+            }
+        }
+        return balances;
+    }
+
+    private void readSequences(Layout layout) {
+        // Spare slots have no valid copy yet and start at sequence 0
+        int assigned = layout.cashiers.size() * layout.currencies.size();
+        for (int slot = 0; slot < assigned; slot++) {
+            int slotOffset = slotsStart + slot * slotSize;
+            int denominations = layout.denominations.get(slot % layout.currencies.size()).length;
+            int copy = newestCopy(buffer, slotOffset, copySize, denominations);
+            sequences[slot] = buffer.getLong(copy);
+        }
+    }
+
+    /**
+     * @return Offset of the copy with the highest sequence number whose CRC matches, or -1 if neither does
+     */
+    private static int newestCopy(ByteBuffer source, int slotOffset, int copySize, int denominations) {
+        int length = Long.BYTES + denominations * Integer.BYTES;
+        int newest = -1;
+        long newestSequence = 0;
+        for (int copy = 0; copy < 2; copy++) {
+            int offset = slotOffset + copy * copySize;
+            long sequence = source.getLong(offset);
+            // A copy only ever holds sequence numbers of its own parity
+            if (sequence > newestSequence && (sequence & 1) == copy
+                    && source.getInt(offset + length) == crc(source, offset, length)) {
+                newest = offset;
+                newestSequence = sequence;
+            }
+        }
+        return newest;
+    }
+
+    private static int crc(ByteBuffer source, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(source.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private static int headerCrc(ByteBuffer source, int descriptorLength) {
+        CRC32 crc = new CRC32();
+        crc.update(source.slice(0, HEADER_CRC_OFFSET));
+        crc.update(source.slice(HEADER_FIELDS_SIZE, descriptorLength));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Balances to start from when no mapped file exists yet: the text balance file if present, otherwise opening balances.
+     * Cashiers missing from an imported file start empty, as with the text store.
+     */
+    private Map<String, Map<Currency, CashBalance>> importTextBalances() {
+        Map<String, Map<Currency, CashBalance>> balances = new HashMap<>();
+        Path textFile = Paths.get(balanceFilePath);
+        if (Files.exists(textFile)) {
+            Map<String, Map<Currency, UUID>> lastTransactionIds = new HashMap<>();
+            try (BufferedReader reader = Files.newBufferedReader(textFile)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.trim().isEmpty()) {
+                        TextBalanceCodec.parseLine(line, balances, lastTransactionIds);
+                    }
+                }
+            } catch (IOException e) {
+                throw new FileStorageException("Failed to import balances from " + textFile, e);
+            }
+            log.info("Imported balances for {} cashiers from text balance file {}", balances.size(), textFile);
+            return balances;
+        }
+
+        for (String cashier : cashierNames) {
+            balances.put(cashier, TextBalanceCodec.initialBalances());
+        }
+        log.info("Initialized default balances for {} cashiers", cashierNames.size());
+        return balances;
+    }
+
+    private static MappedByteBuffer map(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to map balance file " + path, e);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.exception.FileStorageException;
+import com.fibank.cashdesk.model.Transaction;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * One fixed-size, memory-mapped segment of the transaction log.
+ *
+ * The file is sized up front and mapped once; records use the {@link BinaryTransactionCodec} layout behind
+ * the same header, each segment with its own cashier dictionary. The unused tail is zero-filled, so a zero
+ * length prefix marks the end of the data. An append copies the record body and a zero terminator first
+ * and publishes the length prefix last, so a record interrupted by a process crash is never visible.
+ *
+ * After an OS crash the kernel may have written back the length prefix without the body, so each record is
+ * followed by a CRC32C of its prefix and body. Recovery stops at the first record whose checksum does not match.
+ * Segments carrying checksums say so in the reserved field of the header; older segments are read without them.
+ *
+ * Appends must be serialized by the caller; {@link #forceTo(int)} may run concurrently with appends.
+ */
+public class MappedLogSegment {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedLogSegment.class);
+
+    private static final int TERMINATOR_SIZE = Integer.BYTES;
+    private static final int CHECKSUM_SIZE = Integer.BYTES;
+    private static final int FLAGS_OFFSET = 6; // Reserved field of the codec header
+    private static final short FLAG_CHECKSUMS = 1;
+
+    private final Path path;
+    private final long sequence;
+    private final MappedByteBuffer buffer;
+    private final BinaryTransactionCodec codec = new BinaryTransactionCodec();
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(512);
+    private final Timer fsyncTimer;
+    private final Lock forceLock = new ReentrantLock();
+    private final CRC32C checksum = new CRC32C();
+
+    private volatile int position;
+    private volatile int forcedPosition; // Written under the force lock
+    private boolean checksummed = true;
+
+    private MappedLogSegment(Path path, long sequence, MappedByteBuffer buffer, Timer fsyncTimer) {
+        this.path = path;
+        this.sequence = sequence;
+        this.buffer = buffer;
+        this.fsyncTimer = fsyncTimer;
+    }
+
+    /**
+     * Create and map a new, empty segment.
+     * @param path Segment file, which must not exist yet
+     * @param sequence Position of the segment in the log
+     * @param size Segment size in bytes
+     * @param fsyncTimer Timer recording force latency
+     * @return Segment ready for appending
+     * @throws FileStorageException if the file cannot be created or mapped
+     */
+    public static MappedLogSegment create(Path path, long sequence, int size, Timer fsyncTimer) {
+        MappedLogSegment segment = new MappedLogSegment(path, sequence, map(path, size, true), fsyncTimer);
+        byte[] header = segment.codec.header();
+        segment.buffer.put(0, header, 0, header.length);
+        segment.buffer.putShort(FLAGS_OFFSET, FLAG_CHECKSUMS);
+        segment.buffer.putInt(header.length, 0);
+        segment.position = header.length;
+        segment.forceTo(header.length);
+        log.info("Created transaction log segment {} ({} bytes)", path, size);
+        return segment;
+    }
+
+    /**
+     * Map an existing segment and replay its records.
+     * @param path Segment file
+     * @param sequence Position of the segment in the log
+     * @param fsyncTimer Timer recording force latency
+     * @param sink Receives each transaction in log order
+     * @return Segment positioned after its last complete record
+     * @throws FileStorageException if the file cannot be mapped
+     * @throws com.fibank.cashdesk.exception.DataCorruptionException if the header is invalid
+     */
+    public static MappedLogSegment open(Path path, long sequence, Timer fsyncTimer, Consumer<Transaction> sink) {
+        long size;
+        try {
+            size = Files.size(path);
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to read transaction log segment " + path, e);
+        }
+        if (size < BinaryTransactionCodec.HEADER_SIZE + TERMINATOR_SIZE || size > Integer.MAX_VALUE) {
+            throw new FileStorageException("Invalid transaction log segment size " + size + ": " + path);
+        }
+
+        MappedLogSegment segment = new MappedLogSegment(path, sequence, map(path, (int) size, false), fsyncTimer);
+        segment.recover(sink);
+        return segment;
+    }
+
+    /**
+     * Append a transaction if it fits into the remaining space.
+     * @param transaction Transaction to append
+     * @return End offset of the record, or -1 if the segment is full
+     * @throws IllegalArgumentException if the transaction cannot be represented in the log format
+     */
+    public int append(Transaction transaction) {
+        scratch.reset();
+        codec.encode(transaction, scratch);
+        // The encoding may be a cashier dictionary record followed by the transaction record
+        ByteBuffer records = ByteBuffer.wrap(scratch.toByteArray());
+        int trailer = checksummed ? CHECKSUM_SIZE : 0;
+        int start = position;
+        int end = start;
+        for (int offset = 0; offset < records.limit(); offset += Integer.BYTES + records.getInt(offset)) {
+            end += Integer.BYTES + records.getInt(offset) + trailer;
+        }
+
+        if (end + TERMINATOR_SIZE > buffer.capacity()) {
+            codec.discardUncommitted();
+            return -1;
+        }
+
+        int target = start;
+        for (int offset = 0; offset < records.limit(); offset += Integer.BYTES + records.getInt(offset)) {
+            int length = Integer.BYTES + records.getInt(offset);
+            if (target != start) {
+                buffer.putInt(target, records.getInt(offset));
+            }
+            buffer.put(target + Integer.BYTES, records, offset + Integer.BYTES, length - Integer.BYTES);
+            if (checksummed) {
+                checksum.reset();
+                checksum.update(records.array(), offset, length);
+                buffer.putInt(target + length, (int) checksum.getValue());
+            }
+            target += length + trailer;
+        }
+        buffer.putInt(end, 0);
+        buffer.putInt(start, records.getInt(0));
+        codec.markCommitted();
+
+        position = end;
+        return end;
+    }
+
+    /**
+     * Force the segment to disk at least up to the given offset.
+     * Concurrent callers are coalesced: one force covers everything appended before it started.
+     * @param offset End offset returned by {@link #append(Transaction)}
+     * @throws FileStorageException if the mapped range cannot be forced
+     */
+    public void forceTo(int offset) {
+        forceLock.lock();
+        try {
+            if (forcedPosition >= offset) {
+                return;
+            }
+            int target = position;
+            long start = System.nanoTime();
+            try {
+                // Include the terminator so the end-of-data marker is durable with the last record
+                int length = Math.min(target + TERMINATOR_SIZE, buffer.capacity()) - forcedPosition;
+                buffer.force(forcedPosition, length);
+            } catch (UncheckedIOException e) {
+                throw new FileStorageException("Failed to force transaction log segment " + path, e.getCause());
+            }
+            fsyncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            forcedPosition = target;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /**
+     * Force everything appended so far.
+     */
+    public void force() {
+        forceTo(position);
+    }
+
+    /**
+     * @return Offset after the last complete record
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * @return Offset up to which records are known to be on disk
+     */
+    public int forcedPosition() {
+        return forcedPosition;
+    }
+
+    public long sequence() {
+        return sequence;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    private void recover(Consumer<Transaction> sink) {
+        ByteBuffer header = buffer.slice(0, BinaryTransactionCodec.HEADER_SIZE);
+        codec.checkHeader(header, path);
+        checksummed = (buffer.getShort(FLAGS_OFFSET) & FLAG_CHECKSUMS) != 0;
+        int trailer = checksummed ? CHECKSUM_SIZE : 0;
+
+        int offset = BinaryTransactionCodec.HEADER_SIZE;
+        int recordCount = 0;
+        while (offset + Integer.BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || length > BinaryTransactionCodec.MAX_RECORD_SIZE
+                    || offset + Integer.BYTES + length + trailer + TERMINATOR_SIZE > buffer.capacity()) {
+                log.error("Invalid record length {} at offset {} in segment {}, ignoring the rest of the segment",
+                    length, offset, path);
+                buffer.putInt(offset, 0);
+                break;
+            }
+            if (checksummed && !checksumMatches(offset, Integer.BYTES + length)) {
+                log.error("Checksum mismatch in record at offset {} in segment {}, ignoring the rest of the segment",
+                    offset, path);
+                buffer.putInt(offset, 0);
+                break;
+            }
+
+            recordCount++;
+            try {
+                Transaction transaction = codec.decode(buffer.slice(offset + Integer.BYTES, length));
+                if (transaction != null) {
+                    sink.accept(transaction);
+                }
+            } catch (Exception e) {
+                log.error("Failed to decode record {} at offset {} in segment {}", recordCount, offset, path, e);
+                // Continue processing - the length prefix lets us skip the corrupted record
+            }
+            offset += Integer.BYTES + length + trailer;
+        }
+
+        codec.markCommitted();
+        position = offset;
+        forcedPosition = offset;
+        log.debug("Recovered {} record(s) from segment {}", recordCount, path);
+    }
+
+    /**
+     * @param offset Offset of the record's length prefix
+     * @param length Length of the prefix and body, which the checksum follows
+     */
+    private boolean checksumMatches(int offset, int length) {
+        checksum.reset();
+        checksum.update(buffer.slice(offset, length));
+        return buffer.getInt(offset + length) == (int) checksum.getValue();
+    }
+
+    private static MappedByteBuffer map(Path path, int size, boolean createNew) {
+        StandardOpenOption createOption = createNew ? StandardOpenOption.CREATE_NEW : StandardOpenOption.READ;
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, createOption)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to map transaction log segment " + path, e);
+        }
+    }
+}
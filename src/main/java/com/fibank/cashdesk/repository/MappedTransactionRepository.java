@@ -0,0 +1,346 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.exception.FileStorageException;
+import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.Transaction;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * TransactionRepository backed by preallocated, memory-mapped log segments.
+ * An append is a memory copy into the active segment plus, depending on the {@link DurabilityMode},
+ * a force of the dirty range; there is no write call and no file-length update per record.
+ * A full segment is sealed and the log rolls to a new one. Startup replays all segments from mapped memory.
+ * With GROUP durability a transaction becomes visible to queries only once the force covering it has completed.
+ *
+ * Enabled with {@code cashdesk.storage.engine=MAPPED}. On first start an existing text log is imported;
+ * a marker file is kept until the import is on disk, and an interrupted import is redone on the next start.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "cashdesk.storage", name = "engine", havingValue = "MAPPED")
+@DependsOn("currencyRegistry")
+public class MappedTransactionRepository implements TransactionRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedTransactionRepository.class);
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("txlog-(\\d{10})\\.seg");
+    private static final int MIN_SEGMENT_SIZE = 64 * 1024;
+    private static final String IMPORT_MARKER = "import.pending";
+
+    /**
+     * Transaction appended to a segment but not yet indexed; a null transaction marks a segment boundary.
+     */
+    private record PendingEntry(MappedLogSegment segment, int end, Transaction transaction) {
+    }
+
+    @Value("${cashdesk.storage.transaction-file}")
+    private String transactionFilePath;
+
+    @Value("${cashdesk.storage.mapped.directory:${cashdesk.storage.data-dir}/txlog}")
+    private String segmentDirectory;
+
+    @Value("${cashdesk.storage.mapped.segment-size-bytes:67108864}")
+    private int segmentSize = 64 * 1024 * 1024;
+
+    @Value("${cashdesk.storage.durability:GROUP}")
+    private DurabilityMode durability = DurabilityMode.GROUP;
+
+    private final TransactionIndex index = new TransactionIndex();
+    private final Lock appendLock = new ReentrantLock();
+    private final Lock indexLock = new ReentrantLock();
+    private final Queue<PendingEntry> pending = new ConcurrentLinkedQueue<>();
+
+    private volatile MappedLogSegment activeSegment;
+    private Timer fsyncTimer;
+
+    @PostConstruct
+    public void initialize() {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size must be at least " + MIN_SEGMENT_SIZE + " bytes");
+        }
+
+        appendLock.lock();
+        try {
+            close();
+            index.clear();
+            pending.clear();
+            fsyncTimer = StorageMetrics.fsyncTimer("transactions", durability);
+
+            long loadStart = System.nanoTime();
+            Path directory = Paths.get(segmentDirectory);
+            List<Path> segments = listSegments(directory);
+            Path importMarker = directory.resolve(IMPORT_MARKER);
+            if (Files.exists(importMarker)) {
+                log.warn("Import of the text log into {} was interrupted, importing it again", directory);
+                deleteSegments(segments);
+                segments = List.of();
+            }
+            if (segments.isEmpty()) {
+                importTextLog(directory, importMarker);
+            } else {
+                for (int i = 0; i < segments.size(); i++) {
+                    Path path = segments.get(i);
+                    MappedLogSegment segment = MappedLogSegment.open(path, sequenceOf(path), fsyncTimer, index::add);
+                    if (i == segments.size() - 1) {
+                        activeSegment = segment;
+                    } else {
+                        index.startSegment();
+                    }
+                }
+            }
+
+            Duration loadDuration = Duration.ofNanos(System.nanoTime() - loadStart);
+            StorageMetrics.recordStartupLoad("transactions", index.size(), loadDuration);
+            log.info("Loaded {} transactions from {} segment(s) in {} in {} ms",
+                index.size(), Math.max(segments.size(), 1), directory, loadDuration.toMillis());
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Background flush for ASYNC durability: forces the dirty range of the active segment.
+     */
+    @Scheduled(fixedDelayString = "${cashdesk.storage.async-flush-interval-ms:200}")
+    public void flush() {
+        MappedLogSegment segment = activeSegment;
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.force();
+            indexForced();
+        } catch (FileStorageException e) {
+            log.error("Failed to flush transaction log segment {}", segment.path(), e);
+        }
+    }
+
+    /**
+     * Force the active segment and release it.
+     */
+    @PreDestroy
+    public void close() {
+        appendLock.lock();
+        try {
+            if (activeSegment != null) {
+                activeSegment.force();
+                activeSegment = null;
+                indexForced();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void save(Transaction transaction) {
+        MappedLogSegment segment;
+        int end;
+        appendLock.lock();
+        try {
+            segment = activeSegment;
+            if (segment == null) {
+                throw new FileStorageException("Transaction repository is not initialized");
+            }
+
+            end = segment.append(transaction);
+            if (end < 0) {
+                segment = roll(segment);
+                end = segment.append(transaction);
+                if (end < 0) {
+                    throw new FileStorageException("Transaction does not fit into an empty log segment");
+                }
+            }
+
+            if (durability == DurabilityMode.SYNC) {
+                segment.forceTo(end);
+            }
+            if (durability == DurabilityMode.GROUP) {
+                pending.add(new PendingEntry(segment, end, transaction));
+            } else {
+                index.add(transaction);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+
+        if (durability == DurabilityMode.GROUP) {
+            // Outside the append lock, so concurrent savers share one force of the dirty range
+            segment.forceTo(end);
+            indexForced();
+        }
+        log.debug("Saved transaction: {}", transaction.getId());
+    }
+
+    @Override
+    public List<Transaction> findAll() {
+        return index.findAll();
+    }
+
+    @Override
+    public List<Transaction> findByDateRange(Instant from, Instant to) {
+        return index.findByDateRange(from, to);
+    }
+
+    @Override
+    public List<Transaction> findByCashier(String cashier) {
+        return index.findByCashier(cashier);
+    }
+
+    @Override
+    public List<Transaction> findByCashierAndDateRange(String cashier, Instant from, Instant to) {
+        return index.findByCashierAndDateRange(cashier, from, to);
+    }
+
+    @Override
+    public List<Transaction> findByCashierAndCurrencyAndDateRange(String cashier, Currency currency, Instant from, Instant to) {
+        return index.findByCashierAndCurrencyAndDateRange(cashier, currency, from, to);
+    }
+
+    /**
+     * Index the pending transactions, in log order, up to the first one that is not on disk yet.
+     */
+    private void indexForced() {
+        indexLock.lock();
+        try {
+            PendingEntry entry;
+            while ((entry = pending.peek()) != null
+                    && (entry.transaction() == null || entry.segment().forcedPosition() >= entry.end())) {
+                pending.poll();
+                if (entry.transaction() == null) {
+                    index.startSegment();
+                } else {
+                    index.add(entry.transaction());
+                }
+            }
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * Seal the full segment and start the next one. Caller holds the append lock.
+     */
+    private MappedLogSegment roll(MappedLogSegment full) {
+        full.force();
+        long sequence = full.sequence() + 1;
+        MappedLogSegment next = MappedLogSegment.create(
+            segmentPath(full.path().getParent(), sequence), sequence, segmentSize, fsyncTimer);
+        activeSegment = next;
+        if (durability == DurabilityMode.GROUP) {
+            pending.add(new PendingEntry(full, full.position(), null));
+        } else {
+            index.startSegment();
+        }
+        log.info("Sealed transaction log segment {} at {} bytes", full.path(), full.position());
+        return next;
+    }
+
+    /**
+     * Create the first segment and carry over transactions from the text log.
+     * The marker exists until every imported segment is forced, so a crash in between restarts the import.
+     */
+    private void importTextLog(Path directory, Path importMarker) {
+        Path textFile = Paths.get(transactionFilePath);
+        boolean importing = Files.exists(textFile);
+        List<Transaction> transactions = new ArrayList<>();
+        try {
+            if (importing) {
+                new TextTransactionCodec().load(textFile, transactions::add);
+                Files.write(importMarker, new byte[0]);
+                StorageFiles.forceDirectory(directory);
+            }
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to import transactions from " + textFile, e);
+        }
+
+        MappedLogSegment segment = MappedLogSegment.create(segmentPath(directory, 1), 1, segmentSize, fsyncTimer);
+        activeSegment = segment;
+        if (!importing) {
+            return;
+        }
+
+        for (Transaction transaction : transactions) {
+            if (segment.append(transaction) < 0) {
+                segment = roll(segment);
+                segment.append(transaction);
+            }
+            if (durability == DurabilityMode.GROUP) {
+                pending.add(new PendingEntry(segment, segment.position(), transaction));
+            } else {
+                index.add(transaction);
+            }
+        }
+        segment.force();
+        indexForced();
+
+        try {
+            Files.delete(importMarker);
+            StorageFiles.forceDirectory(directory);
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to complete the import of " + textFile, e);
+        }
+        log.info("Imported {} transactions from text log {}", transactions.size(), textFile);
+    }
+
+    private void deleteSegments(List<Path> segments) {
+        try {
+            for (Path segment : segments) {
+                Files.delete(segment);
+            }
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to remove partially imported transaction log segments", e);
+        }
+    }
+
+    private List<Path> listSegments(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> stream = Files.list(directory)) {
+                return stream
+                    .filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches())
+                    .sorted()
+                    .collect(Collectors.toList());
+            }
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to list transaction log segments in " + directory, e);
+        }
+    }
+
+    private static Path segmentPath(Path directory, long sequence) {
+        return directory.resolve(String.format("txlog-%010d.seg", sequence));
+    }
+
+    private static long sequenceOf(Path segment) {
+        Matcher matcher = SEGMENT_NAME.matcher(segment.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a transaction log segment: " + segment);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+}
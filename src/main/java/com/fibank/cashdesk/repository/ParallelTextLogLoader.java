@@ -0,0 +1,264 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Startup loader for text transaction logs.
+ * The file is split into byte ranges that start at line boundaries; the ranges are parsed in parallel
+ * on a fork-join pool and handed to the sink in file order on the calling thread.
+ * Lines are decoded straight from the read buffer by a {@link TransactionLineCodec} per range.
+ * Corrupted lines are logged with their line number in the file and skipped.
+ */
+public class ParallelTextLogLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(ParallelTextLogLoader.class);
+
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+
+    private final int parallelism;
+    private final int chunkSize;
+
+    /**
+     * @param parallelism Number of parser threads, or 0 for one per available processor
+     * @param chunkSize Target size of a byte range parsed as one task
+     */
+    public ParallelTextLogLoader(int parallelism, int chunkSize) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("Parallelism cannot be negative");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.parallelism = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Outcome of loading one log file.
+     */
+    public static class Result {
+        private final long records;
+        private final List<Long> skippedLines;
+        private final Duration duration;
+
+        public Result(long records, List<Long> skippedLines, Duration duration) {
+            this.records = records;
+            this.skippedLines = Collections.unmodifiableList(skippedLines);
+            this.duration = duration;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        /**
+         * @return Line numbers (1-based) of lines that could not be parsed
+         */
+        public List<Long> getSkippedLines() {
+            return skippedLines;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+
+        public double getRecordsPerSecond() {
+            long nanos = duration.toNanos();
+            return nanos == 0 ? 0 : records * 1_000_000_000.0 / nanos;
+        }
+    }
+
+    /**
+     * Parsed byte range: its transactions in file order and the lines that failed to parse.
+     */
+    private static class Chunk {
+        private final List<Transaction> transactions = new ArrayList<>();
+        private final List<Skipped> skipped = new ArrayList<>();
+        private long lines;
+    }
+
+    private static class Skipped {
+        private final long line;
+        private final byte[] bytes;
+        private final int offset;
+        private final int length;
+        private final Exception cause;
+
+        Skipped(long line, byte[] bytes, int offset, int length, Exception cause) {
+            this.line = line;
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+            this.cause = cause;
+        }
+    }
+
+    /**
+     * Load all transactions of a text log.
+     * @param file Log file
+     * @param sink Receives the transactions in file order, on the calling thread
+     * @return Number of records loaded, skipped lines and load duration
+     * @throws IOException if the file cannot be read
+     */
+    public Result load(Path file, Consumer<Transaction> sink) throws IOException {
+        long start = System.nanoTime();
+        long records = 0;
+        List<Long> skippedLines = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Long> boundaries = splitAtLines(channel);
+            int chunks = boundaries.size() - 1;
+            ForkJoinPool pool = chunks > 1 && parallelism > 1 ? new ForkJoinPool(Math.min(parallelism, chunks)) : null;
+
+            try {
+                List<ForkJoinTask<Chunk>> tasks = new ArrayList<>(chunks);
+                for (int i = 0; i < chunks; i++) {
+                    long from = boundaries.get(i);
+                    long to = boundaries.get(i + 1);
+                    ForkJoinTask<Chunk> task = ForkJoinTask.adapt(() -> parse(channel, from, to));
+                    tasks.add(pool == null ? task : pool.submit(task));
+                }
+
+                long lineOffset = 0;
+                for (ForkJoinTask<Chunk> task : tasks) {
+                    Chunk chunk = pool == null ? task.invoke() : task.join();
+                    for (Skipped skipped : chunk.skipped) {
+                        long lineNumber = lineOffset + skipped.line;
+                        String text = new String(skipped.bytes, skipped.offset, skipped.length, StandardCharsets.UTF_8);
+                        log.error("Failed to parse transaction at line {}: {}", lineNumber, text, skipped.cause);
+                        // Continue processing - don't fail on corrupted lines
+                        skippedLines.add(lineNumber);
+                    }
+                    chunk.transactions.forEach(sink);
+                    records += chunk.transactions.size();
+                    lineOffset += chunk.lines;
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                if (pool != null) {
+                    pool.shutdownNow();
+                }
+            }
+        }
+
+        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        return new Result(records, skippedLines, duration);
+    }
+
+    /**
+     * Split the file into ranges of about the chunk size, moving each split point past the next line terminator.
+     * @return Range boundaries: 0, the split points and the file size
+     */
+    private List<Long> splitAtLines(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = chunkSize;
+        while (position < size) {
+            long boundary = nextLineStart(channel, position, buffer);
+            if (boundary >= size) {
+                break;
+            }
+            boundaries.add(boundary);
+            position = boundary + chunkSize;
+        }
+
+        boundaries.add(size);
+        return boundaries;
+    }
+
+    /**
+     * @return Offset just past the first line terminator at or after the position, or the file size
+     */
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        long offset = position;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+    }
+
+    /**
+     * Parse the lines of one range. Line numbers in the result are relative to the start of the range.
+     */
+    private Chunk parse(FileChannel channel, long from, long to) {
+        byte[] bytes = new byte[(int) (to - from)];
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        TransactionLineCodec codec = new TransactionLineCodec();
+        Chunk chunk = new Chunk();
+        int lineStart = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i < bytes.length && bytes[i] != '\n') {
+                continue;
+            }
+            if (i == bytes.length && lineStart == bytes.length) {
+                break;
+            }
+
+            int lineEnd = i > lineStart && bytes[i - 1] == '\r' ? i - 1 : i;
+            chunk.lines++;
+            if (!isBlank(bytes, lineStart, lineEnd)) {
+                try {
+                    chunk.transactions.add(codec.decode(bytes, lineStart, lineEnd - lineStart));
+                } catch (Exception e) {
+                    chunk.skipped.add(new Skipped(chunk.lines, bytes, lineStart, lineEnd - lineStart, e));
+                }
+            }
+            lineStart = i + 1;
+        }
+        return chunk;
+    }
+
+    /**
+     * Same test as {@code line.trim().isEmpty()}: only control characters and spaces.
+     */
+    private static boolean isBlank(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if ((bytes[i] & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,261 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.exception.DataCorruptionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Manifest of the sealed segments of a transaction log.
+ *
+ * The active segment is always the configured log file (e.g. {@code transactions.txt}); sealing renames it to
+ * {@code transactions.000001.txt}, {@code transactions.000002.txt}, ... next to it. The manifest
+ * ({@code transactions.manifest}) lists each sealed segment with its {@link SegmentStats}, one line per segment:
+ * {@code sequence|file|minTimestamp|maxTimestamp|count|cashiers}.
+ * Segment files are authoritative: at startup they are checked against the manifest, which is rewritten only
+ * when it is missing or out of date.
+ *
+ * Entries are added by one thread at a time; readers get an immutable snapshot.
+ */
+public class SegmentManifest {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentManifest.class);
+
+    private static final String MANIFEST_EXTENSION = ".manifest";
+    private static final String NO_TIMESTAMP = "-";
+
+    /**
+     * Sealed segment and its stats.
+     */
+    public static class Entry {
+        private final long sequence;
+        private final String fileName;
+        private final SegmentStats stats;
+
+        public Entry(long sequence, String fileName, SegmentStats stats) {
+            this.sequence = sequence;
+            this.fileName = fileName;
+            this.stats = stats;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public SegmentStats getStats() {
+            return stats;
+        }
+    }
+
+    private final Path path;
+    private volatile List<Entry> entries = List.of();
+
+    public SegmentManifest(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * @param activeLog Active log file
+     * @return Manifest path for the log
+     */
+    public static Path manifestPath(Path activeLog) {
+        return activeLog.resolveSibling(baseName(activeLog) + MANIFEST_EXTENSION);
+    }
+
+    /**
+     * @param activeLog Active log file
+     * @param sequence Segment sequence number
+     * @return Path the active log is renamed to when sealed as the given segment
+     */
+    public static Path sealedSegmentPath(Path activeLog, long sequence) {
+        return activeLog.resolveSibling(String.format("%s.%06d%s", baseName(activeLog), sequence, extension(activeLog)));
+    }
+
+    /**
+     * List the sealed segment files of a log in sequence order.
+     * @param activeLog Active log file
+     * @return Sealed segment files, oldest first
+     * @throws IOException if the directory cannot be listed
+     */
+    public static List<Path> listSealedSegments(Path activeLog) throws IOException {
+        Path directory = activeLog.toAbsolutePath().getParent();
+        if (directory == null || !Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        Pattern pattern = segmentPattern(activeLog);
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream
+                .filter(file -> pattern.matcher(file.getFileName().toString()).matches())
+                .sorted(Comparator.comparingLong(file -> sequenceOf(pattern, file)))
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @param activeLog Active log file
+     * @param segment Sealed segment file of that log
+     * @return Sequence number of the segment
+     */
+    public static long sequenceOf(Path activeLog, Path segment) {
+        return sequenceOf(segmentPattern(activeLog), segment);
+    }
+
+    /**
+     * @return Immutable snapshot of the entries
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public void add(Entry entry) {
+        List<Entry> next = new ArrayList<>(entries);
+        next.add(entry);
+        entries = List.copyOf(next);
+    }
+
+    public void clear() {
+        entries = List.of();
+    }
+
+    /**
+     * @param recorded Entries read from the manifest file
+     * @return Whether the file records exactly the current entries
+     */
+    public boolean matches(List<Entry> recorded) {
+        List<Entry> current = entries;
+        if (recorded.size() != current.size()) {
+            return false;
+        }
+        for (int i = 0; i < current.size(); i++) {
+            if (!format(recorded.get(i)).equals(format(current.get(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read the manifest file.
+     * @return Recorded entries, or an empty list if there is no manifest
+     * @throws DataCorruptionException if a line is malformed
+     * @throws IOException if the file cannot be read
+     */
+    public List<Entry> read() throws IOException {
+        if (!Files.exists(path)) {
+            return Collections.emptyList();
+        }
+        List<Entry> recorded = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                recorded.add(parse(line));
+            }
+        }
+        return recorded;
+    }
+
+    /**
+     * Atomically replace the manifest file with the current entries.
+     * @throws IOException if the file cannot be written
+     */
+    public void save() throws IOException {
+        List<Entry> entries = this.entries;
+        Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile.toFile());
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (Entry entry : entries) {
+                writer.write(format(entry));
+                writer.newLine();
+            }
+            writer.flush();
+            out.getChannel().force(true);
+        }
+        Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        StorageFiles.forceDirectory(path.toAbsolutePath().getParent());
+        log.debug("Saved segment manifest {} with {} segment(s)", path, entries.size());
+    }
+
+    private static String format(Entry entry) {
+        SegmentStats stats = entry.getStats();
+        return String.format("%d|%s|%s|%s|%d|%s",
+            entry.getSequence(),
+            entry.getFileName(),
+            stats.getMinTimestamp() == null ? NO_TIMESTAMP : stats.getMinTimestamp().toString(),
+            stats.getMaxTimestamp() == null ? NO_TIMESTAMP : stats.getMaxTimestamp().toString(),
+            stats.getCount(),
+            String.join(",", stats.getCashiers())
+        );
+    }
+
+    private static Entry parse(String line) {
+        String[] parts = line.split("\\|", -1);
+        if (parts.length != 6) {
+            throw new DataCorruptionException("Invalid segment manifest line: " + line);
+        }
+        try {
+            Set<String> cashiers = parts[5].isEmpty()
+                ? Collections.emptySet()
+                : new LinkedHashSet<>(Arrays.asList(parts[5].split(",")));
+            SegmentStats stats = new SegmentStats(
+                parseTimestamp(parts[2]),
+                parseTimestamp(parts[3]),
+                Long.parseLong(parts[4]),
+                cashiers
+            );
+            return new Entry(Long.parseLong(parts[0]), parts[1], stats);
+        } catch (RuntimeException e) {
+            throw new DataCorruptionException("Invalid segment manifest line: " + line, e);
+        }
+    }
+
+    private static Instant parseTimestamp(String value) {
+        return NO_TIMESTAMP.equals(value) ? null : Instant.parse(value);
+    }
+
+    private static Pattern segmentPattern(Path activeLog) {
+        return Pattern.compile(Pattern.quote(baseName(activeLog)) + "\\.(\\d{6,})" + Pattern.quote(extension(activeLog)));
+    }
+
+    private static long sequenceOf(Pattern pattern, Path segment) {
+        Matcher matcher = pattern.matcher(segment.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a sealed log segment: " + segment);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static String baseName(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(dot) : "";
+    }
+}
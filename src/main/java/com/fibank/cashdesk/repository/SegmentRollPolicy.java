@@ -0,0 +1,89 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.model.Transaction;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Decides when the active log segment is sealed: once it reaches a size limit,
+ * or when a record belongs to a later calendar day (UTC) than the segment's first record.
+ * Tracks the active segment, so an instance is confined to the log writer thread.
+ */
+public class SegmentRollPolicy {
+
+    private final long maxSegmentBytes;
+    private final boolean rollDaily;
+
+    private long segmentBytes;
+    private LocalDate segmentDay;
+
+    /**
+     * @param maxSegmentBytes Size at which the segment is sealed, or 0 for no size limit
+     * @param rollDaily Whether to start a new segment for each calendar day
+     */
+    public SegmentRollPolicy(long maxSegmentBytes, boolean rollDaily) {
+        if (maxSegmentBytes < 0) {
+            throw new IllegalArgumentException("Segment size cannot be negative");
+        }
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.rollDaily = rollDaily;
+    }
+
+    /**
+     * @return Policy that never seals the active segment
+     */
+    public static SegmentRollPolicy never() {
+        return new SegmentRollPolicy(0, false);
+    }
+
+    /**
+     * @return true if the policy can ever seal a segment
+     */
+    public boolean isEnabled() {
+        return maxSegmentBytes > 0 || rollDaily;
+    }
+
+    /**
+     * Start tracking an active segment.
+     * @param bytes Current size of the segment
+     * @param firstTimestamp Timestamp of its first record, or null if it holds no records
+     */
+    public void startSegment(long bytes, Instant firstTimestamp) {
+        this.segmentBytes = bytes;
+        this.segmentDay = firstTimestamp == null ? null : dayOf(firstTimestamp);
+    }
+
+    /**
+     * Check whether the active segment must be sealed before the next record is written.
+     * A segment without records is never sealed.
+     * @param next Record about to be written
+     * @return true to seal the active segment first
+     */
+    public boolean shouldRoll(Transaction next) {
+        if (segmentDay == null) {
+            return false;
+        }
+        if (maxSegmentBytes > 0 && segmentBytes >= maxSegmentBytes) {
+            return true;
+        }
+        return rollDaily && !dayOf(next.getTimestamp()).equals(segmentDay);
+    }
+
+    /**
+     * Account for a record added to the active segment.
+     * @param transaction Record written
+     * @param bytes Encoded size of the record
+     */
+    public void recordAppended(Transaction transaction, long bytes) {
+        segmentBytes += bytes;
+        if (segmentDay == null) {
+            segmentDay = dayOf(transaction.getTimestamp());
+        }
+    }
+
+    private static LocalDate dayOf(Instant timestamp) {
+        return LocalDate.ofInstant(timestamp, ZoneOffset.UTC);
+    }
+}
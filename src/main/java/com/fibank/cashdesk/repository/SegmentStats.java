@@ -0,0 +1,74 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.model.Transaction;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Summary of the transactions in one log segment: time bounds, record count and cashiers present.
+ * Recorded in the {@link SegmentManifest}.
+ */
+public class SegmentStats {
+
+    private Instant minTimestamp;
+    private Instant maxTimestamp;
+    private long count;
+    private final Set<String> cashiers = new TreeSet<>();
+
+    public SegmentStats() {
+    }
+
+    /**
+     * Restore stats recorded in the manifest.
+     * @param minTimestamp Earliest timestamp, or null for an empty segment
+     * @param maxTimestamp Latest timestamp, or null for an empty segment
+     * @param count Number of transactions
+     * @param cashiers Cashiers with at least one transaction
+     */
+    public SegmentStats(Instant minTimestamp, Instant maxTimestamp, long count, Set<String> cashiers) {
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
+        this.count = count;
+        cashiers.forEach(cashier -> this.cashiers.add(normalize(cashier)));
+    }
+
+    /**
+     * Account for a transaction stored in the segment.
+     * @param transaction Stored transaction
+     */
+    public synchronized void add(Transaction transaction) {
+        Instant timestamp = transaction.getTimestamp();
+        if (minTimestamp == null || timestamp.isBefore(minTimestamp)) {
+            minTimestamp = timestamp;
+        }
+        if (maxTimestamp == null || timestamp.isAfter(maxTimestamp)) {
+            maxTimestamp = timestamp;
+        }
+        count++;
+        cashiers.add(normalize(transaction.getCashier()));
+    }
+
+    public synchronized Instant getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    public synchronized Instant getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized Set<String> getCashiers() {
+        return Collections.unmodifiableSet(new TreeSet<>(cashiers));
+    }
+
+    private static String normalize(String cashier) {
+        return cashier.toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,35 @@
+package com.fibank.cashdesk.repository;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File-system helpers shared by the storage files.
+ */
+final class StorageFiles {
+
+    private StorageFiles() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Force the entries of a directory to disk, so that a file created in it or renamed into it survives an OS crash.
+     * A no-op where directories cannot be opened for reading (Windows), which persists renames without it.
+     * @param directory Directory holding the file
+     * @throws IOException if the directory could not be forced
+     */
+    static void forceDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (AccessDeniedException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.fibank.cashdesk.repository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Factory for storage-layer meters.
+ * Meters are registered on the global registry, which Spring Boot wires to the actuator registry.
+ */
+public final class StorageMetrics {
+
+    private static final Map<String, StartupLoad> STARTUP_LOADS = new ConcurrentHashMap<>();
+
+    /**
+     * Last startup load of a storage file, read by the registered gauges.
+     */
+    private static class StartupLoad {
+        private volatile double seconds;
+        private volatile double records;
+        private volatile double recordsPerSecond;
+    }
+
+    private StorageMetrics() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Timer for fsync latency of a storage file.
+     * @param file Logical file name (e.g. transactions, balances)
+     * @param durability Durability mode the file is written with
+     * @return Timer published as cashdesk.storage.fsync
+     */
+    public static Timer fsyncTimer(String file, DurabilityMode durability) {
+        return Timer.builder("cashdesk.storage.fsync")
+            .description("Latency of forcing storage files to disk")
+            .tag("file", file)
+            .tag("durability", durability.name())
+            .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Publish how long loading a storage file took at startup.
+     * Gauges are registered once per file and report the most recent load.
+     * @param file Logical file name (e.g. transactions)
+     * @param records Number of records loaded
+     * @param duration Time spent loading
+     */
+    public static void recordStartupLoad(String file, long records, Duration duration) {
+        StartupLoad load = STARTUP_LOADS.computeIfAbsent(file, StorageMetrics::registerStartupLoad);
+        double seconds = duration.toNanos() / 1_000_000_000.0;
+        load.seconds = seconds;
+        load.records = records;
+        load.recordsPerSecond = seconds == 0 ? 0 : records / seconds;
+    }
+
+    private static StartupLoad registerStartupLoad(String file) {
+        StartupLoad load = new StartupLoad();
+        Gauge.builder("cashdesk.storage.startup.load.duration", load, l -> l.seconds)
+            .description("Time spent loading the storage file at startup")
+            .tag("file", file)
+            .baseUnit("seconds")
+            .register(Metrics.globalRegistry);
+        Gauge.builder("cashdesk.storage.startup.load.records", load, l -> l.records)
+            .description("Records loaded from the storage file at startup")
+            .tag("file", file)
+            .register(Metrics.globalRegistry);
+        Gauge.builder("cashdesk.storage.startup.load.rate", load, l -> l.recordsPerSecond)
+            .description("Records per second loaded from the storage file at startup")
+            .tag("file", file)
+            .baseUnit("records/s")
+            .register(Metrics.globalRegistry);
+        return load;
+    }
+}
@@ -0,0 +1,82 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.exception.DataCorruptionException;
+import com.fibank.cashdesk.model.CashBalance;
+import com.fibank.cashdesk.model.Currency;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Record format of the text balance file: {@code cashier|CURRENCY|denomination|count} per count,
+ * and {@code cashier|LAST|CURRENCY|transactionId} for the last transaction a balance includes.
+ * Older files hold one {@code cashier|LAST|transactionId} record, which anchors every currency of the cashier.
+ * Also used to import the text file into other balance stores.
+ */
+public final class TextBalanceCodec {
+
+    public static final String LAST_TRANSACTION = "LAST";
+
+    private TextBalanceCodec() {
+    }
+
+    /**
+     * Parse one line of the balance file.
+     * @param line Non-empty line
+     * @param balances Receives the count, by cashier and currency
+     * @param lastTransactionIds Receives the last transaction by cashier and currency, for {@code LAST} records
+     * @throws DataCorruptionException if the line is not a valid record
+     */
+    public static void parseLine(String line, Map<String, Map<Currency, CashBalance>> balances,
+                                 Map<String, Map<Currency, UUID>> lastTransactionIds) {
+        String[] parts = line.split("\\|");
+
+        if ((parts.length == 3 || parts.length == 4) && LAST_TRANSACTION.equals(parts[1])) {
+            try {
+                Map<Currency, UUID> anchors = lastTransactionIds.computeIfAbsent(parts[0], k -> new HashMap<>());
+                if (parts.length == 4) {
+                    anchors.put(Currency.valueOf(parts[2]), UUID.fromString(parts[3]));
+                } else {
+                    UUID transactionId = UUID.fromString(parts[2]);
+                    for (Currency currency : Currency.values()) {
+                        anchors.put(currency, transactionId);
+                    }
+                }
+                return;
+            } catch (IllegalArgumentException e) {
+                throw new DataCorruptionException("Failed to parse balance line: " + line, e);
+            }
+        }
+
+        if (parts.length != 4) {
+            throw new DataCorruptionException("Invalid balance format: expected 4 fields, got " + parts.length);
+        }
+
+        try {
+            String cashier = parts[0];
+            Currency currency = Currency.valueOf(parts[1]);
+            int denomination = Integer.parseInt(parts[2]);
+            int count = Integer.parseInt(parts[3]);
+
+            balances
+                .computeIfAbsent(cashier, k -> new HashMap<>())
+                .computeIfAbsent(currency, k -> new CashBalance(currency))
+                .setDenominationCount(denomination, count);
+
+        } catch (Exception e) {
+            throw new DataCorruptionException("Failed to parse balance line: " + line, e);
+        }
+    }
+
+    /**
+     * @return Opening balances of a new cashier, in every registered currency
+     */
+    public static Map<Currency, CashBalance> initialBalances() {
+        Map<Currency, CashBalance> cashierBalances = new HashMap<>();
+        for (Currency currency : Currency.values()) {
+            cashierBalances.put(currency, new CashBalance(currency, currency.getInitialCounts()));
+        }
+        return cashierBalances;
+    }
+}
@@ -0,0 +1,82 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.exception.DataCorruptionException;
+import com.fibank.cashdesk.model.Transaction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Pipe-delimited text format of the transaction log.
+ * Reads both the old 6-field format (without UUID) and the current 7-field format.
+ * Lines are encoded and decoded by a {@link TransactionLineCodec}; logs are read with the {@link ParallelTextLogLoader}.
+ * An instance reuses one line codec and line buffer, so it must be used from one thread at a time
+ * (the log writer thread).
+ */
+public class TextTransactionCodec implements TransactionLogCodec {
+
+    private static final byte[] NO_HEADER = new byte[0];
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private static final int INITIAL_LINE_CAPACITY = 256;
+
+    private final TransactionLineCodec lineCodec = new TransactionLineCodec();
+    private ByteBuffer lineBuffer = ByteBuffer.allocate(INITIAL_LINE_CAPACITY);
+
+    @Override
+    public byte[] header() {
+        return NO_HEADER;
+    }
+
+    @Override
+    public void encode(Transaction transaction, ByteArrayOutputStream out) {
+        ByteBuffer line = encodeLine(transaction);
+        out.write(line.array(), 0, line.position());
+        out.write(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+    }
+
+    @Override
+    public void load(Path file, Consumer<Transaction> sink) throws IOException {
+        new ParallelTextLogLoader(1, ParallelTextLogLoader.DEFAULT_CHUNK_SIZE).load(file, sink);
+    }
+
+    /**
+     * Parse one log line.
+     * @param line Line without terminator
+     * @return Decoded transaction
+     * @throws DataCorruptionException if the line is malformed
+     */
+    public Transaction parse(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return lineCodec.decode(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Format a transaction as a log line.
+     * @param transaction Transaction to format
+     * @return Line without terminator
+     */
+    public String format(Transaction transaction) {
+        ByteBuffer line = encodeLine(transaction);
+        return new String(line.array(), 0, line.position(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encode into the reusable line buffer, growing it for unusually long lines.
+     */
+    private ByteBuffer encodeLine(Transaction transaction) {
+        while (true) {
+            lineBuffer.clear();
+            try {
+                lineCodec.encode(transaction, lineBuffer);
+                return lineBuffer;
+            } catch (BufferOverflowException e) {
+                lineBuffer = ByteBuffer.allocate(lineBuffer.capacity() * 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.fibank.cashdesk.repository;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Storage formats of the transaction log.
+ */
+public enum TransactionFormat {
+    /**
+     * Pipe-delimited text lines, one transaction per line.
+     */
+    TEXT,
+
+    /**
+     * Compact length-prefixed binary records behind a versioned file header.
+     */
+    BINARY;
+
+    private static final String DEFAULT_BINARY_FILE_NAME = "transactions.dat";
+
+    /**
+     * Create a codec for a log file in this format.
+     * @return New codec instance
+     */
+    public TransactionLogCodec newCodec() {
+        return this == BINARY ? new BinaryTransactionCodec() : new TextTransactionCodec();
+    }
+
+    /**
+     * Resolve the log file written in this format.
+     * @param textFile Configured text log path
+     * @param binaryFile Configured binary log path, or null/blank to place it next to the text log
+     * @return Path of the active log file
+     */
+    public Path resolveLogFile(String textFile, String binaryFile) {
+        Path textPath = Paths.get(textFile);
+        if (this == TEXT) {
+            return textPath;
+        }
+        if (binaryFile != null && !binaryFile.isBlank()) {
+            return Paths.get(binaryFile);
+        }
+        return textPath.resolveSibling(DEFAULT_BINARY_FILE_NAME);
+    }
+}
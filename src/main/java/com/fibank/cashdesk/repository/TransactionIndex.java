@@ -0,0 +1,242 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.Transaction;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory view of a transaction log, shared by the log-backed repositories to answer queries.
+ * Transactions are kept in log order in an {@link AppendOnlyChunkedArray}, with {@link SegmentStats} per log segment.
+ * Queries go through time-ordered indexes: one over all transactions and one per (cashier, currency) partition,
+ * so a date range costs O(log n + k) and a cashier or currency lookup only touches that cashier's transactions.
+ * Indexes order by timestamp and then by log position, so out-of-order timestamps in legacy logs are handled.
+ *
+ * The owning repository adds each transaction once it is stored, from one thread at a time
+ * (the log writer thread, or under the append lock). Readers take no lock: a query captures the published
+ * log length first and ignores index entries past it, so it sees a consistent prefix of the log while appends continue.
+ */
+public class TransactionIndex {
+
+    /**
+     * Position of a transaction in the timestamp index: by timestamp, then in log order.
+     */
+    private static final class TimeKey implements Comparable<TimeKey> {
+        private final Instant timestamp;
+        private final long sequence;
+
+        TimeKey(Instant timestamp, long sequence) {
+            this.timestamp = timestamp;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(TimeKey other) {
+            int result = timestamp.compareTo(other.timestamp);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final Comparator<TimeKey> LOG_ORDER = Comparator.comparingLong(key -> key.sequence);
+
+    /**
+     * Time-ordered transactions of one cashier, one index per currency.
+     */
+    private static class CashierPartition {
+        private final Map<Currency, ConcurrentSkipListMap<TimeKey, Transaction>> byCurrency = new HashMap<>();
+
+        CashierPartition() {
+            // Populated up front, so the map itself is only read concurrently
+            for (Currency currency : Currency.values()) {
+                byCurrency.put(currency, new ConcurrentSkipListMap<>());
+            }
+        }
+    }
+
+    // Replaced as a whole when a segment starts, so readers always see a consistent list
+    private volatile List<SegmentStats> segments = List.of(new SegmentStats());
+
+    // Log order; the sequence of a TimeKey is the position of its transaction here
+    private volatile AppendOnlyChunkedArray<Transaction> transactions = new AppendOnlyChunkedArray<>();
+    private volatile ConcurrentSkipListMap<TimeKey, Transaction> byTimestamp = new ConcurrentSkipListMap<>();
+    private volatile ConcurrentHashMap<String, CashierPartition> byCashier = new ConcurrentHashMap<>();
+
+    /**
+     * Add a stored transaction to the current segment. Calls must not overlap.
+     * @param transaction Transaction in log order
+     */
+    public void add(Transaction transaction) {
+        AppendOnlyChunkedArray<Transaction> log = transactions;
+        List<SegmentStats> current = segments;
+        current.get(current.size() - 1).add(transaction);
+
+        // Indexed first and published last: readers skip index entries at or past the length they captured
+        TimeKey key = new TimeKey(transaction.getTimestamp(), log.size());
+        byTimestamp.put(key, transaction);
+        byCashier.computeIfAbsent(normalize(transaction.getCashier()), cashier -> new CashierPartition())
+            .byCurrency.get(transaction.getCurrency())
+            .put(key, transaction);
+        log.add(transaction);
+    }
+
+    /**
+     * Close the current segment and start collecting the next one.
+     * @return Stats of the closed segment
+     */
+    public synchronized SegmentStats startSegment() {
+        List<SegmentStats> current = segments;
+        List<SegmentStats> next = new ArrayList<>(current.size() + 1);
+        next.addAll(current);
+        next.add(new SegmentStats());
+        segments = List.copyOf(next);
+        return current.get(current.size() - 1);
+    }
+
+    /**
+     * @return Stats of the current segment
+     */
+    public SegmentStats currentSegmentStats() {
+        List<SegmentStats> current = segments;
+        return current.get(current.size() - 1);
+    }
+
+    /**
+     * Remove all transactions and segments, e.g. before reloading the log.
+     */
+    public synchronized void clear() {
+        segments = List.of(new SegmentStats());
+        byTimestamp = new ConcurrentSkipListMap<>();
+        byCashier = new ConcurrentHashMap<>();
+        transactions = new AppendOnlyChunkedArray<>();
+    }
+
+    /**
+     * @return Number of indexed transactions
+     */
+    public int size() {
+        return transactions.size();
+    }
+
+    /**
+     * @return Read-only snapshot of all transactions in log order; later additions are not visible in it
+     */
+    public List<Transaction> findAll() {
+        return transactions.snapshot();
+    }
+
+    /**
+     * @return Transactions within the range, ordered by timestamp
+     */
+    public List<Transaction> findByDateRange(Instant from, Instant to) {
+        if (from == null && to == null) {
+            return findAll();
+        }
+        int watermark = transactions.size();
+        return published(range(byTimestamp, from, to), watermark);
+    }
+
+    /**
+     * @return Transactions of the cashier (case-insensitive) in log order
+     */
+    public List<Transaction> findByCashier(String cashier) {
+        return merge(cashier, null, null, LOG_ORDER);
+    }
+
+    /**
+     * @return Matching transactions; ordered by timestamp when the range is bounded, otherwise in log order
+     */
+    public List<Transaction> findByCashierAndDateRange(String cashier, Instant from, Instant to) {
+        if (cashier == null) {
+            return findByDateRange(from, to);
+        }
+        if (from == null && to == null) {
+            return findByCashier(cashier);
+        }
+        return merge(cashier, from, to, Comparator.naturalOrder());
+    }
+
+    /**
+     * @return Transactions of the cashier (case-insensitive) in the currency within the range, ordered by timestamp
+     */
+    public List<Transaction> findByCashierAndCurrencyAndDateRange(String cashier, Currency currency, Instant from, Instant to) {
+        int watermark = transactions.size();
+        CashierPartition partition = byCashier.get(normalize(cashier));
+        if (partition == null) {
+            return new ArrayList<>();
+        }
+        return published(range(partition.byCurrency.get(currency), from, to), watermark);
+    }
+
+    /**
+     * Collect one cashier's transactions in the range across all currencies.
+     */
+    private List<Transaction> merge(String cashier, Instant from, Instant to, Comparator<TimeKey> order) {
+        int watermark = transactions.size();
+        CashierPartition partition = byCashier.get(normalize(cashier));
+        if (partition == null) {
+            return new ArrayList<>();
+        }
+        List<Map.Entry<TimeKey, Transaction>> entries = new ArrayList<>();
+        for (ConcurrentSkipListMap<TimeKey, Transaction> index : partition.byCurrency.values()) {
+            for (Map.Entry<TimeKey, Transaction> entry : range(index, from, to).entrySet()) {
+                if (entry.getKey().sequence < watermark) {
+                    entries.add(entry);
+                }
+            }
+        }
+        entries.sort(Map.Entry.comparingByKey(order));
+
+        List<Transaction> result = new ArrayList<>(entries.size());
+        for (Map.Entry<TimeKey, Transaction> entry : entries) {
+            result.add(entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * @return Transactions of the index view that were published before the watermark, in view order
+     */
+    private static List<Transaction> published(NavigableMap<TimeKey, Transaction> view, int watermark) {
+        List<Transaction> result = new ArrayList<>();
+        for (Map.Entry<TimeKey, Transaction> entry : view.entrySet()) {
+            if (entry.getKey().sequence < watermark) {
+                result.add(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return View of the entries with from <= timestamp <= to
+     */
+    private static NavigableMap<TimeKey, Transaction> range(
+            ConcurrentSkipListMap<TimeKey, Transaction> index, Instant from, Instant to) {
+        if (from == null && to == null) {
+            return index;
+        }
+        if (from == null) {
+            return index.headMap(new TimeKey(to, Long.MAX_VALUE), true);
+        }
+        if (to == null) {
+            return index.tailMap(new TimeKey(from, Long.MIN_VALUE), true);
+        }
+        if (from.isAfter(to)) {
+            return Collections.emptyNavigableMap();
+        }
+        return index.subMap(new TimeKey(from, Long.MIN_VALUE), true, new TimeKey(to, Long.MAX_VALUE), true);
+    }
+
+    private static String normalize(String cashier) {
+        return cashier.toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,605 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.exception.DataCorruptionException;
+import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.OperationType;
+import com.fibank.cashdesk.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Byte-level codec for one line of the text transaction log, without intermediate strings, arrays or maps.
+ * Produces and accepts exactly the format of {@link TextTransactionCodec}: the 7-field
+ * {@code id|timestamp|cashier|operation|currency|amount|denominations} format on write, and also the old
+ * 6-field format (without id) on read. Values outside the common shape (e.g. timestamps beyond year 9999 or
+ * amounts with more than 18 digits) go through the JDK parsers and formatters, so results match them exactly.
+ *
+ * An instance keeps scratch state for decoding denominations and must be confined to one thread.
+ */
+public class TransactionLineCodec {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionLineCodec.class);
+
+    private static final byte SEPARATOR = '|';
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final OperationType[] OPERATION_TYPES = OperationType.values();
+    private static final byte[][] OPERATION_TYPE_NAMES = names(OPERATION_TYPES);
+
+    // 0000-01-01T00:00:00Z and 9999-12-31T23:59:59Z: the range Instant.toString() prints with a 4-digit year
+    private static final long MIN_FAST_EPOCH_SECOND = -62167219200L;
+    private static final long MAX_FAST_EPOCH_SECOND = 253402300799L;
+    private static final int MAX_FAST_DIGITS = 18;
+
+    // Currencies registered when the codec was created; by id, null for gaps
+    private final Currency[] currencies = currenciesById();
+    private final byte[][] currencyNames = currencyNames(currencies);
+    // Valid denominations per currency id in ascending order, boxed once for map lookups
+    private final Integer[][] denominations = sortedDenominations(currencies);
+
+    private final int[] denominationKeys = new int[16];
+    private final int[] denominationCounts = new int[16];
+
+    /**
+     * Encode a transaction as one log line, without the line terminator.
+     * @param transaction Transaction to encode
+     * @param out Buffer the line is written to at its position
+     * @throws java.nio.BufferOverflowException if the buffer has too little room; its position is then undefined
+     */
+    public void encode(Transaction transaction, ByteBuffer out) {
+        writeUuid(transaction.getId(), out);
+        out.put(SEPARATOR);
+        writeInstant(transaction.getTimestamp(), out);
+        out.put(SEPARATOR);
+        writeUtf8(transaction.getCashier(), out);
+        out.put(SEPARATOR);
+        out.put(OPERATION_TYPE_NAMES[transaction.getOperationType().ordinal()]);
+        out.put(SEPARATOR);
+        out.put(currencyNames[transaction.getCurrency().getId()]);
+        out.put(SEPARATOR);
+        writeAmount(transaction.getAmount(), out);
+        out.put(SEPARATOR);
+        writeDenominations(transaction, out);
+    }
+
+    /**
+     * Decode one log line.
+     * @param bytes Buffer holding the line
+     * @param offset Start of the line
+     * @param length Length of the line without terminator
+     * @return Decoded transaction
+     * @throws DataCorruptionException if the line is malformed
+     */
+    public Transaction decode(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        // Like String.split: trailing empty fields do not count
+        while (end > offset && bytes[end - 1] == SEPARATOR) {
+            end--;
+        }
+        int fields = length == 0 ? 1 : end == offset ? 0 : count(bytes, offset, end, SEPARATOR) + 1;
+
+        // Support both old format (6 fields without UUID) and new format (7 fields with UUID)
+        if (fields != 6 && fields != 7) {
+            throw new DataCorruptionException("Invalid transaction format: expected 6 or 7 fields, got " + fields);
+        }
+
+        try {
+            int start = offset;
+            int stop;
+            UUID id;
+            if (fields == 7) {
+                stop = indexOf(bytes, start, end, SEPARATOR);
+                id = parseUuid(bytes, start, stop);
+                start = stop + 1;
+            } else {
+                // Old format without UUID - generate new one for backward compatibility
+                id = UUID.randomUUID();
+                log.warn("Loading transaction in old format (without UUID): {}", text(bytes, offset, length));
+            }
+
+            stop = indexOf(bytes, start, end, SEPARATOR);
+            Instant timestamp = parseInstant(bytes, start, stop);
+            start = stop + 1;
+
+            stop = indexOf(bytes, start, end, SEPARATOR);
+            String cashier = new String(bytes, start, stop - start, StandardCharsets.UTF_8);
+            start = stop + 1;
+
+            stop = indexOf(bytes, start, end, SEPARATOR);
+            OperationType operationType = OPERATION_TYPES[lookup(OPERATION_TYPE_NAMES, bytes, start, stop, "operation type")];
+            start = stop + 1;
+
+            stop = indexOf(bytes, start, end, SEPARATOR);
+            Currency currency = currencies[lookup(currencyNames, bytes, start, stop, "currency")];
+            start = stop + 1;
+
+            stop = indexOf(bytes, start, end, SEPARATOR);
+            BigDecimal amount = parseAmount(bytes, start, stop);
+
+            Map<Integer, Integer> denominations = parseDenominations(bytes, stop + 1, end);
+
+            return new Transaction(id, timestamp, cashier, operationType, currency, amount, denominations);
+        } catch (Exception e) {
+            throw new DataCorruptionException("Failed to parse transaction: " + text(bytes, offset, length), e);
+        }
+    }
+
+    private static void writeUuid(UUID id, ByteBuffer out) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        writeHex(msb >>> 32, 8, out);
+        out.put((byte) '-');
+        writeHex(msb >>> 16, 4, out);
+        out.put((byte) '-');
+        writeHex(msb, 4, out);
+        out.put((byte) '-');
+        writeHex(lsb >>> 48, 4, out);
+        out.put((byte) '-');
+        writeHex(lsb, 12, out);
+    }
+
+    private static void writeHex(long value, int digits, ByteBuffer out) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            out.put(HEX[(int) (value >>> shift) & 0xF]);
+        }
+    }
+
+    /**
+     * Same output as {@link Instant#toString()}: seconds always present, fraction in groups of 3 digits.
+     */
+    private static void writeInstant(Instant instant, ByteBuffer out) {
+        long epochSecond = instant.getEpochSecond();
+        if (epochSecond < MIN_FAST_EPOCH_SECOND || epochSecond > MAX_FAST_EPOCH_SECOND) {
+            out.put(instant.toString().getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+
+        long epochDay = Math.floorDiv(epochSecond, 86400);
+        int secondOfDay = (int) Math.floorMod(epochSecond, 86400);
+
+        // Civil date from days since 1970-01-01 (proleptic Gregorian, era-based)
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+
+        writeDigits(year, 4, out);
+        out.put((byte) '-');
+        writeDigits(month, 2, out);
+        out.put((byte) '-');
+        writeDigits(day, 2, out);
+        out.put((byte) 'T');
+        writeDigits(secondOfDay / 3600, 2, out);
+        out.put((byte) ':');
+        writeDigits(secondOfDay / 60 % 60, 2, out);
+        out.put((byte) ':');
+        writeDigits(secondOfDay % 60, 2, out);
+
+        int nano = instant.getNano();
+        if (nano > 0) {
+            out.put((byte) '.');
+            if (nano % 1_000_000 == 0) {
+                writeDigits(nano / 1_000_000, 3, out);
+            } else if (nano % 1000 == 0) {
+                writeDigits(nano / 1000, 6, out);
+            } else {
+                writeDigits(nano, 9, out);
+            }
+        }
+        out.put((byte) 'Z');
+    }
+
+    private static void writeDigits(long value, int digits, ByteBuffer out) {
+        int position = out.position();
+        for (int i = digits - 1; i >= 0; i--) {
+            out.put(position + i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        out.position(position + digits);
+    }
+
+    /**
+     * Same bytes as {@code String.getBytes(UTF_8)}, including '?' for unpaired surrogates.
+     */
+    private static void writeUtf8(String value, ByteBuffer out) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | c >> 6));
+                out.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.put((byte) (0xF0 | codePoint >> 18));
+                out.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                out.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                out.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | c >> 12));
+                out.put((byte) (0x80 | c >> 6 & 0x3F));
+                out.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Same output as {@link BigDecimal#toPlainString()}.
+     */
+    private static void writeAmount(BigDecimal amount, ByteBuffer out) {
+        int scale = amount.scale();
+        if (scale < 0 || scale > MAX_FAST_DIGITS || amount.precision() > MAX_FAST_DIGITS) {
+            out.put(amount.toPlainString().getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+
+        long unscaled = amount.unscaledValue().longValue();
+        if (unscaled < 0) {
+            out.put((byte) '-');
+            unscaled = -unscaled;
+        }
+        long divisor = 1;
+        for (int i = 0; i < scale; i++) {
+            divisor *= 10;
+        }
+        long integerPart = unscaled / divisor;
+        writeDigits(integerPart, digitCount(integerPart), out);
+        if (scale > 0) {
+            out.put((byte) '.');
+            writeDigits(unscaled % divisor, scale, out);
+        }
+    }
+
+    private static int digitCount(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Denominations in ascending order as {@code denomination:count} pairs separated by commas.
+     * The transaction guarantees its denominations are valid for its currency.
+     */
+    private void writeDenominations(Transaction transaction, ByteBuffer out) {
+        Map<Integer, Integer> counts = transaction.getDenominations();
+        boolean first = true;
+        for (Integer denomination : denominations[transaction.getCurrency().getId()]) {
+            Integer count = counts.get(denomination);
+            if (count == null) {
+                continue;
+            }
+            if (!first) {
+                out.put((byte) ',');
+            }
+            first = false;
+            writeSigned(denomination, out);
+            out.put((byte) ':');
+            writeSigned(count, out);
+        }
+    }
+
+    private static void writeSigned(int value, ByteBuffer out) {
+        long magnitude = value;
+        if (magnitude < 0) {
+            out.put((byte) '-');
+            magnitude = -magnitude;
+        }
+        writeDigits(magnitude, digitCount(magnitude), out);
+    }
+
+    private static UUID parseUuid(byte[] bytes, int start, int end) {
+        if (end - start != 36
+                || bytes[start + 8] != '-' || bytes[start + 13] != '-'
+                || bytes[start + 18] != '-' || bytes[start + 23] != '-') {
+            return UUID.fromString(text(bytes, start, end - start));
+        }
+        long msb = hex(bytes, start, 8) << 32 | hex(bytes, start + 9, 4) << 16 | hex(bytes, start + 14, 4);
+        long lsb = hex(bytes, start + 19, 4) << 48 | hex(bytes, start + 24, 12);
+        return new UUID(msb, lsb);
+    }
+
+    private static long hex(byte[] bytes, int start, int digits) {
+        long value = 0;
+        for (int i = start; i < start + digits; i++) {
+            int digit = Character.digit(bytes[i], 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid UUID digits: " + text(bytes, start, digits));
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Fast path for {@code yyyy-MM-ddTHH:mm:ss[.fraction]Z}; anything else goes through {@link Instant#parse}.
+     */
+    private static Instant parseInstant(byte[] bytes, int start, int end) {
+        int length = end - start;
+        if (length < 20 || bytes[start + 4] != '-' || bytes[start + 7] != '-' || bytes[start + 10] != 'T'
+                || bytes[start + 13] != ':' || bytes[start + 16] != ':' || bytes[end - 1] != 'Z') {
+            return Instant.parse(text(bytes, start, end - start));
+        }
+
+        int year = digits(bytes, start, 4);
+        int month = digits(bytes, start + 5, 2);
+        int day = digits(bytes, start + 8, 2);
+        int hour = digits(bytes, start + 11, 2);
+        int minute = digits(bytes, start + 14, 2);
+        int second = digits(bytes, start + 17, 2);
+
+        int nano = 0;
+        int fraction = length - 20;
+        if (fraction > 0) {
+            if (bytes[start + 19] != '.' || fraction - 1 > 9) {
+                return Instant.parse(text(bytes, start, end - start));
+            }
+            int fractionDigits = fraction - 1;
+            nano = fractionDigits == 0 ? -1 : digits(bytes, start + 20, fractionDigits);
+            for (int i = fractionDigits; i < 9 && nano >= 0; i++) {
+                nano *= 10;
+            }
+        }
+
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || nano < 0) {
+            // Invalid fields, leap seconds and malformed digits: let the JDK accept or reject them
+            return Instant.parse(text(bytes, start, end - start));
+        }
+
+        // Days since 1970-01-01 from the civil date (proleptic Gregorian, era-based)
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long epochDay = (long) era * 146097 + dayOfEra - 719468;
+
+        return Instant.ofEpochSecond(epochDay * 86400 + hour * 3600L + minute * 60L + second, nano);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * @return Value of a run of decimal digits, or -1 if a byte is not a digit
+     */
+    private static int digits(byte[] bytes, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Fast path for plain decimals of up to 18 digits; anything else goes through {@code new BigDecimal(String)}.
+     */
+    private static BigDecimal parseAmount(byte[] bytes, int start, int end) {
+        long unscaled = 0;
+        int digitCount = 0;
+        int scale = 0;
+        boolean point = false;
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9' && digitCount < MAX_FAST_DIGITS) {
+                unscaled = unscaled * 10 + (b - '0');
+                digitCount++;
+                if (point) {
+                    scale++;
+                }
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                return new BigDecimal(text(bytes, start, end - start));
+            }
+        }
+        if (digitCount == 0) {
+            return new BigDecimal(text(bytes, start, end - start));
+        }
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    /**
+     * Parse {@code denomination:count} pairs with the same leniency as splitting on ',' and ':'.
+     */
+    private Map<Integer, Integer> parseDenominations(byte[] bytes, int start, int end) {
+        while (end > start && bytes[end - 1] == ',') {
+            end--;
+        }
+        if (start >= end) {
+            return Map.of();
+        }
+
+        Map<Integer, Integer> overflow = null;
+        int size = 0;
+        int pairStart = start;
+        while (pairStart <= end) {
+            int pairEnd = indexOf(bytes, pairStart, end, (byte) ',');
+            int colonEnd = pairEnd;
+            while (colonEnd > pairStart && bytes[colonEnd - 1] == ':') {
+                colonEnd--;
+            }
+            int colon = indexOf(bytes, pairStart, colonEnd, (byte) ':');
+            if (colon >= colonEnd || indexOf(bytes, colon + 1, colonEnd, (byte) ':') < colonEnd) {
+                throw new DataCorruptionException("Invalid denomination format: " + text(bytes, pairStart, pairEnd - pairStart));
+            }
+            int denomination = parseInt(bytes, pairStart, colon);
+            int count = parseInt(bytes, colon + 1, colonEnd);
+
+            if (overflow != null) {
+                overflow.put(denomination, count);
+            } else {
+                int existing = find(denomination, size);
+                if (existing >= 0) {
+                    denominationCounts[existing] = count;
+                } else if (size < denominationKeys.length) {
+                    denominationKeys[size] = denomination;
+                    denominationCounts[size] = count;
+                    size++;
+                } else {
+                    overflow = new HashMap<>();
+                    for (int i = 0; i < size; i++) {
+                        overflow.put(denominationKeys[i], denominationCounts[i]);
+                    }
+                    overflow.put(denomination, count);
+                }
+            }
+            pairStart = pairEnd + 1;
+        }
+
+        if (overflow != null) {
+            return overflow;
+        }
+        int[] k = denominationKeys;
+        int[] c = denominationCounts;
+        switch (size) {
+            case 1:
+                return Map.of(k[0], c[0]);
+            case 2:
+                return Map.of(k[0], c[0], k[1], c[1]);
+            case 3:
+                return Map.of(k[0], c[0], k[1], c[1], k[2], c[2]);
+            default:
+                Map<Integer, Integer> result = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    result.put(k[i], c[i]);
+                }
+                return result;
+        }
+    }
+
+    private int find(int denomination, int size) {
+        for (int i = 0; i < size; i++) {
+            if (denominationKeys[i] == denomination) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Same result as {@link Integer#parseInt(String)}, which it falls back to for anything but plain digits.
+     */
+    private static int parseInt(byte[] bytes, int start, int end) {
+        int length = end - start;
+        if (length == 0 || length > 9) {
+            return Integer.parseInt(text(bytes, start, end - start));
+        }
+        int value = digits(bytes, start, length);
+        return value >= 0 ? value : Integer.parseInt(text(bytes, start, end - start));
+    }
+
+    private static int lookup(byte[][] names, byte[] bytes, int start, int end, String kind) {
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = names[i];
+            if (name != null && name.length == end - start && regionMatches(name, bytes, start)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown " + kind + ": " + text(bytes, start, end - start));
+    }
+
+    private static boolean regionMatches(byte[] name, byte[] bytes, int start) {
+        for (int i = 0; i < name.length; i++) {
+            if (name[i] != bytes[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] bytes, int start, int end, byte value) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static int count(byte[] bytes, int start, int end, byte value) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == value) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String text(byte[] bytes, int offset, int length) {
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private static byte[][] names(Enum<?>[] constants) {
+        byte[][] names = new byte[constants.length][];
+        for (Enum<?> constant : constants) {
+            names[constant.ordinal()] = constant.name().getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+
+    private static Currency[] currenciesById() {
+        Currency[] registered = Currency.values();
+        Currency[] byId = new Currency[registered[registered.length - 1].getId() + 1];
+        for (Currency currency : registered) {
+            byId[currency.getId()] = currency;
+        }
+        return byId;
+    }
+
+    private static byte[][] currencyNames(Currency[] currencies) {
+        byte[][] names = new byte[currencies.length][];
+        for (int i = 0; i < currencies.length; i++) {
+            if (currencies[i] != null) {
+                names[i] = currencies[i].name().getBytes(StandardCharsets.US_ASCII);
+            }
+        }
+        return names;
+    }
+
+    private static Integer[][] sortedDenominations(Currency[] currencies) {
+        Integer[][] denominations = new Integer[currencies.length][];
+        for (int i = 0; i < currencies.length; i++) {
+            if (currencies[i] != null) {
+                denominations[i] = currencies[i].getValidDenominations().toArray(Integer[]::new);
+            }
+        }
+        return denominations;
+    }
+}
@@ -0,0 +1,52 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.model.Transaction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * On-disk record format of the transaction log.
+ * Implementations may keep per-file state (e.g. dictionaries), so one instance serves one log file
+ * and is not thread-safe: records are loaded before appending starts and encoded by the single log writer.
+ */
+public interface TransactionLogCodec {
+
+    /**
+     * Bytes written at the start of a new, empty log file.
+     * @return File header, or an empty array if the format has none
+     */
+    byte[] header();
+
+    /**
+     * Encode one transaction, including any framing, and append it to the output.
+     * @param transaction Transaction to encode
+     * @param out Output to append to
+     */
+    void encode(Transaction transaction, ByteArrayOutputStream out);
+
+    /**
+     * Read every transaction in a log file, in file order.
+     * Corrupted records are logged and skipped where the format allows it.
+     * @param file Log file to read
+     * @param sink Receives each decoded transaction
+     * @throws IOException if the file cannot be read
+     */
+    void load(Path file, Consumer<Transaction> sink) throws IOException;
+
+    /**
+     * Mark everything encoded so far as durably part of the file.
+     * Formats without per-file state need not override it.
+     */
+    default void markCommitted() {
+    }
+
+    /**
+     * Forget per-file state recorded by encode calls since the last {@link #markCommitted()},
+     * because their output never reached the file.
+     */
+    default void discardUncommitted() {
+    }
+}
@@ -0,0 +1,78 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.exception.FileStorageException;
+import com.fibank.cashdesk.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts a transaction log between storage formats.
+ * The target is written to a temporary file, forced and atomically moved into place,
+ * so an interrupted conversion never leaves a half-written log behind.
+ */
+public final class TransactionLogConverter {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionLogConverter.class);
+
+    private TransactionLogConverter() {
+    }
+
+    /**
+     * Convert a log file from one format to another.
+     * @param source Existing log file
+     * @param sourceFormat Format of the existing file
+     * @param target Log file to create or replace
+     * @param targetFormat Format to write
+     * @return Number of transactions written
+     * @throws FileStorageException if the conversion fails
+     */
+    public static int convert(Path source, TransactionFormat sourceFormat, Path target, TransactionFormat targetFormat) {
+        List<Transaction> transactions = new ArrayList<>();
+        try {
+            sourceFormat.newCodec().load(source, transactions::add);
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to read transaction log for conversion: " + source, e);
+        }
+
+        TransactionLogCodec codec = targetFormat.newCodec();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] header = codec.header();
+        buffer.write(header, 0, header.length);
+        for (Transaction transaction : transactions) {
+            codec.encode(transaction, buffer);
+        }
+
+        Path tempFile = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Path parent = target.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (FileOutputStream out = new FileOutputStream(tempFile.toFile())) {
+                buffer.writeTo(out);
+                out.getChannel().force(true);
+            }
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException cleanupException) {
+                e.addSuppressed(cleanupException);
+            }
+            throw new FileStorageException("Failed to write converted transaction log: " + target, e);
+        }
+
+        log.info("Converted {} transaction(s) from {} ({}) to {} ({})",
+            transactions.size(), source, sourceFormat, target, targetFormat);
+        return transactions.size();
+    }
+}
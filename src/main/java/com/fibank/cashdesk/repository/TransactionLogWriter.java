@@ -0,0 +1,485 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.exception.FileStorageException;
+import com.fibank.cashdesk.model.Transaction;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Group-commit writer for the append-only transaction log.
+ * Concurrent callers enqueue transactions; a single writer thread drains the queue, encodes the batch
+ * with the log's {@link TransactionLogCodec} and issues one write per batch to a long-lived FileChannel.
+ * Encoding on the writer thread keeps stateful formats (such as the binary cashier dictionary) in file order.
+ * When records are forced depends on the {@link DurabilityMode}:
+ * SYNC forces each record, GROUP forces each batch, ASYNC leaves forcing to {@link #flush()}.
+ * With a {@link SegmentRollPolicy}, the writer seals the active file when the policy says so and
+ * continues in a fresh file at the same path.
+ */
+public class TransactionLogWriter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionLogWriter.class);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+    private final Path path;
+    private final DurabilityMode durability;
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    private final Consumer<Transaction> commitListener;
+    private final SegmentRollPolicy rollPolicy;
+    private final SegmentSealer sealer;
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final Lock channelLock = new ReentrantLock();
+    private final Thread writerThread;
+    private final Timer fsyncTimer;
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final RecordBuffer buffer = new RecordBuffer();
+
+    private volatile boolean running = true;
+    private TransactionLogCodec codec;
+    private FileChannel channel;
+
+    /**
+     * Seals the active log file when the writer rolls to a new segment.
+     */
+    @FunctionalInterface
+    public interface SegmentSealer {
+
+        /**
+         * Called on the writer thread after the active file has been forced and closed, and before
+         * records of the new segment are committed. Typically renames the file out of the way.
+         * If sealing fails, the writer reopens the file at the log path and keeps appending to it.
+         * @return Codec for the new active file
+         * @throws IOException if the file could not be sealed
+         */
+        TransactionLogCodec seal() throws IOException;
+    }
+
+    /**
+     * Transaction waiting to be written, together with the future of its caller.
+     */
+    private static class PendingRecord {
+        private final Transaction transaction;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private int end;
+
+        PendingRecord(Transaction transaction) {
+            this.transaction = transaction;
+        }
+    }
+
+    /**
+     * Reusable encode buffer that can drop a partially encoded record and expose its contents without copying.
+     */
+    private static class RecordBuffer extends ByteArrayOutputStream {
+
+        RecordBuffer() {
+            super(8192);
+        }
+
+        void truncate(int size) {
+            count = size;
+        }
+
+        ByteBuffer slice(int from, int to) {
+            return ByteBuffer.wrap(buf, from, to - from);
+        }
+    }
+
+    /**
+     * Open the log for appending and start the writer thread.
+     * @param path Log file path (created if missing)
+     * @param codec Record format; must already have loaded the existing file contents
+     * @param durability When appended records are forced to disk
+     * @param maxBatchSize Maximum number of records written per batch
+     * @param maxLingerMillis Maximum time to wait for more records before committing a batch
+     * @param commitListener Invoked on the writer thread, in file order, once a record is written
+     * @throws FileStorageException if the log cannot be opened
+     */
+    public TransactionLogWriter(Path path, TransactionLogCodec codec, DurabilityMode durability,
+                                int maxBatchSize, long maxLingerMillis, Consumer<Transaction> commitListener) {
+        this(path, codec, durability, maxBatchSize, maxLingerMillis, commitListener, SegmentRollPolicy.never(), null);
+    }
+
+    /**
+     * Open a segmented log for appending and start the writer thread.
+     * @param path Active log file path (created if missing)
+     * @param codec Record format; must already have loaded the existing file contents
+     * @param durability When appended records are forced to disk
+     * @param maxBatchSize Maximum number of records written per batch
+     * @param maxLingerMillis Maximum time to wait for more records before committing a batch
+     * @param commitListener Invoked on the writer thread, in file order, once a record is written
+     * @param rollPolicy When to seal the active file, already started on its current contents
+     * @param sealer Seals the active file; required if the policy is enabled
+     * @throws FileStorageException if the log cannot be opened
+     */
+    public TransactionLogWriter(Path path, TransactionLogCodec codec, DurabilityMode durability,
+                                int maxBatchSize, long maxLingerMillis, Consumer<Transaction> commitListener,
+                                SegmentRollPolicy rollPolicy, SegmentSealer sealer) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (maxLingerMillis < 0) {
+            throw new IllegalArgumentException("Linger time cannot be negative");
+        }
+        if (rollPolicy.isEnabled() && sealer == null) {
+            throw new IllegalArgumentException("Segment sealer is required when rolling is enabled");
+        }
+
+        this.path = path;
+        this.codec = codec;
+        this.durability = durability;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLingerMillis);
+        this.commitListener = commitListener;
+        this.rollPolicy = rollPolicy;
+        this.sealer = sealer;
+        this.fsyncTimer = StorageMetrics.fsyncTimer("transactions", durability);
+
+        this.channel = openChannel();
+        writeHeaderIfEmpty();
+
+        this.writerThread = new Thread(this::runWriter, "txlog-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+
+        log.info("Transaction log writer started: {} (durability {}, batch size {}, max linger {} ms)",
+            path, durability, maxBatchSize, maxLingerMillis);
+    }
+
+    /**
+     * Append a transaction and wait until it has been written with the configured durability.
+     * @param transaction Transaction to append
+     * @throws FileStorageException if the record could not be written
+     * @throws IllegalArgumentException if the transaction cannot be represented in the log format
+     */
+    public void append(Transaction transaction) {
+        CompletableFuture<Void> written = appendAsync(transaction);
+
+        try {
+            written.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new FileStorageException("Failed to append transaction to file", e.getCause());
+        }
+    }
+
+    /**
+     * Queue a transaction without waiting for it to be written.
+     * Records queued back to back are committed in the same batch, sharing one force.
+     * @param transaction Transaction to append
+     * @return Completes once the record has been written with the configured durability, or with the write failure
+     * @throws FileStorageException if the writer is closed
+     */
+    public CompletableFuture<Void> appendAsync(Transaction transaction) {
+        if (!running) {
+            throw new FileStorageException("Transaction log writer is closed");
+        }
+
+        PendingRecord record = new PendingRecord(transaction);
+        queue.add(record);
+        // close() may have stopped the writer and drained the queue after the check above; the record is then
+        // still queued and would never complete. Otherwise the writer or close() completes it.
+        if (!running && queue.remove(record)) {
+            record.future.completeExceptionally(new FileStorageException("Transaction log writer is closed"));
+        }
+        return record.future;
+    }
+
+    /**
+     * Force records written since the last force to disk.
+     * Drives the background flush in ASYNC mode; a no-op when nothing is pending.
+     */
+    public void flush() {
+        channelLock.lock();
+        try {
+            if (!dirty.getAndSet(false)) {
+                return;
+            }
+            try {
+                force();
+            } catch (IOException e) {
+                dirty.set(true);
+                log.error("Failed to flush transaction log {}", path, e);
+            }
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    /**
+     * Stop accepting records, flush everything already queued and close the file.
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        try {
+            writerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        failPending(new FileStorageException("Transaction log writer is closed"));
+        flush();
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close transaction log {}: {}", path, e.getMessage());
+        }
+        log.info("Transaction log writer stopped: {}", path);
+    }
+
+    private void runWriter() {
+        List<PendingRecord> batch = new ArrayList<>(maxBatchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRecord first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collectBatch(batch);
+                int committed = 0;
+                while (committed < batch.size()) {
+                    committed += commit(batch.subList(committed, batch.size()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in transaction log writer", e);
+                batch.forEach(record -> record.future.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Fill the batch with whatever is already queued, lingering up to the configured time for more.
+     */
+    private void collectBatch(List<PendingRecord> batch) throws InterruptedException {
+        queue.drainTo(batch, maxBatchSize - batch.size());
+        if (maxLingerNanos == 0) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + maxLingerNanos;
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            PendingRecord next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+    }
+
+    /**
+     * Encode and write records up to the next segment boundary.
+     * @return Number of records consumed from the front of the list
+     */
+    private int commit(List<PendingRecord> records) {
+        if (rollPolicy.shouldRoll(records.get(0).transaction)) {
+            rollSegment();
+        }
+
+        List<PendingRecord> encoded = new ArrayList<>(records.size());
+        int consumed = encodeBatch(records, encoded);
+        if (encoded.isEmpty()) {
+            return consumed;
+        }
+
+        long startPosition = -1;
+        try {
+            startPosition = channel.size();
+            if (durability == DurabilityMode.SYNC) {
+                int from = 0;
+                for (PendingRecord record : encoded) {
+                    writeFully(buffer.slice(from, record.end));
+                    force();
+                    from = record.end;
+                }
+            } else {
+                writeFully(buffer.slice(0, buffer.size()));
+                if (durability == DurabilityMode.GROUP) {
+                    force();
+                } else {
+                    dirty.set(true);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to write batch of {} transaction(s) to {}", encoded.size(), path, e);
+            discardPartialWrite(startPosition);
+            codec.discardUncommitted();
+            FileStorageException failure = new FileStorageException("Failed to append transaction to file", e);
+            encoded.forEach(record -> record.future.completeExceptionally(failure));
+            return consumed;
+        }
+
+        codec.markCommitted();
+        for (PendingRecord record : encoded) {
+            commitListener.accept(record.transaction);
+            record.future.complete(null);
+        }
+        log.debug("Committed batch of {} transaction(s)", encoded.size());
+        return consumed;
+    }
+
+    /**
+     * Encode records into the shared buffer until the next one belongs to a new segment,
+     * failing only the records the codec rejects.
+     * @param records Records to encode
+     * @param encoded Receives the encoded records, each with the buffer offset where its bytes end
+     * @return Number of records consumed
+     */
+    private int encodeBatch(List<PendingRecord> records, List<PendingRecord> encoded) {
+        buffer.reset();
+        int consumed = 0;
+        for (PendingRecord record : records) {
+            if (consumed > 0 && rollPolicy.shouldRoll(record.transaction)) {
+                break;
+            }
+            consumed++;
+            int start = buffer.size();
+            try {
+                codec.encode(record.transaction, buffer);
+            } catch (RuntimeException e) {
+                log.error("Failed to encode transaction {}", record.transaction.getId(), e);
+                buffer.truncate(start);
+                record.future.completeExceptionally(e);
+                continue;
+            }
+            record.end = buffer.size();
+            rollPolicy.recordAppended(record.transaction, record.end - start);
+            encoded.add(record);
+        }
+        return consumed;
+    }
+
+    /**
+     * Seal the active file and continue in a fresh one at the same path.
+     */
+    private void rollSegment() {
+        channelLock.lock();
+        try {
+            boolean sealed = false;
+            try {
+                force();
+                dirty.set(false);
+                channel.close();
+                codec = sealer.seal();
+                sealed = true;
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to seal transaction log segment {}, continuing in the current file", path, e);
+            }
+
+            if (!channel.isOpen()) {
+                channel = openChannel();
+            }
+            writeHeaderIfEmpty();
+            try {
+                // After a failed seal, count from zero so the next attempt waits for another full segment
+                rollPolicy.startSegment(sealed ? channel.size() : 0, null);
+            } catch (IOException e) {
+                throw new FileStorageException("Failed to read transaction log size", e);
+            }
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    private FileChannel openChannel() {
+        try {
+            return FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to open transaction log for appending", e);
+        }
+    }
+
+    private void writeHeaderIfEmpty() {
+        byte[] header = codec.header();
+        if (header.length == 0) {
+            return;
+        }
+        try {
+            if (channel.size() == 0) {
+                writeFully(ByteBuffer.wrap(header));
+                force();
+            }
+        } catch (IOException e) {
+            try {
+                channel.close();
+            } catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw new FileStorageException("Failed to write transaction log header", e);
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void force() throws IOException {
+        long start = System.nanoTime();
+        channel.force(false);
+        fsyncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Cut off a partially written batch so the next batch does not continue a torn record.
+     */
+    private void discardPartialWrite(long startPosition) {
+        if (startPosition < 0) {
+            return;
+        }
+        try {
+            channel.truncate(startPosition);
+        } catch (IOException e) {
+            log.error("Failed to truncate transaction log {} after write error", path, e);
+        }
+    }
+
+    private void failPending(FileStorageException failure) {
+        PendingRecord record;
+        while ((record = queue.poll()) != null) {
+            record.future.completeExceptionally(failure);
+        }
+    }
+}
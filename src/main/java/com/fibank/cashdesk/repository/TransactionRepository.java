@@ -1,9 +1,11 @@
 package com.fibank.cashdesk.repository;
 
+import com.fibank.cashdesk.model.Currency;
 import com.fibank.cashdesk.model.Transaction;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Repository interface for transaction persistence.
@@ -16,9 +18,24 @@ public interface TransactionRepository {
      */
     void save(Transaction transaction);
 
+    /**
+     * Save a transaction without waiting for it, so transactions saved back to back can share one commit.
+     * Saves synchronously unless the repository commits in batches.
+     * @param transaction Transaction to save
+     * @return Completes once the transaction is saved, or with the failure
+     */
+    default CompletableFuture<Void> saveAsync(Transaction transaction) {
+        try {
+            save(transaction);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      * Find all transactions.
-     * @return List of all transactions
+     * @return Read-only list of all transactions in log order
      */
     List<Transaction> findAll();
 
@@ -26,7 +43,7 @@ public interface TransactionRepository {
      * Find transactions within a date range.
      * @param from Start date (inclusive), or null for no lower bound
      * @param to End date (inclusive), or null for no upper bound
-     * @return List of transactions within range
+     * @return List of transactions within range, ordered by timestamp
      */
     List<Transaction> findByDateRange(Instant from, Instant to);
 
@@ -45,4 +62,14 @@ public interface TransactionRepository {
      * @return Filtered list of transactions
      */
     List<Transaction> findByCashierAndDateRange(String cashier, Instant from, Instant to);
+
+    /**
+     * Find transactions of a cashier in one currency within a date range.
+     * @param cashier Cashier name
+     * @param currency Transaction currency
+     * @param from Start date (inclusive), or null for no lower bound
+     * @param to End date (inclusive), or null for no upper bound
+     * @return Matching transactions, ordered by timestamp
+     */
+    List<Transaction> findByCashierAndCurrencyAndDateRange(String cashier, Currency currency, Instant from, Instant to);
 }
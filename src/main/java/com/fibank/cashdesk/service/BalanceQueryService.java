@@ -17,4 +17,14 @@ public interface BalanceQueryService {
      * @return Balance query response
      */
     BalanceQueryResponse queryBalance(Instant dateFrom, Instant dateTo, String cashier);
+
+    /**
+     * Version of the balances a query with the same filters reads. Increases whenever one of them changes,
+     * so it can be compared with the version of an earlier query without running the query again.
+     * @param dateFrom Start date (inclusive), or null for no lower bound
+     * @param dateTo End date (inclusive), or null for no upper bound
+     * @param cashier Cashier name, or null for all cashiers
+     * @return Version of the cashier's balances, or a combination of the versions of all cashiers
+     */
+    long getBalanceVersion(Instant dateFrom, Instant dateTo, String cashier);
 }
@@ -1,8 +1,12 @@
 package com.fibank.cashdesk.service;
 
 import com.fibank.cashdesk.dto.request.CashOperationRequest;
+import com.fibank.cashdesk.dto.response.BatchOperationResultDTO;
 import com.fibank.cashdesk.dto.response.CashOperationResponse;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Service interface for processing cash operations.
  */
@@ -14,4 +18,31 @@ public interface CashOperationService {
      * @return Operation response with transaction details
      */
     CashOperationResponse processOperation(CashOperationRequest request);
+
+    /**
+     * Process a cash operation, completing once its transaction is committed to the log.
+     * The balance is updated on the calling thread (or in the cashier's mailbox); the returned future
+     * completes once the transaction is durable, on the operation completion executor rather than the thread
+     * that committed it. On the calling thread the update itself may still wait for disk: when the balance store
+     * appends transactions ({@link com.fibank.cashdesk.repository.BalanceRepository#appendsTransactions()}) or
+     * forces its file per update, only the mailbox mode returns before the operation is durable.
+     * @param request Operation request
+     * @param expectedVersion Version of the cashier's balances the operation applies to, e.g. the version of a
+     *                        snapshot the client read; null to apply to any version
+     * @return Completes with the operation response, or exceptionally with the failure of the operation,
+     *         {@link com.fibank.cashdesk.exception.BalanceVersionMismatchException} if the balances are not at the
+     *         expected version
+     */
+    CompletableFuture<CashOperationResponse> processOperationAsync(CashOperationRequest request, Long expectedVersion);
+
+    /**
+     * Process an ordered batch of cash operations.
+     * Valid operations are applied together under the locks of all balances they touch,
+     * with one balance persist and their transactions sharing one log commit.
+     * @param requests Operations in order
+     * @param atomic If true, a single invalid or rejected operation leaves every balance unchanged;
+     *               otherwise each operation that can be applied is
+     * @return Result of each operation, in request order
+     */
+    List<BatchOperationResultDTO> processBatch(List<? extends CashOperationRequest> requests, boolean atomic);
 }
@@ -0,0 +1,17 @@
+package com.fibank.cashdesk.service;
+
+import com.fibank.cashdesk.dto.response.CashierBalanceDTO;
+
+/**
+ * Service interface for managing cashiers.
+ */
+public interface CashierService {
+
+    /**
+     * Add a cashier at runtime with the configured opening balances.
+     * @param name Cashier name, case-insensitive
+     * @return Opening balances of the new cashier
+     * @throws com.fibank.cashdesk.exception.CashierAlreadyExistsException if the cashier already exists
+     */
+    CashierBalanceDTO addCashier(String name);
+}
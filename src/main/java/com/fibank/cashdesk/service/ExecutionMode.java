@@ -0,0 +1,17 @@
+package com.fibank.cashdesk.service;
+
+/**
+ * How cash operations are executed against the balances.
+ */
+public enum ExecutionMode {
+    /**
+     * Operations run on the request thread under the lock of the cashier's currency balance.
+     */
+    LOCKED,
+
+    /**
+     * Operations are queued in the mailbox of their cashier and applied in order by its single owner thread,
+     * which saves consecutive operations together.
+     */
+    MAILBOX
+}
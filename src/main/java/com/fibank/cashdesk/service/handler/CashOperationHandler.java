@@ -1,10 +1,9 @@
 package com.fibank.cashdesk.service.handler;
 
 import com.fibank.cashdesk.model.CashBalance;
-import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.Money;
 import com.fibank.cashdesk.model.OperationType;
 
-import java.math.BigDecimal;
 import java.util.Map;
 
 /**
@@ -20,10 +19,9 @@ public interface CashOperationHandler {
 
     /**
      * Handle the cash operation.
-     * @param balance Current cash balance
-     * @param currency Operation currency
+     * @param balance Current cash balance, in the amount currency
      * @param amount Operation amount
      * @param denominations Denominations involved
      */
-    void handle(CashBalance balance, Currency currency, BigDecimal amount, Map<Integer, Integer> denominations);
+    void handle(CashBalance balance, Money amount, Map<Integer, Integer> denominations);
 }
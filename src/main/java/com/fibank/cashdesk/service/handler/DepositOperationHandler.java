@@ -1,13 +1,12 @@
 package com.fibank.cashdesk.service.handler;
 
 import com.fibank.cashdesk.model.CashBalance;
-import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.Money;
 import com.fibank.cashdesk.model.OperationType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.util.Map;
 
 /**
@@ -24,11 +23,11 @@ public class DepositOperationHandler implements CashOperationHandler {
     }
 
     @Override
-    public void handle(CashBalance balance, Currency currency, BigDecimal amount, Map<Integer, Integer> denominations) {
-        CashBalance.validateDenominationSum(denominations, amount);
-        currency.validateDenominations(denominations);
-        balance.addDenominations(denominations);
+    public void handle(CashBalance balance, Money amount, Map<Integer, Integer> denominations) {
+        int[] counts = amount.getCurrency().toCounts(denominations);
+        CashBalance.validateDenominationSum(counts, amount);
+        balance.addCounts(counts);
 
-        log.debug("Deposit processed: {} {} with denominations {}", amount, currency, denominations);
+        log.debug("Deposit processed: {} with denominations {}", amount, denominations);
     }
 }
@@ -2,13 +2,12 @@ package com.fibank.cashdesk.service.handler;
 
 import com.fibank.cashdesk.exception.InsufficientFundsException;
 import com.fibank.cashdesk.model.CashBalance;
-import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.Money;
 import com.fibank.cashdesk.model.OperationType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.util.Map;
 
 /**
@@ -25,20 +24,19 @@ public class WithdrawalOperationHandler implements CashOperationHandler {
     }
 
     @Override
-    public void handle(CashBalance balance, Currency currency, BigDecimal amount, Map<Integer, Integer> denominations) {
-        CashBalance.validateDenominationSum(denominations, amount);
-        currency.validateDenominations(denominations);
+    public void handle(CashBalance balance, Money amount, Map<Integer, Integer> denominations) {
+        int[] counts = amount.getCurrency().toCounts(denominations);
+        CashBalance.validateDenominationSum(counts, amount);
 
-        if (!balance.hasSufficientDenominations(denominations)) {
-            BigDecimal currentTotal = balance.calculateTotal();
+        if (!balance.hasSufficientCounts(counts)) {
             throw new InsufficientFundsException(
-                String.format("Insufficient funds for withdrawal. Requested: %s %s, Available: %s %s",
-                    amount, currency, currentTotal, currency)
+                String.format("Insufficient funds for withdrawal. Requested: %s, Available: %s",
+                    amount, balance.getTotalAmount())
             );
         }
 
-        balance.removeDenominations(denominations);
+        balance.removeCounts(counts);
 
-        log.debug("Withdrawal processed: {} {} with denominations {}", amount, currency, denominations);
+        log.debug("Withdrawal processed: {} with denominations {}", amount, denominations);
     }
 }
@@ -1,6 +1,9 @@
 package com.fibank.cashdesk.service.impl;
 
 import com.fibank.cashdesk.exception.FileStorageException;
+import com.fibank.cashdesk.repository.SegmentManifest;
+import com.fibank.cashdesk.repository.TransactionFormat;
+import com.fibank.cashdesk.repository.TransactionLogConverter;
 import com.fibank.cashdesk.service.BackupService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,15 +28,21 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 /**
  * Implementation of BackupService for file-based backup and recovery.
  * Supports scheduled backups, compression, and retention policies.
+ * Sealed transaction log segments never change, so they are copied once into a shared segment store
+ * ({@code segments/} in the backup directory) and each backup only lists the segments it includes;
+ * the active log and balances are copied into every backup.
  */
 @Service
 @ConditionalOnProperty(prefix = "cashdesk.backup", name = "enabled", havingValue = "true", matchIfMissing = true)
@@ -41,10 +50,18 @@ public class BackupServiceImpl implements BackupService {
 
     private static final Logger log = LoggerFactory.getLogger(BackupServiceImpl.class);
     private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmssSSS");
+    private static final String SEGMENT_STORE = "segments";
+    private static final String SEGMENT_LIST = "segments.txt";
 
     @Value("${cashdesk.storage.transaction-file}")
     private String transactionFilePath;
 
+    @Value("${cashdesk.storage.binary-transaction-file:}")
+    private String binaryTransactionFilePath;
+
+    @Value("${cashdesk.storage.format:TEXT}")
+    private TransactionFormat transactionFormat = TransactionFormat.TEXT;
+
     @Value("${cashdesk.storage.balance-file}")
     private String balanceFilePath;
 
@@ -88,7 +105,8 @@ public class BackupServiceImpl implements BackupService {
         Files.createDirectories(backupPath);
 
         try {
-            backupFile(Paths.get(transactionFilePath), backupPath.resolve("transactions.txt"));
+            backupFile(getTransactionLogFile(), backupPath.resolve(transactionBackupName(transactionFormat)));
+            backupSegments(backupPath);
             backupFile(Paths.get(balanceFilePath), backupPath.resolve("balances.txt"));
             createMetadataFile(backupPath);
 
@@ -128,7 +146,8 @@ public class BackupServiceImpl implements BackupService {
         }
 
         try {
-            restoreFile(backupPath.resolve("transactions.txt"), Paths.get(transactionFilePath));
+            restoreTransactionLog(backupPath);
+            restoreSegments(backupPath);
             restoreFile(backupPath.resolve("balances.txt"), Paths.get(balanceFilePath));
 
             log.info("Restore completed successfully from: {}", backupPath);
@@ -195,6 +214,9 @@ public class BackupServiceImpl implements BackupService {
             }
         }
 
+        if (deleted > 0) {
+            pruneSegmentStore();
+        }
         return deleted;
     }
 
@@ -210,7 +232,7 @@ public class BackupServiceImpl implements BackupService {
             return false;
         }
 
-        Path transactionBackup = backupPath.resolve("transactions.txt");
+        Path transactionBackup = backupPath.resolve(transactionBackupName(backupTransactionFormat(backupPath)));
         Path balanceBackup = backupPath.resolve("balances.txt");
         Path metadataFile = backupPath.resolve("metadata.txt");
 
@@ -219,9 +241,23 @@ public class BackupServiceImpl implements BackupService {
             balanceBackup = Paths.get(balanceBackup.toString() + ".gz");
         }
 
-        return Files.exists(transactionBackup) &&
-               Files.exists(balanceBackup) &&
-               Files.exists(metadataFile);
+        if (!Files.exists(transactionBackup) || !Files.exists(balanceBackup) || !Files.exists(metadataFile)) {
+            return false;
+        }
+
+        try {
+            Path store = backupPath.getParent().resolve(SEGMENT_STORE);
+            for (String storedName : readSegmentList(backupPath)) {
+                if (!Files.exists(storedFile(store.resolve(storedName)))) {
+                    log.warn("Backup {} references missing segment {}", backupPath.getFileName(), storedName);
+                    return false;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read segment list of backup {}: {}", backupPath.getFileName(), e.getMessage());
+            return false;
+        }
+        return true;
     }
 
     private void backupFile(Path source, Path destination) throws IOException {
@@ -281,6 +317,153 @@ public class BackupServiceImpl implements BackupService {
         }
     }
 
+    /**
+     * Restore the transaction log, converting it when the backup was taken in another storage format.
+     */
+    private void restoreTransactionLog(Path backupPath) throws IOException {
+        TransactionFormat backupFormat = backupTransactionFormat(backupPath);
+        restoreLogFile(backupPath.resolve(transactionBackupName(backupFormat)), backupFormat, getTransactionLogFile());
+    }
+
+    private void restoreLogFile(Path source, TransactionFormat sourceFormat, Path logFile) throws IOException {
+        if (sourceFormat == transactionFormat) {
+            restoreFile(source, logFile);
+            return;
+        }
+
+        Path staging = logFile.resolveSibling(logFile.getFileName() + ".restore");
+        try {
+            restoreFile(source, staging);
+            TransactionLogConverter.convert(staging, sourceFormat, logFile, transactionFormat);
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+    }
+
+    /**
+     * Copy sealed segments that are not in the segment store yet and record the backup's segment list.
+     * Stored names carry a checksum, so a segment re-created under the same name after a restore is stored anew.
+     */
+    private void backupSegments(Path backupPath) throws IOException {
+        List<Path> segments = SegmentManifest.listSealedSegments(getTransactionLogFile());
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        Path store = backupPath.getParent().resolve(SEGMENT_STORE);
+        Files.createDirectories(store);
+
+        List<String> storedNames = new ArrayList<>();
+        int copied = 0;
+        for (Path segment : segments) {
+            String storedName = segment.getFileName() + "." + checksum(segment);
+            Path stored = store.resolve(storedName);
+            if (!Files.exists(storedFile(stored))) {
+                Path partial = store.resolve(storedName + ".partial");
+                backupFile(segment, partial);
+                Files.move(storedFile(partial), storedFile(stored), StandardCopyOption.ATOMIC_MOVE);
+                copied++;
+            }
+            storedNames.add(storedName);
+        }
+
+        Files.write(backupPath.resolve(SEGMENT_LIST), storedNames);
+        log.debug("Backed up {} segment(s), {} newly copied to the segment store", storedNames.size(), copied);
+    }
+
+    /**
+     * Replace the sealed segments with those listed in the backup.
+     * The segment manifest is removed; the transaction repository rebuilds it from the segment files.
+     */
+    private void restoreSegments(Path backupPath) throws IOException {
+        Path logFile = getTransactionLogFile();
+        for (Path segment : SegmentManifest.listSealedSegments(logFile)) {
+            Files.delete(segment);
+        }
+        Files.deleteIfExists(SegmentManifest.manifestPath(logFile));
+
+        TransactionFormat backupFormat = backupTransactionFormat(backupPath);
+        Path backupFormatLog = backupFormat.resolveLogFile(transactionFilePath, binaryTransactionFilePath);
+        Path store = backupPath.getParent().resolve(SEGMENT_STORE);
+        for (String storedName : readSegmentList(backupPath)) {
+            Path segmentName = Paths.get(storedName.substring(0, storedName.lastIndexOf('.')));
+            long sequence = SegmentManifest.sequenceOf(backupFormatLog, segmentName);
+            restoreLogFile(store.resolve(storedName), backupFormat, SegmentManifest.sealedSegmentPath(logFile, sequence));
+        }
+    }
+
+    /**
+     * Delete stored segments that no remaining backup refers to.
+     */
+    private void pruneSegmentStore() {
+        Path store = Paths.get(backupDirectory).resolve(SEGMENT_STORE);
+        if (!Files.isDirectory(store)) {
+            return;
+        }
+
+        try {
+            Set<String> referenced = new HashSet<>();
+            for (Path backup : listBackups()) {
+                referenced.addAll(readSegmentList(backup));
+            }
+
+            try (Stream<Path> stream = Files.list(store)) {
+                for (Path stored : stream.collect(Collectors.toList())) {
+                    String name = stored.getFileName().toString();
+                    String storedName = name.endsWith(".gz") ? name.substring(0, name.length() - 3) : name;
+                    if (!referenced.contains(storedName)) {
+                        Files.delete(stored);
+                        log.info("Deleted unreferenced segment from backup store: {}", name);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to prune backup segment store: {}", e.getMessage());
+        }
+    }
+
+    private List<String> readSegmentList(Path backupPath) throws IOException {
+        Path segmentList = backupPath.resolve(SEGMENT_LIST);
+        if (!Files.exists(segmentList)) {
+            return new ArrayList<>();
+        }
+        return Files.readAllLines(segmentList).stream()
+                .filter(line -> !line.isBlank())
+                .collect(Collectors.toList());
+    }
+
+    private Path storedFile(Path path) {
+        return compressionEnabled ? Paths.get(path.toString() + ".gz") : path;
+    }
+
+    private String checksum(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, len);
+            }
+        }
+        return String.format("%08x", crc.getValue());
+    }
+
+    private TransactionFormat backupTransactionFormat(Path backupPath) {
+        Path binaryBackup = backupPath.resolve(transactionBackupName(TransactionFormat.BINARY));
+        if (compressionEnabled) {
+            binaryBackup = Paths.get(binaryBackup.toString() + ".gz");
+        }
+        return Files.exists(binaryBackup) ? TransactionFormat.BINARY : TransactionFormat.TEXT;
+    }
+
+    private String transactionBackupName(TransactionFormat format) {
+        return format == TransactionFormat.BINARY ? "transactions.dat" : "transactions.txt";
+    }
+
+    private Path getTransactionLogFile() {
+        return transactionFormat.resolveLogFile(transactionFilePath, binaryTransactionFilePath);
+    }
+
     private void createMetadataFile(Path backupPath) throws IOException {
         Path metadataFile = backupPath.resolve("metadata.txt");
         try (BufferedWriter writer = Files.newBufferedWriter(metadataFile)) {
@@ -288,7 +471,8 @@ public class BackupServiceImpl implements BackupService {
             writer.write("================\n");
             writer.write("Timestamp: " + LocalDateTime.now() + "\n");
             writer.write("Compression: " + compressionEnabled + "\n");
-            writer.write("Transaction file: " + transactionFilePath + "\n");
+            writer.write("Transaction file: " + getTransactionLogFile() + "\n");
+            writer.write("Transaction format: " + transactionFormat + "\n");
             writer.write("Balance file: " + balanceFilePath + "\n");
         }
     }
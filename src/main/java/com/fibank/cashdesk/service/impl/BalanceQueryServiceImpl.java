@@ -6,8 +6,9 @@ import com.fibank.cashdesk.dto.response.CurrencyBalanceDTO;
 import com.fibank.cashdesk.dto.response.PeriodSummaryDTO;
 import com.fibank.cashdesk.dto.response.TransactionDTO;
 import com.fibank.cashdesk.exception.InvalidDateRangeException;
-import com.fibank.cashdesk.model.CashBalance;
+import com.fibank.cashdesk.model.BalanceSnapshot;
 import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.Money;
 import com.fibank.cashdesk.model.OperationType;
 import com.fibank.cashdesk.model.Transaction;
 import com.fibank.cashdesk.repository.BalanceRepository;
@@ -16,10 +17,8 @@ import com.fibank.cashdesk.service.BalanceQueryService;
 import com.fibank.cashdesk.util.MdcUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -43,15 +42,6 @@ public class BalanceQueryServiceImpl implements BalanceQueryService {
     private final BalanceRepository balanceRepository;
     private final TransactionRepository transactionRepository;
 
-    @Value("#{'${cashdesk.cashiers.names}'.split(',')}")
-    private List<String> allCashiers;
-
-    @Value("${cashdesk.initial.bgn:1000}")
-    private BigDecimal initialBgn;
-
-    @Value("${cashdesk.initial.eur:2000}")
-    private BigDecimal initialEur;
-
     public BalanceQueryServiceImpl(
         BalanceRepository balanceRepository,
         TransactionRepository transactionRepository
@@ -62,9 +52,7 @@ public class BalanceQueryServiceImpl implements BalanceQueryService {
 
     @Override
     public BalanceQueryResponse queryBalance(Instant dateFrom, Instant dateTo, String cashier) {
-        if (dateFrom != null && dateTo != null && dateFrom.isAfter(dateTo)) {
-            throw new InvalidDateRangeException("dateFrom must be before or equal to dateTo");
-        }
+        validateRange(dateFrom, dateTo);
 
         if (cashier != null) {
             MdcUtil.setCashier(cashier.toUpperCase());
@@ -72,7 +60,7 @@ public class BalanceQueryServiceImpl implements BalanceQueryService {
 
         List<String> cashiersToQuery = (cashier != null)
             ? List.of(cashier.toUpperCase())
-            : allCashiers;
+            : balanceRepository.findCashiers();
 
         List<CashierBalanceDTO> cashierBalances = new ArrayList<>();
 
@@ -81,12 +69,12 @@ public class BalanceQueryServiceImpl implements BalanceQueryService {
                 List<PeriodSummaryDTO> periodSummaries = calculatePeriodSummary(cashierName, dateFrom, dateTo);
                 cashierBalances.add(new CashierBalanceDTO(cashierName, periodSummaries, true));
             } else {
-                Map<Currency, CashBalance> balances = balanceRepository.findByCashier(cashierName);
-                List<CurrencyBalanceDTO> currencyBalances = balances.entrySet().stream()
-                    .map(entry -> new CurrencyBalanceDTO(
-                        entry.getKey().name(),
-                        entry.getValue().calculateTotal(),
-                        entry.getValue().getDenominations()
+                BalanceSnapshot balances = balanceRepository.findSnapshot(cashierName);
+                List<CurrencyBalanceDTO> currencyBalances = balances.getCurrencies().stream()
+                    .map(currency -> new CurrencyBalanceDTO(
+                        currency.name(),
+                        balances.getTotal(currency),
+                        balances.getDenominations(currency)
                     ))
                     .sorted(Comparator.comparing(CurrencyBalanceDTO::getCurrency))
                     .collect(Collectors.toList());
@@ -100,6 +88,27 @@ public class BalanceQueryServiceImpl implements BalanceQueryService {
         return new BalanceQueryResponse(cashierBalances);
     }
 
+    @Override
+    public long getBalanceVersion(Instant dateFrom, Instant dateTo, String cashier) {
+        validateRange(dateFrom, dateTo);
+
+        if (cashier != null) {
+            return balanceRepository.findSnapshot(cashier.toUpperCase()).getVersion();
+        }
+        // Each cashier's version only increases, so the sum changes whenever any of them does
+        long version = 0;
+        for (String cashierName : balanceRepository.findCashiers()) {
+            version += balanceRepository.findSnapshot(cashierName).getVersion();
+        }
+        return version;
+    }
+
+    private static void validateRange(Instant dateFrom, Instant dateTo) {
+        if (dateFrom != null && dateTo != null && dateFrom.isAfter(dateTo)) {
+            throw new InvalidDateRangeException("dateFrom must be before or equal to dateTo");
+        }
+    }
+
     /**
      * Calculate period summary with starting balance, ending balance, net change, and transactions.
      *
@@ -114,34 +123,29 @@ public class BalanceQueryServiceImpl implements BalanceQueryService {
         log.debug("calculatePeriodSummary: cashier={}, from={}, to={}", cashier, from, to);
 
         for (Currency currency : Currency.values()) {
-            Map<Integer, Integer> startingDenominations = calculateBalanceAtDate(cashier, currency, from);
-            BigDecimal startingTotal = calculateTotalFromDenominations(startingDenominations);
+            int[] startingCounts = calculateBalanceAtDate(cashier, currency, from);
+            Money startingTotal = totalOf(currency, startingCounts);
 
             List<Transaction> periodTransactions = transactionRepository
-                .findByCashierAndDateRange(cashier, from, to)
-                .stream()
-                .filter(txn -> txn.getCurrency() == currency)
-                .sorted(Comparator.comparing(Transaction::getTimestamp))
-                .collect(Collectors.toList());
+                .findByCashierAndCurrencyAndDateRange(cashier, currency, from, to);
 
             log.debug("Currency {}: found {} transactions in period", currency, periodTransactions.size());
             periodTransactions.forEach(txn -> log.debug("  Transaction: {}", txn));
 
-            Map<Integer, Integer> endingDenominations = new HashMap<>(startingDenominations);
-            BigDecimal netChange = BigDecimal.ZERO;
+            int[] endingCounts = startingCounts.clone();
+            Money netChange = Money.zero(currency);
 
             for (Transaction txn : periodTransactions) {
-                Map<Integer, Integer> txnDenoms = txn.getDenominations();
                 if (txn.getOperationType() == OperationType.DEPOSIT) {
-                    addDenominations(endingDenominations, txnDenoms);
-                    netChange = netChange.add(txn.getAmount());
+                    applyCounts(endingCounts, txn, 1);
+                    netChange = netChange.plus(txn.getMoney());
                 } else {
-                    subtractDenominations(endingDenominations, txnDenoms);
-                    netChange = netChange.subtract(txn.getAmount());
+                    applyCounts(endingCounts, txn, -1);
+                    netChange = netChange.minus(txn.getMoney());
                 }
             }
 
-            BigDecimal endingTotal = calculateTotalFromDenominations(endingDenominations);
+            Money endingTotal = totalOf(currency, endingCounts);
 
             List<TransactionDTO> transactionDTOs = periodTransactions.stream()
                 .map(txn -> new TransactionDTO(
@@ -156,11 +160,11 @@ public class BalanceQueryServiceImpl implements BalanceQueryService {
 
             summaries.add(new PeriodSummaryDTO(
                 currency.name(),
-                startingTotal,
-                startingDenominations,
-                endingTotal,
-                endingDenominations,
-                netChange,
+                startingTotal.toBigDecimal(),
+                toDenominations(currency, startingCounts),
+                endingTotal.toBigDecimal(),
+                toDenominations(currency, endingCounts),
+                netChange.toBigDecimal(),
                 transactionDTOs
             ));
         }
@@ -179,73 +183,52 @@ public class BalanceQueryServiceImpl implements BalanceQueryService {
      * @param cashier Cashier name
      * @param currency Currency
      * @param date Date to calculate balance before (or null for initial)
-     * @return Denominations strictly before the specified date
+     * @return Counts strictly before the specified date, indexed by the currency's denomination table
      */
-    private Map<Integer, Integer> calculateBalanceAtDate(String cashier, Currency currency, Instant date) {
+    private int[] calculateBalanceAtDate(String cashier, Currency currency, Instant date) {
         if (date == null) {
             log.debug("calculateBalanceAtDate: date is null, returning initial balance for {}", currency);
-            return getInitialDenominations(currency);
+            return currency.getInitialCounts();
         }
 
-        Map<Integer, Integer> balance = new HashMap<>(getInitialDenominations(currency));
+        int[] balance = currency.getInitialCounts();
 
         List<Transaction> transactionsBeforeDate = transactionRepository
-            .findByCashierAndDateRange(cashier, null, null)
+            .findByCashierAndCurrencyAndDateRange(cashier, currency, null, date)
             .stream()
-            .filter(txn -> txn.getCurrency() == currency)
             .filter(txn -> txn.getTimestamp().isBefore(date))
-            .sorted(Comparator.comparing(Transaction::getTimestamp))
             .collect(Collectors.toList());
 
         log.debug("calculateBalanceAtDate: cashier={}, currency={}, date={}, found {} txns before date",
             cashier, currency, date, transactionsBeforeDate.size());
 
         for (Transaction txn : transactionsBeforeDate) {
-            if (txn.getOperationType() == OperationType.DEPOSIT) {
-                addDenominations(balance, txn.getDenominations());
-            } else {
-                subtractDenominations(balance, txn.getDenominations());
-            }
+            applyCounts(balance, txn, txn.getOperationType() == OperationType.DEPOSIT ? 1 : -1);
         }
 
         return balance;
     }
 
     /**
-     * Get initial denominations for a currency based on CLAUDE.md specifications.
+     * Add (sign 1) or subtract (sign -1) the denominations of a transaction; counts may go negative.
      */
-    private Map<Integer, Integer> getInitialDenominations(Currency currency) {
-        Map<Integer, Integer> initial = new HashMap<>();
-
-        if (currency == Currency.BGN) {
-            initial.put(10, 50);
-            initial.put(50, 10);
-        } else {
-            initial.put(10, 100);
-            initial.put(20, 0);
-            initial.put(50, 20);
+    private void applyCounts(int[] balance, Transaction txn, int sign) {
+        Currency currency = txn.getCurrency();
+        for (Map.Entry<Integer, Integer> entry : txn.getDenominations().entrySet()) {
+            int index = currency.indexOf(entry.getKey());
+            balance[index] = Math.addExact(balance[index], sign * entry.getValue());
         }
-
-        return initial;
     }
 
-    private void addDenominations(Map<Integer, Integer> balance, Map<Integer, Integer> toAdd) {
-        for (Map.Entry<Integer, Integer> entry : toAdd.entrySet()) {
-            balance.merge(entry.getKey(), entry.getValue(), Integer::sum);
-        }
+    private Money totalOf(Currency currency, int[] counts) {
+        return Money.ofUnits(currency, currency.totalOf(counts));
     }
 
-    private void subtractDenominations(Map<Integer, Integer> balance, Map<Integer, Integer> toSubtract) {
-        for (Map.Entry<Integer, Integer> entry : toSubtract.entrySet()) {
-            int current = balance.getOrDefault(entry.getKey(), 0);
-            balance.put(entry.getKey(), current - entry.getValue());
+    private Map<Integer, Integer> toDenominations(Currency currency, int[] counts) {
+        Map<Integer, Integer> denominations = new HashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            denominations.put(currency.denominationAt(i), counts[i]);
         }
-    }
-
-    private BigDecimal calculateTotalFromDenominations(Map<Integer, Integer> denominations) {
-        return denominations.entrySet().stream()
-            .map(entry -> BigDecimal.valueOf(entry.getKey())
-                .multiply(BigDecimal.valueOf(entry.getValue())))
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return denominations;
     }
 }
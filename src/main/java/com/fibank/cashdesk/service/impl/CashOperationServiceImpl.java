@@ -1,29 +1,50 @@
 package com.fibank.cashdesk.service.impl;
 
+import com.fibank.cashdesk.config.OperationExecutorConfig;
 import com.fibank.cashdesk.dto.request.CashOperationRequest;
+import com.fibank.cashdesk.dto.response.BatchOperationResultDTO;
 import com.fibank.cashdesk.dto.response.CashOperationResponse;
+import com.fibank.cashdesk.exception.BalanceVersionMismatchException;
+import com.fibank.cashdesk.exception.DataCorruptionException;
+import com.fibank.cashdesk.exception.FileStorageException;
 import com.fibank.cashdesk.exception.InvalidCashierException;
 import com.fibank.cashdesk.model.CashBalance;
 import com.fibank.cashdesk.model.Cashier;
 import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.Money;
 import com.fibank.cashdesk.model.OperationType;
 import com.fibank.cashdesk.model.Transaction;
 import com.fibank.cashdesk.repository.BalanceRepository;
+import com.fibank.cashdesk.repository.BalanceUpdate;
 import com.fibank.cashdesk.repository.TransactionRepository;
 import com.fibank.cashdesk.service.CashOperationService;
+import com.fibank.cashdesk.service.ExecutionMode;
 import com.fibank.cashdesk.service.handler.CashOperationHandler;
+import com.fibank.cashdesk.service.mailbox.CashierMailboxes;
 import com.fibank.cashdesk.util.MdcUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * Implementation of CashOperationService.
  * Coordinates transaction processing with atomicity and rollback support.
+ * In {@link ExecutionMode#MAILBOX} mode operations are applied by the owner thread of their cashier's mailbox,
+ * which queues the transactions of consecutive operations on the log together.
+ * Asynchronous operations complete on the completion executor, never on the thread that committed their transaction.
  */
 @Service
 public class CashOperationServiceImpl implements CashOperationService {
@@ -33,14 +54,55 @@ public class CashOperationServiceImpl implements CashOperationService {
     private final TransactionRepository transactionRepository;
     private final BalanceRepository balanceRepository;
     private final Map<OperationType, CashOperationHandler> handlers;
+    private final Executor completionExecutor;
+
+    @Value("${cashdesk.operations.execution:LOCKED}")
+    private ExecutionMode executionMode = ExecutionMode.LOCKED;
+
+    @Value("${cashdesk.operations.mailbox.capacity:1024}")
+    private int mailboxCapacity = 1024;
+
+    @Value("${cashdesk.operations.mailbox.max-batch-size:64}")
+    private int mailboxBatchSize = 64;
+
+    @Value("${cashdesk.operations.mailbox.idle-timeout-ms:30000}")
+    private long mailboxIdleTimeoutMillis = 30000;
+
+    private volatile CashierMailboxes<Operation, Transaction> mailboxes;
+
+    /**
+     * Validated operation on one cashier's currency balance.
+     */
+    private static final class Operation {
+        private final String cashier;
+        private final OperationType type;
+        private final Currency currency;
+        private final Money amount;
+        private final Map<Integer, Integer> denominations;
+        private final CashOperationHandler handler;
+        private final Long expectedVersion; // Latest balance version the operation may apply to, null for any
+
+        Operation(String cashier, OperationType type, Currency currency, Money amount,
+                  Map<Integer, Integer> denominations, CashOperationHandler handler, Long expectedVersion) {
+            this.cashier = cashier;
+            this.type = type;
+            this.currency = currency;
+            this.amount = amount;
+            this.denominations = denominations;
+            this.handler = handler;
+            this.expectedVersion = expectedVersion;
+        }
+    }
 
     public CashOperationServiceImpl(
         TransactionRepository transactionRepository,
         BalanceRepository balanceRepository,
-        List<CashOperationHandler> handlerList
+        List<CashOperationHandler> handlerList,
+        @Qualifier(OperationExecutorConfig.COMPLETION_EXECUTOR) Executor completionExecutor
     ) {
         this.transactionRepository = transactionRepository;
         this.balanceRepository = balanceRepository;
+        this.completionExecutor = completionExecutor;
         this.handlers = handlerList.stream()
             .collect(Collectors.toMap(
                 CashOperationHandler::getOperationType,
@@ -48,8 +110,161 @@ public class CashOperationServiceImpl implements CashOperationService {
             ));
     }
 
+    @PostConstruct
+    public void initialize() {
+        close();
+        if (executionMode == ExecutionMode.MAILBOX) {
+            mailboxes = new CashierMailboxes<>(this::applyBatch, mailboxCapacity, mailboxBatchSize, mailboxIdleTimeoutMillis);
+            log.info("Cash operations run in cashier mailboxes (capacity {}, batch size {})",
+                mailboxCapacity, mailboxBatchSize);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        CashierMailboxes<Operation, Transaction> current = mailboxes;
+        if (current != null) {
+            current.close();
+            mailboxes = null;
+        }
+    }
+
     @Override
     public CashOperationResponse processOperation(CashOperationRequest request) {
+        Operation operation = parse(request, null);
+
+        setContext(operation, request);
+
+        CashierMailboxes<Operation, Transaction> current = mailboxes;
+        Transaction transaction = current != null
+            ? await(current.submit(operation.cashier, operation))
+            : applyAndSave(operation);
+
+        return completed(operation, transaction);
+    }
+
+    @Override
+    public CompletableFuture<CashOperationResponse> processOperationAsync(CashOperationRequest request,
+                                                                          Long expectedVersion) {
+        Operation operation;
+        CompletableFuture<Transaction> applied;
+        try {
+            operation = parse(request, expectedVersion);
+            setContext(operation, request);
+            if (expectedVersion != null) {
+                // Checked again under the balance lock; a stale version is rejected here without waiting for it
+                checkVersion(operation, balanceRepository.findSnapshot(operation.cashier).getVersion());
+            }
+
+            CashierMailboxes<Operation, Transaction> current = mailboxes;
+            applied = current != null
+                ? current.submit(operation.cashier, operation)
+                : applyAndSaveAsync(operation);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        Map<String, String> context = MdcUtil.getContext();
+        return applied.thenApplyAsync(transaction ->
+            MdcUtil.callWithContext(context, () -> completed(operation, transaction)), completionExecutor);
+    }
+
+    @Override
+    public List<BatchOperationResultDTO> processBatch(List<? extends CashOperationRequest> requests, boolean atomic) {
+        BatchOperationResultDTO[] results = new BatchOperationResultDTO[requests.size()];
+        List<Operation> operations = new ArrayList<>(requests.size());
+        List<BalanceUpdate> updates = new ArrayList<>(requests.size());
+        List<Integer> positions = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                Operation operation = parse(requests.get(i), null);
+                operations.add(operation);
+                updates.add(new BalanceUpdate(operation.cashier, operation.currency, mutatorOf(operation)));
+                positions.add(i);
+            } catch (RuntimeException e) {
+                results[i] = failed(e);
+            }
+        }
+
+        boolean rejected = atomic && updates.size() < requests.size();
+        if (!rejected && !updates.isEmpty()) {
+            try {
+                // One unit under the locks of every touched balance, persisted once
+                balanceRepository.updateAll(updates, atomic);
+            } catch (RuntimeException e) {
+                // An operation rejected by its handler, or whose append failed, aborts an atomic batch;
+                // anything else is a storage failure
+                if (!atomic || updates.stream().noneMatch(update -> update.getFailure() == e)) {
+                    throw e;
+                }
+                rejected = true;
+            }
+        }
+
+        List<CompletableFuture<Void>> saved = new ArrayList<>(updates.size());
+        // With log-sourced or written-behind balances, the batch update already appended the transactions
+        boolean save = !rejected && !balanceRepository.appendsTransactions();
+        for (BalanceUpdate update : updates) {
+            // Queued back to back, so the whole batch shares one log commit
+            saved.add(save && update.isApplied() ? saveAsync(update.getTransaction()) : null);
+        }
+
+        RuntimeException[] saveFailures = new RuntimeException[updates.size()];
+        RuntimeException firstSaveFailure = null;
+        for (int j = 0; j < updates.size(); j++) {
+            try {
+                if (saved.get(j) != null) {
+                    await(saved.get(j));
+                }
+            } catch (RuntimeException e) {
+                saveFailures[j] = e;
+                firstSaveFailure = firstSaveFailure != null ? firstSaveFailure : e;
+            }
+        }
+        if (atomic && firstSaveFailure != null) {
+            // A failed save aborts an atomic batch: every applied operation is reversed, not only the failed ones
+            log.error("Atomic batch failed, rolling back balances", firstSaveFailure);
+            List<Operation> applied = new ArrayList<>();
+            for (int j = 0; j < updates.size(); j++) {
+                if (updates.get(j).isApplied()) {
+                    applied.add(operations.get(j));
+                }
+            }
+            rollbackAll(applied, firstSaveFailure);
+        }
+
+        for (int j = 0; j < updates.size(); j++) {
+            BalanceUpdate update = updates.get(j);
+            int i = positions.get(j);
+            if (update.getFailure() != null) {
+                results[i] = failed(update.getFailure());
+            } else if (!update.isApplied()) {
+                results[i] = notApplied();
+            } else if (saveFailures[j] != null) {
+                if (!atomic) {
+                    log.error("Operation failed, rolling back balance", saveFailures[j]);
+                    rollback(operations.get(j), saveFailures[j]);
+                }
+                results[i] = failed(saveFailures[j]);
+            } else if (firstSaveFailure != null && atomic) {
+                results[i] = notApplied();
+            } else {
+                results[i] = new BatchOperationResultDTO(BatchOperationResultDTO.APPLIED,
+                    toResponse(update.getTransaction()), null);
+            }
+        }
+
+        log.info("Processed {} batch of {} cash operations", atomic ? "atomic" : "best-effort", requests.size());
+        return List.of(results);
+    }
+
+    /**
+     * Validate a request into an operation.
+     * @param expectedVersion Latest version of the balance the operation may apply to, or null for any
+     * @throws InvalidCashierException if the cashier is not registered
+     * @throws IllegalArgumentException if the operation type, currency or amount is invalid
+     */
+    private Operation parse(CashOperationRequest request, Long expectedVersion) {
         String cashierName = request.getCashier().toUpperCase();
         if (!Cashier.isValid(cashierName)) {
             throw new InvalidCashierException("Invalid cashier: " + cashierName);
@@ -57,70 +272,262 @@ public class CashOperationServiceImpl implements CashOperationService {
 
         OperationType operationType = OperationType.fromString(request.getOperationType());
         Currency currency = Currency.valueOf(request.getCurrency().toUpperCase());
-
-        MdcUtil.setCashier(cashierName);
-        MdcUtil.setOperationType(operationType.name());
-        MdcUtil.setCurrency(currency.name());
-        MdcUtil.setAmount(request.getAmount().toPlainString());
+        Money amount = Money.of(currency, request.getAmount());
 
         CashOperationHandler handler = handlers.get(operationType);
         if (handler == null) {
             throw new IllegalStateException("No handler found for operation type: " + operationType);
         }
+        return new Operation(cashierName, operationType, currency, amount, request.getDenominations(), handler,
+            expectedVersion);
+    }
+
+    /**
+     * @param version Current version of the cashier's balances
+     * @throws BalanceVersionMismatchException if the balances are not at the version the operation expects
+     */
+    private static void checkVersion(Operation operation, long version) {
+        if (operation.expectedVersion != null && version != operation.expectedVersion) {
+            throw new BalanceVersionMismatchException(String.format(
+                "Balances of cashier %s are not at version %d", operation.cashier, operation.expectedVersion));
+        }
+    }
+
+    private static BatchOperationResultDTO failed(RuntimeException e) {
+        // Storage details stay in the log, as for single operations
+        String error = e instanceof FileStorageException || e instanceof DataCorruptionException
+            ? "An error occurred while processing the operation"
+            : e.getMessage();
+        return new BatchOperationResultDTO(BatchOperationResultDTO.FAILED, null, error);
+    }
+
+    private static BatchOperationResultDTO notApplied() {
+        return new BatchOperationResultDTO(BatchOperationResultDTO.NOT_APPLIED, null,
+            "Not applied because another operation of the atomic batch failed");
+    }
+
+    private static void setContext(Operation operation, CashOperationRequest request) {
+        MdcUtil.setCashier(operation.cashier);
+        MdcUtil.setOperationType(operation.type.name());
+        MdcUtil.setCurrency(operation.currency.name());
+        MdcUtil.setAmount(request.getAmount().toPlainString());
+    }
+
+    private CashOperationResponse completed(Operation operation, Transaction transaction) {
+        MdcUtil.setTransactionId(transaction.getId());
+
+        log.info("Cash operation completed successfully: {} {} with denominations {}",
+            operation.type == OperationType.DEPOSIT ? "deposited" : "withdrew",
+            operation.amount,
+            formatDenominations(operation.denominations)
+        );
+
+        return toResponse(transaction);
+    }
+
+    private static CashOperationResponse toResponse(Transaction transaction) {
+        return new CashOperationResponse(
+            transaction.getId().toString(),
+            transaction.getTimestamp(),
+            transaction.getCashier(),
+            transaction.getOperationType().name(),
+            transaction.getCurrency().name(),
+            transaction.getAmount(),
+            transaction.getDenominations(),
+            String.format("%s successful", transaction.getOperationType())
+        );
+    }
+
+    private Transaction applyAndSave(Operation operation) {
+        Transaction transaction = apply(operation);
+        MdcUtil.setTransactionId(transaction.getId());
+
+        // With log-sourced or written-behind balances, the update already appended the transaction
+        if (!balanceRepository.appendsTransactions()) {
+            try {
+                transactionRepository.save(transaction);
+            } catch (Exception e) {
+                log.error("Operation failed, rolling back balance", e);
+                rollback(operation, e);
+                throw e;
+            }
+        }
+        return transaction;
+    }
 
-        Map<Currency, CashBalance> cashierBalances = balanceRepository.findByCashier(cashierName);
-        CashBalance balance = cashierBalances.get(currency);
+    /**
+     * Apply an operation on the calling thread and queue its transaction on the log without waiting for the commit.
+     * A failed save rolls the balance back on the completion executor. When the balance store appends transactions,
+     * the update has already waited for the commit under the balance lock: the log must hold each balance's
+     * transactions in the order they were applied, and log-sourced balances publish only committed changes.
+     */
+    private CompletableFuture<Transaction> applyAndSaveAsync(Operation operation) {
+        Transaction transaction = apply(operation);
+        MdcUtil.setTransactionId(transaction.getId());
 
-        if (balance == null) {
-            balance = new CashBalance(currency);
-            cashierBalances.put(currency, balance);
+        // With log-sourced or written-behind balances, the update already appended the transaction
+        if (balanceRepository.appendsTransactions()) {
+            return CompletableFuture.completedFuture(transaction);
         }
 
-        Map<Integer, Integer> originalDenominations = balance.getDenominations();
+        Map<String, String> context = MdcUtil.getContext();
+        return saveAsync(transaction).handleAsync((ignored, failure) -> {
+            if (failure == null) {
+                return transaction;
+            }
+            RuntimeException cause = unwrap(failure);
+            MdcUtil.callWithContext(context, () -> {
+                log.error("Operation failed, rolling back balance", cause);
+                rollback(operation, cause);
+                return null;
+            });
+            throw cause;
+        }, completionExecutor);
+    }
 
-        try {
-            handler.handle(balance, currency, request.getAmount(), request.getDenominations());
-
-            Transaction transaction = Transaction.create(
-                cashierName,
-                operationType,
-                currency,
-                request.getAmount(),
-                request.getDenominations()
-            );
+    /**
+     * Apply a batch of one cashier's operations on its mailbox owner thread.
+     * Balances are updated in order as one best-effort batch, persisted once; the transactions are then queued on
+     * the log back to back, so they share a commit.
+     */
+    private void applyBatch(String cashier, List<CashierMailboxes.Submission<Operation, Transaction>> batch) {
+        List<BalanceUpdate> updates = new ArrayList<>(batch.size());
+        for (CashierMailboxes.Submission<Operation, Transaction> submission : batch) {
+            Operation operation = submission.getCommand();
+            updates.add(new BalanceUpdate(operation.cashier, operation.currency, mutatorOf(operation)));
+        }
+        balanceRepository.updateAll(updates, false);
 
-            MdcUtil.setTransactionId(transaction.getId());
+        List<Transaction> applied = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            BalanceUpdate update = updates.get(i);
+            CashierMailboxes.Submission<Operation, Transaction> submission = batch.get(i);
+            if (update.isApplied()) {
+                applied.add(update.getTransaction());
+                continue;
+            }
+            applied.add(null);
+            submission.getResult().completeExceptionally(update.getFailure() != null
+                ? update.getFailure()
+                : new IllegalStateException("Operation was not applied"));
+        }
 
-            balanceRepository.save(cashierName, cashierBalances);
-            transactionRepository.save(transaction);
+        // With log-sourced or written-behind balances, the updates already appended the transactions
+        boolean save = !balanceRepository.appendsTransactions();
+        List<CompletableFuture<Void>> saved = new ArrayList<>(batch.size());
+        for (Transaction transaction : applied) {
+            saved.add(transaction != null && save ? saveAsync(transaction) : null);
+        }
 
-            log.info("Cash operation completed successfully: {} {} {} with denominations {}",
-                operationType == OperationType.DEPOSIT ? "deposited" : "withdrew",
-                request.getAmount(),
-                currency,
-                formatDenominations(request.getDenominations())
-            );
+        for (int i = 0; i < batch.size(); i++) {
+            Transaction transaction = applied.get(i);
+            if (transaction == null) {
+                continue;
+            }
+            CashierMailboxes.Submission<Operation, Transaction> submission = batch.get(i);
+            submission.restoreContext();
+            try {
+                if (saved.get(i) != null) {
+                    await(saved.get(i));
+                }
+                submission.getResult().complete(transaction);
+            } catch (RuntimeException e) {
+                log.error("Operation failed, rolling back balance", e);
+                rollback(submission.getCommand(), e);
+                submission.getResult().completeExceptionally(e);
+            }
+        }
+    }
 
-            return new CashOperationResponse(
-                transaction.getId().toString(),
-                transaction.getTimestamp(),
-                transaction.getCashier(),
-                transaction.getOperationType().name(),
-                transaction.getCurrency().name(),
-                transaction.getAmount(),
-                transaction.getDenominations(),
-                String.format("%s successful", operationType)
+    private CompletableFuture<Void> saveAsync(Transaction transaction) {
+        try {
+            return transactionRepository.saveAsync(transaction);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Validate and apply an operation under the lock of the cashier's currency balance only.
+     */
+    private Transaction apply(Operation operation) {
+        return balanceRepository.update(operation.cashier, operation.currency, mutatorOf(operation));
+    }
+
+    private static Function<CashBalance, Transaction> mutatorOf(Operation operation) {
+        return balance -> {
+            checkVersion(operation, balance.getVersion());
+            operation.handler.handle(balance, operation.amount, operation.denominations);
+            return Transaction.create(
+                operation.cashier,
+                operation.type,
+                operation.amount,
+                operation.denominations
             );
+        };
+    }
+
+    /**
+     * Reverse an applied operation whose transaction could not be saved.
+     * Reverses this operation only, keeping operations applied to the balance since.
+     */
+    private void rollback(Operation operation, Exception failure) {
+        try {
+            balanceRepository.update(operation.cashier, operation.currency, inverseOf(operation));
+        } catch (RuntimeException rollbackFailure) {
+            log.error("Failed to roll back balance of cashier {}", operation.cashier, rollbackFailure);
+            failure.addSuppressed(rollbackFailure);
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Operation failed, rolling back balance", e);
+    /**
+     * Reverse the applied operations of an aborted atomic batch together, under the locks of every touched balance.
+     */
+    private void rollbackAll(List<Operation> operations, Exception failure) {
+        List<BalanceUpdate> reversals = new ArrayList<>(operations.size());
+        for (Operation operation : operations) {
+            reversals.add(new BalanceUpdate(operation.cashier, operation.currency, inverseOf(operation)));
+        }
+        try {
+            balanceRepository.updateAll(reversals, false);
+        } catch (RuntimeException rollbackFailure) {
+            log.error("Failed to roll back balances of atomic batch", rollbackFailure);
+            failure.addSuppressed(rollbackFailure);
+            return;
+        }
+        for (BalanceUpdate reversal : reversals) {
+            if (reversal.getFailure() != null) {
+                log.error("Failed to roll back balance of cashier {}", reversal.getCashier(), reversal.getFailure());
+                failure.addSuppressed(reversal.getFailure());
+            }
+        }
+    }
 
-            for (Map.Entry<Integer, Integer> entry : originalDenominations.entrySet()) {
-                balance.setDenominationCount(entry.getKey(), entry.getValue());
+    private static Function<CashBalance, Transaction> inverseOf(Operation operation) {
+        return balance -> {
+            int[] counts = operation.currency.toCounts(operation.denominations);
+            if (operation.type == OperationType.DEPOSIT) {
+                balance.removeCounts(counts);
+            } else {
+                balance.addCounts(counts);
             }
+            return null;
+        };
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
 
-            throw e;
+    private static RuntimeException unwrap(Throwable failure) {
+        if (failure instanceof CompletionException && failure.getCause() instanceof RuntimeException cause) {
+            return cause;
         }
+        return failure instanceof RuntimeException runtimeException ? runtimeException : new CompletionException(failure);
     }
 
     private String formatDenominations(Map<Integer, Integer> denominations) {
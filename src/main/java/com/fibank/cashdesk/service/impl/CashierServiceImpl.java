@@ -0,0 +1,55 @@
+package com.fibank.cashdesk.service.impl;
+
+import com.fibank.cashdesk.dto.response.CashierBalanceDTO;
+import com.fibank.cashdesk.dto.response.CurrencyBalanceDTO;
+import com.fibank.cashdesk.exception.CashierAlreadyExistsException;
+import com.fibank.cashdesk.model.BalanceSnapshot;
+import com.fibank.cashdesk.repository.BalanceRepository;
+import com.fibank.cashdesk.service.CashierService;
+import com.fibank.cashdesk.util.MdcUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of CashierService.
+ * Cashiers are registered and persisted by the balance repository, so they survive a restart.
+ */
+@Service
+public class CashierServiceImpl implements CashierService {
+
+    private static final Logger log = LoggerFactory.getLogger(CashierServiceImpl.class);
+
+    private final BalanceRepository balanceRepository;
+
+    public CashierServiceImpl(BalanceRepository balanceRepository) {
+        this.balanceRepository = balanceRepository;
+    }
+
+    @Override
+    public CashierBalanceDTO addCashier(String name) {
+        String cashier = name.trim().toUpperCase();
+        MdcUtil.setCashier(cashier);
+
+        if (!balanceRepository.addCashier(cashier)) {
+            throw new CashierAlreadyExistsException("Cashier already exists: " + cashier);
+        }
+
+        BalanceSnapshot balances = balanceRepository.findSnapshot(cashier);
+        List<CurrencyBalanceDTO> currencyBalances = balances.getCurrencies().stream()
+            .map(currency -> new CurrencyBalanceDTO(
+                currency.name(),
+                balances.getTotal(currency),
+                balances.getDenominations(currency)
+            ))
+            .sorted(Comparator.comparing(CurrencyBalanceDTO::getCurrency))
+            .collect(Collectors.toList());
+
+        log.info("Cashier {} added", cashier);
+        return new CashierBalanceDTO(cashier, currencyBalances);
+    }
+}
@@ -0,0 +1,229 @@
+package com.fibank.cashdesk.service.mailbox;
+
+import com.fibank.cashdesk.exception.CashierBusyException;
+import com.fibank.cashdesk.repository.CashierTable;
+import com.fibank.cashdesk.util.MdcUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One mailbox per cashier: a bounded queue drained by a single owner thread, so each cashier's commands are
+ * applied strictly in submission order and never concurrently with each other.
+ * The owner hands consecutive queued commands to the batch handler together, which can persist them in one step.
+ * Owner threads start on the first command and stop after an idle timeout, so idle cashiers cost one queue slot.
+ * {@link #close} lets the owners apply the commands already queued and waits for them to stop.
+ *
+ * @param <C> Command type
+ * @param <R> Result type
+ */
+public class CashierMailboxes<C, R> implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CashierMailboxes.class);
+
+    // Time close() waits for the owners to drain their mailboxes; commands still queued after it are failed
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Applies a batch of one cashier's commands on its owner thread.
+     */
+    @FunctionalInterface
+    public interface BatchHandler<C, R> {
+
+        /**
+         * Apply the commands in order and complete the result of each.
+         * Results left incomplete are failed when the handler returns or throws.
+         * @param cashier Cashier owning the mailbox
+         * @param batch Consecutive commands of the cashier, oldest first
+         */
+        void handle(String cashier, List<Submission<C, R>> batch);
+    }
+
+    /**
+     * Command waiting in a mailbox, with the future of its submitter and its logging context.
+     */
+    public static final class Submission<C, R> {
+        private final C command;
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+        private final Map<String, String> context = MdcUtil.getContext();
+
+        private Submission(C command) {
+            this.command = command;
+        }
+
+        public C getCommand() {
+            return command;
+        }
+
+        public CompletableFuture<R> getResult() {
+            return result;
+        }
+
+        /**
+         * Switch the logging context of the current thread to that of the submitter.
+         */
+        public void restoreContext() {
+            MdcUtil.setContext(context);
+        }
+    }
+
+    private final class Mailbox {
+        private final String cashier;
+        private final BlockingQueue<Submission<C, R>> queue = new ArrayBlockingQueue<>(capacity);
+        private final AtomicBoolean owned = new AtomicBoolean(false);
+        private volatile Thread owner;
+
+        Mailbox(String cashier) {
+            this.cashier = cashier;
+        }
+
+        void submit(Submission<C, R> submission) {
+            if (!queue.offer(submission)) {
+                throw new CashierBusyException("Too many pending operations for cashier " + cashier);
+            }
+            if (owned.compareAndSet(false, true)) {
+                Thread started = new Thread(this::run, "mailbox-" + cashier);
+                started.setDaemon(true);
+                owner = started;
+                started.start();
+            }
+        }
+
+        private void run() {
+            List<Submission<C, R>> batch = new ArrayList<>(maxBatchSize);
+            try {
+                while (true) {
+                    // Once closed, the owner drains the queue without waiting and stops when it is empty
+                    Submission<C, R> first = closed ? queue.poll() : queue.poll(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+                    if (first == wakeUp) {
+                        continue;
+                    }
+                    if (first == null) {
+                        owned.set(false);
+                        // A command queued after the poll timed out saw the mailbox still owned and started no owner
+                        if (queue.isEmpty() || !owned.compareAndSet(false, true)) {
+                            return;
+                        }
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatchSize - 1);
+                    batch.removeIf(submission -> submission == wakeUp);
+                    process(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                owned.set(false);
+            }
+        }
+
+        private void process(List<Submission<C, R>> batch) {
+            try {
+                handler.handle(cashier, batch);
+            } catch (RuntimeException | Error e) {
+                log.error("Failed to process {} operations of cashier {}", batch.size(), cashier, e);
+                for (Submission<C, R> submission : batch) {
+                    submission.result.completeExceptionally(e);
+                }
+            } finally {
+                for (Submission<C, R> submission : batch) {
+                    submission.result.completeExceptionally(
+                        new IllegalStateException("Operation was not completed by the mailbox of cashier " + cashier));
+                }
+                MdcUtil.clear();
+            }
+        }
+    }
+
+    private final CashierTable<Mailbox> mailboxes = new CashierTable<>();
+    private final BatchHandler<C, R> handler;
+    private final int capacity;
+    private final int maxBatchSize;
+    private final long idleTimeoutMillis;
+    // Queued by close() to wake owners waiting for commands; never handed to the handler
+    private final Submission<C, R> wakeUp = new Submission<>(null);
+
+    private volatile boolean closed;
+
+    /**
+     * @param handler Applies batches of commands
+     * @param capacity Maximum number of pending commands per cashier
+     * @param maxBatchSize Maximum number of commands handed to the handler at once
+     * @param idleTimeoutMillis Time an owner thread waits for commands before stopping
+     */
+    public CashierMailboxes(BatchHandler<C, R> handler, int capacity, int maxBatchSize, long idleTimeoutMillis) {
+        if (capacity < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("Mailbox capacity and batch size must be positive");
+        }
+        if (idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Idle timeout cannot be negative");
+        }
+        this.handler = handler;
+        this.capacity = capacity;
+        this.maxBatchSize = maxBatchSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Queue a command in the mailbox of a cashier.
+     * @param cashier Cashier name, exact
+     * @param command Command to apply
+     * @return Completes with the result once the owner has applied the command
+     * @throws CashierBusyException if the mailbox is full
+     * @throws IllegalArgumentException if the cashier is not registered
+     * @throws IllegalStateException if the mailboxes are closed
+     */
+    public CompletableFuture<R> submit(String cashier, C command) {
+        if (closed) {
+            throw new IllegalStateException("Cashier mailboxes are closed");
+        }
+        Submission<C, R> submission = new Submission<>(command);
+        mailboxes.computeIfAbsent(cashier, Mailbox::new).submit(submission);
+        return submission.result;
+    }
+
+    /**
+     * Stop accepting commands and wait for the owners to apply the commands already queued.
+     * Commands still queued after {@value #CLOSE_TIMEOUT_MILLIS} ms are failed with an {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        // A full queue has no owner waiting on it
+        mailboxes.forEach((cashier, mailbox) -> mailbox.queue.offer(wakeUp));
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+        mailboxes.forEach((cashier, mailbox) -> {
+            Thread owner = mailbox.owner;
+            if (owner == null || owner == Thread.currentThread()) {
+                return;
+            }
+            try {
+                owner.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        mailboxes.forEach((cashier, mailbox) -> {
+            List<Submission<C, R>> abandoned = new ArrayList<>();
+            mailbox.queue.drainTo(abandoned);
+            abandoned.removeIf(submission -> submission == wakeUp);
+            if (!abandoned.isEmpty()) {
+                log.error("Failed {} operations of cashier {} still queued at shutdown", abandoned.size(), cashier);
+            }
+            for (Submission<C, R> submission : abandoned) {
+                submission.result.completeExceptionally(new IllegalStateException("Cashier mailboxes are closed"));
+            }
+        });
+    }
+}
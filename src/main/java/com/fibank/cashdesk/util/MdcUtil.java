@@ -2,11 +2,15 @@ package com.fibank.cashdesk.util;
 
 import org.slf4j.MDC;
 
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 /**
  * Utility class for managing MDC (Mapped Diagnostic Context) for structured logging.
  * Provides correlation IDs and context tracking across the application.
+ * The context belongs to the current thread, platform or virtual, and is never inherited:
+ * work continued on another thread carries it over with {@link #getContext()} and {@link #callWithContext}.
  */
 public class MdcUtil {
 
@@ -129,6 +133,46 @@ public class MdcUtil {
         return MDC.get(TRANSACTION_ID);
     }
 
+    /**
+     * Capture the MDC context of the current thread, to continue logging under it on another thread.
+     *
+     * @return Copy of the context, or null if it is empty
+     */
+    public static Map<String, String> getContext() {
+        return MDC.getCopyOfContextMap();
+    }
+
+    /**
+     * Replace the MDC context of the current thread with a captured one.
+     *
+     * @param context Context from {@link #getContext()}; null clears the context
+     */
+    public static void setContext(Map<String, String> context) {
+        if (context != null) {
+            MDC.setContextMap(context);
+        } else {
+            MDC.clear();
+        }
+    }
+
+    /**
+     * Run an action under a captured MDC context, then restore the context of the current thread.
+     * For continuations that may run on another thread or on the caller's own.
+     *
+     * @param context Context from {@link #getContext()}
+     * @param action Action to run
+     * @return Result of the action
+     */
+    public static <T> T callWithContext(Map<String, String> context, Supplier<T> action) {
+        Map<String, String> previous = getContext();
+        setContext(context);
+        try {
+            return action.get();
+        } finally {
+            setContext(previous);
+        }
+    }
+
     /**
      * Clear all MDC context for the current thread.
      * Should be called after request processing to prevent memory leaks.
@@ -0,0 +1,120 @@
+package com.fibank.cashdesk.benchmark;
+
+import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.OperationType;
+import com.fibank.cashdesk.model.Transaction;
+import com.fibank.cashdesk.repository.TransactionLineCodec;
+import com.fibank.cashdesk.util.ConfiguredRegistriesExtension;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Time and allocations per record of the text log line codec, against the previous
+ * split/String.format implementation kept here as the baseline.
+ * Run with {@code mvn test-compile exec:exec -Dbenchmark=com.fibank.cashdesk.benchmark.TransactionLineCodecBenchmark};
+ * allocations per record are reported as {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransactionLineCodecBenchmark {
+
+    private final TransactionLineCodec codec = new TransactionLineCodec();
+    private final ByteBuffer buffer = ByteBuffer.allocate(256);
+
+    private Transaction transaction;
+    private String line;
+    private byte[] lineBytes;
+
+    @Setup
+    public void setUp() {
+        // Currencies come from configuration, which the benchmark JVM does not load
+        ConfiguredRegistriesExtension.registerConfigured();
+        transaction = new Transaction(UUID.randomUUID(), Instant.parse("2025-10-14T09:15:30.123456Z"), "MARTINA",
+            OperationType.DEPOSIT, Currency.EUR, new BigDecimal("600.00"), Map.of(10, 10, 50, 10));
+        line = legacyFormat(transaction);
+        lineBytes = line.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] formatLegacy() {
+        return legacyFormat(transaction).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        buffer.clear();
+        codec.encode(transaction, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public Transaction parseLegacy() {
+        return legacyParse(new String(lineBytes, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public Transaction decode() {
+        return codec.decode(lineBytes, 0, lineBytes.length);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(TransactionLineCodecBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+
+    private static String legacyFormat(Transaction transaction) {
+        String denominationsStr = transaction.getDenominations().entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .map(e -> e.getKey() + ":" + e.getValue())
+            .collect(Collectors.joining(","));
+
+        return String.format("%s|%s|%s|%s|%s|%s|%s",
+            transaction.getId().toString(),
+            transaction.getTimestamp().toString(),
+            transaction.getCashier(),
+            transaction.getOperationType(),
+            transaction.getCurrency(),
+            transaction.getAmount().toPlainString(),
+            denominationsStr
+        );
+    }
+
+    private static Transaction legacyParse(String line) {
+        String[] parts = line.split("\\|");
+        Map<Integer, Integer> denominations = new LinkedHashMap<>();
+        for (String pair : parts[6].split(",")) {
+            String[] kv = pair.split(":");
+            denominations.put(Integer.parseInt(kv[0]), Integer.parseInt(kv[1]));
+        }
+        return new Transaction(
+            UUID.fromString(parts[0]),
+            Instant.parse(parts[1]),
+            parts[2],
+            OperationType.valueOf(parts[3]),
+            Currency.valueOf(parts[4]),
+            new BigDecimal(parts[5]),
+            denominations
+        );
+    }
+}
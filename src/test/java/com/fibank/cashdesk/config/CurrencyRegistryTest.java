@@ -0,0 +1,136 @@
+package com.fibank.cashdesk.config;
+
+import com.fibank.cashdesk.model.Currency;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for CurrencyRegistry.
+ * Only the default configuration is registered, since the currency registry is shared by all tests.
+ */
+@DisplayName("CurrencyRegistry Tests")
+class CurrencyRegistryTest {
+
+    @TempDir
+    Path dataDir;
+
+    private static CurrencyProperties defaultProperties() {
+        CurrencyProperties properties = new CurrencyProperties();
+        properties.setCurrencies(List.of(
+            new CurrencyProperties.Definition("BGN", 0, List.of(10, 50)),
+            new CurrencyProperties.Definition("EUR", 1, List.of(10, 20, 50))
+        ));
+        properties.getCashiers().getInitialBalances().put("bgn",
+            new CurrencyProperties.InitialBalance(new BigDecimal("1000.00"), Map.of(10, 50, 50, 10)));
+        properties.getCashiers().getInitialBalances().put("eur",
+            new CurrencyProperties.InitialBalance(new BigDecimal("2000.00"), Map.of(10, 100, 20, 0, 50, 20)));
+        return properties;
+    }
+
+    @Test
+    @DisplayName("Should register configured currencies and initial balances")
+    void shouldRegisterConfiguredCurrencies() {
+        new CurrencyRegistry(defaultProperties(), dataDir.toString());
+
+        assertThat(Currency.valueOf("BGN")).isSameAs(Currency.BGN);
+        assertThat(Currency.EUR.getDenominationTable()).containsExactly(10, 20, 50);
+        assertThat(Currency.EUR.getInitialCounts()).containsExactly(100, 0, 20);
+    }
+
+    @Test
+    @DisplayName("Should record the registered currencies in the data directory")
+    void shouldRecordRegisteredCurrencies() throws IOException {
+        new CurrencyRegistry(defaultProperties(), dataDir.toString());
+
+        assertThat(Files.readAllLines(dataDir.resolve("currencies.txt")))
+            .containsExactly("BGN|0|10,50", "EUR|1|10,20,50");
+    }
+
+    @Test
+    @DisplayName("Should fail when a recorded denomination is no longer configured")
+    void shouldFailWhenRecordedDenominationIsRemoved() {
+        new CurrencyRegistry(defaultProperties(), dataDir.toString());
+        CurrencyProperties withoutTwenty = defaultProperties();
+        withoutTwenty.setCurrencies(List.of(
+            new CurrencyProperties.Definition("BGN", 0, List.of(10, 50)),
+            new CurrencyProperties.Definition("EUR", 1, List.of(10, 50))
+        ));
+        withoutTwenty.getCashiers().getInitialBalances().remove("eur");
+
+        assertThatThrownBy(() -> new CurrencyRegistry(withoutTwenty, dataDir.toString()))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Denominations [20] of EUR are recorded");
+        assertThat(Currency.EUR.getDenominationTable()).containsExactly(10, 20, 50);
+    }
+
+    @Test
+    @DisplayName("Should fail when a recorded currency is no longer configured")
+    void shouldFailWhenRecordedCurrencyIsRemoved() {
+        new CurrencyRegistry(defaultProperties(), dataDir.toString());
+        CurrencyProperties withoutEuro = defaultProperties();
+        withoutEuro.setCurrencies(List.of(new CurrencyProperties.Definition("BGN", 0, List.of(10, 50))));
+        withoutEuro.getCashiers().getInitialBalances().remove("eur");
+
+        assertThatThrownBy(() -> new CurrencyRegistry(withoutEuro, dataDir.toString()))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Currency EUR is recorded");
+    }
+
+    @Test
+    @DisplayName("Should fail when no currency is configured")
+    void shouldFailWithoutConfiguredCurrencies() {
+        CurrencyProperties none = new CurrencyProperties();
+
+        assertThatThrownBy(() -> new CurrencyRegistry(none, dataDir.toString()))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("No currencies configured");
+    }
+
+    @Test
+    @DisplayName("Should fail when an initial amount differs from its denominations")
+    void shouldFailWhenInitialAmountDiffersFromDenominations() {
+        CurrencyProperties properties = defaultProperties();
+        properties.getCashiers().getInitialBalances().get("eur").setAmount(new BigDecimal("1999.00"));
+
+        assertThatThrownBy(() -> new CurrencyRegistry(properties, dataDir.toString()))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Initial balance of EUR is 1999.00 but its denominations sum to 2000");
+        assertThat(Currency.EUR.getInitialCounts()).containsExactly(100, 0, 20);
+    }
+
+    @Test
+    @DisplayName("Should fail on invalid currency definitions")
+    void shouldFailOnInvalidDefinitions() {
+        CurrencyProperties missingId = defaultProperties();
+        missingId.setCurrencies(List.of(new CurrencyProperties.Definition("BGN", null, List.of(10, 50))));
+        CurrencyProperties unknownBalance = defaultProperties();
+        unknownBalance.getCashiers().getInitialBalances().put("usd",
+            new CurrencyProperties.InitialBalance(new BigDecimal("10.00"), Map.of(10, 1)));
+        CurrencyProperties takenId = defaultProperties();
+        takenId.setCurrencies(List.of(
+            new CurrencyProperties.Definition("BGN", 1, List.of(10, 50)),
+            new CurrencyProperties.Definition("EUR", 1, List.of(10, 20, 50))
+        ));
+
+        assertThatThrownBy(() -> new CurrencyRegistry(missingId, dataDir.toString()))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("requires code, id and denominations");
+        assertThatThrownBy(() -> new CurrencyRegistry(unknownBalance, dataDir.toString()))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("unknown currency USD");
+        assertThatThrownBy(() -> new CurrencyRegistry(takenId, dataDir.toString()))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Invalid currency configuration");
+        assertThat(Currency.BGN.getId()).isZero();
+    }
+}
@@ -24,6 +24,8 @@ import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -345,4 +347,33 @@ class BalanceControllerTest {
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.cashiers").isEmpty());
     }
+
+    // ===================== Conditional Request Tests =====================
+
+    @Test
+    @DisplayName("Should tag a cashier's balances with the cashier and its balance version")
+    void shouldTagBalancesWithVersion() throws Exception {
+        when(balanceQueryService.getBalanceVersion(null, null, "peter")).thenReturn(42L);
+        when(balanceQueryService.queryBalance(null, null, "peter")).thenReturn(mockBalanceResponse);
+
+        mockMvc.perform(get(ENDPOINT)
+                .header(HEADER_NAME, API_KEY)
+                .param("cashier", "peter"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"PETER:42\""));
+    }
+
+    @Test
+    @DisplayName("Should return 304 without querying when the balances have not changed")
+    void shouldReturn304WhenNotModified() throws Exception {
+        when(balanceQueryService.getBalanceVersion(null, null, "PETER")).thenReturn(42L);
+
+        mockMvc.perform(get(ENDPOINT)
+                .header(HEADER_NAME, API_KEY)
+                .header("If-None-Match", "\"PETER:42\"")
+                .param("cashier", "PETER"))
+            .andExpect(status().isNotModified());
+
+        verify(balanceQueryService, never()).queryBalance(any(), any(), any());
+    }
 }
@@ -15,12 +15,15 @@ import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 
 import java.math.BigDecimal;
 import java.util.Map;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -71,7 +74,7 @@ class CashOperationControllerIdempotencyTest {
         CashOperationRequest request = createDepositRequest();
 
         // Act & Assert
-        mockMvc.perform(post("/api/v1/cash-operation")
+        perform(post("/api/v1/cash-operation")
                         .header(authHeaderName, apiKey)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
@@ -87,7 +90,7 @@ class CashOperationControllerIdempotencyTest {
         CashOperationRequest request = createDepositRequest();
 
         // Act - First request
-        MvcResult result1 = mockMvc.perform(post("/api/v1/cash-operation")
+        MvcResult result1 = perform(post("/api/v1/cash-operation")
                         .header(authHeaderName, apiKey)
                         .header("Idempotency-Key", idempotencyKey)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -99,7 +102,7 @@ class CashOperationControllerIdempotencyTest {
         String firstResponse = result1.getResponse().getContentAsString();
 
         // Act - Second request with same idempotency key
-        MvcResult result2 = mockMvc.perform(post("/api/v1/cash-operation")
+        MvcResult result2 = perform(post("/api/v1/cash-operation")
                         .header(authHeaderName, apiKey)
                         .header("Idempotency-Key", idempotencyKey)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -122,7 +125,7 @@ class CashOperationControllerIdempotencyTest {
         CashOperationRequest request = createDepositRequest();
 
         // Act - First request
-        MvcResult result1 = mockMvc.perform(post("/api/v1/cash-operation")
+        MvcResult result1 = perform(post("/api/v1/cash-operation")
                         .header(authHeaderName, apiKey)
                         .header("Idempotency-Key", idempotencyKey)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -134,7 +137,7 @@ class CashOperationControllerIdempotencyTest {
                 .get("transactionId").asText();
 
         // Act - Second request with same idempotency key
-        MvcResult result2 = mockMvc.perform(post("/api/v1/cash-operation")
+        MvcResult result2 = perform(post("/api/v1/cash-operation")
                         .header(authHeaderName, apiKey)
                         .header("Idempotency-Key", idempotencyKey)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -158,7 +161,7 @@ class CashOperationControllerIdempotencyTest {
         CashOperationRequest request = createDepositRequest();
 
         // Act - First request
-        MvcResult result1 = mockMvc.perform(post("/api/v1/cash-operation")
+        MvcResult result1 = perform(post("/api/v1/cash-operation")
                         .header(authHeaderName, apiKey)
                         .header("Idempotency-Key", idempotencyKey1)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -170,7 +173,7 @@ class CashOperationControllerIdempotencyTest {
                 .get("transactionId").asText();
 
         // Act - Second request with different idempotency key
-        MvcResult result2 = mockMvc.perform(post("/api/v1/cash-operation")
+        MvcResult result2 = perform(post("/api/v1/cash-operation")
                         .header(authHeaderName, apiKey)
                         .header("Idempotency-Key", idempotencyKey2)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -192,7 +195,7 @@ class CashOperationControllerIdempotencyTest {
         CashOperationRequest request = createDepositRequest();
 
         // Act & Assert - Request with blank idempotency key should be rejected
-        mockMvc.perform(post("/api/v1/cash-operation")
+        perform(post("/api/v1/cash-operation")
                         .header(authHeaderName, apiKey)
                         .header("Idempotency-Key", "   ")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -210,7 +213,7 @@ class CashOperationControllerIdempotencyTest {
         CashOperationRequest withdrawalRequest = createWithdrawalRequest();
 
         // Act - First deposit to ensure balance
-        mockMvc.perform(post("/api/v1/cash-operation")
+        perform(post("/api/v1/cash-operation")
                         .header(authHeaderName, apiKey)
                         .header("Idempotency-Key", UUID.randomUUID().toString())
                         .contentType(MediaType.APPLICATION_JSON)
@@ -218,7 +221,7 @@ class CashOperationControllerIdempotencyTest {
                 .andExpect(status().isOk());
 
         // Act - First withdrawal request
-        MvcResult result1 = mockMvc.perform(post("/api/v1/cash-operation")
+        MvcResult result1 = perform(post("/api/v1/cash-operation")
                         .header(authHeaderName, apiKey)
                         .header("Idempotency-Key", idempotencyKey)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -231,7 +234,7 @@ class CashOperationControllerIdempotencyTest {
                 .get("transactionId").asText();
 
         // Act - Second withdrawal request with same idempotency key
-        MvcResult result2 = mockMvc.perform(post("/api/v1/cash-operation")
+        MvcResult result2 = perform(post("/api/v1/cash-operation")
                         .header(authHeaderName, apiKey)
                         .header("Idempotency-Key", idempotencyKey)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -256,7 +259,7 @@ class CashOperationControllerIdempotencyTest {
         String requestJson = objectMapper.writeValueAsString(request);
 
         // Act - Make first request
-        MvcResult result1 = mockMvc.perform(post("/api/v1/cash-operation")
+        MvcResult result1 = perform(post("/api/v1/cash-operation")
                         .header(authHeaderName, apiKey)
                         .header("Idempotency-Key", idempotencyKey)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -269,7 +272,7 @@ class CashOperationControllerIdempotencyTest {
 
         // Act - Make multiple subsequent requests with the same idempotency key
         for (int i = 0; i < 5; i++) {
-            MvcResult result = mockMvc.perform(post("/api/v1/cash-operation")
+            MvcResult result = perform(post("/api/v1/cash-operation")
                             .header(authHeaderName, apiKey)
                             .header("Idempotency-Key", idempotencyKey)
                             .contentType(MediaType.APPLICATION_JSON)
@@ -306,4 +309,13 @@ class CashOperationControllerIdempotencyTest {
         request.setDenominations(Map.of(10, 5, 50, 1));
         return request;
     }
+
+    /**
+     * Perform a request, completing the async dispatch of cash operations.
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)) : actions;
+    }
 }
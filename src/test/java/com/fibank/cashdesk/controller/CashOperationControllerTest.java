@@ -1,8 +1,13 @@
 package com.fibank.cashdesk.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fibank.cashdesk.config.OperationExecutorConfig;
+import com.fibank.cashdesk.dto.request.BatchCashOperationItem;
+import com.fibank.cashdesk.dto.request.BatchCashOperationRequest;
 import com.fibank.cashdesk.dto.request.CashOperationRequest;
+import com.fibank.cashdesk.dto.response.BatchOperationResultDTO;
 import com.fibank.cashdesk.dto.response.CashOperationResponse;
+import com.fibank.cashdesk.exception.BalanceVersionMismatchException;
 import com.fibank.cashdesk.exception.InsufficientFundsException;
 import com.fibank.cashdesk.exception.InvalidDenominationException;
 import com.fibank.cashdesk.service.CashOperationService;
@@ -12,18 +17,31 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -32,6 +50,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * Tests API layer with MockMvc, verifying request validation and response handling.
  */
 @WebMvcTest(CashOperationController.class)
+@Import(OperationExecutorConfig.class)
 @DisplayName("CashOperationController Tests")
 class CashOperationControllerTest {
 
@@ -39,6 +58,7 @@ class CashOperationControllerTest {
     private static final String HEADER_NAME = "FIB-X-AUTH";
     private static final String IDEMPOTENCY_HEADER = "Idempotency-Key";
     private static final String ENDPOINT = "/api/v1/cash-operation";
+    private static final String BATCH_ENDPOINT = "/api/v1/cash-operation/batch";
 
     @Autowired
     private MockMvc mockMvc;
@@ -103,7 +123,7 @@ class CashOperationControllerTest {
     @Test
     @DisplayName("Should return 401 when authentication header is missing")
     void shouldReturn401WhenAuthHeaderMissing() throws Exception {
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(validDepositRequest)))
@@ -113,7 +133,7 @@ class CashOperationControllerTest {
     @Test
     @DisplayName("Should return 401 when authentication header is invalid")
     void shouldReturn401WhenAuthHeaderInvalid() throws Exception {
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, "invalid-api-key")
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -124,9 +144,9 @@ class CashOperationControllerTest {
     @Test
     @DisplayName("Should return 200 with valid authentication header")
     void shouldReturn200WithValidAuthHeader() throws Exception {
-        when(cashOperationService.processOperation(any())).thenReturn(mockResponse);
+        when(cashOperationService.processOperationAsync(any(), any())).thenReturn(CompletableFuture.completedFuture(mockResponse));
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -139,9 +159,9 @@ class CashOperationControllerTest {
     @Test
     @DisplayName("Should process valid deposit request successfully")
     void shouldProcessValidDepositRequest() throws Exception {
-        when(cashOperationService.processOperation(any())).thenReturn(mockResponse);
+        when(cashOperationService.processOperationAsync(any(), any())).thenReturn(CompletableFuture.completedFuture(mockResponse));
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -170,9 +190,9 @@ class CashOperationControllerTest {
             withdrawalDenoms,
             "Operation successful"
         );
-        when(cashOperationService.processOperation(any())).thenReturn(withdrawalResponse);
+        when(cashOperationService.processOperationAsync(any(), any())).thenReturn(CompletableFuture.completedFuture(withdrawalResponse));
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -192,7 +212,7 @@ class CashOperationControllerTest {
             null, "MARTINA", "BGN", new BigDecimal("100.00"), new HashMap<>()
         );
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -207,7 +227,7 @@ class CashOperationControllerTest {
             "DEPOSIT", null, "BGN", new BigDecimal("100.00"), new HashMap<>()
         );
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -222,7 +242,7 @@ class CashOperationControllerTest {
             "DEPOSIT", "MARTINA", null, new BigDecimal("100.00"), new HashMap<>()
         );
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -237,7 +257,7 @@ class CashOperationControllerTest {
             "DEPOSIT", "MARTINA", "BGN", null, new HashMap<>()
         );
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -252,7 +272,7 @@ class CashOperationControllerTest {
             "DEPOSIT", "MARTINA", "BGN", new BigDecimal("100.00"), null
         );
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -269,7 +289,7 @@ class CashOperationControllerTest {
             "INVALID_TYPE", "MARTINA", "BGN", new BigDecimal("100.00"), new HashMap<>()
         );
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -286,7 +306,7 @@ class CashOperationControllerTest {
             "DEPOSIT", "JOHN", "BGN", new BigDecimal("100.00"), denominations
         );
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -303,7 +323,7 @@ class CashOperationControllerTest {
             "DEPOSIT", "MARTINA", "USD", new BigDecimal("100.00"), denominations
         );
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -320,7 +340,7 @@ class CashOperationControllerTest {
             "DEPOSIT", "MARTINA", "BGN", BigDecimal.ZERO, denominations
         );
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -335,7 +355,7 @@ class CashOperationControllerTest {
             "DEPOSIT", "MARTINA", "BGN", new BigDecimal("100.00"), new HashMap<>()
         );
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -348,10 +368,10 @@ class CashOperationControllerTest {
     @Test
     @DisplayName("Should return 400 when insufficient funds for withdrawal")
     void shouldReturn400WhenInsufficientFunds() throws Exception {
-        when(cashOperationService.processOperation(any()))
-            .thenThrow(new InsufficientFundsException("Insufficient funds for withdrawal"));
+        when(cashOperationService.processOperationAsync(any(), any()))
+            .thenReturn(CompletableFuture.failedFuture(new InsufficientFundsException("Insufficient funds for withdrawal")));
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -363,10 +383,10 @@ class CashOperationControllerTest {
     @Test
     @DisplayName("Should return 400 when denominations sum mismatch")
     void shouldReturn400WhenDenominationsSumMismatch() throws Exception {
-        when(cashOperationService.processOperation(any()))
-            .thenThrow(new InvalidDenominationException("Denominations sum does not match amount"));
+        when(cashOperationService.processOperationAsync(any(), any()))
+            .thenReturn(CompletableFuture.failedFuture(new InvalidDenominationException("Denominations sum does not match amount")));
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -375,6 +395,52 @@ class CashOperationControllerTest {
             .andExpect(jsonPath("$.error").exists());
     }
 
+    // ===================== Conditional Operation Tests =====================
+
+    @Test
+    @DisplayName("Should apply the operation to the balance version of a matching If-Match")
+    void shouldPassIfMatchVersionToService() throws Exception {
+        when(cashOperationService.processOperationAsync(any(), eq(42L))).thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+        perform(post(ENDPOINT)
+                .header(HEADER_NAME, API_KEY)
+                .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
+                .header("If-Match", "\"MARTINA:42\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(validDepositRequest)))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Should return 412 without processing when If-Match is not a tag of the cashier")
+    void shouldReturn412WhenIfMatchOfAnotherCashier() throws Exception {
+        perform(post(ENDPOINT)
+                .header(HEADER_NAME, API_KEY)
+                .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
+                .header("If-Match", "\"PETER:42\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(validDepositRequest)))
+            .andExpect(status().isPreconditionFailed());
+
+        verify(cashOperationService, never()).processOperationAsync(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should return 412 when the balance has changed since the If-Match version")
+    void shouldReturn412WhenBalanceChanged() throws Exception {
+        when(cashOperationService.processOperationAsync(any(), eq(42L)))
+            .thenReturn(CompletableFuture.failedFuture(new BalanceVersionMismatchException("BGN balance of cashier MARTINA has changed")));
+
+        perform(post(ENDPOINT)
+                .header(HEADER_NAME, API_KEY)
+                .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
+                .header("If-Match", "\"MARTINA:42\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(validDepositRequest)))
+            .andExpect(status().isPreconditionFailed())
+            .andExpect(jsonPath("$.message").value("BGN balance of cashier MARTINA has changed"));
+    }
+
     // ===================== EUR Currency Tests =====================
 
     @Test
@@ -401,9 +467,9 @@ class CashOperationControllerTest {
             eurDenominations,
             "Operation successful"
         );
-        when(cashOperationService.processOperation(any())).thenReturn(eurResponse);
+        when(cashOperationService.processOperationAsync(any(), any())).thenReturn(CompletableFuture.completedFuture(eurResponse));
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -436,9 +502,9 @@ class CashOperationControllerTest {
             eurDenominations,
             "Operation successful"
         );
-        when(cashOperationService.processOperation(any())).thenReturn(eurResponse);
+        when(cashOperationService.processOperationAsync(any(), any())).thenReturn(CompletableFuture.completedFuture(eurResponse));
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -453,7 +519,7 @@ class CashOperationControllerTest {
     @Test
     @DisplayName("Should return 400 when idempotency key is missing")
     void shouldReturn400WhenIdempotencyKeyMissing() throws Exception {
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(validDepositRequest)))
@@ -464,7 +530,7 @@ class CashOperationControllerTest {
     @Test
     @DisplayName("Should return 400 when idempotency key is blank")
     void shouldReturn400WhenIdempotencyKeyBlank() throws Exception {
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, "   ")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -476,7 +542,7 @@ class CashOperationControllerTest {
     @Test
     @DisplayName("Should return 400 when idempotency key is not valid UUID")
     void shouldReturn400WhenIdempotencyKeyInvalidFormat() throws Exception {
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, "not-a-valid-uuid")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -488,13 +554,135 @@ class CashOperationControllerTest {
     @Test
     @DisplayName("Should accept valid UUID format for idempotency key")
     void shouldAcceptValidUuidFormat() throws Exception {
-        when(cashOperationService.processOperation(any())).thenReturn(mockResponse);
+        when(cashOperationService.processOperationAsync(any(), any())).thenReturn(CompletableFuture.completedFuture(mockResponse));
 
-        mockMvc.perform(post(ENDPOINT)
+        perform(post(ENDPOINT)
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, "550e8400-e29b-41d4-a716-446655440000")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(validDepositRequest)))
             .andExpect(status().isOk());
     }
+    // ===================== Batch Tests =====================
+
+    @Test
+    @DisplayName("Should return 200 when every operation of a batch is applied")
+    void shouldReturn200WhenBatchApplied() throws Exception {
+        String key = UUID.randomUUID().toString();
+        when(cashOperationService.processBatch(any(), eq(true))).thenReturn(List.of(
+            new BatchOperationResultDTO(BatchOperationResultDTO.APPLIED, mockResponse, null)));
+
+        mockMvc.perform(post(BATCH_ENDPOINT)
+                .header(HEADER_NAME, API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batchOf("ATOMIC", batchItem(key)))))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.succeeded").value(1))
+            .andExpect(jsonPath("$.failed").value(0))
+            .andExpect(jsonPath("$.results[0].index").value(0))
+            .andExpect(jsonPath("$.results[0].idempotencyKey").value(key))
+            .andExpect(jsonPath("$.results[0].status").value("APPLIED"))
+            .andExpect(jsonPath("$.results[0].result.transactionId").value("TXN-001"));
+
+        verify(idempotencyService).cacheResponse(key, mockResponse);
+    }
+
+    @Test
+    @DisplayName("Should return 422 when an atomic batch is rejected")
+    void shouldReturn422WhenAtomicBatchRejected() throws Exception {
+        when(cashOperationService.processBatch(any(), eq(true))).thenReturn(List.of(
+            new BatchOperationResultDTO(BatchOperationResultDTO.NOT_APPLIED, null, "Not applied"),
+            new BatchOperationResultDTO(BatchOperationResultDTO.FAILED, null, "Insufficient funds")));
+
+        mockMvc.perform(post(BATCH_ENDPOINT)
+                .header(HEADER_NAME, API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batchOf("ATOMIC",
+                    batchItem(UUID.randomUUID().toString()), batchItem(UUID.randomUUID().toString())))))
+            .andExpect(status().isUnprocessableEntity())
+            .andExpect(jsonPath("$.succeeded").value(0))
+            .andExpect(jsonPath("$.failed").value(1))
+            .andExpect(jsonPath("$.results[1].error").value("Insufficient funds"));
+
+        verify(idempotencyService, never()).cacheResponse(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should return 207 when some operations of a best-effort batch fail")
+    void shouldReturn207WhenBestEffortBatchPartiallyFails() throws Exception {
+        when(cashOperationService.processBatch(any(), eq(false))).thenReturn(List.of(
+            new BatchOperationResultDTO(BatchOperationResultDTO.APPLIED, mockResponse, null),
+            new BatchOperationResultDTO(BatchOperationResultDTO.FAILED, null, "Insufficient funds")));
+
+        mockMvc.perform(post(BATCH_ENDPOINT)
+                .header(HEADER_NAME, API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batchOf("BEST_EFFORT",
+                    batchItem(UUID.randomUUID().toString()), batchItem(UUID.randomUUID().toString())))))
+            .andExpect(status().isMultiStatus())
+            .andExpect(jsonPath("$.succeeded").value(1))
+            .andExpect(jsonPath("$.failed").value(1));
+    }
+
+    @Test
+    @DisplayName("Should return the cached response of an operation already processed")
+    void shouldReturnCachedResponseInBatch() throws Exception {
+        String processed = UUID.randomUUID().toString();
+        when(idempotencyService.getCachedResponse(processed)).thenReturn(Optional.of(mockResponse));
+        when(cashOperationService.processBatch(argThat(operations -> operations.size() == 1), eq(false)))
+            .thenReturn(List.of(new BatchOperationResultDTO(BatchOperationResultDTO.APPLIED, mockResponse, null)));
+
+        mockMvc.perform(post(BATCH_ENDPOINT)
+                .header(HEADER_NAME, API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batchOf("BEST_EFFORT",
+                    batchItem(processed), batchItem(UUID.randomUUID().toString())))))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.succeeded").value(2))
+            .andExpect(jsonPath("$.results[0].status").value("DUPLICATE"))
+            .andExpect(jsonPath("$.results[1].status").value("APPLIED"));
+    }
+
+    @Test
+    @DisplayName("Should return 400 when two operations of a batch share an idempotency key")
+    void shouldReturn400WhenBatchRepeatsIdempotencyKey() throws Exception {
+        String key = UUID.randomUUID().toString();
+
+        mockMvc.perform(post(BATCH_ENDPOINT)
+                .header(HEADER_NAME, API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batchOf("ATOMIC", batchItem(key), batchItem(key)))))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("Duplicate idempotency key in batch: " + key));
+
+        verify(cashOperationService, never()).processBatch(any(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Should return 400 when the batch mode is invalid")
+    void shouldReturn400WhenBatchModeInvalid() throws Exception {
+        mockMvc.perform(post(BATCH_ENDPOINT)
+                .header(HEADER_NAME, API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batchOf("SOMETIMES", batchItem(UUID.randomUUID().toString())))))
+            .andExpect(status().isBadRequest());
+    }
+
+    private static BatchCashOperationItem batchItem(String idempotencyKey) {
+        return new BatchCashOperationItem(idempotencyKey, "DEPOSIT", "MARTINA", "BGN",
+            new BigDecimal("600.00"), Map.of(10, 10, 50, 10));
+    }
+
+    private static BatchCashOperationRequest batchOf(String mode, BatchCashOperationItem... operations) {
+        return new BatchCashOperationRequest(mode, List.of(operations));
+    }
+
+    /**
+     * Perform a request, completing the async dispatch of cash operations.
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)) : actions;
+    }
 }
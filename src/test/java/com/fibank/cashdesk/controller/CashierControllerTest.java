@@ -0,0 +1,97 @@
+package com.fibank.cashdesk.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fibank.cashdesk.dto.request.CashierRequest;
+import com.fibank.cashdesk.dto.response.CashierBalanceDTO;
+import com.fibank.cashdesk.dto.response.CurrencyBalanceDTO;
+import com.fibank.cashdesk.exception.CashierAlreadyExistsException;
+import com.fibank.cashdesk.service.CashierService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Unit tests for CashierController.
+ */
+@WebMvcTest(CashierController.class)
+@DisplayName("CashierController Tests")
+class CashierControllerTest {
+
+    private static final String API_KEY = "f9Uie8nNf112hx8s";
+    private static final String HEADER_NAME = "FIB-X-AUTH";
+    private static final String ENDPOINT = "/api/v1/cashiers";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private CashierService cashierService;
+
+    @Test
+    @DisplayName("Should return 401 when authentication header is missing")
+    void shouldReturn401WhenAuthHeaderMissing() throws Exception {
+        mockMvc.perform(post(ENDPOINT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CashierRequest("DESK_1"))))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @DisplayName("Should return 201 with the opening balances of the new cashier")
+    void shouldReturn201WhenCashierAdded() throws Exception {
+        CashierBalanceDTO balances = new CashierBalanceDTO("DESK_1", List.of(
+            new CurrencyBalanceDTO("BGN", new BigDecimal("1000.00"), Map.of(10, 50, 50, 10))));
+        when(cashierService.addCashier("DESK_1")).thenReturn(balances);
+
+        mockMvc.perform(post(ENDPOINT)
+                .header(HEADER_NAME, API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CashierRequest("DESK_1"))))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.cashier").value("DESK_1"))
+            .andExpect(jsonPath("$.balances[0].currency").value("BGN"));
+    }
+
+    @Test
+    @DisplayName("Should return 400 for a malformed cashier name")
+    void shouldReturn400ForMalformedName() throws Exception {
+        mockMvc.perform(post(ENDPOINT)
+                .header(HEADER_NAME, API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CashierRequest("desk-1"))))
+            .andExpect(status().isBadRequest());
+
+        verify(cashierService, never()).addCashier(anyString());
+    }
+
+    @Test
+    @DisplayName("Should return 409 when the cashier already exists")
+    void shouldReturn409WhenCashierExists() throws Exception {
+        when(cashierService.addCashier("PETER"))
+            .thenThrow(new CashierAlreadyExistsException("Cashier already exists: PETER"));
+
+        mockMvc.perform(post(ENDPOINT)
+                .header(HEADER_NAME, API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CashierRequest("PETER"))))
+            .andExpect(status().isConflict());
+    }
+}
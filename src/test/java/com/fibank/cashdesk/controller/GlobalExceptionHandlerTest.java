@@ -10,6 +10,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 
 import java.util.List;
 import java.util.Objects;
@@ -59,6 +60,45 @@ class GlobalExceptionHandlerTest {
         assertThat(body.getMessage()).contains("FIB-X-AUTH");
     }
 
+    // ===================== CashierBusyException Tests =====================
+
+    @Test
+    @DisplayName("Should handle CashierBusyException with 503 status")
+    void shouldHandleCashierBusyException() {
+        CashierBusyException exception = new CashierBusyException("Too many pending operations for cashier PETER");
+
+        ResponseEntity<ErrorResponse> response = exceptionHandler.handleCashierBusyException(exception);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        ErrorResponse body = Objects.requireNonNull(response.getBody());
+        assertThat(body.getStatus()).isEqualTo(503);
+        assertThat(body.getMessage()).isEqualTo("Too many pending operations for cashier PETER");
+    }
+
+    @Test
+    @DisplayName("Should handle AsyncRequestTimeoutException with 503 status")
+    void shouldHandleAsyncRequestTimeoutException() {
+        ResponseEntity<ErrorResponse> response =
+            exceptionHandler.handleAsyncRequestTimeoutException(new AsyncRequestTimeoutException());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        ErrorResponse body = Objects.requireNonNull(response.getBody());
+        assertThat(body.getStatus()).isEqualTo(503);
+        assertThat(body.getMessage()).isEqualTo("The operation did not complete in time");
+    }
+
+    @Test
+    @DisplayName("Should handle BalanceVersionMismatchException with 412 status")
+    void shouldHandleBalanceVersionMismatchException() {
+        ResponseEntity<ErrorResponse> response = exceptionHandler.handleBalanceVersionMismatchException(
+            new BalanceVersionMismatchException("BGN balance of cashier PETER has changed since version 42"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        ErrorResponse body = Objects.requireNonNull(response.getBody());
+        assertThat(body.getStatus()).isEqualTo(412);
+        assertThat(body.getMessage()).isEqualTo("BGN balance of cashier PETER has changed since version 42");
+    }
+
     // ===================== InvalidCashierException Tests =====================
 
     @Test
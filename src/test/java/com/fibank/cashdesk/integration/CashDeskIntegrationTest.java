@@ -1,6 +1,8 @@
 package com.fibank.cashdesk.integration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fibank.cashdesk.dto.request.BatchCashOperationItem;
+import com.fibank.cashdesk.dto.request.BatchCashOperationRequest;
 import com.fibank.cashdesk.dto.request.CashOperationRequest;
 import com.fibank.cashdesk.dto.response.BalanceQueryResponse;
 import com.fibank.cashdesk.util.TestDataCleanup;
@@ -15,13 +17,17 @@ import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -80,7 +86,7 @@ class CashDeskIntegrationTest {
             "DEPOSIT", cashier, "BGN", new BigDecimal("600.00"), deposit600Bgn
         );
 
-        mockMvc.perform(post("/api/v1/cash-operation")
+        perform(post("/api/v1/cash-operation")
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -97,7 +103,7 @@ class CashDeskIntegrationTest {
             "DEPOSIT", cashier, "EUR", new BigDecimal("200.00"), deposit200Eur
         );
 
-        mockMvc.perform(post("/api/v1/cash-operation")
+        perform(post("/api/v1/cash-operation")
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -114,7 +120,7 @@ class CashDeskIntegrationTest {
             "WITHDRAWAL", cashier, "BGN", new BigDecimal("100.00"), withdraw100Bgn
         );
 
-        mockMvc.perform(post("/api/v1/cash-operation")
+        perform(post("/api/v1/cash-operation")
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -144,7 +150,7 @@ class CashDeskIntegrationTest {
             "DEPOSIT", "MARTINA", "BGN", new BigDecimal("100.00"), denominations
         );
 
-        mockMvc.perform(post("/api/v1/cash-operation")
+        perform(post("/api/v1/cash-operation")
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
@@ -161,7 +167,7 @@ class CashDeskIntegrationTest {
             "DEPOSIT", "PETER", "BGN", new BigDecimal("100.00"), peterDeposit
         );
 
-        mockMvc.perform(post("/api/v1/cash-operation")
+        perform(post("/api/v1/cash-operation")
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -175,7 +181,7 @@ class CashDeskIntegrationTest {
             "DEPOSIT", "LINDA", "BGN", new BigDecimal("100.00"), lindaDeposit
         );
 
-        mockMvc.perform(post("/api/v1/cash-operation")
+        perform(post("/api/v1/cash-operation")
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -205,7 +211,7 @@ class CashDeskIntegrationTest {
         CashOperationRequest req1 = new CashOperationRequest(
             "DEPOSIT", cashier, "BGN", new BigDecimal("100.00"), deposit1
         );
-        mockMvc.perform(post("/api/v1/cash-operation")
+        perform(post("/api/v1/cash-operation")
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -218,7 +224,7 @@ class CashDeskIntegrationTest {
         CashOperationRequest req2 = new CashOperationRequest(
             "WITHDRAWAL", cashier, "BGN", new BigDecimal("50.00"), withdrawal1
         );
-        mockMvc.perform(post("/api/v1/cash-operation")
+        perform(post("/api/v1/cash-operation")
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -231,7 +237,7 @@ class CashDeskIntegrationTest {
         CashOperationRequest req3 = new CashOperationRequest(
             "DEPOSIT", cashier, "EUR", new BigDecimal("200.00"), deposit2
         );
-        mockMvc.perform(post("/api/v1/cash-operation")
+        perform(post("/api/v1/cash-operation")
                 .header(HEADER_NAME, API_KEY)
                 .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -308,4 +314,99 @@ class CashDeskIntegrationTest {
         // Should have balances for both currencies
         assertThat(response.getCashiers().get(0).getBalances()).hasSize(2);
     }
+    @Test
+    @DisplayName("Should apply a batch all or nothing in atomic mode and per operation in best-effort mode")
+    void shouldApplyBatchPerMode() throws Exception {
+        mockMvc.perform(post("/api/v1/cash-operation/batch")
+                .header(HEADER_NAME, API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(depositThenOverdraw("ATOMIC"))))
+            .andExpect(status().isUnprocessableEntity())
+            .andExpect(jsonPath("$.results[0].status").value("NOT_APPLIED"))
+            .andExpect(jsonPath("$.results[1].status").value("FAILED"));
+
+        mockMvc.perform(post("/api/v1/cash-operation/batch")
+                .header(HEADER_NAME, API_KEY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(depositThenOverdraw("BEST_EFFORT"))))
+            .andExpect(status().isMultiStatus())
+            .andExpect(jsonPath("$.results[0].status").value("APPLIED"))
+            .andExpect(jsonPath("$.results[1].status").value("FAILED"));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/cash-balance")
+                .header(HEADER_NAME, API_KEY)
+                .param("cashier", "PETER"))
+            .andExpect(status().isOk())
+            .andReturn();
+        BalanceQueryResponse response = objectMapper.readValue(
+            result.getResponse().getContentAsString(), BalanceQueryResponse.class);
+        assertThat(response.getCashiers().get(0).getBalances())
+            .filteredOn(balance -> "BGN".equals(balance.getCurrency()))
+            .singleElement()
+            .satisfies(balance -> assertThat(balance.getDenominations()).containsEntry(10, 60).containsEntry(50, 10));
+    }
+
+    @Test
+    @DisplayName("Should apply operations conditionally on the balance version read")
+    void shouldApplyOperationsConditionallyOnBalanceVersion() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/cash-balance")
+                .header(HEADER_NAME, API_KEY)
+                .param("cashier", "LINDA"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/v1/cash-balance")
+                .header(HEADER_NAME, API_KEY)
+                .header("If-None-Match", etag)
+                .param("cashier", "LINDA"))
+            .andExpect(status().isNotModified());
+
+        CashOperationRequest deposit = new CashOperationRequest(
+            "DEPOSIT", "LINDA", "BGN", new BigDecimal("10.00"), Map.of(10, 1));
+
+        perform(post("/api/v1/cash-operation")
+                .header(HEADER_NAME, API_KEY)
+                .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
+                .header("If-Match", etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(deposit)))
+            .andExpect(status().isOk());
+
+        // The balance has changed since the tag was read
+        perform(post("/api/v1/cash-operation")
+                .header(HEADER_NAME, API_KEY)
+                .header(IDEMPOTENCY_HEADER, UUID.randomUUID().toString())
+                .header("If-Match", etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(deposit)))
+            .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(get("/api/v1/cash-balance")
+                .header(HEADER_NAME, API_KEY)
+                .header("If-None-Match", etag)
+                .param("cashier", "LINDA"))
+            .andExpect(status().isOk())
+            .andExpect(header().exists("ETag"));
+    }
+
+    /**
+     * Deposit 100 BGN to PETER, then withdraw one more 50 BGN banknote than the opening balance holds.
+     */
+    private static BatchCashOperationRequest depositThenOverdraw(String mode) {
+        return new BatchCashOperationRequest(mode, List.of(
+            new BatchCashOperationItem(UUID.randomUUID().toString(), "DEPOSIT", "PETER", "BGN",
+                new BigDecimal("100.00"), Map.of(10, 10)),
+            new BatchCashOperationItem(UUID.randomUUID().toString(), "WITHDRAWAL", "PETER", "BGN",
+                new BigDecimal("550.00"), Map.of(50, 11))
+        ));
+    }
+
+    /**
+     * Perform a request, completing the async dispatch of cash operations.
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)) : actions;
+    }
 }
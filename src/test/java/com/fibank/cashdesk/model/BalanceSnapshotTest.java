@@ -0,0 +1,73 @@
+package com.fibank.cashdesk.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for BalanceSnapshot model class.
+ */
+@DisplayName("BalanceSnapshot Model Tests")
+class BalanceSnapshotTest {
+
+    @Test
+    @DisplayName("Should capture counts and totals per currency")
+    void shouldCaptureCountsAndTotals() {
+        Map<Currency, CashBalance> balances = new HashMap<>();
+        balances.put(Currency.BGN, new CashBalance(Currency.BGN, Map.of(10, 50, 50, 10)));
+
+        BalanceSnapshot snapshot = BalanceSnapshot.of("MARTINA", balances);
+
+        assertThat(snapshot.getCashier()).isEqualTo("MARTINA");
+        assertThat(snapshot.getCurrencies()).containsExactly(Currency.BGN);
+        assertThat(snapshot.getDenominations(Currency.BGN)).containsExactly(Map.entry(10, 50), Map.entry(50, 10));
+        assertThat(snapshot.getTotal(Currency.BGN)).isEqualByComparingTo(new BigDecimal("1000"));
+        assertThat(snapshot.getDenominations(Currency.EUR)).isEmpty();
+        assertThat(snapshot.getTotal(Currency.EUR)).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    @DisplayName("Should not change when the source balances change")
+    void shouldNotChangeWithSourceBalances() {
+        CashBalance balance = new CashBalance(Currency.EUR, Map.of(20, 5));
+        BalanceSnapshot snapshot = BalanceSnapshot.of("PETER", Map.of(Currency.EUR, balance));
+
+        balance.setDenominationCount(20, 99);
+
+        assertThat(snapshot.getDenominationCount(Currency.EUR, 20)).isEqualTo(5);
+        assertThatThrownBy(() -> snapshot.getDenominations(Currency.EUR).put(20, 1))
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    @DisplayName("Should copy into independent mutable balances")
+    void shouldCopyIntoMutableBalances() {
+        BalanceSnapshot snapshot = BalanceSnapshot.of("LINDA", Map.of(Currency.BGN, new CashBalance(Currency.BGN, Map.of(10, 3))));
+
+        Map<Currency, CashBalance> copy = snapshot.toCashBalances();
+        copy.get(Currency.BGN).setDenominationCount(10, 7);
+
+        assertThat(copy.get(Currency.BGN).getDenominationCount(10)).isEqualTo(7);
+        assertThat(snapshot.getDenominationCount(Currency.BGN, 10)).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should give a replaced currency a higher version and keep the others")
+    void shouldVersionReplacedCurrency() {
+        BalanceSnapshot snapshot = BalanceSnapshot.of("PETER", Map.of(
+            Currency.BGN, new CashBalance(Currency.BGN), Currency.EUR, new CashBalance(Currency.EUR)));
+
+        BalanceSnapshot next = snapshot.with(new CashBalance(Currency.EUR, Map.of(20, 1)));
+
+        assertThat(next.getVersion(Currency.EUR)).isGreaterThan(snapshot.getVersion());
+        assertThat(next.getVersion(Currency.BGN)).isEqualTo(snapshot.getVersion(Currency.BGN));
+        assertThat(next.getVersion()).isEqualTo(next.getVersion(Currency.EUR));
+        assertThat(next.toCashBalance(Currency.BGN).getVersion()).isEqualTo(next.getVersion());
+        assertThat(BalanceSnapshot.of("PETER", Map.of()).getVersion(Currency.BGN)).isZero();
+    }
+}
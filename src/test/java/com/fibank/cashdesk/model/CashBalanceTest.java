@@ -1,5 +1,6 @@
 package com.fibank.cashdesk.model;
 
+import com.fibank.cashdesk.exception.InsufficientFundsException;
 import com.fibank.cashdesk.exception.InvalidDenominationException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -164,4 +165,49 @@ class CashBalanceTest {
 
         assertThat(balance.getDenominationCount(100)).isEqualTo(0);
     }
+
+    @Test
+    @DisplayName("Should keep the running total in step with count changes")
+    void shouldKeepRunningTotalInStep() {
+        CashBalance balance = new CashBalance(Currency.EUR);
+
+        balance.addCounts(new int[]{3, 2, 1});        // 30 + 40 + 50
+        balance.setDenominationCount(20, 5);          // +60
+        balance.removeDenominations(Map.of(50, 1));   // -50
+
+        assertThat(balance.getTotalUnits()).isEqualTo(130);
+        assertThat(balance.calculateTotal()).isEqualByComparingTo(new BigDecimal("130"));
+        assertThat(balance.getCounts()).containsExactly(3, 5, 0);
+    }
+
+    @Test
+    @DisplayName("Should expose counts in denomination table order")
+    void shouldExposeCountsInDenominationTableOrder() {
+        CashBalance balance = new CashBalance(Currency.EUR, Map.of(50, 20, 10, 100));
+
+        assertThat(balance.getCounts()).containsExactly(100, 0, 20);
+        assertThat(balance.getDenominations()).containsExactlyInAnyOrderEntriesOf(Map.of(10, 100, 20, 0, 50, 20));
+        assertThat(balance).isEqualTo(new CashBalance(Currency.EUR, new int[]{100, 0, 20}));
+    }
+
+    @Test
+    @DisplayName("Should leave counts unchanged when removing more than available")
+    void shouldLeaveCountsUnchangedWhenRemovingMoreThanAvailable() {
+        CashBalance balance = new CashBalance(Currency.BGN, new int[]{5, 1});
+
+        assertThatThrownBy(() -> balance.removeCounts(new int[]{2, 3}))
+            .isInstanceOf(InsufficientFundsException.class)
+            .hasMessageContaining("50 notes: available=1, required=3, shortfall=2");
+        assertThat(balance.getCounts()).containsExactly(5, 1);
+        assertThat(balance.getTotalUnits()).isEqualTo(100);
+    }
+
+    @Test
+    @DisplayName("Should reject count arrays of the wrong length")
+    void shouldRejectCountArraysOfWrongLength() {
+        CashBalance balance = new CashBalance(Currency.BGN);
+
+        assertThatThrownBy(() -> balance.addCounts(new int[]{1, 2, 3}))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
 }
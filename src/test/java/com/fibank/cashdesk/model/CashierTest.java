@@ -1,8 +1,12 @@
 package com.fibank.cashdesk.model;
 
+import com.fibank.cashdesk.exception.InvalidCashierException;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.*;
 
 /**
@@ -11,22 +15,24 @@ import static org.assertj.core.api.Assertions.*;
 @DisplayName("Cashier Model Tests")
 class CashierTest {
 
-    @Test
-    @DisplayName("Should validate MARTINA as valid cashier")
-    void shouldValidateMartina() {
-        assertThat(Cashier.isValid("MARTINA")).isTrue();
+    @BeforeAll
+    static void registerConfiguredCashiers() {
+        List.of("MARTINA", "PETER", "LINDA").forEach(Cashier::register);
     }
 
     @Test
-    @DisplayName("Should validate PETER as valid cashier")
-    void shouldValidatePeter() {
+    @DisplayName("Should validate registered cashiers")
+    void shouldValidateRegisteredCashiers() {
+        assertThat(Cashier.isValid("MARTINA")).isTrue();
         assertThat(Cashier.isValid("PETER")).isTrue();
+        assertThat(Cashier.isValid("LINDA")).isTrue();
     }
 
     @Test
-    @DisplayName("Should validate LINDA as valid cashier")
-    void shouldValidateLinda() {
-        assertThat(Cashier.isValid("LINDA")).isTrue();
+    @DisplayName("Should not know a cashier that is not registered")
+    void shouldNotKnowUnregisteredCashier() {
+        assertThat(Cashier.isValid("NOT_CONFIGURED")).isFalse();
+        assertThatThrownBy(() -> new Cashier("NOT_CONFIGURED")).isInstanceOf(InvalidCashierException.class);
     }
 
     @Test
@@ -52,4 +58,38 @@ class CashierTest {
         assertThat(Cashier.isValid("PETER")).isTrue();
         assertThat(Cashier.isValid("peter")).isTrue();
     }
+
+    @Test
+    @DisplayName("Should give cashiers consecutive ids in registration order")
+    void shouldGiveIdsInRegistrationOrder() {
+        int first = Cashier.register("DESK_ORDER_1");
+
+        assertThat(Cashier.register("DESK_ORDER_2")).isEqualTo(first + 1);
+        assertThat(new Cashier("desk_order_2").getId()).isEqualTo(first + 1);
+        assertThat(Cashier.nameOf(first)).isEqualTo("DESK_ORDER_1");
+        assertThat(Cashier.idOf("desk_order_1")).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("Should register a cashier once under its upper-case name")
+    void shouldRegisterCashierOnce() {
+        int id = Cashier.register(" desk_0001 ");
+
+        assertThat(Cashier.register("DESK_0001")).isEqualTo(id);
+        assertThat(Cashier.idOf("DESK_0001")).isEqualTo(id);
+        assertThat(Cashier.nameOf(id)).isEqualTo("DESK_0001");
+        assertThat(Cashier.isValid("desk_0001")).isTrue();
+        assertThat(Cashier.getValidCashiers()).contains("DESK_0001");
+        assertThat(Cashier.count()).isGreaterThan(id);
+    }
+
+    @Test
+    @DisplayName("Should reject malformed cashier names")
+    void shouldRejectMalformedNames() {
+        assertThatThrownBy(() -> Cashier.register("1DESK")).isInstanceOf(InvalidCashierException.class);
+        assertThatThrownBy(() -> Cashier.register("DESK-1")).isInstanceOf(InvalidCashierException.class);
+        assertThatThrownBy(() -> Cashier.register("D".repeat(33))).isInstanceOf(InvalidCashierException.class);
+        assertThatThrownBy(() -> Cashier.register(null)).isInstanceOf(InvalidCashierException.class);
+        assertThatThrownBy(() -> Cashier.nameOf(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
 }
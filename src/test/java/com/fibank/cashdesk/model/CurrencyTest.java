@@ -5,12 +5,13 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.*;
 
 /**
- * Unit tests for Currency enum.
+ * Unit tests for Currency registry.
  */
 @DisplayName("Currency Model Tests")
 class CurrencyTest {
@@ -76,4 +77,77 @@ class CurrencyTest {
             .isInstanceOf(InvalidDenominationException.class)
             .hasMessageContaining("Invalid denomination 100 for currency EUR");
     }
+
+    @Test
+    @DisplayName("Should index denominations in ascending order")
+    void shouldIndexDenominationsInAscendingOrder() {
+        assertThat(Currency.EUR.getDenominationTable()).containsExactly(10, 20, 50);
+        assertThat(Currency.EUR.indexOf(20)).isEqualTo(1);
+        assertThat(Currency.EUR.denominationAt(2)).isEqualTo(50);
+        assertThat(Currency.BGN.indexOf(20)).isEqualTo(-1);
+        assertThat(Currency.BGN.indexOf(1000)).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("Should convert denomination map to count array")
+    void shouldConvertDenominationMapToCountArray() {
+        int[] counts = Currency.EUR.toCounts(Map.of(50, 2, 10, 3));
+
+        assertThat(counts).containsExactly(3, 0, 2);
+        assertThat(Currency.EUR.totalOf(counts)).isEqualTo(130);
+        assertThatThrownBy(() -> Currency.BGN.toCounts(Map.of(20, 1)))
+            .isInstanceOf(InvalidDenominationException.class)
+            .hasMessageContaining("Invalid denomination 20 for currency BGN");
+    }
+
+    @Test
+    @DisplayName("Should look up currencies by code and id")
+    void shouldLookUpCurrenciesByCodeAndId() {
+        assertThat(Currency.valueOf("EUR")).isSameAs(Currency.EUR);
+        assertThat(Currency.byId(0)).isSameAs(Currency.BGN);
+        assertThat(Currency.values()).startsWith(Currency.BGN, Currency.EUR);
+        assertThat(Currency.isSupported("BGN")).isTrue();
+        assertThat(Currency.isSupported("USD")).isFalse();
+        assertThat(Currency.isSupported(null)).isFalse();
+        assertThatThrownBy(() -> Currency.valueOf("USD"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Unsupported currency: USD");
+        assertThatThrownBy(() -> Currency.byId(Currency.MAX_ID))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should provide initial counts indexed by the denomination table")
+    void shouldProvideInitialCounts() {
+        assertThat(Currency.BGN.getInitialCounts()).containsExactly(50, 10);
+        assertThat(Currency.EUR.getInitialCounts()).containsExactly(100, 0, 20);
+    }
+
+    @Test
+    @DisplayName("Should keep the instance when re-registering a currency")
+    void shouldKeepInstanceWhenReRegistering() {
+        Currency registered = Currency.register("BGN", 0, List.of(50, 10), Map.of(10, 50, 50, 10));
+
+        assertThat(registered).isSameAs(Currency.BGN);
+        assertThat(Currency.BGN.getDenominationTable()).containsExactly(10, 50);
+    }
+
+    @Test
+    @DisplayName("Should reject invalid registrations")
+    void shouldRejectInvalidRegistrations() {
+        assertThatThrownBy(() -> Currency.register("BGN", 5, List.of(10, 50), Map.of()))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("cannot change it to 5");
+        assertThatThrownBy(() -> Currency.register("USD", 1, List.of(1, 5), Map.of()))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("already taken by EUR");
+        assertThatThrownBy(() -> Currency.register("usd", 9, List.of(1, 5), Map.of()))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Currency.register("USD", 9, List.of(0, 5), Map.of()))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Currency.register("USD", 9, List.of(1, 5), Map.of(2, 1)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("denomination 2");
+        assertThat(Currency.isSupported("USD")).isFalse();
+    }
 }
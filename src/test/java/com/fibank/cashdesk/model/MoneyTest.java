@@ -0,0 +1,71 @@
+package com.fibank.cashdesk.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for Money value type.
+ */
+@DisplayName("Money Model Tests")
+class MoneyTest {
+
+    @Test
+    @DisplayName("Should convert decimal amounts to minor units")
+    void shouldConvertDecimalAmountsToMinorUnits() {
+        assertThat(Money.of(Currency.BGN, new BigDecimal("600")).getMinorUnits()).isEqualTo(60000);
+        assertThat(Money.of(Currency.BGN, new BigDecimal("12.5")).getMinorUnits()).isEqualTo(1250);
+        assertThat(Money.of(Currency.BGN, new BigDecimal("0.010")).getMinorUnits()).isEqualTo(1);
+        assertThat(Money.ofUnits(Currency.EUR, 70)).isEqualTo(Money.of(Currency.EUR, new BigDecimal("70.00")));
+    }
+
+    @Test
+    @DisplayName("Should reject amounts finer than a minor unit")
+    void shouldRejectAmountsFinerThanMinorUnit() {
+        assertThatThrownBy(() -> Money.of(Currency.BGN, new BigDecimal("10.001")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("10.001");
+    }
+
+    @Test
+    @DisplayName("Should convert back to a decimal with two places")
+    void shouldConvertBackToDecimalWithTwoPlaces() {
+        Money amount = Money.ofMinorUnits(Currency.EUR, 7000);
+
+        assertThat(amount.toBigDecimal()).isEqualTo(new BigDecimal("70.00"));
+        assertThat(amount).hasToString("70.00 EUR");
+    }
+
+    @Test
+    @DisplayName("Should add, subtract and multiply exactly")
+    void shouldAddSubtractAndMultiplyExactly() {
+        Money ten = Money.ofUnits(Currency.BGN, 10);
+
+        assertThat(ten.times(5).plus(ten).getMinorUnits()).isEqualTo(6000);
+        assertThat(ten.minus(ten.times(3)).signum()).isEqualTo(-1);
+        assertThat(Money.zero(Currency.BGN).signum()).isZero();
+        assertThat(ten.compareTo(Money.ofMinorUnits(Currency.BGN, 999))).isPositive();
+    }
+
+    @Test
+    @DisplayName("Should throw on overflow")
+    void shouldThrowOnOverflow() {
+        Money max = Money.ofMinorUnits(Currency.BGN, Long.MAX_VALUE);
+
+        assertThatThrownBy(() -> max.plus(Money.ofMinorUnits(Currency.BGN, 1)))
+            .isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.ofUnits(Currency.BGN, Long.MAX_VALUE / 10))
+            .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    @DisplayName("Should reject arithmetic across currencies")
+    void shouldRejectArithmeticAcrossCurrencies() {
+        assertThatThrownBy(() -> Money.ofUnits(Currency.BGN, 10).plus(Money.ofUnits(Currency.EUR, 10)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Currency mismatch");
+    }
+}
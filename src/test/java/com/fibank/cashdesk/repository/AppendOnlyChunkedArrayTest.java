@@ -0,0 +1,81 @@
+package com.fibank.cashdesk.repository;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for the append-only chunked array behind the transaction index.
+ */
+@DisplayName("AppendOnlyChunkedArray Tests")
+class AppendOnlyChunkedArrayTest {
+
+    @Test
+    @DisplayName("Should keep elements in append order across chunks")
+    void shouldKeepAppendOrderAcrossChunks() {
+        AppendOnlyChunkedArray<Integer> array = new AppendOnlyChunkedArray<>();
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(array.add(i)).isEqualTo(i);
+        }
+
+        assertThat(array.size()).isEqualTo(100_000);
+        assertThat(array.get(0)).isZero();
+        assertThat(array.get(4096)).isEqualTo(4096);
+        assertThat(array.get(99_999)).isEqualTo(99_999);
+        assertThatThrownBy(() -> array.get(100_000)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    @DisplayName("Should not show later appends in a snapshot")
+    void shouldNotShowLaterAppendsInSnapshot() {
+        AppendOnlyChunkedArray<String> array = new AppendOnlyChunkedArray<>();
+        array.add("a");
+        array.add("b");
+
+        List<String> snapshot = array.snapshot();
+        array.add("c");
+
+        assertThat(snapshot).containsExactly("a", "b");
+        assertThat(array.snapshot()).containsExactly("a", "b", "c");
+        assertThatThrownBy(() -> snapshot.add("d")).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    @DisplayName("Should give readers complete snapshots while the writer appends")
+    void shouldGiveCompleteSnapshotsDuringAppends() throws InterruptedException {
+        AppendOnlyChunkedArray<Integer> array = new AppendOnlyChunkedArray<>();
+        int count = 200_000;
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            try {
+                while (!done.get()) {
+                    List<Integer> snapshot = array.snapshot();
+                    int index = 0;
+                    for (Integer element : snapshot) {
+                        if (element == null || element != index++) {
+                            throw new AssertionError("Unexpected element " + element + " at " + (index - 1));
+                        }
+                    }
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        reader.start();
+
+        for (int i = 0; i < count; i++) {
+            array.add(i);
+        }
+        done.set(true);
+        reader.join();
+
+        assertThat(failure.get()).isNull();
+        assertThat(array.snapshot()).hasSize(count);
+    }
+}
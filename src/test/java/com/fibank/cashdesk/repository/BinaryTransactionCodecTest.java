@@ -0,0 +1,165 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.exception.DataCorruptionException;
+import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.OperationType;
+import com.fibank.cashdesk.model.Transaction;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for the binary transaction log format.
+ */
+@DisplayName("BinaryTransactionCodec Tests")
+class BinaryTransactionCodecTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path logFile;
+
+    @BeforeEach
+    void setUp() {
+        logFile = tempDir.resolve("transactions.dat");
+    }
+
+    @Test
+    @DisplayName("Should round-trip transactions with all fields")
+    void shouldRoundTripTransactions() throws IOException {
+        Transaction deposit = new Transaction(UUID.randomUUID(), Instant.parse("2024-10-24T10:15:30.123456Z"),
+            "MARTINA", OperationType.DEPOSIT, Currency.BGN, new BigDecimal("600.00"), Map.of(10, 10, 50, 10));
+        Transaction withdrawal = new Transaction(UUID.randomUUID(), Instant.parse("2024-10-24T11:00:00Z"),
+            "PETER", OperationType.WITHDRAWAL, Currency.EUR, new BigDecimal("70"), Map.of(20, 1, 50, 1));
+        Transaction second = new Transaction(UUID.randomUUID(), Instant.parse("2024-10-24T12:00:00Z"),
+            "MARTINA", OperationType.WITHDRAWAL, Currency.BGN, new BigDecimal("10.00"), Map.of(10, 1));
+
+        writeLog(deposit, withdrawal, second);
+        List<Transaction> loaded = load();
+
+        assertThat(loaded).hasSize(3);
+        assertSameTransaction(loaded.get(0), deposit);
+        assertSameTransaction(loaded.get(1), withdrawal);
+        assertSameTransaction(loaded.get(2), second);
+    }
+
+    @Test
+    @DisplayName("Should write the cashier name only once")
+    void shouldWriteCashierDictionaryOnce() {
+        BinaryTransactionCodec codec = new BinaryTransactionCodec();
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+
+        codec.encode(newTransaction("MARTINA"), first);
+        codec.encode(newTransaction("MARTINA"), second);
+
+        assertThat(first.size()).isGreaterThan(second.size());
+        assertThat(second.toString()).doesNotContain("MARTINA");
+    }
+
+    @Test
+    @DisplayName("Should truncate a torn record at the end of the file")
+    void shouldTruncateTornTail() throws IOException {
+        Transaction tx = newTransaction("LINDA");
+        writeLog(tx);
+        long validSize = Files.size(logFile);
+        Files.write(logFile, new byte[]{0, 0, 0, 40, 2, 1, 2}, StandardOpenOption.APPEND);
+
+        List<Transaction> loaded = load();
+
+        assertThat(loaded).extracting(Transaction::getId).containsExactly(tx.getId());
+        assertThat(Files.size(logFile)).isEqualTo(validSize);
+    }
+
+    @Test
+    @DisplayName("Should skip a corrupted record and continue with the next one")
+    void shouldSkipCorruptedRecord() throws IOException {
+        Transaction first = newTransaction("LINDA");
+        Transaction second = newTransaction("LINDA");
+        writeLog(first);
+        // Well-framed record of an unknown type
+        Files.write(logFile, new byte[]{0, 0, 0, 2, 9, 9}, StandardOpenOption.APPEND);
+        appendLog(second);
+
+        List<Transaction> loaded = load();
+
+        assertThat(loaded).extracting(Transaction::getId).containsExactly(first.getId(), second.getId());
+    }
+
+    @Test
+    @DisplayName("Should reject files with an unsupported format version")
+    void shouldRejectUnsupportedVersion() throws IOException {
+        Files.write(logFile, ByteBuffer.allocate(BinaryTransactionCodec.HEADER_SIZE)
+            .putInt(BinaryTransactionCodec.MAGIC)
+            .putShort((short) (BinaryTransactionCodec.FORMAT_VERSION + 1))
+            .putShort((short) 0)
+            .array());
+
+        assertThatThrownBy(this::load)
+            .isInstanceOf(DataCorruptionException.class)
+            .hasMessageContaining("Unsupported");
+    }
+
+    @Test
+    @DisplayName("Should reject files that are not binary transaction logs")
+    void shouldRejectForeignFile() throws IOException {
+        Files.writeString(logFile, "2024-10-24T10:00:00Z|MARTINA|DEPOSIT|BGN|100.00|10:10\n");
+
+        assertThatThrownBy(this::load)
+            .isInstanceOf(DataCorruptionException.class)
+            .hasMessageContaining("Not a binary transaction log");
+    }
+
+    private void writeLog(Transaction... transactions) throws IOException {
+        BinaryTransactionCodec codec = new BinaryTransactionCodec();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(codec.header());
+        for (Transaction transaction : transactions) {
+            codec.encode(transaction, out);
+        }
+        Files.write(logFile, out.toByteArray());
+    }
+
+    private void appendLog(Transaction transaction) throws IOException {
+        BinaryTransactionCodec codec = new BinaryTransactionCodec();
+        codec.load(logFile, tx -> { });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.encode(transaction, out);
+        Files.write(logFile, out.toByteArray(), StandardOpenOption.APPEND);
+    }
+
+    private List<Transaction> load() throws IOException {
+        List<Transaction> loaded = new ArrayList<>();
+        new BinaryTransactionCodec().load(logFile, loaded::add);
+        return loaded;
+    }
+
+    private void assertSameTransaction(Transaction actual, Transaction expected) {
+        assertThat(actual.getId()).isEqualTo(expected.getId());
+        assertThat(actual.getTimestamp()).isEqualTo(expected.getTimestamp());
+        assertThat(actual.getCashier()).isEqualTo(expected.getCashier());
+        assertThat(actual.getOperationType()).isEqualTo(expected.getOperationType());
+        assertThat(actual.getCurrency()).isEqualTo(expected.getCurrency());
+        assertThat(actual.getAmount()).isEqualByComparingTo(expected.getAmount());
+        assertThat(actual.getDenominations()).isEqualTo(expected.getDenominations());
+    }
+
+    private Transaction newTransaction(String cashier) {
+        return Transaction.create(cashier, OperationType.DEPOSIT,
+            Currency.BGN, new BigDecimal("10.00"), Map.of(10, 1));
+    }
+}
@@ -1,21 +1,34 @@
 package com.fibank.cashdesk.repository;
 
 import com.fibank.cashdesk.exception.FileStorageException;
+import com.fibank.cashdesk.exception.InsufficientFundsException;
+import com.fibank.cashdesk.model.BalanceSnapshot;
 import com.fibank.cashdesk.model.CashBalance;
 import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.OperationType;
+import com.fibank.cashdesk.model.Transaction;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Comprehensive tests for FileBalanceRepository.
@@ -134,6 +147,22 @@ class FileBalanceRepositoryTest {
         assertThat(balances).containsKeys(Currency.BGN, Currency.EUR);
     }
 
+    @Test
+    @DisplayName("Should keep a read snapshot unchanged by later saves")
+    void shouldKeepSnapshotUnchangedByLaterSaves() {
+        repository.initialize();
+        BalanceSnapshot before = repository.findSnapshot("MARTINA");
+
+        Map<Currency, CashBalance> balances = repository.findByCashier("MARTINA");
+        balances.get(Currency.BGN).setDenominationCount(10, 7);
+        repository.save("MARTINA", balances);
+
+        assertThat(before.getDenominationCount(Currency.BGN, 10)).isEqualTo(50);
+        assertThat(repository.findSnapshot("MARTINA").getDenominationCount(Currency.BGN, 10)).isEqualTo(7);
+        assertThat(repository.findAllSnapshots()).containsOnlyKeys("MARTINA", "PETER", "LINDA");
+        assertThat(repository.findSnapshot("MARTINA")).isSameAs(repository.findSnapshot("MARTINA"));
+    }
+
     @Test
     @DisplayName("Should throw exception for unknown cashier")
     void shouldThrowExceptionForUnknownCashier() {
@@ -232,8 +261,422 @@ class FileBalanceRepositoryTest {
         assertThat(retrieved.get(Currency.EUR).getDenominationCount(20)).isEqualTo(50);
     }
 
+    @Test
+    @DisplayName("Should persist balances in ASYNC durability after background flush")
+    void shouldPersistBalancesInAsyncDurability() {
+        ReflectionTestUtils.setField(repository, "durability", DurabilityMode.ASYNC);
+        repository.initialize();
+
+        Map<Currency, CashBalance> newBalances = new HashMap<>();
+        CashBalance bgnBalance = new CashBalance(Currency.BGN);
+        bgnBalance.setDenominationCount(10, 42);
+        newBalances.put(Currency.BGN, bgnBalance);
+
+        repository.save("LINDA", newBalances);
+        repository.flush();
+
+        FileBalanceRepository newRepo = new FileBalanceRepository();
+        ReflectionTestUtils.setField(newRepo, "balanceFilePath", balanceFilePath);
+        ReflectionTestUtils.setField(newRepo, "cashierNames", List.of("MARTINA", "PETER", "LINDA"));
+        newRepo.initialize();
+
+        assertThat(newRepo.findByCashier("LINDA").get(Currency.BGN).getDenominationCount(10)).isEqualTo(42);
+    }
+
+    @Test
+    @DisplayName("Should update only the changed counts in place")
+    void shouldUpdateChangedCountsInPlace() throws IOException {
+        repository.initialize();
+        List<String> before = Files.readAllLines(Path.of(balanceFilePath));
+        assertThat(before).contains("MARTINA|BGN|10|0000000050", "PETER|EUR|50|0000000020");
+
+        Map<Currency, CashBalance> balances = repository.findByCashier("PETER");
+        balances.get(Currency.BGN).setDenominationCount(10, 123);
+        repository.save("PETER", balances);
+
+        List<String> after = Files.readAllLines(Path.of(balanceFilePath));
+        assertThat(after).hasSameSizeAs(before);
+        for (int i = 0; i < before.size(); i++) {
+            if (before.get(i).startsWith("PETER|BGN|10|")) {
+                assertThat(after.get(i)).isEqualTo("PETER|BGN|10|0000000123");
+            } else {
+                assertThat(after.get(i)).isEqualTo(before.get(i));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should append the records of an added cashier without rewriting the file")
+    void shouldAppendAddedCashier() throws IOException {
+        repository.initialize();
+        List<String> before = Files.readAllLines(Path.of(balanceFilePath));
+
+        assertThat(repository.addCashier("desk_0101")).isTrue();
+        assertThat(repository.addCashier("DESK_0101")).isFalse();
+
+        List<String> after = Files.readAllLines(Path.of(balanceFilePath));
+        assertThat(after.subList(0, before.size())).isEqualTo(before);
+        assertThat(after.subList(before.size(), after.size()))
+            .contains("DESK_0101|BGN|10|0000000050", "DESK_0101|EUR|50|0000000020");
+
+        Map<Currency, CashBalance> balances = repository.findByCashier("DESK_0101");
+        balances.get(Currency.BGN).setDenominationCount(10, 7);
+        repository.save("DESK_0101", balances);
+
+        FileBalanceRepository newRepo = new FileBalanceRepository();
+        ReflectionTestUtils.setField(newRepo, "balanceFilePath", balanceFilePath);
+        ReflectionTestUtils.setField(newRepo, "cashierNames", List.of("MARTINA", "PETER", "LINDA"));
+        newRepo.initialize();
+
+        assertThat(newRepo.findCashiers()).containsExactly("MARTINA", "PETER", "LINDA", "DESK_0101");
+        assertThat(newRepo.findByCashier("DESK_0101").get(Currency.BGN).getDenominationCount(10)).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("Should apply a batch in order and persist it")
+    void shouldApplyBatchInOrder() {
+        repository.initialize();
+        List<BalanceUpdate> updates = List.of(
+            new BalanceUpdate("PETER", Currency.BGN, balance -> { balance.addDenominations(Map.of(10, 10)); return null; }),
+            new BalanceUpdate("PETER", Currency.BGN, balance -> { balance.removeDenominations(Map.of(10, 55)); return null; }),
+            new BalanceUpdate("LINDA", Currency.EUR, balance -> { balance.addDenominations(Map.of(20, 3)); return null; })
+        );
+
+        repository.updateAll(updates, true);
+
+        assertThat(updates).allMatch(BalanceUpdate::isApplied);
+        assertThat(repository.findSnapshot("PETER").getDenominationCount(Currency.BGN, 10)).isEqualTo(5);
+        assertThat(repository.findSnapshot("LINDA").getDenominationCount(Currency.EUR, 20)).isEqualTo(3);
+
+        FileBalanceRepository newRepo = new FileBalanceRepository();
+        ReflectionTestUtils.setField(newRepo, "balanceFilePath", balanceFilePath);
+        ReflectionTestUtils.setField(newRepo, "cashierNames", List.of("MARTINA", "PETER", "LINDA"));
+        newRepo.initialize();
+        assertThat(newRepo.findSnapshot("PETER").getDenominationCount(Currency.BGN, 10)).isEqualTo(5);
+        assertThat(newRepo.findSnapshot("LINDA").getDenominationCount(Currency.EUR, 20)).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should leave every balance unchanged when an update of an atomic batch fails")
+    void shouldRejectAtomicBatch() {
+        repository.initialize();
+        List<BalanceUpdate> updates = List.of(
+            new BalanceUpdate("MARTINA", Currency.BGN, balance -> { balance.addDenominations(Map.of(10, 1)); return null; }),
+            new BalanceUpdate("PETER", Currency.EUR, balance -> { balance.removeDenominations(Map.of(50, 21)); return null; })
+        );
+
+        assertThatThrownBy(() -> repository.updateAll(updates, true))
+            .isInstanceOf(InsufficientFundsException.class);
+
+        assertThat(updates).noneMatch(BalanceUpdate::isApplied);
+        assertThat(updates.get(1).getFailure()).isInstanceOf(InsufficientFundsException.class);
+        assertThat(repository.findSnapshot("MARTINA").getDenominationCount(Currency.BGN, 10)).isEqualTo(50);
+        assertThat(repository.findSnapshot("PETER").getDenominationCount(Currency.EUR, 50)).isEqualTo(20);
+    }
+
+    @Test
+    @DisplayName("Should publish nothing of an atomic batch when an append fails in LOG mode")
+    void shouldPublishNothingOfAtomicBatchWhenAppendFails() {
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        when(transactionRepository.findAll()).thenReturn(List.of());
+        when(transactionRepository.saveAsync(any()))
+            .thenReturn(CompletableFuture.completedFuture(null))
+            .thenReturn(CompletableFuture.failedFuture(new FileStorageException("Disk full")));
+        ReflectionTestUtils.setField(repository, "balanceSource", BalanceSource.LOG);
+        ReflectionTestUtils.setField(repository, "checkpointIntervalMillis", 60_000L);
+        ReflectionTestUtils.setField(repository, "transactionRepository", transactionRepository);
+        repository.initialize();
+        List<BalanceUpdate> updates = List.of(
+            new BalanceUpdate("MARTINA", Currency.BGN, balance -> {
+                balance.addDenominations(Map.of(10, 1));
+                return Transaction.create("MARTINA", OperationType.DEPOSIT, Currency.BGN, new BigDecimal("10"), Map.of(10, 1));
+            }),
+            new BalanceUpdate("PETER", Currency.BGN, balance -> {
+                balance.addDenominations(Map.of(10, 2));
+                return Transaction.create("PETER", OperationType.DEPOSIT, Currency.BGN, new BigDecimal("20"), Map.of(10, 2));
+            })
+        );
+
+        assertThatThrownBy(() -> repository.updateAll(updates, true))
+            .isInstanceOf(FileStorageException.class);
+
+        assertThat(updates).noneMatch(BalanceUpdate::isApplied);
+        assertThat(updates.get(0).getFailure()).isNull();
+        assertThat(updates.get(1).getFailure()).isInstanceOf(FileStorageException.class);
+        assertThat(repository.findSnapshot("MARTINA").getDenominationCount(Currency.BGN, 10)).isEqualTo(50);
+        assertThat(repository.findSnapshot("PETER").getDenominationCount(Currency.BGN, 10)).isEqualTo(50);
+        repository.close();
+    }
+
+    @Test
+    @DisplayName("Should skip failing updates of a best-effort batch")
+    void shouldSkipFailingUpdatesOfBestEffortBatch() {
+        repository.initialize();
+        List<BalanceUpdate> updates = List.of(
+            new BalanceUpdate("MARTINA", Currency.BGN, balance -> { balance.addDenominations(Map.of(10, 1)); return null; }),
+            new BalanceUpdate("MARTINA", Currency.BGN, balance -> { balance.removeDenominations(Map.of(50, 11)); return null; }),
+            new BalanceUpdate("MARTINA", Currency.BGN, balance -> { balance.removeDenominations(Map.of(50, 1)); return null; })
+        );
+
+        repository.updateAll(updates, false);
+
+        assertThat(updates).extracting(BalanceUpdate::isApplied).containsExactly(true, false, true);
+        BalanceSnapshot martina = repository.findSnapshot("MARTINA");
+        assertThat(martina.getDenominationCount(Currency.BGN, 10)).isEqualTo(51);
+        assertThat(martina.getDenominationCount(Currency.BGN, 50)).isEqualTo(9);
+    }
+
+    @Test
+    @DisplayName("Should replay logged transactions newer than the last write-behind flush")
+    void shouldReplayLogTailInWriteBehindMode() {
+        List<Transaction> transactionLog = new ArrayList<>();
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        when(transactionRepository.findAll()).thenAnswer(invocation -> new ArrayList<>(transactionLog));
+        doAnswer(invocation -> transactionLog.add(invocation.getArgument(0))).when(transactionRepository).save(any());
+        ReflectionTestUtils.setField(repository, "writeBehind", true);
+        ReflectionTestUtils.setField(repository, "flushIntervalMillis", 60_000L);
+        ReflectionTestUtils.setField(repository, "transactionRepository", transactionRepository);
+        repository.initialize();
+        assertThat(repository.appendsTransactions()).isTrue();
+
+        Transaction flushed = deposit(repository, "MARTINA", 5);
+        repository.flushDirtyBalances();
+        deposit(repository, "MARTINA", 7);
+        deposit(repository, "PETER", 1);
+        assertThat(transactionLog).hasSize(3);
+        assertThat(new File(balanceFilePath)).content().contains("MARTINA|BGN|10|0000000055", "PETER|BGN|10|0000000050",
+            "MARTINA|LAST|BGN|" + flushed.getId());
+
+        // A failed append leaves the balance unchanged
+        doThrow(new FileStorageException("Disk full")).when(transactionRepository).save(any());
+        assertThatThrownBy(() -> deposit(repository, "LINDA", 3)).isInstanceOf(FileStorageException.class);
+        assertThat(repository.findSnapshot("LINDA").getDenominationCount(Currency.BGN, 10)).isEqualTo(50);
+
+        // Restart without closing, as after a crash
+        FileBalanceRepository newRepo = new FileBalanceRepository();
+        ReflectionTestUtils.setField(newRepo, "balanceFilePath", balanceFilePath);
+        ReflectionTestUtils.setField(newRepo, "cashierNames", List.of("MARTINA", "PETER", "LINDA"));
+        ReflectionTestUtils.setField(newRepo, "writeBehind", true);
+        ReflectionTestUtils.setField(newRepo, "transactionRepository", transactionRepository);
+        newRepo.initialize();
+
+        assertThat(newRepo.findByCashier("MARTINA").get(Currency.BGN).getDenominationCount(10)).isEqualTo(62);
+        assertThat(newRepo.findByCashier("PETER").get(Currency.BGN).getDenominationCount(10)).isEqualTo(51);
+        assertThat(newRepo.findByCashier("LINDA").get(Currency.BGN).getDenominationCount(10)).isEqualTo(50);
+        newRepo.close();
+        repository.close();
+    }
+
+    @Test
+    @DisplayName("Should keep the last flushed balances and anchors when a write-behind flush is torn")
+    void shouldSurviveTornWriteBehindFlush() throws IOException {
+        List<Transaction> transactionLog = new ArrayList<>();
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        when(transactionRepository.findAll()).thenAnswer(invocation -> new ArrayList<>(transactionLog));
+        doAnswer(invocation -> transactionLog.add(invocation.getArgument(0))).when(transactionRepository).save(any());
+        ReflectionTestUtils.setField(repository, "writeBehind", true);
+        ReflectionTestUtils.setField(repository, "flushIntervalMillis", 60_000L);
+        ReflectionTestUtils.setField(repository, "transactionRepository", transactionRepository);
+        repository.initialize();
+
+        Transaction flushed = deposit(repository, "MARTINA", 5);
+        repository.flushDirtyBalances();
+        String flushedContent = Files.readString(Path.of(balanceFilePath));
+        Transaction logged = deposit(repository, "MARTINA", 7);
+
+        // A flush that cannot write its temporary file leaves the balance file as it was
+        Path tempFile = tempDir.resolve("balances.tmp");
+        Files.createDirectory(tempFile);
+        repository.flushDirtyBalances();
+        assertThat(Files.readString(Path.of(balanceFilePath))).isEqualTo(flushedContent);
+
+        // Crash midway through writing the temporary file: the new counts are there, their anchor is not
+        Files.deleteIfExists(tempFile);
+        Files.writeString(tempFile, "MARTINA|BGN|10|0000000062\nMARTINA|BGN|20|00000");
+        assertThat(Files.readString(Path.of(balanceFilePath))).isEqualTo(flushedContent)
+            .contains("MARTINA|BGN|10|0000000055", "MARTINA|LAST|BGN|" + flushed.getId());
+
+        // Restart without closing: the tail is replayed exactly once onto the last complete flush
+        FileBalanceRepository newRepo = new FileBalanceRepository();
+        ReflectionTestUtils.setField(newRepo, "balanceFilePath", balanceFilePath);
+        ReflectionTestUtils.setField(newRepo, "cashierNames", List.of("MARTINA", "PETER", "LINDA"));
+        ReflectionTestUtils.setField(newRepo, "writeBehind", true);
+        ReflectionTestUtils.setField(newRepo, "transactionRepository", transactionRepository);
+        newRepo.initialize();
+        assertThat(newRepo.findByCashier("MARTINA").get(Currency.BGN).getDenominationCount(10)).isEqualTo(62);
+        newRepo.close();
+
+        // The failed flush left the cashier dirty, so the next one writes it with its anchor
+        repository.flushDirtyBalances();
+        assertThat(new File(balanceFilePath)).content()
+            .contains("MARTINA|BGN|10|0000000062", "MARTINA|LAST|BGN|" + logged.getId());
+        repository.close();
+    }
+
+    @Test
+    @DisplayName("Should replay each currency from its own last saved transaction")
+    void shouldReplayEachCurrencyFromItsOwnAnchor() throws IOException {
+        Transaction eurFlushed = Transaction.create("MARTINA", OperationType.DEPOSIT, Currency.EUR,
+            new BigDecimal("10"), Map.of(10, 1));
+        Transaction eurLogged = Transaction.create("MARTINA", OperationType.DEPOSIT, Currency.EUR,
+            new BigDecimal("20"), Map.of(10, 2));
+        Transaction bgnFlushed = Transaction.create("MARTINA", OperationType.DEPOSIT, Currency.BGN,
+            new BigDecimal("10"), Map.of(10, 1));
+        // The EUR deposit was logged before the BGN one, but only the BGN balance was written with it
+        List<Transaction> transactionLog = List.of(eurFlushed, eurLogged, bgnFlushed);
+        Files.writeString(Path.of(balanceFilePath), String.join("\n",
+            "MARTINA|BGN|10|51",
+            "MARTINA|EUR|10|101",
+            "MARTINA|LAST|BGN|" + bgnFlushed.getId(),
+            "MARTINA|LAST|EUR|" + eurFlushed.getId()) + "\n");
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        when(transactionRepository.findAll()).thenReturn(transactionLog);
+        ReflectionTestUtils.setField(repository, "writeBehind", true);
+        ReflectionTestUtils.setField(repository, "flushIntervalMillis", 60_000L);
+        ReflectionTestUtils.setField(repository, "transactionRepository", transactionRepository);
+
+        repository.initialize();
+
+        assertThat(repository.findSnapshot("MARTINA").getDenominationCount(Currency.BGN, 10)).isEqualTo(51);
+        assertThat(repository.findSnapshot("MARTINA").getDenominationCount(Currency.EUR, 10)).isEqualTo(103);
+        assertThat(new File(balanceFilePath)).content()
+            .contains("MARTINA|LAST|BGN|" + bgnFlushed.getId(), "MARTINA|LAST|EUR|" + eurLogged.getId());
+        repository.close();
+    }
+
+    @Test
+    @DisplayName("Should replay from a cashier-wide last transaction of an older balance file")
+    void shouldReplayFromCashierWideAnchor() throws IOException {
+        Transaction bgnFlushed = Transaction.create("MARTINA", OperationType.DEPOSIT, Currency.BGN,
+            new BigDecimal("10"), Map.of(10, 1));
+        Transaction eurLogged = Transaction.create("MARTINA", OperationType.DEPOSIT, Currency.EUR,
+            new BigDecimal("20"), Map.of(10, 2));
+        Files.writeString(Path.of(balanceFilePath), String.join("\n",
+            "MARTINA|BGN|10|51",
+            "MARTINA|EUR|10|100",
+            "MARTINA|LAST|" + bgnFlushed.getId()) + "\n");
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        when(transactionRepository.findAll()).thenReturn(List.of(bgnFlushed, eurLogged));
+        ReflectionTestUtils.setField(repository, "writeBehind", true);
+        ReflectionTestUtils.setField(repository, "flushIntervalMillis", 60_000L);
+        ReflectionTestUtils.setField(repository, "transactionRepository", transactionRepository);
+
+        repository.initialize();
+
+        assertThat(repository.findSnapshot("MARTINA").getDenominationCount(Currency.BGN, 10)).isEqualTo(51);
+        assertThat(repository.findSnapshot("MARTINA").getDenominationCount(Currency.EUR, 10)).isEqualTo(102);
+        repository.close();
+    }
+
+    @Test
+    @DisplayName("Should derive balances from the transaction log in LOG mode")
+    void shouldDeriveBalancesFromLogInLogMode() {
+        List<Transaction> transactionLog = new ArrayList<>();
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        when(transactionRepository.findAll()).thenAnswer(invocation -> new ArrayList<>(transactionLog));
+        doAnswer(invocation -> transactionLog.add(invocation.getArgument(0))).when(transactionRepository).save(any());
+        ReflectionTestUtils.setField(repository, "balanceSource", BalanceSource.LOG);
+        ReflectionTestUtils.setField(repository, "checkpointIntervalMillis", 60_000L);
+        ReflectionTestUtils.setField(repository, "transactionRepository", transactionRepository);
+        repository.initialize();
+        assertThat(repository.appendsTransactions()).isTrue();
+
+        deposit(repository, "MARTINA", 5);
+        repository.checkpoint();
+        deposit(repository, "MARTINA", 7);
+        deposit(repository, "PETER", 1);
+        assertThat(transactionLog).hasSize(3);
+        assertThat(new File(balanceFilePath)).content().contains("MARTINA|BGN|10|0000000055", "PETER|BGN|10|0000000050");
+
+        // A failed append leaves the balance unchanged
+        doThrow(new FileStorageException("Disk full")).when(transactionRepository).save(any());
+        assertThatThrownBy(() -> deposit(repository, "LINDA", 3)).isInstanceOf(FileStorageException.class);
+        assertThat(repository.findSnapshot("LINDA").getDenominationCount(Currency.BGN, 10)).isEqualTo(50);
+        assertThatThrownBy(() -> repository.save("LINDA", repository.findByCashier("LINDA")))
+            .isInstanceOf(UnsupportedOperationException.class);
+
+        // Restart without closing, as after a crash
+        FileBalanceRepository newRepo = new FileBalanceRepository();
+        ReflectionTestUtils.setField(newRepo, "balanceFilePath", balanceFilePath);
+        ReflectionTestUtils.setField(newRepo, "cashierNames", List.of("MARTINA", "PETER", "LINDA"));
+        ReflectionTestUtils.setField(newRepo, "balanceSource", BalanceSource.LOG);
+        ReflectionTestUtils.setField(newRepo, "transactionRepository", transactionRepository);
+        newRepo.initialize();
+
+        assertThat(newRepo.findSnapshot("MARTINA").getDenominationCount(Currency.BGN, 10)).isEqualTo(62);
+        assertThat(newRepo.findSnapshot("PETER").getDenominationCount(Currency.BGN, 10)).isEqualTo(51);
+        assertThat(newRepo.findSnapshot("LINDA").getDenominationCount(Currency.BGN, 10)).isEqualTo(50);
+        newRepo.close();
+        repository.close();
+    }
+
+    private static Transaction deposit(FileBalanceRepository repository, String cashier, int tens) {
+        return deposit(repository, cashier, Currency.BGN, tens);
+    }
+
+    private static Transaction deposit(FileBalanceRepository repository, String cashier, Currency currency, int tens) {
+        return repository.update(cashier, currency, balance -> {
+            balance.addDenominations(Map.of(10, tens));
+            return Transaction.create(cashier, OperationType.DEPOSIT, currency,
+                new BigDecimal(tens * 10), Map.of(10, tens));
+        });
+    }
+
     // ===================== Concurrency Tests =====================
 
+    @Test
+    @DisplayName("Should replay concurrent updates of different currencies after a write-behind crash")
+    void shouldReplayConcurrentCurrencyUpdatesInWriteBehindMode() throws InterruptedException {
+        List<Transaction> transactionLog = Collections.synchronizedList(new ArrayList<>());
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        when(transactionRepository.findAll()).thenAnswer(invocation -> {
+            synchronized (transactionLog) {
+                return new ArrayList<>(transactionLog);
+            }
+        });
+        doAnswer(invocation -> transactionLog.add(invocation.getArgument(0))).when(transactionRepository).save(any());
+        ReflectionTestUtils.setField(repository, "writeBehind", true);
+        ReflectionTestUtils.setField(repository, "flushIntervalMillis", 60_000L);
+        ReflectionTestUtils.setField(repository, "transactionRepository", transactionRepository);
+        repository.initialize();
+
+        // BGN and EUR of one cashier are updated in parallel while the flusher writes partial states
+        Thread bgn = new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                deposit(repository, "MARTINA", Currency.BGN, 1);
+            }
+        });
+        Thread eur = new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                deposit(repository, "MARTINA", Currency.EUR, 1);
+            }
+        });
+        Thread flusher = new Thread(() -> {
+            for (int i = 0; i < 50; i++) {
+                repository.flushDirtyBalances();
+            }
+        });
+        bgn.start();
+        eur.start();
+        flusher.start();
+        bgn.join();
+        eur.join();
+        flusher.join();
+
+        // Restart without a final flush, as after a crash
+        FileBalanceRepository newRepo = new FileBalanceRepository();
+        ReflectionTestUtils.setField(newRepo, "balanceFilePath", balanceFilePath);
+        ReflectionTestUtils.setField(newRepo, "cashierNames", List.of("MARTINA", "PETER", "LINDA"));
+        ReflectionTestUtils.setField(newRepo, "writeBehind", true);
+        ReflectionTestUtils.setField(newRepo, "transactionRepository", transactionRepository);
+        newRepo.initialize();
+
+        assertThat(newRepo.findSnapshot("MARTINA").getDenominationCount(Currency.BGN, 10)).isEqualTo(250);
+        assertThat(newRepo.findSnapshot("MARTINA").getDenominationCount(Currency.EUR, 10)).isEqualTo(300);
+        newRepo.close();
+        repository.close();
+    }
+
     @Test
     @DisplayName("Should handle concurrent reads safely")
     void shouldHandleConcurrentReadsSafely() throws InterruptedException {
@@ -335,6 +778,50 @@ class FileBalanceRepositoryTest {
         assertThat(balances.get(Currency.BGN)).isNotNull();
     }
 
+    @Test
+    @DisplayName("Should not lose concurrent updates of the same cashier")
+    void shouldNotLoseConcurrentUpdates() throws InterruptedException, IOException {
+        repository.initialize();
+
+        List<Thread> threads = new ArrayList<>();
+        for (Currency currency : List.of(Currency.BGN, Currency.BGN, Currency.EUR, Currency.EUR)) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    repository.update("MARTINA", currency, balance -> {
+                        balance.addDenominations(Map.of(10, 1));
+                        return null;
+                    });
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        BalanceSnapshot snapshot = repository.findSnapshot("MARTINA");
+        assertThat(snapshot.getDenominationCount(Currency.BGN, 10)).isEqualTo(250);
+        assertThat(snapshot.getDenominationCount(Currency.EUR, 10)).isEqualTo(300);
+        assertThat(Files.readAllLines(Path.of(balanceFilePath)))
+            .contains("MARTINA|BGN|10|0000000250", "MARTINA|EUR|10|0000000300");
+    }
+
+    @Test
+    @DisplayName("Should keep the balance unchanged when an update fails")
+    void shouldKeepBalanceUnchangedWhenUpdateFails() {
+        repository.initialize();
+
+        assertThatThrownBy(() -> repository.update("PETER", Currency.EUR, balance -> {
+            balance.addDenominations(Map.of(50, 5));
+            throw new IllegalStateException("Rejected");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(repository.findSnapshot("PETER").getDenominationCount(Currency.EUR, 50)).isEqualTo(20);
+        assertThatThrownBy(() -> repository.update("NOBODY", Currency.EUR, balance -> null))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Invalid cashier");
+    }
+
     // ===================== Edge Cases =====================
 
     @Test
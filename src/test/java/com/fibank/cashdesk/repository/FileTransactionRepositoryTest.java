@@ -1,5 +1,6 @@
 package com.fibank.cashdesk.repository;
 
+import com.fibank.cashdesk.exception.DataCorruptionException;
 import com.fibank.cashdesk.exception.FileStorageException;
 import com.fibank.cashdesk.model.Currency;
 import com.fibank.cashdesk.model.OperationType;
@@ -15,9 +16,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -41,6 +44,11 @@ class FileTransactionRepositoryTest {
         ReflectionTestUtils.setField(repository, "transactionFilePath", transactionFilePath);
     }
 
+    @AfterEach
+    void tearDown() {
+        repository.close();
+    }
+
     // ===================== Initialization Tests =====================
 
     @Test
@@ -180,6 +188,7 @@ class FileTransactionRepositoryTest {
         List<Transaction> transactions = newRepo.findAll();
         assertThat(transactions).hasSize(1);
         assertThat(transactions.get(0).getCashier()).isEqualTo("MARTINA");
+        newRepo.close();
     }
 
     // ===================== Find Operations Tests =====================
@@ -256,6 +265,66 @@ class FileTransactionRepositoryTest {
         assertThat(outOfRange).isEmpty();
     }
 
+    @Test
+    @DisplayName("Should find transactions by date range in a log with out-of-order timestamps")
+    void shouldFindDateRangeWithOutOfOrderTimestamps() throws IOException {
+        Instant base = Instant.parse("2024-10-20T10:00:00Z");
+        TextTransactionCodec codec = new TextTransactionCodec();
+        List<Transaction> written = new ArrayList<>();
+        StringBuilder content = new StringBuilder();
+        int[] hours = {5, 1, 9, 3, 7, 3};
+        for (int i = 0; i < hours.length; i++) {
+            Transaction tx = new Transaction(UUID.randomUUID(), base.plus(hours[i], ChronoUnit.HOURS),
+                i % 2 == 0 ? "MARTINA" : "PETER", OperationType.DEPOSIT, Currency.BGN,
+                new BigDecimal("10.00"), Map.of(10, 1));
+            written.add(tx);
+            content.append(codec.format(tx)).append(System.lineSeparator());
+        }
+        Files.writeString(Path.of(transactionFilePath), content.toString());
+        repository.initialize();
+
+        List<Transaction> inRange = repository.findByDateRange(base.plus(3, ChronoUnit.HOURS), base.plus(7, ChronoUnit.HOURS));
+        List<Transaction> fromOnly = repository.findByDateRange(base.plus(6, ChronoUnit.HOURS), null);
+        List<Transaction> toOnly = repository.findByCashierAndDateRange("peter", null, base.plus(3, ChronoUnit.HOURS));
+
+        assertThat(inRange).extracting(Transaction::getId).containsExactly(
+            written.get(3).getId(), written.get(5).getId(), written.get(0).getId(), written.get(4).getId());
+        assertThat(fromOnly).extracting(Transaction::getId).containsExactly(written.get(4).getId(), written.get(2).getId());
+        assertThat(toOnly).extracting(Transaction::getId).containsExactly(
+            written.get(1).getId(), written.get(3).getId(), written.get(5).getId());
+        assertThat(repository.findByDateRange(base.plus(8, ChronoUnit.HOURS), base)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should find transactions by cashier and currency in timestamp order")
+    void shouldFindTransactionsByCashierAndCurrency() {
+        repository.initialize();
+
+        Instant base = Instant.parse("2024-10-20T10:00:00Z");
+        Transaction late = new Transaction(UUID.randomUUID(), base.plus(2, ChronoUnit.HOURS), "MARTINA",
+            OperationType.DEPOSIT, Currency.BGN, new BigDecimal("10.00"), Map.of(10, 1));
+        Transaction early = new Transaction(UUID.randomUUID(), base, "Martina",
+            OperationType.WITHDRAWAL, Currency.BGN, new BigDecimal("50.00"), Map.of(50, 1));
+        Transaction euro = new Transaction(UUID.randomUUID(), base.plus(1, ChronoUnit.HOURS), "MARTINA",
+            OperationType.DEPOSIT, Currency.EUR, new BigDecimal("20.00"), Map.of(20, 1));
+        Transaction other = new Transaction(UUID.randomUUID(), base.plus(1, ChronoUnit.HOURS), "PETER",
+            OperationType.DEPOSIT, Currency.BGN, new BigDecimal("10.00"), Map.of(10, 1));
+        repository.save(late);
+        repository.save(early);
+        repository.save(euro);
+        repository.save(other);
+
+        assertThat(repository.findByCashierAndCurrencyAndDateRange("martina", Currency.BGN, null, null))
+            .extracting(Transaction::getId).containsExactly(early.getId(), late.getId());
+        assertThat(repository.findByCashierAndCurrencyAndDateRange("MARTINA", Currency.BGN, base.plus(1, ChronoUnit.HOURS), null))
+            .extracting(Transaction::getId).containsExactly(late.getId());
+        assertThat(repository.findByCashierAndCurrencyAndDateRange("MARTINA", Currency.EUR, base, base.plus(3, ChronoUnit.HOURS)))
+            .extracting(Transaction::getId).containsExactly(euro.getId());
+        assertThat(repository.findByCashierAndCurrencyAndDateRange("LINDA", Currency.BGN, null, null)).isEmpty();
+        assertThat(repository.findByCashier("martina"))
+            .extracting(Transaction::getId).containsExactly(late.getId(), early.getId(), euro.getId());
+    }
+
     @Test
     @DisplayName("Should find transactions by cashier and date range")
     void shouldFindTransactionsByCashierAndDateRange() {
@@ -361,6 +430,45 @@ class FileTransactionRepositoryTest {
         assertThat(all).hasSize(20);
     }
 
+    @Test
+    @DisplayName("Should write every concurrently saved transaction to file before returning")
+    void shouldWriteConcurrentSavesToFile() throws Exception {
+        repository.initialize();
+
+        int threads = 8;
+        int perThread = 25;
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                for (int j = 0; j < perThread; j++) {
+                    repository.save(Transaction.create("LINDA", OperationType.DEPOSIT,
+                        Currency.EUR, new BigDecimal("20.00"), Map.of(20, 1)));
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        List<String> lines = Files.readAllLines(Path.of(transactionFilePath));
+        assertThat(lines).hasSize(threads * perThread);
+        assertThat(repository.findAll()).hasSize(threads * perThread);
+    }
+
+    @Test
+    @DisplayName("Should reject saves after the repository is closed")
+    void shouldRejectSavesAfterClose() {
+        repository.initialize();
+        repository.close();
+
+        Transaction tx = Transaction.create("MARTINA", OperationType.DEPOSIT,
+            Currency.BGN, new BigDecimal("100.00"), Map.of(10, 10));
+
+        assertThatThrownBy(() -> repository.save(tx))
+            .isInstanceOf(FileStorageException.class);
+    }
+
     @Test
     @DisplayName("Should handle large amounts correctly")
     void shouldHandleLargeAmounts() {
@@ -375,4 +483,143 @@ class FileTransactionRepositoryTest {
         List<Transaction> transactions = repository.findAll();
         assertThat(transactions.get(0).getAmount()).isEqualByComparingTo(new BigDecimal("99950.00"));
     }
+
+    // ===================== Binary Format Tests =====================
+
+    @Test
+    @DisplayName("Should persist and reload transactions in binary format")
+    void shouldPersistInBinaryFormat() {
+        ReflectionTestUtils.setField(repository, "format", TransactionFormat.BINARY);
+        repository.initialize();
+
+        Transaction tx = Transaction.create("LINDA", OperationType.WITHDRAWAL,
+            Currency.EUR, new BigDecimal("70.00"), Map.of(50, 1, 20, 1));
+        repository.save(tx);
+        repository.close();
+
+        assertThat(tempDir.resolve("transactions.dat")).exists();
+        assertThat(new File(transactionFilePath)).doesNotExist();
+
+        FileTransactionRepository newRepo = new FileTransactionRepository();
+        ReflectionTestUtils.setField(newRepo, "transactionFilePath", transactionFilePath);
+        ReflectionTestUtils.setField(newRepo, "format", TransactionFormat.BINARY);
+        newRepo.initialize();
+
+        List<Transaction> transactions = newRepo.findAll();
+        assertThat(transactions).hasSize(1);
+        assertThat(transactions.get(0).getId()).isEqualTo(tx.getId());
+        assertThat(transactions.get(0).getAmount()).isEqualByComparingTo("70.00");
+        assertThat(transactions.get(0).getDenominations()).isEqualTo(Map.of(50, 1, 20, 1));
+        newRepo.close();
+    }
+
+    @Test
+    @DisplayName("Should convert existing text log when switching to binary format")
+    void shouldConvertTextLogOnSwitchToBinary() {
+        repository.initialize();
+        Transaction tx = Transaction.create("MARTINA", OperationType.DEPOSIT,
+            Currency.BGN, new BigDecimal("100.00"), Map.of(10, 10));
+        repository.save(tx);
+        repository.close();
+
+        ReflectionTestUtils.setField(repository, "format", TransactionFormat.BINARY);
+        repository.initialize();
+
+        assertThat(tempDir.resolve("transactions.dat")).exists();
+        assertThat(repository.findAll()).extracting(Transaction::getId).containsExactly(tx.getId());
+
+        Transaction next = Transaction.create("PETER", OperationType.DEPOSIT,
+            Currency.EUR, new BigDecimal("20.00"), Map.of(20, 1));
+        repository.save(next);
+        repository.close();
+        repository.initialize();
+
+        assertThat(repository.findAll()).extracting(Transaction::getId).containsExactly(tx.getId(), next.getId());
+    }
+
+    // ===================== Segment Tests =====================
+
+    @Test
+    @DisplayName("Should seal the active log when it reaches the segment size")
+    void shouldSealActiveLogBySize() throws IOException {
+        ReflectionTestUtils.setField(repository, "maxSegmentBytes", 1024L);
+        repository.initialize();
+
+        for (int i = 0; i < 40; i++) {
+            repository.save(Transaction.create(i < 20 ? "MARTINA" : "PETER", OperationType.DEPOSIT,
+                Currency.BGN, new BigDecimal("10.00"), Map.of(10, 1)));
+        }
+
+        List<SegmentManifest.Entry> segments = repository.getSealedSegments();
+        assertThat(segments).isNotEmpty();
+        assertThat(tempDir.resolve("test-transactions.000001.txt")).exists();
+        assertThat(segments.get(0).getStats().getCashiers()).containsExactly("MARTINA");
+
+        List<SegmentManifest.Entry> recorded = new SegmentManifest(tempDir.resolve("test-transactions.manifest")).read();
+        assertThat(recorded).extracting(SegmentManifest.Entry::getFileName)
+            .containsExactlyElementsOf(segments.stream().map(SegmentManifest.Entry::getFileName).toList());
+        long sealedCount = recorded.stream().mapToLong(entry -> entry.getStats().getCount()).sum();
+        assertThat(sealedCount + Files.readAllLines(Path.of(transactionFilePath)).size()).isEqualTo(40);
+    }
+
+    @Test
+    @DisplayName("Should reload sealed segments and the active log in order")
+    void shouldReloadSegmentsInOrder() {
+        ReflectionTestUtils.setField(repository, "maxSegmentBytes", 512L);
+        repository.initialize();
+        List<Transaction> saved = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Transaction tx = Transaction.create("LINDA", OperationType.DEPOSIT,
+                Currency.EUR, new BigDecimal("20.00"), Map.of(20, 1));
+            repository.save(tx);
+            saved.add(tx);
+        }
+        repository.close();
+
+        // Manifest is rebuilt from the segment files
+        tempDir.resolve("test-transactions.manifest").toFile().delete();
+        repository.initialize();
+
+        assertThat(repository.findAll()).extracting(Transaction::getId)
+            .containsExactlyElementsOf(saved.stream().map(Transaction::getId).toList());
+        assertThat(repository.getSealedSegments()).hasSizeGreaterThan(1);
+        assertThat(tempDir.resolve("test-transactions.manifest")).exists();
+    }
+
+    @Test
+    @DisplayName("Should fail to start when a segment recorded in the manifest is missing")
+    void shouldFailWhenRecordedSegmentIsMissing() throws IOException {
+        ReflectionTestUtils.setField(repository, "maxSegmentBytes", 512L);
+        repository.initialize();
+        for (int i = 0; i < 25; i++) {
+            repository.save(Transaction.create("LINDA", OperationType.DEPOSIT,
+                Currency.EUR, new BigDecimal("20.00"), Map.of(20, 1)));
+        }
+        repository.close();
+
+        Files.delete(tempDir.resolve("test-transactions.000001.txt"));
+
+        assertThatThrownBy(() -> repository.initialize())
+            .isInstanceOf(DataCorruptionException.class)
+            .hasMessageContaining("test-transactions.000001.txt");
+    }
+
+    @Test
+    @DisplayName("Should answer queries across sealed segments")
+    void shouldQueryAcrossSegments() {
+        ReflectionTestUtils.setField(repository, "maxSegmentBytes", 300L);
+        repository.initialize();
+
+        Instant base = Instant.parse("2024-10-20T10:00:00Z");
+        for (int day = 0; day < 5; day++) {
+            repository.save(new Transaction(UUID.randomUUID(), base.plus(day, ChronoUnit.DAYS),
+                day % 2 == 0 ? "MARTINA" : "PETER", OperationType.DEPOSIT, Currency.BGN,
+                new BigDecimal("50.00"), Map.of(50, 1)));
+        }
+
+        assertThat(repository.getSealedSegments()).isNotEmpty();
+        assertThat(repository.findByDateRange(base.plus(1, ChronoUnit.DAYS), base.plus(3, ChronoUnit.DAYS))).hasSize(3);
+        assertThat(repository.findByCashier("peter")).hasSize(2);
+        assertThat(repository.findByCashierAndDateRange("MARTINA", base.plus(1, ChronoUnit.DAYS), null)).hasSize(2);
+    }
 }
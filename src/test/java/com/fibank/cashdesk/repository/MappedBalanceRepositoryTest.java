@@ -0,0 +1,252 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.exception.DataCorruptionException;
+import com.fibank.cashdesk.model.BalanceSnapshot;
+import com.fibank.cashdesk.model.Currency;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for the memory-mapped fixed-layout BalanceRepository.
+ */
+@DisplayName("MappedBalanceRepository Tests")
+class MappedBalanceRepositoryTest {
+
+    // Header fields before the layout descriptor, the alignment of the directory and slots, and a directory entry
+    private static final int HEADER_FIELDS_SIZE = 24;
+    private static final int SLOTS_ALIGNMENT = 64;
+    private static final int DIRECTORY_ENTRY_SIZE = 40;
+
+    @TempDir
+    Path tempDir;
+
+    private MappedBalanceRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = newRepository(List.of("MARTINA", "PETER", "LINDA"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.close();
+    }
+
+    @Test
+    @DisplayName("Should import the text balance file on first start")
+    void shouldImportTextBalanceFile() throws IOException {
+        Files.writeString(tempDir.resolve("balances.txt"), "MARTINA|BGN|10|7\nMARTINA|EUR|50|3\n");
+
+        repository.initialize();
+
+        BalanceSnapshot martina = repository.findSnapshot("MARTINA");
+        assertThat(martina.getDenominationCount(Currency.BGN, 10)).isEqualTo(7);
+        assertThat(martina.getDenominationCount(Currency.EUR, 50)).isEqualTo(3);
+        assertThat(repository.findSnapshot("PETER").getDenominationCount(Currency.BGN, 10)).isZero();
+        assertThat(tempDir.resolve("balances.map")).exists();
+    }
+
+    @Test
+    @DisplayName("Should keep updates across repository instances")
+    void shouldKeepUpdatesAcrossInstances() {
+        repository.initialize();
+        deposit(repository, "PETER", Currency.EUR, 5);
+        deposit(repository, "PETER", Currency.EUR, 2);
+        repository.close();
+
+        MappedBalanceRepository newRepo = newRepository(List.of("MARTINA", "PETER", "LINDA"));
+        newRepo.initialize();
+
+        assertThat(newRepo.findSnapshot("PETER").getDenominationCount(Currency.EUR, 10)).isEqualTo(107);
+        assertThat(newRepo.findSnapshot("MARTINA").getDenominationCount(Currency.BGN, 10)).isEqualTo(50);
+        newRepo.close();
+    }
+
+    @Test
+    @DisplayName("Should fall back to the previous copy of a torn slot")
+    void shouldFallBackToPreviousCopyOfTornSlot() throws IOException {
+        repository.initialize();
+        deposit(repository, "MARTINA", Currency.BGN, 5);
+        deposit(repository, "MARTINA", Currency.BGN, 2);
+        repository.close();
+
+        // MARTINA BGN is slot 0; sequence 3 was written to its second copy
+        try (RandomAccessFile file = new RandomAccessFile(tempDir.resolve("balances.map").toFile(), "rw")) {
+            file.seek(8);
+            int slotSize = file.readInt();
+            file.seek(slotsStart(file) + slotSize / 2 + Long.BYTES);
+            file.writeInt(999);
+        }
+
+        MappedBalanceRepository newRepo = newRepository(List.of("MARTINA", "PETER", "LINDA"));
+        newRepo.initialize();
+
+        assertThat(newRepo.findSnapshot("MARTINA").getDenominationCount(Currency.BGN, 10)).isEqualTo(55);
+        newRepo.close();
+    }
+
+    @Test
+    @DisplayName("Should reject a file with a corrupt header")
+    void shouldRejectCorruptHeader() throws IOException {
+        repository.initialize();
+        repository.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(tempDir.resolve("balances.map").toFile(), "rw")) {
+            file.seek(HEADER_FIELDS_SIZE);
+            file.write('X');
+        }
+
+        MappedBalanceRepository newRepo = newRepository(List.of("MARTINA", "PETER", "LINDA"));
+        assertThatThrownBy(newRepo::initialize)
+            .isInstanceOf(DataCorruptionException.class)
+            .hasMessageContaining("checksum");
+    }
+
+    @Test
+    @DisplayName("Should add configured cashiers missing from the file")
+    void shouldAddConfiguredCashiersMissingFromFile() {
+        repository = newRepository(List.of("MARTINA", "PETER"));
+        repository.initialize();
+        deposit(repository, "PETER", Currency.BGN, 1);
+        repository.close();
+
+        MappedBalanceRepository newRepo = newRepository(List.of("MARTINA", "PETER", "LINDA"));
+        newRepo.initialize();
+
+        assertThat(newRepo.findSnapshot("PETER").getDenominationCount(Currency.BGN, 10)).isEqualTo(51);
+        assertThat(newRepo.findSnapshot("LINDA").getTotal(Currency.BGN)).isZero();
+        deposit(newRepo, "LINDA", Currency.BGN, 1);
+        assertThat(newRepo.findSnapshot("LINDA").getDenominationCount(Currency.BGN, 10)).isEqualTo(1);
+        newRepo.close();
+    }
+
+    @Test
+    @DisplayName("Should add a cashier at runtime with the configured opening float")
+    void shouldAddCashierAtRuntime() {
+        repository = newRepository(List.of("MARTINA", "PETER", "LINDA"));
+        repository.initialize();
+        deposit(repository, "PETER", Currency.EUR, 2);
+
+        assertThat(repository.addCashier("desk_0201")).isTrue();
+        assertThat(repository.addCashier("DESK_0201")).isFalse();
+        deposit(repository, "DESK_0201", Currency.BGN, 1);
+        repository.close();
+
+        MappedBalanceRepository newRepo = newRepository(List.of("MARTINA", "PETER", "LINDA"));
+        newRepo.initialize();
+
+        assertThat(newRepo.findCashiers()).containsExactly("MARTINA", "PETER", "LINDA", "DESK_0201");
+        assertThat(newRepo.findSnapshot("DESK_0201").getDenominationCount(Currency.BGN, 10)).isEqualTo(51);
+        assertThat(newRepo.findSnapshot("PETER").getDenominationCount(Currency.EUR, 10)).isEqualTo(102);
+        newRepo.close();
+    }
+
+    @Test
+    @DisplayName("Should add cashiers to spare slots and grow the file only when it is full")
+    void shouldAddCashiersToSpareSlots() throws IOException {
+        repository.initialize();
+        Path file = tempDir.resolve("balances.map");
+        long initialSize = Files.size(file);
+
+        // Three configured cashiers leave 13 of the 16 spare slot ranges
+        for (int i = 0; i < 13; i++) {
+            assertThat(repository.addCashier("DESK_" + i)).isTrue();
+        }
+        assertThat(Files.size(file)).isEqualTo(initialSize);
+        for (int i = 13; i < 40; i++) {
+            assertThat(repository.addCashier("DESK_" + i)).isTrue();
+        }
+        assertThat(Files.size(file)).isGreaterThan(initialSize);
+        deposit(repository, "DESK_39", Currency.BGN, 1);
+        repository.close();
+
+        MappedBalanceRepository newRepo = newRepository(List.of("MARTINA", "PETER", "LINDA"));
+        newRepo.initialize();
+
+        assertThat(newRepo.findCashiers()).hasSize(43).startsWith("MARTINA", "PETER", "LINDA", "DESK_0").endsWith("DESK_39");
+        assertThat(newRepo.findSnapshot("DESK_39").getDenominationCount(Currency.BGN, 10)).isEqualTo(51);
+        newRepo.close();
+    }
+
+    @Test
+    @DisplayName("Should ignore a cashier whose directory entry was torn")
+    void shouldIgnoreTornDirectoryEntry() throws IOException {
+        repository.initialize();
+        repository.addCashier("DESK_0201");
+        repository.close();
+
+        // DESK_0201 is the fourth directory entry; corrupt its name
+        try (RandomAccessFile file = new RandomAccessFile(tempDir.resolve("balances.map").toFile(), "rw")) {
+            file.seek(directoryStart(file) + 3 * DIRECTORY_ENTRY_SIZE + Integer.BYTES);
+            file.write('X');
+        }
+
+        MappedBalanceRepository newRepo = newRepository(List.of("MARTINA", "PETER", "LINDA"));
+        newRepo.initialize();
+
+        assertThat(newRepo.findCashiers()).containsExactly("MARTINA", "PETER", "LINDA");
+        newRepo.close();
+    }
+
+    @Test
+    @DisplayName("Should apply a batch across cashiers and keep it across instances")
+    void shouldApplyBatchAcrossCashiers() {
+        repository.initialize();
+        List<BalanceUpdate> updates = List.of(
+            new BalanceUpdate("LINDA", Currency.EUR, balance -> { balance.addDenominations(Map.of(10, 4)); return null; }),
+            new BalanceUpdate("MARTINA", Currency.BGN, balance -> { balance.removeDenominations(Map.of(10, 51)); return null; }),
+            new BalanceUpdate("MARTINA", Currency.BGN, balance -> { balance.addDenominations(Map.of(10, 1)); return null; })
+        );
+
+        repository.updateAll(updates, false);
+        repository.close();
+
+        assertThat(updates).extracting(BalanceUpdate::isApplied).containsExactly(true, false, true);
+        MappedBalanceRepository newRepo = newRepository(List.of("MARTINA", "PETER", "LINDA"));
+        newRepo.initialize();
+        assertThat(newRepo.findSnapshot("LINDA").getDenominationCount(Currency.EUR, 10)).isEqualTo(104);
+        assertThat(newRepo.findSnapshot("MARTINA").getDenominationCount(Currency.BGN, 10)).isEqualTo(51);
+        newRepo.close();
+    }
+
+    private MappedBalanceRepository newRepository(List<String> cashiers) {
+        MappedBalanceRepository repo = new MappedBalanceRepository();
+        ReflectionTestUtils.setField(repo, "balanceFilePath", tempDir.resolve("balances.txt").toString());
+        ReflectionTestUtils.setField(repo, "mappedFilePath", tempDir.resolve("balances.map").toString());
+        ReflectionTestUtils.setField(repo, "cashierNames", cashiers);
+        return repo;
+    }
+
+    private static long directoryStart(RandomAccessFile file) throws IOException {
+        file.seek(16);
+        int descriptorLength = file.readInt();
+        return align(HEADER_FIELDS_SIZE + descriptorLength);
+    }
+
+    private static long slotsStart(RandomAccessFile file) throws IOException {
+        file.seek(12);
+        int capacity = file.readInt();
+        return align(directoryStart(file) + (long) capacity * DIRECTORY_ENTRY_SIZE);
+    }
+
+    private static long align(long offset) {
+        return (offset + SLOTS_ALIGNMENT - 1) / SLOTS_ALIGNMENT * SLOTS_ALIGNMENT;
+    }
+
+    private static void deposit(MappedBalanceRepository repository, String cashier, Currency currency, int tens) {
+        repository.update(cashier, currency, balance -> {
+            balance.addDenominations(Map.of(10, tens));
+            return null;
+        });
+    }
+}
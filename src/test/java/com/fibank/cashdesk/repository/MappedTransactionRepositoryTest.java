@@ -0,0 +1,261 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.exception.FileStorageException;
+import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.OperationType;
+import com.fibank.cashdesk.model.Transaction;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for the memory-mapped segment TransactionRepository.
+ */
+@DisplayName("MappedTransactionRepository Tests")
+class MappedTransactionRepositoryTest {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private Path segmentDir;
+    private MappedTransactionRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        segmentDir = tempDir.resolve("txlog");
+        repository = newRepository();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.close();
+    }
+
+    @Test
+    @DisplayName("Should create a preallocated segment on first start")
+    void shouldCreatePreallocatedSegment() throws IOException {
+        repository.initialize();
+
+        List<Path> segments = listSegments();
+        assertThat(segments).hasSize(1);
+        assertThat(Files.size(segments.get(0))).isEqualTo(SEGMENT_SIZE);
+        assertThat(repository.findAll()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should persist transactions across repository instances")
+    void shouldPersistAcrossInstances() {
+        repository.initialize();
+        Transaction tx = newTransaction("MARTINA");
+        repository.save(tx);
+        repository.close();
+
+        MappedTransactionRepository newRepo = newRepository();
+        newRepo.initialize();
+
+        assertThat(newRepo.findAll()).extracting(Transaction::getId).containsExactly(tx.getId());
+        assertThat(newRepo.findByCashier("martina")).hasSize(1);
+        newRepo.close();
+    }
+
+    @Test
+    @DisplayName("Should roll to a new segment when the active one is full")
+    void shouldRollWhenSegmentIsFull() throws IOException {
+        repository.initialize();
+        List<Transaction> saved = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Transaction tx = newTransaction(i % 2 == 0 ? "PETER" : "LINDA");
+            repository.save(tx);
+            saved.add(tx);
+        }
+        repository.close();
+
+        assertThat(listSegments()).hasSizeGreaterThan(1);
+
+        MappedTransactionRepository newRepo = newRepository();
+        newRepo.initialize();
+        assertThat(newRepo.findAll()).extracting(Transaction::getId)
+            .containsExactlyElementsOf(saved.stream().map(Transaction::getId).toList());
+        newRepo.close();
+    }
+
+    @Test
+    @DisplayName("Should ignore an unpublished record after a crash")
+    void shouldIgnoreUnpublishedRecord() throws IOException {
+        repository.initialize();
+        Transaction tx = newTransaction("MARTINA");
+        repository.save(tx);
+        repository.close();
+
+        // Simulate a crash after the record body was copied but before its length was published
+        Path segment = listSegments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            long end = findEndOfData(segment);
+            file.seek(end + Integer.BYTES);
+            file.write(new byte[]{2, 1, 2, 3, 4, 5, 6, 7});
+        }
+
+        MappedTransactionRepository newRepo = newRepository();
+        newRepo.initialize();
+        Transaction next = newTransaction("PETER");
+        newRepo.save(next);
+        newRepo.close();
+
+        MappedTransactionRepository reloaded = newRepository();
+        reloaded.initialize();
+        assertThat(reloaded.findAll()).extracting(Transaction::getId).containsExactly(tx.getId(), next.getId());
+        reloaded.close();
+    }
+
+    @Test
+    @DisplayName("Should stop loading at a record whose checksum does not match")
+    void shouldStopAtChecksumMismatch() throws IOException {
+        repository.initialize();
+        Transaction first = newTransaction("MARTINA");
+        Transaction second = newTransaction("PETER");
+        repository.save(first);
+        long secondStart = findEndOfData(listSegments().get(0));
+        repository.save(second);
+        repository.close();
+
+        // Simulate an OS crash that persisted the length prefix of the second record but not all of its body
+        Path segment = listSegments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(secondStart + Integer.BYTES + 2);
+            int value = file.read();
+            file.seek(secondStart + Integer.BYTES + 2);
+            file.write(value ^ 0xFF);
+        }
+
+        MappedTransactionRepository newRepo = newRepository();
+        newRepo.initialize();
+        assertThat(newRepo.findAll()).extracting(Transaction::getId).containsExactly(first.getId());
+        Transaction next = newTransaction("LINDA");
+        newRepo.save(next);
+        newRepo.close();
+
+        MappedTransactionRepository reloaded = newRepository();
+        reloaded.initialize();
+        assertThat(reloaded.findAll()).extracting(Transaction::getId).containsExactly(first.getId(), next.getId());
+        reloaded.close();
+    }
+
+    @Test
+    @DisplayName("Should import an existing text log on first start")
+    void shouldImportTextLog() throws IOException {
+        Transaction tx = newTransaction("LINDA");
+        Files.writeString(tempDir.resolve("transactions.txt"), new TextTransactionCodec().format(tx) + "\n");
+
+        repository.initialize();
+        repository.close();
+
+        MappedTransactionRepository newRepo = newRepository();
+        newRepo.initialize();
+        assertThat(newRepo.findAll()).extracting(Transaction::getId).containsExactly(tx.getId());
+        newRepo.close();
+    }
+
+    @Test
+    @DisplayName("Should redo an interrupted text log import")
+    void shouldRedoInterruptedImport() throws IOException {
+        TextTransactionCodec codec = new TextTransactionCodec();
+        Path textLog = tempDir.resolve("transactions.txt");
+        Transaction first = newTransaction("LINDA");
+        Transaction second = newTransaction("PETER");
+        Files.writeString(textLog, codec.format(first) + "\n");
+        repository.initialize();
+        repository.close();
+
+        // Simulate a crash part-way through importing the full text log
+        Files.writeString(textLog, codec.format(first) + "\n" + codec.format(second) + "\n");
+        Files.createFile(segmentDir.resolve("import.pending"));
+
+        MappedTransactionRepository newRepo = newRepository();
+        newRepo.initialize();
+        assertThat(newRepo.findAll()).extracting(Transaction::getId).containsExactly(first.getId(), second.getId());
+        assertThat(segmentDir.resolve("import.pending")).doesNotExist();
+        newRepo.close();
+    }
+
+    @Test
+    @DisplayName("Should keep every concurrently saved transaction")
+    void shouldHandleConcurrentSaves() throws Exception {
+        repository.initialize();
+        int threads = 8;
+        int perThread = 200;
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                for (int j = 0; j < perThread; j++) {
+                    repository.save(newTransaction("PETER"));
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        repository.close();
+
+        MappedTransactionRepository newRepo = newRepository();
+        newRepo.initialize();
+        assertThat(newRepo.findAll()).hasSize(threads * perThread);
+        newRepo.close();
+    }
+
+    @Test
+    @DisplayName("Should reject saves after the repository is closed")
+    void shouldRejectSavesAfterClose() {
+        repository.initialize();
+        repository.close();
+
+        assertThatThrownBy(() -> repository.save(newTransaction("MARTINA")))
+            .isInstanceOf(FileStorageException.class);
+    }
+
+    private MappedTransactionRepository newRepository() {
+        MappedTransactionRepository repo = new MappedTransactionRepository();
+        ReflectionTestUtils.setField(repo, "transactionFilePath", tempDir.resolve("transactions.txt").toString());
+        ReflectionTestUtils.setField(repo, "segmentDirectory", segmentDir.toString());
+        ReflectionTestUtils.setField(repo, "segmentSize", SEGMENT_SIZE);
+        return repo;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> stream = Files.list(segmentDir)) {
+            return stream.sorted().toList();
+        }
+    }
+
+    private long findEndOfData(Path segment) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "r")) {
+            long offset = BinaryTransactionCodec.HEADER_SIZE;
+            file.seek(offset);
+            int length;
+            while ((length = file.readInt()) != 0) {
+                offset += Integer.BYTES + length + Integer.BYTES; // Prefix, body and checksum
+                file.seek(offset);
+            }
+            return offset;
+        }
+    }
+
+    private Transaction newTransaction(String cashier) {
+        return Transaction.create(cashier, OperationType.DEPOSIT,
+            Currency.BGN, new BigDecimal("10.00"), Map.of(10, 1));
+    }
+}
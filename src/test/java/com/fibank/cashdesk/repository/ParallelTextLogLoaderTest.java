@@ -0,0 +1,103 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.OperationType;
+import com.fibank.cashdesk.model.Transaction;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for the parallel startup loader of text transaction logs.
+ */
+@DisplayName("ParallelTextLogLoader Tests")
+class ParallelTextLogLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final TextTransactionCodec codec = new TextTransactionCodec();
+
+    @Test
+    @DisplayName("Should load transactions in file order across many small chunks")
+    void shouldKeepFileOrderAcrossChunks() throws IOException {
+        List<UUID> expected = new ArrayList<>();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            Transaction transaction = Transaction.create("CASHIER" + i, OperationType.DEPOSIT,
+                Currency.BGN, new BigDecimal("10.00"), Map.of(10, 1));
+            expected.add(transaction.getId());
+            content.append(codec.format(transaction)).append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        Path file = tempDir.resolve("transactions.txt");
+        Files.writeString(file, content.toString());
+
+        List<UUID> loaded = new ArrayList<>();
+        ParallelTextLogLoader.Result result = new ParallelTextLogLoader(4, 100).load(file, txn -> loaded.add(txn.getId()));
+
+        assertThat(loaded).containsExactlyElementsOf(expected);
+        assertThat(result.getRecords()).isEqualTo(200);
+        assertThat(result.getSkippedLines()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should skip corrupted lines and report their line numbers in the file")
+    void shouldReportLineNumbersOfCorruptedLines() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 60; i++) {
+            if (i == 7 || i == 45) {
+                content.append("corrupted line\n");
+            } else if (i == 20) {
+                content.append("\n");
+            } else {
+                content.append(codec.format(Transaction.create("MARTINA", OperationType.DEPOSIT,
+                    Currency.EUR, new BigDecimal("50.00"), Map.of(50, 1)))).append("\n");
+            }
+        }
+        Path file = tempDir.resolve("transactions.txt");
+        Files.writeString(file, content.toString());
+
+        List<Transaction> loaded = new ArrayList<>();
+        ParallelTextLogLoader.Result result = new ParallelTextLogLoader(3, 256).load(file, loaded::add);
+
+        assertThat(loaded).hasSize(57);
+        assertThat(result.getSkippedLines()).containsExactly(7L, 45L);
+    }
+
+    @Test
+    @DisplayName("Should load a last line without terminator")
+    void shouldLoadLastLineWithoutTerminator() throws IOException {
+        Transaction first = Transaction.create("PETER", OperationType.DEPOSIT,
+            Currency.BGN, new BigDecimal("50.00"), Map.of(50, 1));
+        Transaction second = Transaction.create("PETER", OperationType.WITHDRAWAL,
+            Currency.BGN, new BigDecimal("10.00"), Map.of(10, 1));
+        Path file = tempDir.resolve("transactions.txt");
+        Files.writeString(file, codec.format(first) + "\n" + codec.format(second));
+
+        List<Transaction> loaded = new ArrayList<>();
+        new ParallelTextLogLoader(2, 64).load(file, loaded::add);
+
+        assertThat(loaded).extracting(Transaction::getId).containsExactly(first.getId(), second.getId());
+    }
+
+    @Test
+    @DisplayName("Should load an empty file")
+    void shouldLoadEmptyFile() throws IOException {
+        Path file = Files.createFile(tempDir.resolve("transactions.txt"));
+
+        ParallelTextLogLoader.Result result = new ParallelTextLogLoader(0, 1024).load(file, txn -> fail("No records expected"));
+
+        assertThat(result.getRecords()).isZero();
+        assertThat(result.getRecordsPerSecond()).isGreaterThanOrEqualTo(0);
+    }
+}
@@ -0,0 +1,94 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.exception.DataCorruptionException;
+import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.OperationType;
+import com.fibank.cashdesk.model.Transaction;
+import org.junit.jupiter.api.*;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for the byte-level text log line codec.
+ */
+@DisplayName("TransactionLineCodec Tests")
+class TransactionLineCodecTest {
+
+    private final TransactionLineCodec codec = new TransactionLineCodec();
+
+    @Test
+    @DisplayName("Should encode the same bytes as the text log format")
+    void shouldEncodeTextLogFormat() {
+        UUID id = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
+        assertThat(encode(new Transaction(id, Instant.parse("2025-10-14T09:15:30Z"), "MARTINA",
+            OperationType.DEPOSIT, Currency.EUR, new BigDecimal("600.00"), Map.of(50, 10, 10, 10))))
+            .isEqualTo("123e4567-e89b-12d3-a456-426614174000|2025-10-14T09:15:30Z|MARTINA|DEPOSIT|EUR|600.00|10:10,50:10");
+        assertThat(encode(new Transaction(id, Instant.parse("1999-02-28T23:59:59.120Z"), "Петър",
+            OperationType.WITHDRAWAL, Currency.BGN, new BigDecimal("50"), Map.of(50, 1))))
+            .isEqualTo("123e4567-e89b-12d3-a456-426614174000|1999-02-28T23:59:59.120Z|Петър|WITHDRAWAL|BGN|50.00|50:1");
+    }
+
+    @Test
+    @DisplayName("Should print timestamp fractions like Instant.toString")
+    void shouldPrintFractionsLikeInstant() {
+        for (Instant timestamp : new Instant[] {
+            Instant.parse("2024-02-29T00:00:00Z"),
+            Instant.parse("2024-02-29T00:00:00.100Z"),
+            Instant.parse("2024-02-29T00:00:00.000100Z"),
+            Instant.parse("2024-02-29T00:00:00.000000001Z"),
+            Instant.parse("1969-12-31T23:59:59.999Z"),
+            Instant.parse("+10000-01-01T00:00:00Z")
+        }) {
+            Transaction transaction = new Transaction(UUID.randomUUID(), timestamp, "PETER",
+                OperationType.DEPOSIT, Currency.BGN, new BigDecimal("10.00"), Map.of(10, 1));
+
+            assertThat(encode(transaction)).contains("|" + timestamp + "|");
+            assertThat(decode(encode(transaction)).getTimestamp()).isEqualTo(timestamp);
+        }
+    }
+
+    @Test
+    @DisplayName("Should decode both old and new formats")
+    void shouldDecodeOldAndNewFormats() {
+        Transaction current = decode("123e4567-e89b-12d3-a456-426614174000|2025-10-14T09:15:30Z|LINDA|DEPOSIT|EUR|70.00|20:1,50:1");
+        Transaction legacy = decode("2025-10-14T09:15:30Z|LINDA|WITHDRAWAL|BGN|10.00|10:1");
+
+        assertThat(current.getId()).isEqualTo(UUID.fromString("123e4567-e89b-12d3-a456-426614174000"));
+        assertThat(current.getAmount()).isEqualTo(new BigDecimal("70.00"));
+        assertThat(current.getDenominations()).isEqualTo(Map.of(20, 1, 50, 1));
+        assertThat(legacy.getId()).isNotNull();
+        assertThat(legacy.getOperationType()).isEqualTo(OperationType.WITHDRAWAL);
+    }
+
+    @Test
+    @DisplayName("Should reject malformed lines")
+    void shouldRejectMalformedLines() {
+        assertThatThrownBy(() -> decode("a|b|c"))
+            .isInstanceOf(DataCorruptionException.class)
+            .hasMessageContaining("expected 6 or 7 fields, got 3");
+        assertThatThrownBy(() -> decode("123e4567-e89b-12d3-a456-426614174000|2025-10-14T09:15:30Z|LINDA|DEPOSIT|USD|10.00|10:1"))
+            .isInstanceOf(DataCorruptionException.class);
+        assertThatThrownBy(() -> decode("123e4567-e89b-12d3-a456-426614174000|2025-02-30T09:15:30Z|LINDA|DEPOSIT|BGN|10.00|10:1"))
+            .isInstanceOf(DataCorruptionException.class);
+        assertThatThrownBy(() -> decode("123e4567-e89b-12d3-a456-426614174000|2025-10-14T09:15:30Z|LINDA|DEPOSIT|BGN|10.00|10::1"))
+            .isInstanceOf(DataCorruptionException.class);
+    }
+
+    private String encode(Transaction transaction) {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        codec.encode(transaction, buffer);
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    private Transaction decode(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return codec.decode(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,54 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.OperationType;
+import com.fibank.cashdesk.model.Transaction;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for converting transaction logs between formats.
+ */
+@DisplayName("TransactionLogConverter Tests")
+class TransactionLogConverterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should convert text log to binary and back without losing data")
+    void shouldRoundTripBetweenFormats() throws IOException {
+        TextTransactionCodec textCodec = new TextTransactionCodec();
+        Transaction first = Transaction.create("MARTINA", OperationType.DEPOSIT,
+            Currency.BGN, new BigDecimal("600.00"), Map.of(10, 10, 50, 10));
+        Transaction second = Transaction.create("PETER", OperationType.WITHDRAWAL,
+            Currency.EUR, new BigDecimal("20.00"), Map.of(20, 1));
+        Path textFile = tempDir.resolve("transactions.txt");
+        Files.writeString(textFile, textCodec.format(first) + "\n\ncorrupted line\n" + textCodec.format(second) + "\n");
+
+        Path binaryFile = tempDir.resolve("transactions.dat");
+        int converted = TransactionLogConverter.convert(textFile, TransactionFormat.TEXT, binaryFile, TransactionFormat.BINARY);
+
+        Path roundTripFile = tempDir.resolve("roundtrip.txt");
+        TransactionLogConverter.convert(binaryFile, TransactionFormat.BINARY, roundTripFile, TransactionFormat.TEXT);
+
+        List<Transaction> loaded = new ArrayList<>();
+        textCodec.load(roundTripFile, loaded::add);
+
+        assertThat(converted).isEqualTo(2);
+        assertThat(binaryFile).exists();
+        assertThat(tempDir.resolve("transactions.dat.tmp")).doesNotExist();
+        assertThat(loaded).extracting(Transaction::getId).containsExactly(first.getId(), second.getId());
+        assertThat(loaded.get(0).getDenominations()).isEqualTo(first.getDenominations());
+    }
+}
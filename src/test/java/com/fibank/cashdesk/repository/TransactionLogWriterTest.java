@@ -0,0 +1,227 @@
+package com.fibank.cashdesk.repository;
+
+import com.fibank.cashdesk.exception.FileStorageException;
+import com.fibank.cashdesk.model.Currency;
+import com.fibank.cashdesk.model.OperationType;
+import com.fibank.cashdesk.model.Transaction;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for the group-commit TransactionLogWriter.
+ */
+@DisplayName("TransactionLogWriter Tests")
+class TransactionLogWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path logFile;
+    private TextTransactionCodec codec;
+    private List<Transaction> committed;
+    private TransactionLogWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        logFile = tempDir.resolve("log.txt");
+        codec = new TextTransactionCodec();
+        committed = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should write record and notify listener before append returns")
+    void shouldWriteRecordBeforeReturning() throws IOException {
+        writer = new TransactionLogWriter(logFile, codec, DurabilityMode.GROUP, 16, 0, committed::add);
+        Transaction tx = newTransaction();
+
+        writer.append(tx);
+
+        assertThat(Files.readString(logFile)).isEqualTo(codec.format(tx) + System.lineSeparator());
+        assertThat(committed).containsExactly(tx);
+    }
+
+    @Test
+    @DisplayName("Should notify listener in file order")
+    void shouldNotifyInFileOrder() throws IOException {
+        writer = new TransactionLogWriter(logFile, codec, DurabilityMode.GROUP, 4, 1, committed::add);
+
+        List<Transaction> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Transaction tx = newTransaction();
+            expected.add(tx);
+            writer.append(tx);
+        }
+
+        List<String> lines = Files.readAllLines(logFile);
+        assertThat(committed).containsExactlyElementsOf(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(codec.parse(lines.get(i)).getId()).isEqualTo(expected.get(i).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should commit concurrent appends without losing records")
+    void shouldCommitConcurrentAppends() throws Exception {
+        writer = new TransactionLogWriter(logFile, codec, DurabilityMode.GROUP, 8, 2, committed::add);
+
+        int threads = 6;
+        int perThread = 30;
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                for (int j = 0; j < perThread; j++) {
+                    writer.append(newTransaction());
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertThat(Files.readAllLines(logFile)).hasSize(threads * perThread);
+        assertThat(committed).hasSize(threads * perThread);
+    }
+
+    @Test
+    @DisplayName("Should write each record in SYNC mode")
+    void shouldWriteEachRecordInSyncMode() throws IOException {
+        writer = new TransactionLogWriter(logFile, codec, DurabilityMode.SYNC, 16, 0, committed::add);
+
+        Transaction first = newTransaction();
+        Transaction second = newTransaction();
+        writer.append(first);
+        writer.append(second);
+
+        assertThat(Files.readAllLines(logFile)).containsExactly(codec.format(first), codec.format(second));
+        assertThat(committed).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Should acknowledge in ASYNC mode and force on flush")
+    void shouldAcknowledgeBeforeFlushInAsyncMode() throws IOException {
+        writer = new TransactionLogWriter(logFile, codec, DurabilityMode.ASYNC, 16, 0, committed::add);
+
+        Transaction tx = newTransaction();
+        writer.append(tx);
+        writer.flush();
+        writer.flush();
+
+        assertThat(Files.readString(logFile)).isEqualTo(codec.format(tx) + System.lineSeparator());
+        assertThat(committed).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Should reject appends after close")
+    void shouldRejectAppendsAfterClose() {
+        writer = new TransactionLogWriter(logFile, codec, DurabilityMode.GROUP, 16, 0, committed::add);
+        writer.close();
+
+        assertThatThrownBy(() -> writer.append(newTransaction()))
+            .isInstanceOf(FileStorageException.class)
+            .hasMessageContaining("closed");
+    }
+
+    @Test
+    @DisplayName("Should complete every append that races with close")
+    void shouldCompleteAppendsRacingClose() throws Exception {
+        writer = new TransactionLogWriter(logFile, codec, DurabilityMode.GROUP, 8, 0, committed::add);
+        List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<>());
+        Thread appender = new Thread(() -> {
+            try {
+                while (true) {
+                    futures.add(writer.appendAsync(newTransaction()));
+                }
+            } catch (FileStorageException e) {
+                // Closed
+            }
+        });
+        appender.start();
+        Thread.sleep(20);
+        writer.close();
+        appender.join();
+
+        // Each append is either written or failed, none is left waiting
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(FileStorageException.class);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should write the format header once to a new file")
+    void shouldWriteHeaderToNewFile() throws IOException {
+        Path binaryFile = tempDir.resolve("log.dat");
+        writer = new TransactionLogWriter(binaryFile, new BinaryTransactionCodec(), DurabilityMode.GROUP, 16, 0, committed::add);
+        writer.append(newTransaction());
+        writer.close();
+
+        BinaryTransactionCodec reloadCodec = new BinaryTransactionCodec();
+        List<Transaction> reloaded = new ArrayList<>();
+        reloadCodec.load(binaryFile, reloaded::add);
+        writer = new TransactionLogWriter(binaryFile, reloadCodec, DurabilityMode.GROUP, 16, 0, committed::add);
+        writer.append(newTransaction());
+        writer.close();
+
+        List<Transaction> all = new ArrayList<>();
+        new BinaryTransactionCodec().load(binaryFile, all::add);
+        assertThat(reloaded).hasSize(1);
+        assertThat(all).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Should fail only the record the codec cannot encode")
+    void shouldFailOnlyUnencodableRecord() throws IOException {
+        Path binaryFile = tempDir.resolve("log.dat");
+        writer = new TransactionLogWriter(binaryFile, new BinaryTransactionCodec(), DurabilityMode.GROUP, 16, 0, committed::add);
+        Transaction invalid = Transaction.create("X".repeat(300), OperationType.DEPOSIT,
+            Currency.BGN, new BigDecimal("10.00"), Map.of(10, 1));
+
+        assertThatThrownBy(() -> writer.append(invalid))
+            .isInstanceOf(IllegalArgumentException.class);
+        Transaction valid = newTransaction();
+        writer.append(valid);
+        writer.close();
+
+        List<Transaction> loaded = new ArrayList<>();
+        new BinaryTransactionCodec().load(binaryFile, loaded::add);
+        assertThat(loaded).extracting(Transaction::getId).containsExactly(valid.getId());
+        assertThat(committed).containsExactly(valid);
+    }
+
+    @Test
+    @DisplayName("Should reject non-positive batch size")
+    void shouldRejectInvalidBatchSize() {
+        assertThatThrownBy(() -> new TransactionLogWriter(logFile, codec, DurabilityMode.GROUP, 0, 0, committed::add))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Transaction newTransaction() {
+        return Transaction.create("PETER", OperationType.DEPOSIT,
+            Currency.BGN, new BigDecimal("10.00"), Map.of(10, 1));
+    }
+}
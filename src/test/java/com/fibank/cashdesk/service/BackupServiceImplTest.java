@@ -384,4 +384,49 @@ class BackupServiceImplTest {
         assertTrue(restoredTransaction.contains("PETER"));
         assertFalse(restoredTransaction.contains("LINDA"));
     }
+
+    @Test
+    void testSealedSegments_StoredOnceAndRestored() throws IOException, InterruptedException {
+        // Given - a sealed segment next to the active log
+        Path segment = dataDir.resolve("transactions.000001.txt");
+        Files.writeString(segment, "2024-10-23T10:00:00Z|LINDA|DEPOSIT|EUR|20.00|20:1\n");
+
+        // When
+        Path backup1 = backupService.createBackup();
+        Thread.sleep(10);
+        Path backup2 = backupService.createBackup();
+
+        // Then - the segment is copied once and referenced by both backups
+        Path store = backupDir.resolve("segments");
+        try (var stored = Files.list(store)) {
+            assertEquals(1, stored.count());
+        }
+        assertEquals(Files.readAllLines(backup1.resolve("segments.txt")), Files.readAllLines(backup2.resolve("segments.txt")));
+        assertTrue(backupService.verifyBackup(backup2));
+
+        // When - the segment is lost and the backup restored
+        Files.delete(segment);
+        backupService.restoreBackup(backup1);
+
+        // Then
+        assertTrue(Files.exists(segment));
+        assertTrue(Files.readString(segment).contains("LINDA"));
+    }
+
+    @Test
+    void testSealedSegments_MissingStoredSegmentFailsVerification() throws IOException {
+        // Given
+        Files.writeString(dataDir.resolve("transactions.000001.txt"), "2024-10-23T10:00:00Z|LINDA|DEPOSIT|EUR|20.00|20:1\n");
+        Path backupPath = backupService.createBackup();
+
+        // When
+        try (var stored = Files.list(backupDir.resolve("segments"))) {
+            for (Path file : stored.toList()) {
+                Files.delete(file);
+            }
+        }
+
+        // Then
+        assertFalse(backupService.verifyBackup(backupPath));
+    }
 }
@@ -3,6 +3,7 @@ package com.fibank.cashdesk.service;
 import com.fibank.cashdesk.dto.response.BalanceQueryResponse;
 import com.fibank.cashdesk.dto.response.CashierBalanceDTO;
 import com.fibank.cashdesk.exception.InvalidDateRangeException;
+import com.fibank.cashdesk.model.BalanceSnapshot;
 import com.fibank.cashdesk.model.CashBalance;
 import com.fibank.cashdesk.model.Currency;
 import com.fibank.cashdesk.model.OperationType;
@@ -16,16 +17,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.test.util.ReflectionTestUtils;
+import org.mockito.stubbing.Answer;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
 /**
@@ -48,9 +51,8 @@ class BalanceQueryServiceImplTest {
     void setUp() {
         balanceQueryService = new BalanceQueryServiceImpl(balanceRepository, transactionRepository);
 
-        // Set cashier names using reflection (since it's a @Value field)
-        ReflectionTestUtils.setField(balanceQueryService, "allCashiers",
-            List.of("MARTINA", "PETER", "LINDA"));
+        // Cashiers with balances, used when no cashier filter is given
+        lenient().when(balanceRepository.findCashiers()).thenReturn(List.of("MARTINA", "PETER", "LINDA"));
     }
 
     // ===================== Query Without Filters Tests =====================
@@ -89,7 +91,7 @@ class BalanceQueryServiceImplTest {
         eurBalance.setDenominationCount(50, 20);
         martinaBalances.put(Currency.EUR, eurBalance);
 
-        when(balanceRepository.findByCashier("MARTINA")).thenReturn(martinaBalances);
+        when(balanceRepository.findSnapshot("MARTINA")).thenReturn(BalanceSnapshot.of("MARTINA", martinaBalances));
 
         // Act
         BalanceQueryResponse response = balanceQueryService.queryBalance(null, null, "MARTINA");
@@ -151,6 +153,24 @@ class BalanceQueryServiceImplTest {
         assertThat(response.getCashiers().get(0).getCashier()).isEqualTo("LINDA");
     }
 
+    @Test
+    @DisplayName("Should report a higher version once one of the cashiers' balances changes")
+    void shouldReportHigherVersionAfterChange() {
+        BalanceSnapshot peter = BalanceSnapshot.of("PETER", Map.of(Currency.BGN, new CashBalance(Currency.BGN)));
+        when(balanceRepository.findSnapshot("MARTINA")).thenReturn(BalanceSnapshot.of("MARTINA", Map.of()));
+        when(balanceRepository.findSnapshot("LINDA")).thenReturn(BalanceSnapshot.of("LINDA", Map.of()));
+        when(balanceRepository.findSnapshot("PETER")).thenReturn(peter);
+
+        long cashierVersion = balanceQueryService.getBalanceVersion(null, null, "peter");
+        long allVersion = balanceQueryService.getBalanceVersion(null, null, null);
+
+        when(balanceRepository.findSnapshot("PETER")).thenReturn(peter.with(new CashBalance(Currency.BGN, Map.of(10, 1))));
+
+        assertThat(cashierVersion).isEqualTo(peter.getVersion());
+        assertThat(balanceQueryService.getBalanceVersion(null, null, "PETER")).isGreaterThan(cashierVersion);
+        assertThat(balanceQueryService.getBalanceVersion(null, null, null)).isGreaterThan(allVersion);
+    }
+
     // ===================== Date Range Filter Tests =====================
 
     @Test
@@ -170,7 +190,7 @@ class BalanceQueryServiceImplTest {
         Instant dateFrom = Instant.now().minus(7, ChronoUnit.DAYS);
         Instant dateTo = Instant.now();
 
-        when(transactionRepository.findByCashierAndDateRange(any(), any(), any()))
+        when(transactionRepository.findByCashierAndCurrencyAndDateRange(any(), any(), any(), any()))
             .thenReturn(Collections.emptyList());
 
         BalanceQueryResponse response = balanceQueryService.queryBalance(dateFrom, dateTo, "MARTINA");
@@ -183,7 +203,7 @@ class BalanceQueryServiceImplTest {
     void shouldAcceptEqualDates() {
         Instant date = Instant.now();
 
-        when(transactionRepository.findByCashierAndDateRange(any(), any(), any()))
+        when(transactionRepository.findByCashierAndCurrencyAndDateRange(any(), any(), any(), any()))
             .thenReturn(Collections.emptyList());
 
         BalanceQueryResponse response = balanceQueryService.queryBalance(date, date, "PETER");
@@ -218,8 +238,8 @@ class BalanceQueryServiceImplTest {
         );
         transactions.add(withdrawal);
 
-        when(transactionRepository.findByCashierAndDateRange(eq("MARTINA"), any(), any()))
-            .thenReturn(transactions);
+        when(transactionRepository.findByCashierAndCurrencyAndDateRange(eq("MARTINA"), any(), any(), any()))
+            .thenAnswer(byCurrency(transactions));
 
         // Act
         BalanceQueryResponse response = balanceQueryService.queryBalance(dateFrom, dateTo, "MARTINA");
@@ -254,7 +274,7 @@ class BalanceQueryServiceImplTest {
         Instant dateTo = dateFrom.plus(1, ChronoUnit.DAYS);
 
         // Stub for calculating starting balance (null, null)
-        when(transactionRepository.findByCashierAndDateRange(eq("LINDA"), any(), any()))
+        when(transactionRepository.findByCashierAndCurrencyAndDateRange(eq("LINDA"), any(), any(), any()))
             .thenReturn(Collections.emptyList());
 
         BalanceQueryResponse response = balanceQueryService.queryBalance(dateFrom, dateTo, "LINDA");
@@ -295,7 +315,7 @@ class BalanceQueryServiceImplTest {
     void shouldHandleOnlyDateFrom() {
         Instant dateFrom = Instant.now().minus(7, ChronoUnit.DAYS);
 
-        when(transactionRepository.findByCashierAndDateRange(eq("PETER"), any(), any()))
+        when(transactionRepository.findByCashierAndCurrencyAndDateRange(eq("PETER"), any(), any(), any()))
             .thenReturn(Collections.emptyList());
 
         BalanceQueryResponse response = balanceQueryService.queryBalance(dateFrom, null, "PETER");
@@ -308,7 +328,7 @@ class BalanceQueryServiceImplTest {
     void shouldHandleOnlyDateTo() {
         Instant dateTo = Instant.now();
 
-        when(transactionRepository.findByCashierAndDateRange(eq("MARTINA"), eq(null), eq(dateTo)))
+        when(transactionRepository.findByCashierAndCurrencyAndDateRange(eq("MARTINA"), any(), eq(null), eq(dateTo)))
             .thenReturn(Collections.emptyList());
 
         BalanceQueryResponse response = balanceQueryService.queryBalance(null, dateTo, "MARTINA");
@@ -324,7 +344,7 @@ class BalanceQueryServiceImplTest {
         Instant dateFrom = Instant.now().minus(7, ChronoUnit.DAYS);
         Instant dateTo = Instant.now();
 
-        when(transactionRepository.findByCashierAndDateRange(eq("LINDA"), any(), any()))
+        when(transactionRepository.findByCashierAndCurrencyAndDateRange(eq("LINDA"), any(), any(), any()))
             .thenReturn(Collections.emptyList());
 
         BalanceQueryResponse response = balanceQueryService.queryBalance(dateFrom, dateTo, "LINDA");
@@ -357,8 +377,8 @@ class BalanceQueryServiceImplTest {
             "PETER", OperationType.DEPOSIT, Currency.BGN, new BigDecimal("200.00"), deposit2
         ));
 
-        when(transactionRepository.findByCashierAndDateRange(eq("PETER"), any(), any()))
-            .thenReturn(transactions);
+        when(transactionRepository.findByCashierAndCurrencyAndDateRange(eq("PETER"), any(), any(), any()))
+            .thenAnswer(byCurrency(transactions));
 
         BalanceQueryResponse response = balanceQueryService.queryBalance(dateFrom, dateTo, "PETER");
 
@@ -389,8 +409,8 @@ class BalanceQueryServiceImplTest {
             "LINDA", OperationType.DEPOSIT, Currency.EUR, new BigDecimal("200.00"), eurDenoms
         ));
 
-        when(transactionRepository.findByCashierAndDateRange(eq("LINDA"), any(), any()))
-            .thenReturn(transactions);
+        when(transactionRepository.findByCashierAndCurrencyAndDateRange(eq("LINDA"), any(), any(), any()))
+            .thenAnswer(byCurrency(transactions));
 
         BalanceQueryResponse response = balanceQueryService.queryBalance(dateFrom, dateTo, "LINDA");
 
@@ -423,6 +443,15 @@ class BalanceQueryServiceImplTest {
         eurBalance.setDenominationCount(50, 20);
         balances.put(Currency.EUR, eurBalance);
 
-        when(balanceRepository.findByCashier(cashierName)).thenReturn(balances);
+        when(balanceRepository.findSnapshot(cashierName)).thenReturn(BalanceSnapshot.of(cashierName, balances));
+    }
+
+    /**
+     * Answer a currency-partitioned lookup with the given transactions in the requested currency.
+     */
+    private static Answer<List<Transaction>> byCurrency(List<Transaction> transactions) {
+        return invocation -> transactions.stream()
+            .filter(txn -> txn.getCurrency() == invocation.getArgument(1))
+            .collect(Collectors.toList());
     }
 }
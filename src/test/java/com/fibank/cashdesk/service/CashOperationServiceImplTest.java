@@ -1,14 +1,20 @@
 package com.fibank.cashdesk.service;
 
 import com.fibank.cashdesk.dto.request.CashOperationRequest;
+import com.fibank.cashdesk.dto.response.BatchOperationResultDTO;
 import com.fibank.cashdesk.dto.response.CashOperationResponse;
+import com.fibank.cashdesk.exception.BalanceVersionMismatchException;
+import com.fibank.cashdesk.exception.FileStorageException;
 import com.fibank.cashdesk.exception.InsufficientFundsException;
 import com.fibank.cashdesk.exception.InvalidCashierException;
 import com.fibank.cashdesk.exception.InvalidDenominationException;
+import com.fibank.cashdesk.model.BalanceSnapshot;
 import com.fibank.cashdesk.model.CashBalance;
 import com.fibank.cashdesk.model.Currency;
 import com.fibank.cashdesk.model.Transaction;
 import com.fibank.cashdesk.repository.BalanceRepository;
+import com.fibank.cashdesk.repository.BalanceUpdate;
+import com.fibank.cashdesk.repository.FileBalanceRepository;
 import com.fibank.cashdesk.repository.TransactionRepository;
 import com.fibank.cashdesk.service.handler.CashOperationHandler;
 import com.fibank.cashdesk.service.handler.DepositOperationHandler;
@@ -18,15 +24,25 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -49,9 +65,6 @@ class CashOperationServiceImplTest {
     @Captor
     private ArgumentCaptor<Transaction> transactionCaptor;
 
-    @Captor
-    private ArgumentCaptor<Map<Currency, CashBalance>> balanceCaptor;
-
     private CashOperationService cashOperationService;
     private DepositOperationHandler depositHandler;
     private WithdrawalOperationHandler withdrawalHandler;
@@ -63,10 +76,12 @@ class CashOperationServiceImplTest {
 
         List<CashOperationHandler> handlers = List.of(depositHandler, withdrawalHandler);
 
+        // Completion stages run inline, so that tests observe them as soon as the save completes
         cashOperationService = new CashOperationServiceImpl(
             transactionRepository,
             balanceRepository,
-            handlers
+            handlers,
+            Runnable::run
         );
     }
 
@@ -94,7 +109,7 @@ class CashOperationServiceImplTest {
         bgnBalance.setDenominationCount(50, 10);
         existingBalances.put(Currency.BGN, bgnBalance);
 
-        when(balanceRepository.findByCashier("MARTINA")).thenReturn(existingBalances);
+        givenBalances("MARTINA", existingBalances);
 
         // Act
         CashOperationResponse response = cashOperationService.processOperation(request);
@@ -115,9 +130,8 @@ class CashOperationServiceImplTest {
         assertThat(savedTransaction.getAmount()).isEqualByComparingTo(new BigDecimal("600.00"));
 
         // Verify balance was updated
-        verify(balanceRepository, times(1)).save(eq("MARTINA"), balanceCaptor.capture());
-        Map<Currency, CashBalance> updatedBalances = balanceCaptor.getValue();
-        CashBalance updatedBgnBalance = updatedBalances.get(Currency.BGN);
+        verify(balanceRepository, times(1)).update(eq("MARTINA"), eq(Currency.BGN), any());
+        CashBalance updatedBgnBalance = existingBalances.get(Currency.BGN);
         assertThat(updatedBgnBalance.getDenominationCount(10)).isEqualTo(60); // 50 + 10
         assertThat(updatedBgnBalance.getDenominationCount(50)).isEqualTo(20); // 10 + 10
     }
@@ -144,7 +158,7 @@ class CashOperationServiceImplTest {
         eurBalance.setDenominationCount(50, 20);
         existingBalances.put(Currency.EUR, eurBalance);
 
-        when(balanceRepository.findByCashier("PETER")).thenReturn(existingBalances);
+        givenBalances("PETER", existingBalances);
 
         // Act
         CashOperationResponse response = cashOperationService.processOperation(request);
@@ -153,7 +167,7 @@ class CashOperationServiceImplTest {
         assertThat(response.getCurrency()).isEqualTo("EUR");
         assertThat(response.getAmount()).isEqualByComparingTo(new BigDecimal("200.00"));
 
-        verify(balanceRepository).save(eq("PETER"), any());
+        verify(balanceRepository).update(eq("PETER"), eq(Currency.EUR), any());
     }
 
     // ===================== Withdrawal Tests =====================
@@ -180,7 +194,7 @@ class CashOperationServiceImplTest {
         bgnBalance.setDenominationCount(50, 10);
         existingBalances.put(Currency.BGN, bgnBalance);
 
-        when(balanceRepository.findByCashier("LINDA")).thenReturn(existingBalances);
+        givenBalances("LINDA", existingBalances);
 
         // Act
         CashOperationResponse response = cashOperationService.processOperation(request);
@@ -189,9 +203,8 @@ class CashOperationServiceImplTest {
         assertThat(response.getOperationType()).isEqualTo("WITHDRAWAL");
         assertThat(response.getAmount()).isEqualByComparingTo(new BigDecimal("100.00"));
 
-        verify(balanceRepository).save(eq("LINDA"), balanceCaptor.capture());
-        Map<Currency, CashBalance> updatedBalances = balanceCaptor.getValue();
-        CashBalance updatedBgnBalance = updatedBalances.get(Currency.BGN);
+        verify(balanceRepository).update(eq("LINDA"), eq(Currency.BGN), any());
+        CashBalance updatedBgnBalance = existingBalances.get(Currency.BGN);
         assertThat(updatedBgnBalance.getDenominationCount(10)).isEqualTo(45); // 50 - 5
         assertThat(updatedBgnBalance.getDenominationCount(50)).isEqualTo(9);  // 10 - 1
     }
@@ -217,7 +230,7 @@ class CashOperationServiceImplTest {
         eurBalance.setDenominationCount(50, 20);
         existingBalances.put(Currency.EUR, eurBalance);
 
-        when(balanceRepository.findByCashier("MARTINA")).thenReturn(existingBalances);
+        givenBalances("MARTINA", existingBalances);
 
         // Act
         CashOperationResponse response = cashOperationService.processOperation(request);
@@ -226,8 +239,8 @@ class CashOperationServiceImplTest {
         assertThat(response.getCurrency()).isEqualTo("EUR");
         assertThat(response.getAmount()).isEqualByComparingTo(new BigDecimal("500.00"));
 
-        verify(balanceRepository).save(eq("MARTINA"), balanceCaptor.capture());
-        CashBalance updatedEurBalance = balanceCaptor.getValue().get(Currency.EUR);
+        verify(balanceRepository).update(eq("MARTINA"), eq(Currency.EUR), any());
+        CashBalance updatedEurBalance = existingBalances.get(Currency.EUR);
         assertThat(updatedEurBalance.getDenominationCount(50)).isEqualTo(10); // 20 - 10
     }
 
@@ -251,7 +264,7 @@ class CashOperationServiceImplTest {
             .isInstanceOf(InvalidCashierException.class)
             .hasMessageContaining("Invalid cashier");
 
-        verify(balanceRepository, never()).save(anyString(), any());
+        verify(balanceRepository, never()).update(anyString(), any(), any());
         verify(transactionRepository, never()).save(any());
     }
 
@@ -271,12 +284,12 @@ class CashOperationServiceImplTest {
 
         Map<Currency, CashBalance> existingBalances = new HashMap<>();
         existingBalances.put(Currency.BGN, new CashBalance(Currency.BGN));
-        when(balanceRepository.findByCashier("MARTINA")).thenReturn(existingBalances);
+        givenBalances("MARTINA", existingBalances);
 
         assertThatThrownBy(() -> cashOperationService.processOperation(request))
             .isInstanceOf(InvalidDenominationException.class);
 
-        verify(balanceRepository, never()).save(anyString(), any());
+        assertThat(existingBalances.get(Currency.BGN).getDenominationCount(10)).isZero();
         verify(transactionRepository, never()).save(any());
     }
 
@@ -300,7 +313,7 @@ class CashOperationServiceImplTest {
         bgnBalance.setDenominationCount(50, 10);  // 500 BGN (total 1000 BGN only)
         existingBalances.put(Currency.BGN, bgnBalance);
 
-        when(balanceRepository.findByCashier("PETER")).thenReturn(existingBalances);
+        givenBalances("PETER", existingBalances);
 
         assertThatThrownBy(() -> cashOperationService.processOperation(request))
             .isInstanceOf(InsufficientFundsException.class);
@@ -328,7 +341,7 @@ class CashOperationServiceImplTest {
         bgnBalance.setDenominationCount(50, 10);  // Only 10x 50 BGN notes (not enough!)
         existingBalances.put(Currency.BGN, bgnBalance);
 
-        when(balanceRepository.findByCashier("LINDA")).thenReturn(existingBalances);
+        givenBalances("LINDA", existingBalances);
 
         assertThatThrownBy(() -> cashOperationService.processOperation(request))
             .isInstanceOf(InsufficientFundsException.class)
@@ -353,7 +366,7 @@ class CashOperationServiceImplTest {
 
         Map<Currency, CashBalance> existingBalances = new HashMap<>();
         existingBalances.put(Currency.BGN, new CashBalance(Currency.BGN));
-        when(balanceRepository.findByCashier("MARTINA")).thenReturn(existingBalances);
+        givenBalances("MARTINA", existingBalances);
 
         assertThatThrownBy(() -> cashOperationService.processOperation(request))
             .isInstanceOf(InvalidDenominationException.class)
@@ -378,7 +391,7 @@ class CashOperationServiceImplTest {
 
         Map<Currency, CashBalance> existingBalances = new HashMap<>();
         existingBalances.put(Currency.EUR, new CashBalance(Currency.EUR));
-        when(balanceRepository.findByCashier("PETER")).thenReturn(existingBalances);
+        givenBalances("PETER", existingBalances);
 
         assertThatThrownBy(() -> cashOperationService.processOperation(request))
             .isInstanceOf(InvalidDenominationException.class);
@@ -404,12 +417,12 @@ class CashOperationServiceImplTest {
 
         Map<Currency, CashBalance> existingBalances = new HashMap<>();
         existingBalances.put(Currency.BGN, new CashBalance(Currency.BGN));
-        when(balanceRepository.findByCashier("MARTINA")).thenReturn(existingBalances);
+        givenBalances("MARTINA", existingBalances);
 
         CashOperationResponse response = cashOperationService.processOperation(request);
 
         assertThat(response.getCashier()).isEqualTo("MARTINA");
-        verify(balanceRepository).findByCashier("MARTINA");
+        verify(balanceRepository).update(eq("MARTINA"), eq(Currency.BGN), any());
     }
 
     @Test
@@ -428,7 +441,7 @@ class CashOperationServiceImplTest {
 
         Map<Currency, CashBalance> existingBalances = new HashMap<>();
         existingBalances.put(Currency.BGN, new CashBalance(Currency.BGN));
-        when(balanceRepository.findByCashier("PETER")).thenReturn(existingBalances);
+        givenBalances("PETER", existingBalances);
 
         CashOperationResponse response = cashOperationService.processOperation(request);
 
@@ -455,7 +468,7 @@ class CashOperationServiceImplTest {
 
         Map<Currency, CashBalance> existingBalances = new HashMap<>();
         existingBalances.put(Currency.BGN, new CashBalance(Currency.BGN));
-        when(balanceRepository.findByCashier("LINDA")).thenReturn(existingBalances);
+        givenBalances("LINDA", existingBalances);
 
         CashOperationResponse response = cashOperationService.processOperation(request);
 
@@ -479,15 +492,397 @@ class CashOperationServiceImplTest {
 
         // Return empty balances map (no BGN balance yet)
         Map<Currency, CashBalance> existingBalances = new HashMap<>();
-        when(balanceRepository.findByCashier("MARTINA")).thenReturn(existingBalances);
+        givenBalances("MARTINA", existingBalances);
 
         CashOperationResponse response = cashOperationService.processOperation(request);
 
         assertThat(response).isNotNull();
-        verify(balanceRepository).save(eq("MARTINA"), balanceCaptor.capture());
+        verify(balanceRepository).update(eq("MARTINA"), eq(Currency.BGN), any());
+
+        assertThat(existingBalances).containsKey(Currency.BGN);
+        assertThat(existingBalances.get(Currency.BGN).getDenominationCount(10)).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Should reverse the balance change when the transaction cannot be saved")
+    void shouldReverseBalanceChangeWhenTransactionSaveFails() {
+        Map<Integer, Integer> denominations = new HashMap<>();
+        denominations.put(50, 2);
+
+        CashOperationRequest request = new CashOperationRequest(
+            "WITHDRAWAL",
+            "PETER",
+            "BGN",
+            new BigDecimal("100.00"),
+            denominations
+        );
+
+        Map<Currency, CashBalance> existingBalances = new HashMap<>();
+        CashBalance bgnBalance = new CashBalance(Currency.BGN);
+        bgnBalance.setDenominationCount(50, 10);
+        existingBalances.put(Currency.BGN, bgnBalance);
+        givenBalances("PETER", existingBalances);
+        doThrow(new FileStorageException("Disk full")).when(transactionRepository).save(any());
+
+        assertThatThrownBy(() -> cashOperationService.processOperation(request))
+            .isInstanceOf(FileStorageException.class);
+
+        verify(balanceRepository, times(2)).update(eq("PETER"), eq(Currency.BGN), any());
+        assertThat(bgnBalance.getDenominationCount(50)).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Should not save the transaction again when balances are derived from the log")
+    void shouldLeaveAppendToLogSourcedBalances() {
+        Map<Integer, Integer> denominations = new HashMap<>();
+        denominations.put(10, 10);
+
+        CashOperationRequest request = new CashOperationRequest(
+            "DEPOSIT",
+            "LINDA",
+            "BGN",
+            new BigDecimal("100.00"),
+            denominations
+        );
+
+        Map<Currency, CashBalance> existingBalances = new HashMap<>();
+        givenBalances("LINDA", existingBalances);
+        when(balanceRepository.appendsTransactions()).thenReturn(true);
+
+        CashOperationResponse response = cashOperationService.processOperation(request);
+
+        assertThat(response.getTransactionId()).isNotNull();
+        assertThat(existingBalances.get(Currency.BGN).getDenominationCount(10)).isEqualTo(10);
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should complete the async response once the transaction is committed")
+    void shouldCompleteAsyncResponseOnCommit() {
+        Map<Currency, CashBalance> existingBalances = new HashMap<>();
+        givenBalances("PETER", existingBalances);
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        when(transactionRepository.saveAsync(any())).thenReturn(committed);
+
+        CompletableFuture<CashOperationResponse> response = cashOperationService.processOperationAsync(
+            new CashOperationRequest("DEPOSIT", "PETER", "BGN", new BigDecimal("50.00"), Map.of(50, 1)), null);
+
+        assertThat(existingBalances.get(Currency.BGN).getDenominationCount(50)).isEqualTo(1);
+        assertThat(response).isNotDone();
+
+        committed.complete(null);
+
+        assertThat(response).isCompleted();
+        verify(transactionRepository).saveAsync(transactionCaptor.capture());
+        assertThat(response.join().getTransactionId()).isEqualTo(transactionCaptor.getValue().getId().toString());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should reverse the balance change when the async save fails")
+    void shouldReverseBalanceChangeWhenAsyncSaveFails() {
+        Map<Currency, CashBalance> existingBalances = new HashMap<>();
+        CashBalance eurBalance = new CashBalance(Currency.EUR);
+        eurBalance.setDenominationCount(20, 4);
+        existingBalances.put(Currency.EUR, eurBalance);
+        givenBalances("MARTINA", existingBalances);
+        when(transactionRepository.saveAsync(any()))
+            .thenReturn(CompletableFuture.failedFuture(new FileStorageException("Disk full")));
+
+        CompletableFuture<CashOperationResponse> response = cashOperationService.processOperationAsync(
+            new CashOperationRequest("WITHDRAWAL", "MARTINA", "EUR", new BigDecimal("40.00"), Map.of(20, 2)), null);
+
+        assertThatThrownBy(response::join).hasCauseInstanceOf(FileStorageException.class);
+        verify(balanceRepository, times(2)).update(eq("MARTINA"), eq(Currency.EUR), any());
+        assertThat(eurBalance.getDenominationCount(20)).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should complete and roll back async operations on the completion executor")
+    void shouldCompleteAsyncOperationsOnCompletionExecutor() {
+        ExecutorService completionExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "completion"));
+        CashOperationService service = new CashOperationServiceImpl(
+            transactionRepository, balanceRepository, List.of(depositHandler, withdrawalHandler), completionExecutor);
+        List<String> updateThreads = new ArrayList<>();
+        Map<Currency, CashBalance> existingBalances = new HashMap<>();
+        when(balanceRepository.update(eq("MARTINA"), any(), any())).thenAnswer(invocation -> {
+            updateThreads.add(Thread.currentThread().getName());
+            Function<CashBalance, Transaction> mutator = invocation.getArgument(2);
+            return mutator.apply(existingBalances.computeIfAbsent(invocation.getArgument(1), CashBalance::new));
+        });
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        when(transactionRepository.saveAsync(any())).thenReturn(committed);
+
+        try {
+            CompletableFuture<String> completedOn = service.processOperationAsync(
+                    new CashOperationRequest("DEPOSIT", "MARTINA", "BGN", new BigDecimal("10.00"), Map.of(10, 1)), null)
+                .handle((response, failure) -> Thread.currentThread().getName());
+            Thread writer = new Thread(() -> committed.completeExceptionally(new FileStorageException("Disk full")),
+                "txlog-writer");
+            writer.start();
+
+            assertThat(completedOn.join()).isEqualTo("completion");
+            assertThat(updateThreads).containsExactly(Thread.currentThread().getName(), "completion");
+            assertThat(existingBalances.get(Currency.BGN).getDenominationCount(10)).isZero();
+        } finally {
+            completionExecutor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should fail the async response of an invalid operation without touching balances")
+    void shouldFailAsyncResponseOfInvalidOperation() {
+        CompletableFuture<CashOperationResponse> response = cashOperationService.processOperationAsync(
+            new CashOperationRequest("DEPOSIT", "NOBODY", "BGN", new BigDecimal("10.00"), Map.of(10, 1)), null);
+
+        assertThatThrownBy(response::join).hasCauseInstanceOf(InvalidCashierException.class);
+        verifyNoInteractions(balanceRepository, transactionRepository);
+    }
+
+    @Test
+    @DisplayName("Should apply a conditional operation to the expected balance version")
+    void shouldApplyConditionalOperationToExpectedVersion() {
+        BalanceSnapshot snapshot = BalanceSnapshot.of("PETER", Map.of(Currency.BGN, new CashBalance(Currency.BGN)));
+        when(balanceRepository.findSnapshot("PETER")).thenReturn(snapshot);
+        CashBalance balance = snapshot.toCashBalance(Currency.BGN);
+        givenBalances("PETER", new HashMap<>(Map.of(Currency.BGN, balance)));
+        when(transactionRepository.saveAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        CompletableFuture<CashOperationResponse> response = cashOperationService.processOperationAsync(
+            new CashOperationRequest("DEPOSIT", "PETER", "BGN", new BigDecimal("50.00"), Map.of(50, 1)),
+            snapshot.getVersion());
+
+        assertThat(response.join().getCashier()).isEqualTo("PETER");
+        assertThat(balance.getDenominationCount(50)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should reject a stale expected version without waiting for the balance lock")
+    void shouldRejectStaleVersionWithoutLocking() {
+        BalanceSnapshot read = BalanceSnapshot.of("PETER", Map.of(Currency.BGN, new CashBalance(Currency.BGN)));
+        BalanceSnapshot current = read.with(new CashBalance(Currency.BGN, Map.of(10, 1)));
+        when(balanceRepository.findSnapshot("PETER")).thenReturn(current);
+
+        CompletableFuture<CashOperationResponse> response = cashOperationService.processOperationAsync(
+            new CashOperationRequest("WITHDRAWAL", "PETER", "BGN", new BigDecimal("10.00"), Map.of(10, 1)),
+            read.getVersion());
+
+        assertThatThrownBy(response::join).hasCauseInstanceOf(BalanceVersionMismatchException.class);
+        verify(balanceRepository, never()).update(any(), any(), any());
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    @DisplayName("Should reject an expected version the balances are not at, even a later one")
+    void shouldRejectExpectedVersionNotReached() {
+        BalanceSnapshot current = BalanceSnapshot.of("PETER", Map.of(Currency.BGN, new CashBalance(Currency.BGN)));
+        when(balanceRepository.findSnapshot("PETER")).thenReturn(current);
+
+        CompletableFuture<CashOperationResponse> response = cashOperationService.processOperationAsync(
+            new CashOperationRequest("DEPOSIT", "PETER", "BGN", new BigDecimal("10.00"), Map.of(10, 1)),
+            current.getVersion() + 1000);
+
+        assertThatThrownBy(response::join).hasCauseInstanceOf(BalanceVersionMismatchException.class);
+        verify(balanceRepository, never()).update(any(), any(), any());
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    @DisplayName("Should reject a conditional operation when the balance changes before it is applied")
+    void shouldRejectConditionalOperationWhenBalanceChangesBeforeApply() {
+        BalanceSnapshot read = BalanceSnapshot.of("PETER", Map.of(Currency.BGN, new CashBalance(Currency.BGN)));
+        when(balanceRepository.findSnapshot("PETER")).thenReturn(read);
+        // Changed by another operation between the check and the balance lock
+        CashBalance changed = read.with(new CashBalance(Currency.BGN, Map.of(10, 1))).toCashBalance(Currency.BGN);
+        givenBalances("PETER", new HashMap<>(Map.of(Currency.BGN, changed)));
+
+        CompletableFuture<CashOperationResponse> response = cashOperationService.processOperationAsync(
+            new CashOperationRequest("WITHDRAWAL", "PETER", "BGN", new BigDecimal("10.00"), Map.of(10, 1)),
+            read.getVersion());
+
+        assertThatThrownBy(response::join).hasCauseInstanceOf(BalanceVersionMismatchException.class);
+        assertThat(changed.getDenominationCount(10)).isEqualTo(1);
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    @DisplayName("Should apply the operation in the cashier mailbox in mailbox mode")
+    void shouldApplyOperationInMailbox(@TempDir Path dataDir) {
+        FileBalanceRepository repository = spy(fileBalanceRepository(dataDir));
+        CashOperationServiceImpl service = mailboxService(repository);
+        when(transactionRepository.saveAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        try {
+            CashOperationResponse response = service.processOperation(new CashOperationRequest(
+                "DEPOSIT", "MARTINA", "EUR", new BigDecimal("40.00"), Map.of(20, 2)));
+
+            assertThat(response.getTransactionId()).isNotNull();
+            assertThat(repository.findSnapshot("MARTINA").getDenominationCount(Currency.EUR, 20)).isEqualTo(2);
+            verify(transactionRepository).saveAsync(transactionCaptor.capture());
+            assertThat(transactionCaptor.getValue().getId().toString()).isEqualTo(response.getTransactionId());
+            verify(transactionRepository, never()).save(any());
+            // The mailbox batch is persisted as one unit, not per operation
+            verify(repository).updateAll(any(), eq(false));
+            verify(repository, never()).update(any(), any(), any());
+        } finally {
+            service.close();
+            repository.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should reverse the balance change in mailbox mode when the transaction cannot be saved")
+    void shouldReverseBalanceChangeInMailboxWhenSaveFails(@TempDir Path dataDir) {
+        FileBalanceRepository repository = fileBalanceRepository(dataDir);
+        CashOperationServiceImpl service = mailboxService(repository);
+        when(transactionRepository.saveAsync(any()))
+            .thenReturn(CompletableFuture.failedFuture(new FileStorageException("Disk full")));
+
+        try {
+            assertThatThrownBy(() -> service.processOperation(new CashOperationRequest(
+                "WITHDRAWAL", "LINDA", "BGN", new BigDecimal("30.00"), Map.of(10, 3))))
+                .isInstanceOf(FileStorageException.class);
+
+            assertThat(repository.findSnapshot("LINDA").getDenominationCount(Currency.BGN, 10)).isEqualTo(50);
+        } finally {
+            service.close();
+            repository.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should apply only one of two conditional operations on one version in a mailbox batch")
+    void shouldApplyOneConditionalOperationPerVersionInMailboxBatch(@TempDir Path dataDir) throws Exception {
+        FileBalanceRepository repository = spy(fileBalanceRepository(dataDir));
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Hold the mailbox in its first batch so that both conditional operations queue up behind it
+        doAnswer(invocation -> {
+            blocked.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).doCallRealMethod().when(repository).updateAll(any(), eq(false));
+        CashOperationServiceImpl service = mailboxService(repository);
+        when(transactionRepository.saveAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        try {
+            long version = repository.findSnapshot("PETER").getVersion();
+            CompletableFuture<CashOperationResponse> blocker = service.processOperationAsync(
+                new CashOperationRequest("WITHDRAWAL", "PETER", "BGN", new BigDecimal("10000.00"), Map.of(10, 1000)), null);
+            assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<CashOperationResponse> first = service.processOperationAsync(
+                new CashOperationRequest("DEPOSIT", "PETER", "BGN", new BigDecimal("10.00"), Map.of(10, 1)), version);
+            CompletableFuture<CashOperationResponse> second = service.processOperationAsync(
+                new CashOperationRequest("DEPOSIT", "PETER", "BGN", new BigDecimal("10.00"), Map.of(10, 1)), version);
+            release.countDown();
+
+            assertThatThrownBy(blocker::join).hasCauseInstanceOf(InsufficientFundsException.class);
+            assertThat(first.join().getCashier()).isEqualTo("PETER");
+            assertThatThrownBy(second::join).hasCauseInstanceOf(BalanceVersionMismatchException.class);
+            assertThat(repository.findSnapshot("PETER").getDenominationCount(Currency.BGN, 10)).isEqualTo(51);
+            verify(repository, times(2)).updateAll(any(), eq(false));
+        } finally {
+            release.countDown();
+            service.close();
+            repository.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should not touch balances when an operation of an atomic batch is invalid")
+    void shouldRejectAtomicBatchWithInvalidOperation() {
+        List<BatchOperationResultDTO> results = cashOperationService.processBatch(List.of(
+            new CashOperationRequest("DEPOSIT", "MARTINA", "BGN", new BigDecimal("10.00"), Map.of(10, 1)),
+            new CashOperationRequest("DEPOSIT", "NOBODY", "BGN", new BigDecimal("10.00"), Map.of(10, 1))
+        ), true);
+
+        assertThat(results).extracting(BatchOperationResultDTO::getStatus)
+            .containsExactly(BatchOperationResultDTO.NOT_APPLIED, BatchOperationResultDTO.FAILED);
+        assertThat(results.get(1).getError()).contains("NOBODY");
+        verify(balanceRepository, never()).updateAll(any(), anyBoolean());
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    @DisplayName("Should apply the valid operations of a best-effort batch together")
+    void shouldApplyValidOperationsOfBestEffortBatch() {
+        List<BalanceUpdate> applied = new ArrayList<>();
+        doAnswer(invocation -> applied.addAll(invocation.getArgument(0)))
+            .when(balanceRepository).updateAll(any(), eq(false));
+
+        List<BatchOperationResultDTO> results = cashOperationService.processBatch(List.of(
+            new CashOperationRequest("DEPOSIT", "NOBODY", "BGN", new BigDecimal("10.00"), Map.of(10, 1)),
+            new CashOperationRequest("WITHDRAWAL", "linda", "eur", new BigDecimal("50.00"), Map.of(50, 1)),
+            new CashOperationRequest("DEPOSIT", "PETER", "BGN", new BigDecimal("10.00"), Map.of(10, 1))
+        ), false);
+
+        assertThat(results.get(0).getStatus()).isEqualTo(BatchOperationResultDTO.FAILED);
+        assertThat(applied).extracting(BalanceUpdate::getCashier).containsExactly("LINDA", "PETER");
+        assertThat(applied).extracting(BalanceUpdate::getCurrency).containsExactly(Currency.EUR, Currency.BGN);
+        verify(balanceRepository).updateAll(any(), eq(false));
+    }
+
+    @Test
+    @DisplayName("Should propagate a storage failure of an atomic batch")
+    void shouldPropagateStorageFailureOfAtomicBatch() {
+        doThrow(new FileStorageException("Disk full")).when(balanceRepository).updateAll(any(), eq(true));
+
+        assertThatThrownBy(() -> cashOperationService.processBatch(List.of(
+            new CashOperationRequest("DEPOSIT", "MARTINA", "BGN", new BigDecimal("10.00"), Map.of(10, 1))
+        ), true)).isInstanceOf(FileStorageException.class);
+
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    @DisplayName("Should roll back every operation of an atomic batch when a save fails")
+    void shouldRollBackAtomicBatchWhenSaveFails(@TempDir Path dataDir) {
+        FileBalanceRepository repository = fileBalanceRepository(dataDir);
+        when(transactionRepository.saveAsync(any()))
+            .thenReturn(CompletableFuture.completedFuture(null))
+            .thenReturn(CompletableFuture.failedFuture(new FileStorageException("Disk full")));
+        CashOperationService service = new CashOperationServiceImpl(
+            transactionRepository, repository, List.of(depositHandler, withdrawalHandler), Runnable::run);
+
+        try {
+            List<BatchOperationResultDTO> results = service.processBatch(List.of(
+                new CashOperationRequest("DEPOSIT", "MARTINA", "BGN", new BigDecimal("10.00"), Map.of(10, 1)),
+                new CashOperationRequest("WITHDRAWAL", "PETER", "EUR", new BigDecimal("50.00"), Map.of(50, 1))
+            ), true);
+
+            assertThat(results).extracting(BatchOperationResultDTO::getStatus)
+                .containsExactly(BatchOperationResultDTO.NOT_APPLIED, BatchOperationResultDTO.FAILED);
+            assertThat(repository.findSnapshot("MARTINA").getDenominationCount(Currency.BGN, 10)).isEqualTo(50);
+            assertThat(repository.findSnapshot("PETER").getDenominationCount(Currency.EUR, 50)).isEqualTo(20);
+        } finally {
+            repository.close();
+        }
+    }
+
+    private static FileBalanceRepository fileBalanceRepository(Path dataDir) {
+        FileBalanceRepository repository = new FileBalanceRepository();
+        ReflectionTestUtils.setField(repository, "balanceFilePath", dataDir.resolve("balances.txt").toString());
+        ReflectionTestUtils.setField(repository, "cashierNames", List.of("MARTINA", "PETER", "LINDA"));
+        repository.initialize();
+        return repository;
+    }
+
+    private CashOperationServiceImpl mailboxService(BalanceRepository repository) {
+        CashOperationServiceImpl service = new CashOperationServiceImpl(
+            transactionRepository, repository, List.of(depositHandler, withdrawalHandler), Runnable::run);
+        ReflectionTestUtils.setField(service, "executionMode", ExecutionMode.MAILBOX);
+        service.initialize();
+        return service;
+    }
 
-        Map<Currency, CashBalance> savedBalances = balanceCaptor.getValue();
-        assertThat(savedBalances).containsKey(Currency.BGN);
-        assertThat(savedBalances.get(Currency.BGN).getDenominationCount(10)).isEqualTo(10);
+    /**
+     * Stub atomic balance updates of the cashier to apply the mutator to the given balances.
+     */
+    private void givenBalances(String cashier, Map<Currency, CashBalance> balances) {
+        when(balanceRepository.update(eq(cashier), any(), any())).thenAnswer(invocation -> {
+            Currency currency = invocation.getArgument(1);
+            Function<CashBalance, Transaction> mutator = invocation.getArgument(2);
+            return mutator.apply(balances.computeIfAbsent(currency, CashBalance::new));
+        });
     }
 }
@@ -0,0 +1,173 @@
+package com.fibank.cashdesk.service.mailbox;
+
+import com.fibank.cashdesk.exception.CashierBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for CashierMailboxes.
+ */
+@DisplayName("CashierMailboxes Tests")
+class CashierMailboxesTest {
+
+    private CashierMailboxes<Integer, Integer> mailboxes;
+
+    @AfterEach
+    void tearDown() {
+        if (mailboxes != null) {
+            mailboxes.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should apply the commands of a cashier in order on one thread")
+    void shouldApplyCommandsInOrderOnOneThread() {
+        List<Integer> applied = Collections.synchronizedList(new ArrayList<>());
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        mailboxes = new CashierMailboxes<>((cashier, batch) -> {
+            threads.add(Thread.currentThread().getName());
+            batch.forEach(submission -> {
+                applied.add(submission.getCommand());
+                submission.getResult().complete(submission.getCommand() * 2);
+            });
+        }, 1000, 16, 1000);
+
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            results.add(mailboxes.submit("PETER", i));
+        }
+
+        assertThat(results.get(499).join()).isEqualTo(998);
+        assertThat(applied).hasSize(500).isSorted();
+        assertThat(threads).containsExactly("mailbox-PETER");
+    }
+
+    @Test
+    @DisplayName("Should hand commands queued meanwhile to the handler as one batch")
+    void shouldBatchQueuedCommands() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        mailboxes = new CashierMailboxes<>((cashier, batch) -> {
+            batchSizes.add(batch.size());
+            started.countDown();
+            awaitQuietly(release);
+            batch.forEach(submission -> submission.getResult().complete(submission.getCommand()));
+        }, 100, 10, 1000);
+
+        CompletableFuture<Integer> first = mailboxes.submit("LINDA", 0);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        List<CompletableFuture<Integer>> queued = new ArrayList<>();
+        for (int i = 1; i <= 25; i++) {
+            queued.add(mailboxes.submit("LINDA", i));
+        }
+        release.countDown();
+
+        assertThat(first.join()).isZero();
+        assertThat(queued.get(24).join()).isEqualTo(25);
+        assertThat(batchSizes).containsExactly(1, 10, 10, 5);
+    }
+
+    @Test
+    @DisplayName("Should reject commands when the mailbox is full")
+    void shouldRejectCommandsWhenFull() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        mailboxes = new CashierMailboxes<>((cashier, batch) -> {
+            started.countDown();
+            awaitQuietly(release);
+            batch.forEach(submission -> submission.getResult().complete(submission.getCommand()));
+        }, 2, 1, 1000);
+
+        mailboxes.submit("MARTINA", 0);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        mailboxes.submit("MARTINA", 1);
+        mailboxes.submit("MARTINA", 2);
+
+        assertThatThrownBy(() -> mailboxes.submit("MARTINA", 3))
+            .isInstanceOf(CashierBusyException.class)
+            .hasMessageContaining("MARTINA");
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Should fail the results of a batch the handler did not complete")
+    void shouldFailIncompleteResults() {
+        mailboxes = new CashierMailboxes<>((cashier, batch) -> {
+            throw new IllegalArgumentException("Broken handler");
+        }, 10, 10, 1000);
+
+        assertThatThrownBy(() -> mailboxes.submit("PETER", 1).join())
+            .hasCauseInstanceOf(IllegalArgumentException.class);
+
+        // The owner survives a failed batch
+        assertThatThrownBy(() -> mailboxes.submit("PETER", 2).join())
+            .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should restart the owner after it stopped when idle")
+    void shouldRestartOwnerAfterIdleStop() throws InterruptedException {
+        mailboxes = new CashierMailboxes<>((cashier, batch) ->
+            batch.forEach(submission -> submission.getResult().complete(submission.getCommand())), 10, 10, 10);
+
+        assertThat(mailboxes.submit("PETER", 1).join()).isEqualTo(1);
+        Thread.sleep(100);
+        assertThat(mailboxes.submit("PETER", 2).join()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should apply the queued commands before close returns")
+    void shouldDrainQueuedCommandsOnClose() {
+        mailboxes = new CashierMailboxes<>((cashier, batch) -> {
+            awaitQuietly(new CountDownLatch(1), 10);
+            batch.forEach(submission -> submission.getResult().complete(submission.getCommand()));
+        }, 100, 1, 60_000);
+
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            results.add(mailboxes.submit(i % 2 == 0 ? "PETER" : "LINDA", i));
+        }
+        mailboxes.close();
+
+        assertThat(results).allMatch(result -> result.isDone() && !result.isCompletedExceptionally());
+        assertThat(results.get(19).join()).isEqualTo(19);
+    }
+
+    @Test
+    @DisplayName("Should reject commands after close and for unknown cashiers")
+    void shouldRejectAfterCloseAndUnknownCashiers() {
+        mailboxes = new CashierMailboxes<>((cashier, batch) -> { }, 10, 10, 1000);
+
+        assertThatThrownBy(() -> mailboxes.submit("NOBODY", 1))
+            .isInstanceOf(IllegalArgumentException.class);
+
+        mailboxes.close();
+        assertThatThrownBy(() -> mailboxes.submit("PETER", 1))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        awaitQuietly(latch, 5000);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch, long millis) {
+        try {
+            latch.await(millis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.fibank.cashdesk.util;
+
+import com.fibank.cashdesk.config.CurrencyProperties;
+import com.fibank.cashdesk.model.Cashier;
+import com.fibank.cashdesk.model.Currency;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Registers the currencies and cashiers of the test configuration before the first test class, as the currency
+ * registry and the balance store do at startup, so that tests without a Spring context see them.
+ * Applies to every test through extension autodetection, see {@code junit-platform.properties}.
+ */
+public class ConfiguredRegistriesExtension implements BeforeAllCallback {
+
+    private static volatile boolean registered;
+
+    @Override
+    public void beforeAll(ExtensionContext context) {
+        registerConfigured();
+    }
+
+    /**
+     * Register the configured currencies and cashiers, once per JVM.
+     */
+    public static synchronized void registerConfigured() {
+        if (registered) {
+            return;
+        }
+        Binder binder = configuration();
+        CurrencyProperties properties = binder.bind("cashdesk", CurrencyProperties.class).get();
+        Map<String, CurrencyProperties.InitialBalance> initialBalances = properties.getCashiers().getInitialBalances();
+        for (CurrencyProperties.Definition definition : properties.getCurrencies()) {
+            CurrencyProperties.InitialBalance balance = initialBalances.get(definition.getCode().toLowerCase(Locale.ROOT));
+            Currency.register(definition.getCode(), definition.getId(), definition.getDenominations(),
+                balance != null ? balance.getDenominations() : Map.of());
+        }
+        binder.bind("cashdesk.cashiers.names", Bindable.listOf(String.class))
+            .orElse(List.of())
+            .forEach(Cashier::register);
+        registered = true;
+    }
+
+    private static Binder configuration() {
+        try {
+            List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                .load("application", new ClassPathResource("application.yml"));
+            return new Binder(ConfigurationPropertySources.from(sources));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the test configuration", e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.fibank.cashdesk.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fibank.cashdesk.dto.request.CashOperationRequest;
+import com.fibank.cashdesk.repository.FileBalanceRepository;
+import com.fibank.cashdesk.repository.FileTransactionRepository;
+import com.fibank.cashdesk.service.CashOperationService;
+import com.fibank.cashdesk.service.handler.DepositOperationHandler;
+import com.fibank.cashdesk.service.handler.WithdrawalOperationHandler;
+import com.fibank.cashdesk.service.impl.CashOperationServiceImpl;
+import com.fibank.cashdesk.util.ConfiguredRegistriesExtension;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time per operation when 10k clients issue blocking cash operations at once, served by a pool of 200 platform
+ * threads (Tomcat's default maximum) or by one virtual thread per client. Uses the file storage in GROUP durability,
+ * so each client blocks on a log commit like a request thread does.
+ * Compiled only by the {@code java21} profile; run on JDK 21 with
+ * {@code mvn -Pjava21 test-compile exec:exec -Dbenchmark=com.fibank.cashdesk.benchmark.ExecutionThreadsBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@OperationsPerInvocation(ExecutionThreadsBenchmark.CLIENTS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionThreadsBenchmark {
+
+    static final int CLIENTS = 10_000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final List<String> CASHIERS = List.of("MARTINA", "PETER", "LINDA");
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    private String threads;
+
+    private Path directory;
+    private FileTransactionRepository transactionRepository;
+    private FileBalanceRepository balanceRepository;
+    private CashOperationService service;
+    private ExecutorService executor;
+    private List<CashOperationRequest> requests;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Currencies come from configuration, which the benchmark JVM does not load
+        ConfiguredRegistriesExtension.registerConfigured();
+
+        // Per-operation INFO logging would otherwise serialize the clients on console output
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        directory = Files.createTempDirectory("cashdesk-threads-benchmark");
+        transactionRepository = new FileTransactionRepository();
+        ReflectionTestUtils.setField(transactionRepository, "transactionFilePath",
+            directory.resolve("transactions.txt").toString());
+        ReflectionTestUtils.setField(transactionRepository, "binaryTransactionFilePath",
+            directory.resolve("transactions.dat").toString());
+        transactionRepository.initialize();
+
+        balanceRepository = new FileBalanceRepository();
+        ReflectionTestUtils.setField(balanceRepository, "balanceFilePath", directory.resolve("balances.txt").toString());
+        ReflectionTestUtils.setField(balanceRepository, "cashierNames", CASHIERS);
+        ReflectionTestUtils.setField(balanceRepository, "transactionRepository", transactionRepository);
+        balanceRepository.initialize();
+
+        service = new CashOperationServiceImpl(transactionRepository, balanceRepository,
+            List.of(new DepositOperationHandler(), new WithdrawalOperationHandler()), Runnable::run);
+        executor = "VIRTUAL".equals(threads)
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : Executors.newFixedThreadPool(PLATFORM_THREADS);
+
+        requests = new ArrayList<>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            requests.add(new CashOperationRequest("DEPOSIT", CASHIERS.get(i % CASHIERS.size()), "BGN",
+                new BigDecimal("10.00"), Map.of(10, 1)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        balanceRepository.close();
+        transactionRepository.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public int concurrentClients() throws Exception {
+        List<Future<?>> pending = new ArrayList<>(CLIENTS);
+        for (CashOperationRequest request : requests) {
+            pending.add(executor.submit(() -> service.processOperation(request)));
+        }
+        for (Future<?> future : pending) {
+            future.get();
+        }
+        return pending.size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(ExecutionThreadsBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}